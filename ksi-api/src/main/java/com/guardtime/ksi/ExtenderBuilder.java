@@ -24,8 +24,12 @@ import com.guardtime.ksi.exceptions.KSIException;
 import com.guardtime.ksi.pdu.ExtenderConfiguration;
 import com.guardtime.ksi.pdu.ExtensionResponse;
 import com.guardtime.ksi.publication.PublicationRecord;
+import com.guardtime.ksi.publication.PublicationsFile;
 import com.guardtime.ksi.service.Future;
 import com.guardtime.ksi.service.KSIExtendingService;
+import com.guardtime.ksi.unisignature.BoundedCalendarHashChainCache;
+import com.guardtime.ksi.unisignature.CalendarHashChain;
+import com.guardtime.ksi.unisignature.CalendarHashChainCache;
 import com.guardtime.ksi.unisignature.KSISignature;
 import com.guardtime.ksi.unisignature.KSISignatureComponentFactory;
 import com.guardtime.ksi.unisignature.KSISignatureFactory;
@@ -38,6 +42,7 @@ import com.guardtime.ksi.util.Util;
 
 import java.io.IOException;
 
+import static com.guardtime.ksi.unisignature.CalendarHashChainUtil.getCachedCalendarHashChain;
 import static com.guardtime.ksi.util.Util.notNull;
 
 /**
@@ -49,6 +54,7 @@ public final class ExtenderBuilder {
     private KSIExtendingService extendingService;
     private PublicationsHandler publicationsHandler;
     private ContextAwarePolicy policy;
+    private CalendarHashChainCache calendarHashChainCache = new BoundedCalendarHashChainCache();
 
     /**
      * Sets the extending service to be used in extending and verification process.
@@ -81,6 +87,17 @@ public final class ExtenderBuilder {
         return this;
     }
 
+    /**
+     * Sets the cache of extended calendar hash chains. Signatures of the same aggregation round that are extended to the
+     * same publication use the cached calendar hash chain instead of asking the extender again. Only the chains that end
+     * at a publication of the publications file are added to the cache. By default every builder has a
+     * {@link BoundedCalendarHashChainCache} of its own, null disables the caching.
+     */
+    public ExtenderBuilder setCalendarHashChainCache(CalendarHashChainCache calendarHashChainCache) {
+        this.calendarHashChainCache = calendarHashChainCache;
+        return this;
+    }
+
     /**
      * Builds the {@link Extender} instance. Checks that the extender and the publications file handler are set.
      * If not configured, {@link NullPointerException} is thrown.
@@ -96,7 +113,8 @@ public final class ExtenderBuilder {
         }
         KSISignatureComponentFactory signatureComponentFactory = new InMemoryKsiSignatureComponentFactory();
         KSISignatureFactory signatureFactory = new InMemoryKsiSignatureFactory(policy, signatureComponentFactory);
-        return new ExtenderImpl(extendingService, publicationsHandler, signatureFactory, signatureComponentFactory);
+        return new ExtenderImpl(extendingService, publicationsHandler, signatureFactory, signatureComponentFactory,
+                calendarHashChainCache);
     }
 
     private class ExtenderImpl implements Extender {
@@ -104,10 +122,12 @@ public final class ExtenderBuilder {
         private final KSISignatureComponentFactory signatureComponentFactory;
         private final KSIExtendingService extendingService;
         private final PublicationsHandler publicationsHandler;
+        private final CalendarHashChainCache calendarHashChainCache;
 
         public ExtenderImpl(KSIExtendingService extendingService,
                 PublicationsHandler publicationsHandler, KSISignatureFactory signatureFactory,
-                            KSISignatureComponentFactory signatureComponentFactory) {
+                            KSISignatureComponentFactory signatureComponentFactory, CalendarHashChainCache calendarHashChainCache) {
+            this.calendarHashChainCache = calendarHashChainCache;
             this.signatureFactory = signatureFactory;
             this.signatureComponentFactory = signatureComponentFactory;
             this.extendingService = extendingService;
@@ -139,8 +159,29 @@ public final class ExtenderBuilder {
             if (signature.getAggregationTime().after(publicationRecord.getPublicationTime())) {
                 throw new IllegalArgumentException("Publication is before signature");
             }
+            CalendarHashChain calendarHashChain = getCachedCalendarHashChain(calendarHashChainCache, signature,
+                    publicationRecord.getPublicationTime());
+            if (calendarHashChain != null &&
+                    calendarHashChain.getOutputHash().equals(publicationRecord.getPublicationData().getPublicationDataHash())) {
+                return new ExtensionFuture(calendarHashChain, publicationRecord, signature, signatureComponentFactory, signatureFactory);
+            }
             Future<ExtensionResponse> extenderFuture = extendingService.extend(signature.getAggregationTime(), publicationRecord.getPublicationTime());
-            return new ExtensionFuture(extenderFuture, publicationRecord, signature, signatureComponentFactory, signatureFactory);
+            return new ExtensionFuture(extenderFuture, publicationRecord, signature, signatureComponentFactory, signatureFactory,
+                    isTrusted(publicationRecord) ? calendarHashChainCache : null);
+        }
+
+        /**
+         * The cache is shared by all the signatures extended by this extender, so only the chains that end at a
+         * publication of the publications file are cached, not the ones extended to a publication given by the caller.
+         */
+        private boolean isTrusted(PublicationRecord publicationRecord) throws KSIException {
+            if (calendarHashChainCache == null) {
+                return false;
+            }
+            PublicationsFile publicationsFile = publicationsHandler.getPublicationsFile();
+            PublicationRecord trusted = publicationsFile != null ?
+                    publicationsFile.getPublicationRecord(publicationRecord.getPublicationTime()) : null;
+            return trusted != null && trusted.getPublicationData().equals(publicationRecord.getPublicationData());
         }
 
         public KSIExtendingService getExtendingService() {
@@ -19,18 +19,24 @@
  */
 package com.guardtime.ksi;
 
+import com.guardtime.ksi.concurrency.DefaultExecutorServiceProvider;
 import com.guardtime.ksi.exceptions.KSIException;
 import com.guardtime.ksi.pdu.ExtensionResponse;
 import com.guardtime.ksi.publication.PublicationRecord;
 import com.guardtime.ksi.service.Future;
+import com.guardtime.ksi.service.FutureUtil;
 import com.guardtime.ksi.service.KSIProtocolException;
 import com.guardtime.ksi.unisignature.CalendarHashChain;
+import com.guardtime.ksi.unisignature.CalendarHashChainCache;
 import com.guardtime.ksi.unisignature.KSISignature;
 import com.guardtime.ksi.unisignature.KSISignatureComponentFactory;
 import com.guardtime.ksi.unisignature.KSISignatureFactory;
 import com.guardtime.ksi.unisignature.SignaturePublicationRecord;
 
+import java.util.concurrent.CompletionStage;
+
 import static com.guardtime.ksi.unisignature.CalendarHashChainUtil.areRightLinksConsistent;
+import static com.guardtime.ksi.unisignature.CalendarHashChainUtil.cacheCalendarHashChain;
 import static java.util.Arrays.asList;
 
 /**
@@ -41,16 +47,48 @@ import static java.util.Arrays.asList;
 public final class ExtensionFuture implements Future<KSISignature> {
 
     private final Future<ExtensionResponse> future;
+    private final CalendarHashChain calendarHashChain;
+    private final CalendarHashChainCache calendarHashChainCache;
     private final PublicationRecord publicationRecord;
     private final KSISignature signature;
     private final KSISignatureFactory signatureFactory;
     private final KSISignatureComponentFactory signatureComponentFactory;
 
-    private KSISignature extendedSignature;
+    private volatile KSISignature extendedSignature;
 
     public ExtensionFuture(Future<ExtensionResponse> future, PublicationRecord publicationRecord, KSISignature signature,
                            KSISignatureComponentFactory signatureComponentFactory, KSISignatureFactory signatureFactory) {
+        this(future, publicationRecord, signature, signatureComponentFactory, signatureFactory, null);
+    }
+
+    /**
+     * Creates a future of an extender response. The calendar hash chain of the response is added to the given cache
+     * once the extended signature has been created, if the chain ends at the hash of the publication record. The cache
+     * is only given when the publication record comes from a trusted publications file, a chain extended to a
+     * publication of the caller must not be served to other signatures.
+     */
+    public ExtensionFuture(Future<ExtensionResponse> future, PublicationRecord publicationRecord, KSISignature signature,
+                           KSISignatureComponentFactory signatureComponentFactory, KSISignatureFactory signatureFactory,
+                           CalendarHashChainCache calendarHashChainCache) {
+        this(future, null, publicationRecord, signature, signatureComponentFactory, signatureFactory, calendarHashChainCache);
+    }
+
+    /**
+     * Creates a future that extends the signature with an already known calendar hash chain, e.g. one found from a
+     * {@link CalendarHashChainCache}.
+     */
+    public ExtensionFuture(CalendarHashChain calendarHashChain, PublicationRecord publicationRecord, KSISignature signature,
+                           KSISignatureComponentFactory signatureComponentFactory, KSISignatureFactory signatureFactory) {
+        this(null, calendarHashChain, publicationRecord, signature, signatureComponentFactory, signatureFactory, null);
+    }
+
+    private ExtensionFuture(Future<ExtensionResponse> future, CalendarHashChain calendarHashChain,
+                            PublicationRecord publicationRecord, KSISignature signature,
+                            KSISignatureComponentFactory signatureComponentFactory, KSISignatureFactory signatureFactory,
+                            CalendarHashChainCache calendarHashChainCache) {
         this.future = future;
+        this.calendarHashChain = calendarHashChain;
+        this.calendarHashChainCache = calendarHashChainCache;
         this.publicationRecord = publicationRecord;
         this.signature = signature;
         this.signatureComponentFactory = signatureComponentFactory;
@@ -60,13 +98,17 @@ public final class ExtensionFuture implements Future<KSISignature> {
     public KSISignature getResult() throws KSIException {
         if (extendedSignature == null) {
             try {
-                ExtensionResponse extensionResponse = future.getResult();
-                CalendarHashChain calendarHashChain = signatureComponentFactory.createCalendarHashChain(extensionResponse.getCalendarHashChain());
+                CalendarHashChain calendarHashChain = this.calendarHashChain;
+                if (calendarHashChain == null) {
+                    ExtensionResponse extensionResponse = future.getResult();
+                    calendarHashChain = signatureComponentFactory.createCalendarHashChain(extensionResponse.getCalendarHashChain());
+                }
                 if (signature.getCalendarHashChain() != null && !areRightLinksConsistent(signature.getCalendarHashChain(), calendarHashChain)) {
                     throw new InconsistentCalendarHashChainException("Right links of signature calendar hash chain and extended calendar hash chain do not match");
                 }
                 SignaturePublicationRecord publication = signatureComponentFactory.createPublicationRecord(publicationRecord.getPublicationData(), publicationRecord.getPublicationReferences(), publicationRecord.getPublicationRepositoryURIs());
                 extendedSignature = signatureFactory.createSignature(asList(signature.getAggregationHashChains()), calendarHashChain, null, publication, signature.getRfc3161Record());
+                cacheCalendarHashChain(calendarHashChainCache, signature, publicationRecord.getPublicationData(), calendarHashChain);
             } catch (com.guardtime.ksi.tlv.TLVParserException e) {
                 throw new KSIProtocolException("Can't parse response message", e);
             }
@@ -75,6 +117,13 @@ public final class ExtensionFuture implements Future<KSISignature> {
     }
 
     public boolean isFinished() {
-        return future.isFinished();
+        return future == null || future.isFinished();
+    }
+
+    public CompletionStage<KSISignature> toCompletionStage() {
+        if (future == null) {
+            return FutureUtil.toCompletionStage(this, DefaultExecutorServiceProvider.getExecutorService());
+        }
+        return FutureUtil.afterCompletion(future, this);
     }
 }
@@ -55,6 +55,7 @@ import com.guardtime.ksi.util.Util;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -84,6 +85,7 @@ public final class KSIBuilder {
     private KeyStore trustStore;
 
     private long publicationsFileCacheExpirationTime = 0L;
+    private File publicationsFileCacheFile;
 
     private Policy defaultVerificationPolicy;
 
@@ -222,13 +224,27 @@ public final class KSIBuilder {
     }
 
     /**
-     * Sets the publications file expiration time. Default value is 0.
+     * Sets the publications file expiration time. Default value is 0, which means that the publications file is
+     * downloaded every time it's needed. If greater than 0, the publications file is cached and refreshed in the
+     * background after every expiration time milliseconds.
+     *
+     * @see PublicationsHandlerBuilder#setPublicationsFileCacheExpirationTime(long)
      */
     public KSIBuilder setPublicationsFileCacheExpirationTime(long expirationTime) {
         this.publicationsFileCacheExpirationTime = expirationTime;
         return this;
     }
 
+    /**
+     * Sets the file to store the last downloaded publications file in.
+     *
+     * @see PublicationsHandlerBuilder#setPublicationsFileCacheFile(File)
+     */
+    public KSIBuilder setPublicationsFileCacheFile(File cacheFile) {
+        this.publicationsFileCacheFile = cacheFile;
+        return this;
+    }
+
     @Deprecated
     public KSIBuilder setPduIdentifierProvider(PduIdentifierProvider pduIdentifierProvider) {
         return this;
@@ -302,6 +318,7 @@ public final class KSIBuilder {
         PublicationsHandler publicationsHandler =
                 new PublicationsHandlerBuilder().setKsiProtocolPublicationsFileClient(publicationsFileClient)
                 .setPublicationsFileCacheExpirationTime(publicationsFileCacheExpirationTime)
+                .setPublicationsFileCacheFile(publicationsFileCacheFile)
                 .setPublicationsFilePkiTrustStore(trustStore)
                 .setPublicationsFileCertificateConstraints(certSelector).build();
 
@@ -451,6 +468,9 @@ public final class KSIBuilder {
             signer.close();
             extender.close();
             publicationsFileClient.close();
+            if (publicationsHandler instanceof Closeable) {
+                ((Closeable) publicationsHandler).close();
+            }
         }
     }
 }
@@ -23,9 +23,9 @@ package com.guardtime.ksi;
 import com.guardtime.ksi.exceptions.KSIException;
 import com.guardtime.ksi.publication.PublicationsFile;
 import com.guardtime.ksi.publication.PublicationsFileFactory;
-import com.guardtime.ksi.publication.adapter.CachingPublicationsFileClientAdapter;
 import com.guardtime.ksi.publication.adapter.NonCachingPublicationsFileClientAdapter;
 import com.guardtime.ksi.publication.adapter.PublicationsFileClientAdapter;
+import com.guardtime.ksi.publication.adapter.RefreshingPublicationsFileClientAdapter;
 import com.guardtime.ksi.publication.inmemory.InMemoryPublicationsFileFactory;
 import com.guardtime.ksi.service.client.KSIPublicationsFileClient;
 import com.guardtime.ksi.trust.JKSTrustStore;
@@ -33,7 +33,9 @@ import com.guardtime.ksi.trust.PKITrustStore;
 import com.guardtime.ksi.trust.X509CertificateSubjectRdnSelector;
 import com.guardtime.ksi.util.Util;
 
+import java.io.Closeable;
 import java.io.File;
+import java.io.IOException;
 import java.security.KeyStore;
 import java.security.cert.CertSelector;
 
@@ -50,6 +52,7 @@ public final class PublicationsHandlerBuilder {
     private KSIPublicationsFileClient publicationsFileClient;
     private KeyStore trustStore;
     private long publicationsFileCacheExpirationTime = 0L;
+    private File publicationsFileCacheFile;
 
     /**
      * Sets the publications file client to be used to download publications file.
@@ -111,13 +114,24 @@ public final class PublicationsHandlerBuilder {
     }
 
     /**
-     * Sets the publications file expiration time. Default value is 0.
+     * Sets the publications file expiration time. Default value is 0, which means that the publications file is
+     * downloaded every time it's needed. If greater than 0, the publications file is cached and refreshed in the
+     * background after every expiration time milliseconds, see {@link RefreshingPublicationsFileClientAdapter}.
      */
     public PublicationsHandlerBuilder setPublicationsFileCacheExpirationTime(long expirationTime) {
         this.publicationsFileCacheExpirationTime = expirationTime;
         return this;
     }
 
+    /**
+     * Sets the file to store the last downloaded publications file in, so that the publications file does not need
+     * to be downloaded after a restart. Used only if the publications file cache expiration time is greater than 0.
+     */
+    public PublicationsHandlerBuilder setPublicationsFileCacheFile(File cacheFile) {
+        this.publicationsFileCacheFile = cacheFile;
+        return this;
+    }
+
     /**
      * Builds the {@link PublicationsHandler} instance.  Checks that publications file client and
      * KSI publications file trusted certificate selector are set. If not configured, {@link NullPointerException} is thrown.
@@ -142,7 +156,8 @@ public final class PublicationsHandlerBuilder {
 
     private PublicationsFileClientAdapter createPublicationsFileAdapter(KSIPublicationsFileClient publicationsFileClient, PublicationsFileFactory publicationsFileFactory, long expirationTime) {
         if (expirationTime > 0) {
-            return new CachingPublicationsFileClientAdapter(publicationsFileClient, publicationsFileFactory, expirationTime);
+            return new RefreshingPublicationsFileClientAdapter(publicationsFileClient, publicationsFileFactory, expirationTime,
+                    publicationsFileCacheFile);
         }
         return new NonCachingPublicationsFileClientAdapter(publicationsFileClient, publicationsFileFactory);
     }
@@ -150,7 +165,7 @@ public final class PublicationsHandlerBuilder {
     /**
      * {@link PublicationsHandler} class implementation.
      */
-    private class PublicationsHandlerImpl implements PublicationsHandler {
+    private class PublicationsHandlerImpl implements PublicationsHandler, Closeable {
         private final PublicationsFileClientAdapter publicationsFileAdapter;
 
         PublicationsHandlerImpl(PublicationsFileClientAdapter publicationsFileAdapter) {
@@ -161,6 +176,12 @@ public final class PublicationsHandlerBuilder {
             return publicationsFileAdapter.getPublicationsFile();
         }
 
+        public void close() throws IOException {
+            if (publicationsFileAdapter instanceof Closeable) {
+                ((Closeable) publicationsFileAdapter).close();
+            }
+        }
+
     }
 
 }
\ No newline at end of file
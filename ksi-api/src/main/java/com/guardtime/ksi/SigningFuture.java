@@ -24,6 +24,7 @@ import com.guardtime.ksi.hashing.DataHash;
 import com.guardtime.ksi.hashing.HashException;
 import com.guardtime.ksi.pdu.AggregationResponse;
 import com.guardtime.ksi.service.Future;
+import com.guardtime.ksi.service.FutureUtil;
 import com.guardtime.ksi.service.KSIProtocolException;
 import com.guardtime.ksi.tlv.TLVElement;
 import com.guardtime.ksi.tlv.TLVParserException;
@@ -31,6 +32,7 @@ import com.guardtime.ksi.unisignature.KSISignature;
 import com.guardtime.ksi.unisignature.KSISignatureFactory;
 
 import java.util.List;
+import java.util.concurrent.CompletionStage;
 
 /**
  * The future of the signing request's response.
@@ -44,7 +46,7 @@ public final class SigningFuture implements Future<KSISignature> {
     private DataHash inputHash;
     private long level;
 
-    private KSISignature response;
+    private volatile KSISignature response;
 
     public SigningFuture(Future<AggregationResponse> aggregationResponseFuture, KSISignatureFactory signatureFactory,
             DataHash inputHash) {
@@ -77,6 +79,10 @@ public final class SigningFuture implements Future<KSISignature> {
         return this.aggregationResponseFuture.isFinished();
     }
 
+    public CompletionStage<KSISignature> toCompletionStage() {
+        return FutureUtil.afterCompletion(aggregationResponseFuture, this);
+    }
+
     private TLVElement convert(TLVElement response) throws TLVParserException {
         TLVElement element = new TLVElement(false, false, 0x0800);
         List<TLVElement> children = response.getChildElements();
@@ -24,17 +24,21 @@ import com.guardtime.ksi.exceptions.KSIException;
 import com.guardtime.ksi.publication.PublicationsFile;
 import com.guardtime.ksi.publication.PublicationsFileFactory;
 import com.guardtime.ksi.service.client.KSIPublicationsFileClient;
+import com.guardtime.ksi.util.Util;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.ByteArrayInputStream;
 import java.nio.ByteBuffer;
 
 /**
  * An adapter for publications file client. It's responsibility is to cache the publication file data so that it
  * would not be fetched again over the network on each KSI request that needs a publication file. Cache is loaded for
  * the first time lazily (e.g. it's not loaded until it's actually needed).
+ *
+ * @deprecated Blocks all the callers while the publications file is updated, use
+ * {@link RefreshingPublicationsFileClientAdapter} instead.
  */
+@Deprecated
 public class CachingPublicationsFileClientAdapter implements PublicationsFileClientAdapter {
 
     private static final Logger logger = LoggerFactory.getLogger(CachingPublicationsFileClientAdapter.class);
@@ -63,7 +67,7 @@ public class CachingPublicationsFileClientAdapter implements PublicationsFileCli
         if (isCacheUpdateNeeded()) {
             logger.debug("Publication file cache will be updated.");
             ByteBuffer data = publicationsFileClient.getPublicationsFile().getResult();
-            cachedPublicationsFile = publicationsFileFactory.create(new ByteArrayInputStream(data.array()));
+            cachedPublicationsFile = publicationsFileFactory.create(Util.toInputStream(data));
             cacheLastUpdated = System.currentTimeMillis();
         } else {
             logger.debug("Returning cached publication file data.");
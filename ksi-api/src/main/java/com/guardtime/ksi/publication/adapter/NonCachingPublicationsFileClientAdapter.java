@@ -25,8 +25,8 @@ import com.guardtime.ksi.publication.PublicationsFile;
 import com.guardtime.ksi.publication.PublicationsFileFactory;
 import com.guardtime.ksi.service.Future;
 import com.guardtime.ksi.service.client.KSIPublicationsFileClient;
+import com.guardtime.ksi.util.Util;
 
-import java.io.ByteArrayInputStream;
 import java.nio.ByteBuffer;
 
 /**
@@ -51,7 +51,7 @@ public class NonCachingPublicationsFileClientAdapter implements PublicationsFile
 
     public PublicationsFile getPublicationsFile() throws KSIException {
         Future<ByteBuffer> data = publicationsFileClient.getPublicationsFile();
-        return publicationsFileFactory.create(new ByteArrayInputStream(data.getResult().array()));
+        return publicationsFileFactory.create(Util.toInputStream(data.getResult()));
     }
 
     public KSIPublicationsFileClient getPublicationsFileClient() {
@@ -0,0 +1,230 @@
+/*
+ * Copyright 2013-2018 Guardtime, Inc.
+ *
+ *  This file is part of the Guardtime client SDK.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License").
+ *  You may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES, CONDITIONS, OR OTHER LICENSES OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ *  "Guardtime" and "KSI" are trademarks or registered trademarks of
+ *  Guardtime, Inc., and no license to trademarks is granted; Guardtime
+ *  reserves and retains all trademark rights.
+ *
+ */
+
+package com.guardtime.ksi.publication.adapter;
+
+import com.guardtime.ksi.exceptions.KSIException;
+import com.guardtime.ksi.publication.PublicationRecord;
+import com.guardtime.ksi.publication.PublicationsFile;
+import com.guardtime.ksi.publication.PublicationsFileFactory;
+import com.guardtime.ksi.service.client.KSIPublicationsFileClient;
+import com.guardtime.ksi.util.Util;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An adapter for publications file client that keeps the publications file up to date in the background.
+ * <p>
+ * The publications file is loaded when it's needed for the first time. After that, the cached publications file is
+ * always returned without waiting, while a background thread downloads, verifies and parses a new publications file
+ * every refresh interval. A new file replaces the cached one only after it has been verified. If the refresh fails,
+ * the cached file is kept and the refresh is retried with an exponential backoff, starting from one second, up to the
+ * refresh interval.
+ * </p>
+ * <p>
+ * If a cache file is configured, every downloaded publications file is also written to it. On the first load, the
+ * cache file is read and verified instead of downloading the publications file, and a refresh is started right away.
+ * </p>
+ * <p>
+ * The background thread is a daemon thread, {@link RefreshingPublicationsFileClientAdapter#close()} stops it.
+ * </p>
+ */
+public class RefreshingPublicationsFileClientAdapter implements PublicationsFileClientAdapter, Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(RefreshingPublicationsFileClientAdapter.class);
+    private static final long MIN_RETRY_DELAY = 1000L;
+
+    private final KSIPublicationsFileClient publicationsFileClient;
+    private final PublicationsFileFactory publicationsFileFactory;
+    private final long refreshInterval;
+    private final File cacheFile;
+    private final ScheduledExecutorService refreshExecutor;
+    private final Object loadLock = new Object();
+
+    private volatile PublicationsFile cachedPublicationsFile;
+    private long retryDelay;
+
+    /**
+     * @param publicationsFileClient
+     *         The actual publications file client that fetches the file.
+     * @param publicationsFileFactory
+     *         factory to use to parse publications file
+     * @param refreshInterval
+     *         The amount of time in milliseconds after which the publications file is refreshed.
+     * @param cacheFile
+     *         File to store the last downloaded publications file in, may be null.
+     */
+    public RefreshingPublicationsFileClientAdapter(KSIPublicationsFileClient publicationsFileClient,
+                                                   PublicationsFileFactory publicationsFileFactory,
+                                                   long refreshInterval, File cacheFile) {
+        Util.notNull(publicationsFileClient, "Publications file client");
+        Util.notNull(publicationsFileFactory, "Publications file factory");
+        if (refreshInterval <= 0) {
+            throw new IllegalArgumentException("Publications file refresh interval must be positive");
+        }
+        this.publicationsFileClient = publicationsFileClient;
+        this.publicationsFileFactory = publicationsFileFactory;
+        this.refreshInterval = refreshInterval;
+        this.cacheFile = cacheFile;
+        this.refreshExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "ksi-publications-file-refresh");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    public PublicationsFile getPublicationsFile() throws KSIException {
+        PublicationsFile publicationsFile = cachedPublicationsFile;
+        if (publicationsFile != null) {
+            logger.debug("Returning cached publication file data.");
+            return publicationsFile;
+        }
+        synchronized (loadLock) {
+            if (cachedPublicationsFile == null) {
+                load();
+            }
+            return cachedPublicationsFile;
+        }
+    }
+
+    public KSIPublicationsFileClient getPublicationsFileClient() {
+        return publicationsFileClient;
+    }
+
+    /**
+     * Stops refreshing the publications file.
+     */
+    public void close() {
+        refreshExecutor.shutdownNow();
+    }
+
+    private void load() throws KSIException {
+        PublicationsFile publicationsFile = readCacheFile();
+        if (publicationsFile != null) {
+            cachedPublicationsFile = publicationsFile;
+            scheduleRefresh(0);
+            return;
+        }
+        cachedPublicationsFile = download();
+        scheduleRefresh(refreshInterval);
+    }
+
+    private void refresh() {
+        try {
+            PublicationsFile publicationsFile = download();
+            if (isOlder(publicationsFile, cachedPublicationsFile)) {
+                logger.warn("Downloaded publications file is older than the cached one, keeping the cached publications file.");
+            } else {
+                cachedPublicationsFile = publicationsFile;
+                logger.debug("Publications file cache updated.");
+            }
+            retryDelay = 0;
+            scheduleRefresh(refreshInterval);
+        } catch (Exception e) {
+            retryDelay = retryDelay == 0 ? Math.min(MIN_RETRY_DELAY, refreshInterval) : Math.min(retryDelay * 2, refreshInterval);
+            logger.warn("Refreshing the publications file failed, retrying in {} ms.", retryDelay, e);
+            scheduleRefresh(retryDelay);
+        }
+    }
+
+    private PublicationsFile download() throws KSIException {
+        logger.debug("Downloading publications file.");
+        ByteBuffer data = publicationsFileClient.getPublicationsFile().getResult();
+        byte[] bytes = Util.toByteArray(data);
+        PublicationsFile publicationsFile = publicationsFileFactory.create(new ByteArrayInputStream(bytes));
+        writeCacheFile(bytes);
+        return publicationsFile;
+    }
+
+    private PublicationsFile readCacheFile() {
+        if (cacheFile == null || !cacheFile.isFile()) {
+            return null;
+        }
+        try {
+            PublicationsFile publicationsFile =
+                    publicationsFileFactory.create(new ByteArrayInputStream(Files.readAllBytes(cacheFile.toPath())));
+            logger.debug("Publications file loaded from cache file {}.", cacheFile);
+            return publicationsFile;
+        } catch (IOException | KSIException e) {
+            logger.warn("Loading the publications file from cache file {} failed.", cacheFile, e);
+            return null;
+        }
+    }
+
+    private void writeCacheFile(byte[] bytes) {
+        if (cacheFile == null) {
+            return;
+        }
+        Path target = cacheFile.toPath().toAbsolutePath();
+        try {
+            Path temporary = Files.createTempFile(target.getParent(), cacheFile.getName(), ".tmp");
+            try {
+                Files.write(temporary, bytes);
+                try {
+                    Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        } catch (IOException e) {
+            logger.warn("Writing the publications file to cache file {} failed.", cacheFile, e);
+        }
+    }
+
+    private void scheduleRefresh(long delay) {
+        try {
+            refreshExecutor.schedule(new Runnable() {
+                public void run() {
+                    refresh();
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            logger.debug("Publications file refresh is stopped.");
+        }
+    }
+
+    private static boolean isOlder(PublicationsFile publicationsFile, PublicationsFile cached) throws KSIException {
+        if (cached == null) {
+            return false;
+        }
+        PublicationRecord latest = publicationsFile.getLatestPublication();
+        PublicationRecord cachedLatest = cached.getLatestPublication();
+        return latest != null && cachedLatest != null && latest.getPublicationTime().before(cachedLatest.getPublicationTime());
+    }
+}
@@ -34,11 +34,18 @@ import org.slf4j.LoggerFactory;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.security.cert.Certificate;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
-import java.util.LinkedList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * A publication file is a trust anchor for verifying KSI signatures. It contains a list of public-key certificates
@@ -65,13 +72,34 @@ class InMemoryPublicationsFile implements PublicationsFile {
 
     private PublicationsFileHeader header;
 
-    private final List<InMemoryCertificateRecord> certificateRecords = new LinkedList<>();
+    private final List<InMemoryCertificateRecord> certificateRecords = new ArrayList<>();
 
-    private final List<PublicationRecord> publicationRecords = new LinkedList<>();
+    private final List<PublicationRecord> publicationRecords = new ArrayList<>();
 
     private byte[] cmsSignature;
 
-    private List<TLVElement> elements = new LinkedList<>();
+    private List<TLVElement> elements = new ArrayList<>();
+
+    /**
+     * Publication records sorted by publication time, records with the same publication time are in the order of the
+     * publications file.
+     */
+    private PublicationRecord[] recordsByTime;
+
+    /**
+     * Publication times of {@link #recordsByTime} in milliseconds.
+     */
+    private long[] publicationTimes;
+
+    /**
+     * Certificate records by certificate ID, the first record is used if the ID is not unique.
+     */
+    private final Map<ByteBuffer, InMemoryCertificateRecord> certificateRecordsById = new HashMap<>();
+
+    /**
+     * Certificates that have been looked up by ID.
+     */
+    private final ConcurrentMap<ByteBuffer, Certificate> certificatesById = new ConcurrentHashMap<>();
 
     /**
      * Creates a new instance of publications file from given input stream. Decodes and validates the TLV structure
@@ -98,6 +126,7 @@ class InMemoryPublicationsFile implements PublicationsFile {
         if (cmsSignature == null) {
             throw new InvalidPublicationsFileException("Invalid publications file. Publications file CMS signature is missing");
         }
+        buildIndexes();
         LOGGER.info("Publication file decoded {}", this);
     }
 
@@ -136,6 +165,26 @@ class InMemoryPublicationsFile implements PublicationsFile {
         }
     }
 
+    private void buildIndexes() {
+        recordsByTime = publicationRecords.toArray(new PublicationRecord[publicationRecords.size()]);
+        // merge sort is stable, records with the same time stay in the order of the file
+        Arrays.sort(recordsByTime, new Comparator<PublicationRecord>() {
+            public int compare(PublicationRecord first, PublicationRecord second) {
+                return first.getPublicationTime().compareTo(second.getPublicationTime());
+            }
+        });
+        publicationTimes = new long[recordsByTime.length];
+        for (int i = 0; i < recordsByTime.length; i++) {
+            publicationTimes[i] = recordsByTime[i].getPublicationTime().getTime();
+        }
+        for (InMemoryCertificateRecord record : certificateRecords) {
+            ByteBuffer id = ByteBuffer.wrap(record.getCertificateId());
+            if (!certificateRecordsById.containsKey(id)) {
+                certificateRecordsById.put(id, record);
+            }
+        }
+    }
+
     private void verifyElementOrder(TLVElement element) throws KSIException {
         if (elements.isEmpty()){
             return;
@@ -186,7 +235,7 @@ class InMemoryPublicationsFile implements PublicationsFile {
     }
 
     public List<PublicationRecord> getPublicationRecords() {
-        return publicationRecords;
+        return Collections.unmodifiableList(publicationRecords);
     }
 
     /**
@@ -202,10 +251,16 @@ class InMemoryPublicationsFile implements PublicationsFile {
         if (certificateId == null) {
             throw new CertificateNotFoundException("Certificate with id null not found from pubFile='" + this.toString() + "'");
         }
-        for (InMemoryCertificateRecord record : certificateRecords) {
-            if (Arrays.equals(certificateId, record.getCertificateId())) {
-                return X509CertUtil.toCert(record.getCertificate());
-            }
+        ByteBuffer id = ByteBuffer.wrap(certificateId);
+        Certificate certificate = certificatesById.get(id);
+        if (certificate != null) {
+            return certificate;
+        }
+        InMemoryCertificateRecord record = certificateRecordsById.get(id);
+        if (record != null) {
+            certificate = X509CertUtil.toCert(record.getCertificate());
+            certificatesById.putIfAbsent(ByteBuffer.wrap(record.getCertificateId()), certificate);
+            return certificate;
         }
         throw new CertificateNotFoundException("Certificate with id " + Base64.encode(certificateId) + " not found from pubFile='" + this.toString() + "'");
     }
@@ -230,31 +285,34 @@ class InMemoryPublicationsFile implements PublicationsFile {
         if (publicationRecords.isEmpty()) {
             throw new KSIException("Publications file does not contain publication records");
         }
-        PublicationRecord latest = publicationRecords.get(0);
-        for (PublicationRecord publicationRecord : publicationRecords) {
-            if (publicationRecord.getPublicationData().getPublicationTime().after(latest.getPublicationData().getPublicationTime())) {
-                latest = publicationRecord;
-            }
-        }
-        return latest;
+        return recordsByTime[firstIndexAtOrAfter(publicationTimes[publicationTimes.length - 1])];
     }
 
     /**
-     * Returns the closest publication record to given time.
+     * Returns the closest publication record to given time, e.g. the first publication record that was published at or
+     * after given time.
      */
     public PublicationRecord getPublicationRecord(Date time) {
-        PublicationRecord nearest = null;
-        for (PublicationRecord publicationRecord : publicationRecords) {
-            Date publicationTime = publicationRecord.getPublicationData().getPublicationTime();
-            if (publicationTime.equals(time) || publicationTime.after(time)) {
-                if (nearest == null) {
-                    nearest = publicationRecord;
-                } else if (publicationTime.before(nearest.getPublicationData().getPublicationTime())) {
-                    nearest = publicationRecord;
-                }
+        int index = firstIndexAtOrAfter(time.getTime());
+        return index < recordsByTime.length ? recordsByTime[index] : null;
+    }
+
+    /**
+     * Binary search for the index of the first publication record with publication time equal or greater than given
+     * time. If there is no such record, the number of records is returned.
+     */
+    private int firstIndexAtOrAfter(long time) {
+        int low = 0;
+        int high = publicationTimes.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (publicationTimes[middle] < time) {
+                low = middle + 1;
+            } else {
+                high = middle;
             }
         }
-        return nearest;
+        return low;
     }
 
     /**
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2013-2018 Guardtime, Inc.
+ *
+ *  This file is part of the Guardtime client SDK.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License").
+ *  You may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES, CONDITIONS, OR OTHER LICENSES OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ *  "Guardtime" and "KSI" are trademarks or registered trademarks of
+ *  Guardtime, Inc., and no license to trademarks is granted; Guardtime
+ *  reserves and retains all trademark rights.
+ *
+ */
+
+package com.guardtime.ksi.unisignature;
+
+import com.guardtime.ksi.hashing.DataHash;
+import com.guardtime.ksi.util.BoundedCache;
+import com.guardtime.ksi.util.Util;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link CalendarHashChainCache} that holds a limited number of chains for a limited time. The least recently used
+ * chains are evicted first.
+ */
+public final class BoundedCalendarHashChainCache implements CalendarHashChainCache {
+
+    private static final int DEFAULT_MAX_SIZE = 10000;
+    private static final long DEFAULT_TIME_TO_LIVE_HOURS = 24;
+
+    private final BoundedCache<Key, CalendarHashChain> chains;
+
+    /**
+     * Creates a cache that holds up to 10000 chains for up to 24 hours.
+     */
+    public BoundedCalendarHashChainCache() {
+        this(DEFAULT_MAX_SIZE, DEFAULT_TIME_TO_LIVE_HOURS, TimeUnit.HOURS);
+    }
+
+    /**
+     * @param maxSize maximum number of calendar hash chains to keep.
+     * @param timeToLive time after which a cached chain is dropped, 0 if the chains are kept until evicted.
+     * @param unit unit of the time to live.
+     */
+    public BoundedCalendarHashChainCache(int maxSize, long timeToLive, TimeUnit unit) {
+        this.chains = new BoundedCache<>(maxSize, timeToLive, unit);
+    }
+
+    public CalendarHashChain get(DataHash inputHash, Date aggregationTime, Date publicationTime) {
+        if (inputHash == null || aggregationTime == null || publicationTime == null) {
+            return null;
+        }
+        return chains.get(new Key(inputHash, aggregationTime, publicationTime));
+    }
+
+    public void put(CalendarHashChain calendarHashChain) {
+        Util.notNull(calendarHashChain, "Calendar hash chain");
+        chains.put(new Key(calendarHashChain.getInputHash(), calendarHashChain.getAggregationTime(),
+                calendarHashChain.getPublicationTime()), calendarHashChain);
+    }
+
+    /**
+     * @return The number of lookups that found a chain.
+     */
+    public long getHits() {
+        return chains.getHits();
+    }
+
+    /**
+     * @return The number of lookups that did not find a chain.
+     */
+    public long getMisses() {
+        return chains.getMisses();
+    }
+
+    /**
+     * @return The number of cached chains.
+     */
+    public int size() {
+        return chains.size();
+    }
+
+    /**
+     * Removes all the cached chains.
+     */
+    public void clear() {
+        chains.clear();
+    }
+
+    private static final class Key {
+
+        private final DataHash inputHash;
+        private final long aggregationTime;
+        private final long publicationTime;
+
+        Key(DataHash inputHash, Date aggregationTime, Date publicationTime) {
+            this.inputHash = inputHash;
+            this.aggregationTime = aggregationTime.getTime();
+            this.publicationTime = publicationTime.getTime();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            Key that = (Key) o;
+            return aggregationTime == that.aggregationTime
+                    && publicationTime == that.publicationTime
+                    && inputHash.equals(that.inputHash);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = inputHash.hashCode();
+            result = 31 * result + (int) (aggregationTime ^ (aggregationTime >>> 32));
+            result = 31 * result + (int) (publicationTime ^ (publicationTime >>> 32));
+            return result;
+        }
+    }
+}
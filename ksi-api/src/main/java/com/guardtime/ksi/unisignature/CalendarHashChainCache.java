@@ -0,0 +1,58 @@
+/*
+ * Copyright 2013-2018 Guardtime, Inc.
+ *
+ *  This file is part of the Guardtime client SDK.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License").
+ *  You may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES, CONDITIONS, OR OTHER LICENSES OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ *  "Guardtime" and "KSI" are trademarks or registered trademarks of
+ *  Guardtime, Inc., and no license to trademarks is granted; Guardtime
+ *  reserves and retains all trademark rights.
+ *
+ */
+
+package com.guardtime.ksi.unisignature;
+
+import com.guardtime.ksi.hashing.DataHash;
+
+import java.util.Date;
+
+/**
+ * Cache of extended calendar hash chains. A calendar hash chain from an aggregation round to a publication never
+ * changes, so the chains returned by the extender can be reused by all signatures of the same round, both when
+ * extending and when verifying signatures.
+ * <p>
+ * The chains are identified by their input hash, aggregation time and publication time. The input hash distinguishes
+ * the chains of different KSI services that share aggregation and publication times. Implementations must be
+ * thread-safe.
+ * </p>
+ *
+ * @see BoundedCalendarHashChainCache
+ * @see CalendarHashChainUtil#getCachedCalendarHashChain(CalendarHashChainCache, KSISignature, Date)
+ */
+public interface CalendarHashChainCache {
+
+    /**
+     * @param inputHash input hash of the calendar hash chain, equal to the output hash of the last aggregation hash
+     *                  chain of the signature.
+     * @param aggregationTime aggregation time of the calendar hash chain.
+     * @param publicationTime publication time of the calendar hash chain.
+     * @return The cached calendar hash chain, null if there is no such chain in the cache.
+     */
+    CalendarHashChain get(DataHash inputHash, Date aggregationTime, Date publicationTime);
+
+    /**
+     * Adds an extended calendar hash chain to the cache.
+     *
+     * @param calendarHashChain calendar hash chain returned by the extender, not null.
+     */
+    void put(CalendarHashChain calendarHashChain);
+
+}
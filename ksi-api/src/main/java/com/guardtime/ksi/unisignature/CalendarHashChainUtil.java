@@ -20,9 +20,12 @@
 
 package com.guardtime.ksi.unisignature;
 
+import com.guardtime.ksi.hashing.DataHash;
+import com.guardtime.ksi.publication.PublicationData;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Date;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -66,6 +69,51 @@ public final class CalendarHashChainUtil {
         return true;
     }
 
+    /**
+     * Looks up the calendar hash chain that extends the signature to the given publication time.
+     *
+     * @param cache calendar hash chain cache, may be null.
+     * @param signature signature to be extended.
+     * @param publicationTime publication time to extend to, null means the calendar head and is never cached.
+     * @return The cached calendar hash chain, null if the chain isn't cached.
+     */
+    public static CalendarHashChain getCachedCalendarHashChain(CalendarHashChainCache cache, KSISignature signature,
+                                                               Date publicationTime) {
+        if (cache == null || publicationTime == null) {
+            return null;
+        }
+        return cache.get(getCalendarHashChainInputHash(signature), signature.getAggregationTime(), publicationTime);
+    }
+
+    /**
+     * Adds the calendar hash chain that the extender returned for the signature to the cache. The chain is only cached
+     * if it starts from the signature's aggregation round and its output hash is the hash of the given trusted
+     * publication, so a faulty or tampered extender response can not affect other signatures.
+     *
+     * @param cache calendar hash chain cache, may be null.
+     * @param signature extended signature.
+     * @param publication trusted publication the signature was extended to, the chain is not cached if null.
+     * @param calendarHashChain calendar hash chain returned by the extender.
+     */
+    public static void cacheCalendarHashChain(CalendarHashChainCache cache, KSISignature signature, PublicationData publication,
+                                              CalendarHashChain calendarHashChain) {
+        if (cache == null || publication == null || calendarHashChain == null) {
+            return;
+        }
+        DataHash inputHash = getCalendarHashChainInputHash(signature);
+        if (inputHash != null && inputHash.equals(calendarHashChain.getInputHash())
+                && signature.getAggregationTime().equals(calendarHashChain.getAggregationTime())
+                && publication.getPublicationTime().equals(calendarHashChain.getPublicationTime())
+                && publication.getPublicationDataHash().equals(calendarHashChain.getOutputHash())) {
+            cache.put(calendarHashChain);
+        }
+    }
+
+    private static DataHash getCalendarHashChainInputHash(KSISignature signature) {
+        AggregationHashChain[] chains = signature.getAggregationHashChains();
+        return chains == null || chains.length == 0 ? null : chains[chains.length - 1].getOutputHash();
+    }
+
     private static List<CalendarHashChainLink> getRightLinks(CalendarHashChain hashChain) {
         List<CalendarHashChainLink> rightLinks = new LinkedList<>();
         for (CalendarHashChainLink link : hashChain.getChainLinks()) {
@@ -35,6 +35,8 @@ import com.guardtime.ksi.unisignature.CalendarHashChainLink;
  */
 abstract class InMemoryCalendarHashChainLink extends TLVStructure implements CalendarHashChainLink {
 
+    private static final byte[] CALENDAR_STEP_SUFFIX = new byte[]{(byte) 0xFF};
+
     protected final DataHash dataHash;
 
     InMemoryCalendarHashChainLink(TLVElement rootElement) throws KSIException {
@@ -54,10 +56,10 @@ abstract class InMemoryCalendarHashChainLink extends TLVStructure implements Cal
         if (!algorithm.isImplemented()) {
             throw new InvalidCalendarHashChainException("Invalid calendar hash chain. Hash algorithm " +algorithm.getName() + " is not implemented");
         }
-        DataHasher hasher = new DataHasher(algorithm, false);
+        DataHasher hasher = DataHasher.getThreadLocalHasher(algorithm);
         hasher.addData(imprintA);
         hasher.addData(imprintB);
-        hasher.addData(new byte[]{(byte) 0xFF});
+        hasher.addData(CALENDAR_STEP_SUFFIX);
         return hasher.getHash();
     }
 
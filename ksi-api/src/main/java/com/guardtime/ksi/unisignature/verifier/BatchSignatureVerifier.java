@@ -0,0 +1,444 @@
+/*
+ * Copyright 2013-2018 Guardtime, Inc.
+ *
+ *  This file is part of the Guardtime client SDK.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License").
+ *  You may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES, CONDITIONS, OR OTHER LICENSES OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ *  "Guardtime" and "KSI" are trademarks or registered trademarks of
+ *  Guardtime, Inc., and no license to trademarks is granted; Guardtime
+ *  reserves and retains all trademark rights.
+ *
+ */
+
+package com.guardtime.ksi.unisignature.verifier;
+
+import com.guardtime.ksi.concurrency.DefaultExecutorServiceProvider;
+import com.guardtime.ksi.exceptions.KSIException;
+import com.guardtime.ksi.publication.PublicationsFile;
+import com.guardtime.ksi.tlv.TLVParserException;
+import com.guardtime.ksi.tlv.TLVStructure;
+import com.guardtime.ksi.unisignature.CalendarHashChain;
+import com.guardtime.ksi.unisignature.KSISignature;
+import com.guardtime.ksi.unisignature.inmemory.InMemoryKsiSignatureComponentFactory;
+import com.guardtime.ksi.unisignature.verifier.policies.ContextAwarePolicy;
+import com.guardtime.ksi.unisignature.verifier.policies.Policy;
+import com.guardtime.ksi.unisignature.verifier.policies.PolicyContext;
+import com.guardtime.ksi.unisignature.verifier.rules.AggregationChainInputHashVerificationRule;
+import com.guardtime.ksi.unisignature.verifier.rules.AggregationHashChainAlgorithmDeprecatedRule;
+import com.guardtime.ksi.unisignature.verifier.rules.AggregationHashChainConsistencyRule;
+import com.guardtime.ksi.unisignature.verifier.rules.AggregationHashChainIndexConsistencyRule;
+import com.guardtime.ksi.unisignature.verifier.rules.AggregationHashChainIndexSuccessorRule;
+import com.guardtime.ksi.unisignature.verifier.rules.AggregationHashChainLinkMetadataRule;
+import com.guardtime.ksi.unisignature.verifier.rules.AggregationHashChainTimeConsistencyRule;
+import com.guardtime.ksi.unisignature.verifier.rules.CalendarHashChainInputHashVerificationRule;
+import com.guardtime.ksi.unisignature.verifier.rules.DocumentHashAlgorithmVerificationRule;
+import com.guardtime.ksi.unisignature.verifier.rules.DocumentHashVerificationRule;
+import com.guardtime.ksi.unisignature.verifier.rules.InputHashLevelVerificationRule;
+import com.guardtime.ksi.unisignature.verifier.rules.Rfc3161InternalHashAlgorithmsDeprecatedRule;
+import com.guardtime.ksi.unisignature.verifier.rules.Rfc3161OutputHashAlgorithmDeprecatedRule;
+import com.guardtime.ksi.unisignature.verifier.rules.Rfc3161RecordIndexRule;
+import com.guardtime.ksi.unisignature.verifier.rules.Rfc3161RecordTimeRule;
+import com.guardtime.ksi.unisignature.verifier.rules.Rule;
+import com.guardtime.ksi.unisignature.verifier.rules.SignatureInputHashAlgorithmDeprecatedRule;
+import com.guardtime.ksi.util.Util;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Verifies a batch of KSI signatures using one policy.
+ * <p>
+ * Signatures are grouped by aggregation time, calendar hash chain, calendar authentication record and publication
+ * record. Signatures of one group differ only in their aggregation hash chains (and RFC3161 records), everything that
+ * the policy checks above the aggregation hash chains is the same. The first signature of every group is verified with
+ * the whole policy. The other signatures of the group are only checked with the rules of the internal verification
+ * policy that look at the aggregation hash chains and their link to the calendar hash chain. If those rules pass for
+ * both the signature and the first signature of the group, the signature gets the verification result of the first
+ * signature; otherwise the signature is verified with the whole policy.
+ * </p>
+ * <p>
+ * All the signatures of the batch share the extender responses, the publications file and, through
+ * {@link com.guardtime.ksi.unisignature.verifier.rules.CalendarAuthenticationRecordSignatureCache}, the calendar
+ * authentication record signature checks.
+ * </p>
+ * <p>
+ * The results are shared only when all the rules of the policy and its fallback policies are the rules of the SDK,
+ * which do not look at the aggregation hash chains beyond those checks. With any other rules every signature is
+ * verified with the whole policy.
+ * </p>
+ */
+public final class BatchSignatureVerifier {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchSignatureVerifier.class);
+
+    private static final Policy SIGNATURE_SPECIFIC_RULES = new SignatureSpecificRules();
+
+    private final KSISignatureVerifier verifier = new KSISignatureVerifier();
+    private final Executor executor;
+
+    /**
+     * Creates a batch verifier using the {@link DefaultExecutorServiceProvider} executor.
+     */
+    public BatchSignatureVerifier() {
+        this(DefaultExecutorServiceProvider.getExecutorService());
+    }
+
+    /**
+     * Creates a batch verifier running the verifications on the given executor. Tasks rejected by the executor are
+     * run in the calling thread.
+     */
+    public BatchSignatureVerifier(Executor executor) {
+        Util.notNull(executor, "Executor");
+        this.executor = executor;
+    }
+
+    /**
+     * Verifies the given signatures.
+     *
+     * @param signatures
+     *         signatures to be verified.
+     * @param policy
+     *         policy to be used to verify the signatures.
+     * @return verification results in the iteration order of the given signatures. If verifying a signature fails
+     * with an exception, its result is not OK, has error code {@link VerificationErrorCode#GEN_02} and the exception
+     * is available from its policy verification result.
+     * @throws KSIException
+     *         if loading the publications file fails or waiting for the results is interrupted.
+     */
+    public List<VerificationResult> verify(Collection<? extends KSISignature> signatures, ContextAwarePolicy policy)
+            throws KSIException {
+        Util.notNull(signatures, "Signatures");
+        Util.notNull(policy, "Policy");
+        if (signatures.isEmpty()) {
+            return Collections.emptyList();
+        }
+        KSISignature[] batch = signatures.toArray(new KSISignature[signatures.size()]);
+        Map<Object, List<Integer>> groups = groupSignatures(batch);
+        logger.info("Starting to verify {} signatures in {} groups using policy {}", batch.length, groups.size(),
+                policy.getName());
+
+        Batch verification = new Batch(batch, policy, hasOnlySdkRules(policy));
+        for (List<Integer> group : groups.values()) {
+            verification.verifyGroup(group);
+        }
+        return verification.awaitResults();
+    }
+
+    private static Map<Object, List<Integer>> groupSignatures(KSISignature[] signatures) {
+        Map<Object, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < signatures.length; i++) {
+            Util.notNull(signatures[i], "Signature");
+            Object key = GroupKey.of(signatures[i]);
+            if (key == null) {
+                key = new Object();
+            }
+            List<Integer> group = groups.get(key);
+            if (group == null) {
+                group = new ArrayList<>();
+                groups.put(key, group);
+            }
+            group.add(i);
+        }
+        return groups;
+    }
+
+    private static boolean hasOnlySdkRules(Policy policy) {
+        String rulesPackage = Rule.class.getPackage().getName();
+        for (Policy p = policy; p != null; p = p.getFallbackPolicy()) {
+            for (Rule rule : p.getRules()) {
+                if (!rule.getClass().getPackage().getName().equals(rulesPackage)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private void execute(Runnable task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.run();
+        }
+    }
+
+    /**
+     * State of one {@link #verify(Collection, ContextAwarePolicy)} call.
+     */
+    private final class Batch {
+
+        private final KSISignature[] signatures;
+        private final ContextAwarePolicy policy;
+        private final boolean shareResults;
+        private final PublicationsFile publicationsFile;
+        private final ExtendedCalendarHashChainCache calendarHashChainCache = new ExtendedCalendarHashChainCache();
+        private final VerificationResult[] results;
+        private final CountDownLatch remaining;
+
+        Batch(KSISignature[] signatures, ContextAwarePolicy policy, boolean shareResults) throws KSIException {
+            this.signatures = signatures;
+            this.policy = policy;
+            this.shareResults = shareResults;
+            PolicyContext c = policy.getPolicyContext();
+            this.publicationsFile = c.getPublicationsHandler() != null ? c.getPublicationsHandler().getPublicationsFile() : null;
+            this.results = new VerificationResult[signatures.length];
+            this.remaining = new CountDownLatch(signatures.length);
+        }
+
+        void verifyGroup(final List<Integer> group) {
+            execute(new Runnable() {
+                public void run() {
+                    final int first = group.get(0);
+                    verify(first, null);
+                    final Integer representative = group.size() > 1 && shareResults &&
+                            !(results[first] instanceof FailedVerificationResult) && passesSignatureSpecificRules(first) ?
+                            first : null;
+                    for (final Integer index : group.subList(1, group.size())) {
+                        execute(new Runnable() {
+                            public void run() {
+                                verify(index, representative);
+                            }
+                        });
+                    }
+                }
+            });
+        }
+
+        /**
+         * Verifies the signature. If the verified representative of the group of the signature is given, the result
+         * of the representative is reused when the signature passes the signature specific rules.
+         */
+        private void verify(int index, Integer representative) {
+            try {
+                if (representative != null && passesSignatureSpecificRules(index)) {
+                    results[index] = results[representative];
+                } else {
+                    results[index] = verifier.verify(createContext(index), policy);
+                }
+            } catch (Exception e) {
+                logger.warn("Verifying signature {} of the batch failed", index, e);
+                results[index] = new FailedVerificationResult(policy, e);
+            } finally {
+                remaining.countDown();
+            }
+        }
+
+        private boolean passesSignatureSpecificRules(int index) {
+            try {
+                VerificationContext context = new VerificationContextBuilder().setSignature(signatures[index]).build();
+                context.setKsiSignatureComponentFactory(new InMemoryKsiSignatureComponentFactory());
+                VerificationResult result = verifier.verify(context, SIGNATURE_SPECIFIC_RULES);
+                return result.isOk();
+            } catch (Exception e) {
+                return false;
+            }
+        }
+
+        private VerificationContext createContext(int index) throws KSIException {
+            PolicyContext c = policy.getPolicyContext();
+            VerificationContext context = new VerificationContextBuilder()
+                    .setExtendingService(c.getExtendingService())
+                    .setExtendingAllowed(c.isExtendingAllowed())
+                    .setPublicationsFile(publicationsFile)
+                    .setSignature(signatures[index])
+                    .setUserPublication(c.getUserPublication())
+                    .setBatchCalendarHashChainCache(calendarHashChainCache)
+                    .build();
+            context.setKsiSignatureComponentFactory(new InMemoryKsiSignatureComponentFactory());
+            return context;
+        }
+
+        List<VerificationResult> awaitResults() throws KSIException {
+            try {
+                remaining.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new KSIException("Batch signature verification was interrupted", e);
+            }
+            return Arrays.asList(results);
+        }
+    }
+
+    /**
+     * Rules of the {@link com.guardtime.ksi.unisignature.verifier.policies.InternalVerificationPolicy} that check the
+     * parts of the signature below the calendar hash chain, in the same order. These are the only rules whose result
+     * can differ between the signatures of one group.
+     */
+    private static final class SignatureSpecificRules implements Policy {
+
+        private final List<Rule> rules = Collections.unmodifiableList(Arrays.<Rule>asList(
+                new DocumentHashAlgorithmVerificationRule(),
+                new DocumentHashVerificationRule(),
+                new InputHashLevelVerificationRule(),
+                new SignatureInputHashAlgorithmDeprecatedRule(),
+                new Rfc3161InternalHashAlgorithmsDeprecatedRule(),
+                new Rfc3161OutputHashAlgorithmDeprecatedRule(),
+                new AggregationChainInputHashVerificationRule(),
+                new Rfc3161RecordIndexRule(),
+                new Rfc3161RecordTimeRule(),
+                new AggregationHashChainIndexSuccessorRule(),
+                new AggregationHashChainLinkMetadataRule(),
+                new AggregationHashChainAlgorithmDeprecatedRule(),
+                new AggregationHashChainConsistencyRule(),
+                new AggregationHashChainTimeConsistencyRule(),
+                new AggregationHashChainIndexConsistencyRule(),
+                new CalendarHashChainInputHashVerificationRule()));
+
+        public List<Rule> getRules() {
+            return rules;
+        }
+
+        public String getName() {
+            return "Signature specific rules of batch verification";
+        }
+
+        public String getType() {
+            return "BATCH_SIGNATURE_SPECIFIC_RULES";
+        }
+
+        public void setFallbackPolicy(Policy policy) {
+            throw new UnsupportedOperationException("Signature specific rules do not have a fallback policy");
+        }
+
+        public Policy getFallbackPolicy() {
+            return null;
+        }
+    }
+
+    /**
+     * Result of a signature whose verification failed with an exception.
+     */
+    private static final class FailedVerificationResult implements VerificationResult, PolicyVerificationResult {
+
+        private final Policy policy;
+        private final Exception exception;
+
+        FailedVerificationResult(Policy policy, Exception exception) {
+            this.policy = policy;
+            this.exception = exception;
+        }
+
+        public boolean isOk() {
+            return false;
+        }
+
+        public VerificationErrorCode getErrorCode() {
+            return VerificationErrorCode.GEN_02;
+        }
+
+        public List<PolicyVerificationResult> getPolicyVerificationResults() {
+            return Collections.<PolicyVerificationResult>singletonList(this);
+        }
+
+        public Map<Rule, RuleResult> getRuleResults() {
+            return Collections.emptyMap();
+        }
+
+        public VerificationResultCode getPolicyStatus() {
+            return VerificationResultCode.NA;
+        }
+
+        public Policy getPolicy() {
+            return policy;
+        }
+
+        public Exception getException() {
+            return exception;
+        }
+
+        @Override
+        public String toString() {
+            return "policy='" + policy.getName() + "', policyStatus=NA, errorCode=" + getErrorCode() +
+                    ", exception=" + exception;
+        }
+    }
+
+    /**
+     * Signatures with equal keys share the calendar hash chain and everything above it.
+     */
+    private static final class GroupKey {
+
+        private final Date aggregationTime;
+        private final byte[] calendarHashChain;
+        private final byte[] calendarAuthenticationRecord;
+        private final byte[] publicationRecord;
+
+        private GroupKey(Date aggregationTime, byte[] calendarHashChain, byte[] calendarAuthenticationRecord,
+                         byte[] publicationRecord) {
+            this.aggregationTime = aggregationTime;
+            this.calendarHashChain = calendarHashChain;
+            this.calendarAuthenticationRecord = calendarAuthenticationRecord;
+            this.publicationRecord = publicationRecord;
+        }
+
+        /**
+         * Returns the key of the signature, or null if the signature can not share its verification with others: it
+         * does not have a calendar hash chain or its components can not be compared by their encoding.
+         */
+        static GroupKey of(KSISignature signature) {
+            CalendarHashChain calendarHashChain = signature.getCalendarHashChain();
+            if (!(calendarHashChain instanceof TLVStructure) || !isEncodable(signature.getCalendarAuthenticationRecord()) ||
+                    !isEncodable(signature.getPublicationRecord())) {
+                return null;
+            }
+            try {
+                return new GroupKey(signature.getAggregationTime(), encode(calendarHashChain),
+                        encode(signature.getCalendarAuthenticationRecord()), encode(signature.getPublicationRecord()));
+            } catch (TLVParserException e) {
+                return null;
+            }
+        }
+
+        private static boolean isEncodable(Object component) {
+            return component == null || component instanceof TLVStructure;
+        }
+
+        private static byte[] encode(Object component) throws TLVParserException {
+            return component == null ? null : ((TLVStructure) component).getRootElement().getEncoded();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            GroupKey that = (GroupKey) o;
+            return (aggregationTime != null ? aggregationTime.equals(that.aggregationTime) : that.aggregationTime == null) &&
+                    Arrays.equals(calendarHashChain, that.calendarHashChain) &&
+                    Arrays.equals(calendarAuthenticationRecord, that.calendarAuthenticationRecord) &&
+                    Arrays.equals(publicationRecord, that.publicationRecord);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = aggregationTime != null ? aggregationTime.hashCode() : 0;
+            result = 31 * result + Arrays.hashCode(calendarHashChain);
+            result = 31 * result + Arrays.hashCode(calendarAuthenticationRecord);
+            result = 31 * result + Arrays.hashCode(publicationRecord);
+            return result;
+        }
+    }
+
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2013-2018 Guardtime, Inc.
+ *
+ *  This file is part of the Guardtime client SDK.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License").
+ *  You may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES, CONDITIONS, OR OTHER LICENSES OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ *  "Guardtime" and "KSI" are trademarks or registered trademarks of
+ *  Guardtime, Inc., and no license to trademarks is granted; Guardtime
+ *  reserves and retains all trademark rights.
+ *
+ */
+
+package com.guardtime.ksi.unisignature.verifier;
+
+import com.guardtime.ksi.exceptions.KSIException;
+import com.guardtime.ksi.service.KSIExtendingService;
+import com.guardtime.ksi.unisignature.CalendarHashChain;
+import com.guardtime.ksi.unisignature.KSISignatureComponentFactory;
+
+import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Extended calendar hash chains shared by the verification contexts of one batch. Every distinct extending service,
+ * aggregation time and publication time combination is sent to the extender only once, concurrent callers wait for the
+ * first one. Extender failures are remembered as well, so that the whole batch sees the same outcome.
+ */
+final class ExtendedCalendarHashChainCache {
+
+    private final ConcurrentMap<Key, Entry> entries = new ConcurrentHashMap<>();
+
+    CalendarHashChain extend(KSIExtendingService extendingService, KSISignatureComponentFactory signatureComponentFactory,
+                             Date aggregationTime, Date publicationTime) throws KSIException {
+        Key key = new Key(extendingService, aggregationTime, publicationTime);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            Entry newEntry = new Entry();
+            entry = entries.putIfAbsent(key, newEntry);
+            if (entry == null) {
+                entry = newEntry;
+            }
+        }
+        synchronized (entry) {
+            if (!entry.done) {
+                try {
+                    entry.calendarHashChain = KSIVerificationContext.extend(extendingService, signatureComponentFactory,
+                            aggregationTime, publicationTime);
+                } catch (KSIException e) {
+                    entry.failure = e;
+                }
+                entry.done = true;
+            }
+            if (entry.failure != null) {
+                throw entry.failure;
+            }
+            return entry.calendarHashChain;
+        }
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private static final class Entry {
+        private boolean done;
+        private CalendarHashChain calendarHashChain;
+        private KSIException failure;
+    }
+
+    private static final class Key {
+
+        private final KSIExtendingService extendingService;
+        private final long aggregationTime;
+        private final Long publicationTime;
+
+        Key(KSIExtendingService extendingService, Date aggregationTime, Date publicationTime) {
+            this.extendingService = extendingService;
+            this.aggregationTime = aggregationTime.getTime();
+            this.publicationTime = publicationTime != null ? publicationTime.getTime() : null;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key key = (Key) o;
+            return extendingService == key.extendingService && aggregationTime == key.aggregationTime &&
+                    (publicationTime != null ? publicationTime.equals(key.publicationTime) : key.publicationTime == null);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = System.identityHashCode(extendingService);
+            result = 31 * result + (int) (aggregationTime ^ (aggregationTime >>> 32));
+            result = 31 * result + (publicationTime != null ? publicationTime.hashCode() : 0);
+            return result;
+        }
+    }
+
+}
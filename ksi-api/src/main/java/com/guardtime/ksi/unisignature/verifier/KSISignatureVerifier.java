@@ -55,7 +55,13 @@ public final class KSISignatureVerifier implements SignatureVerifier {
                 logger.info("Using a fallback policy {}", fallbackPolicy);
                 if (fallbackPolicy instanceof ContextAwarePolicy) {
                     PolicyContext c = ((ContextAwarePolicy) fallbackPolicy).getPolicyContext();
-                    context = new VerificationContextBuilder()
+                    VerificationContextBuilder builder = new VerificationContextBuilder();
+                    if (context instanceof KSIVerificationContext) {
+                        KSIVerificationContext previous = (KSIVerificationContext) context;
+                        builder.setBatchCalendarHashChainCache(previous.getBatchCalendarHashChainCache())
+                                .setCalendarHashChainCache(previous.getCalendarHashChainCache());
+                    }
+                    context = builder
                             .setDocumentHash(context.getDocumentHash(), context.getInputHashLevel())
                             .setExtendingService(c.getExtendingService())
                             .setExtendingAllowed(c.isExtendingAllowed())
@@ -35,6 +35,7 @@ import com.guardtime.ksi.tlv.TLVParserException;
 import com.guardtime.ksi.unisignature.AggregationHashChain;
 import com.guardtime.ksi.unisignature.CalendarAuthenticationRecord;
 import com.guardtime.ksi.unisignature.CalendarHashChain;
+import com.guardtime.ksi.unisignature.CalendarHashChainCache;
 import com.guardtime.ksi.unisignature.KSISignature;
 import com.guardtime.ksi.unisignature.KSISignatureComponentFactory;
 import com.guardtime.ksi.unisignature.RFC3161Record;
@@ -44,6 +45,9 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
 
+import static com.guardtime.ksi.unisignature.CalendarHashChainUtil.cacheCalendarHashChain;
+import static com.guardtime.ksi.unisignature.CalendarHashChainUtil.getCachedCalendarHashChain;
+
 /**
  * Verification context implementation.
  *
@@ -60,6 +64,8 @@ final class KSIVerificationContext implements VerificationContext {
     private Long inputHashLevel;
     private Map<Date, CalendarHashChain> extendedSignatures = new HashMap<>();
     private CalendarHashChain calendarExtendedToHead;
+    private ExtendedCalendarHashChainCache batchCalendarHashChainCache;
+    private CalendarHashChainCache calendarHashChainCache;
 
     private KSISignatureComponentFactory signatureComponentFactory;
 
@@ -78,6 +84,22 @@ final class KSIVerificationContext implements VerificationContext {
         this.signatureComponentFactory = signatureComponentFactory;
     }
 
+    void setBatchCalendarHashChainCache(ExtendedCalendarHashChainCache batchCalendarHashChainCache) {
+        this.batchCalendarHashChainCache = batchCalendarHashChainCache;
+    }
+
+    ExtendedCalendarHashChainCache getBatchCalendarHashChainCache() {
+        return batchCalendarHashChainCache;
+    }
+
+    void setCalendarHashChainCache(CalendarHashChainCache calendarHashChainCache) {
+        this.calendarHashChainCache = calendarHashChainCache;
+    }
+
+    CalendarHashChainCache getCalendarHashChainCache() {
+        return calendarHashChainCache;
+    }
+
     public KSISignature getSignature() {
         return signature;
     }
@@ -157,7 +179,39 @@ final class KSIVerificationContext implements VerificationContext {
     }
 
     private CalendarHashChain extend(Date publicationTime) throws KSIException {
-        Future<ExtensionResponse> extenderFuture = extendingService.extend(getSignature().getAggregationTime(), publicationTime);
+        CalendarHashChain calendarHashChain = getCachedCalendarHashChain(calendarHashChainCache, signature, publicationTime);
+        if (calendarHashChain != null) {
+            return calendarHashChain;
+        }
+        if (batchCalendarHashChainCache != null) {
+            calendarHashChain = batchCalendarHashChainCache.extend(extendingService, signatureComponentFactory,
+                    signature.getAggregationTime(), publicationTime);
+        } else {
+            calendarHashChain = extend(extendingService, signatureComponentFactory, signature.getAggregationTime(), publicationTime);
+        }
+        cacheCalendarHashChain(calendarHashChainCache, signature, getTrustedPublication(publicationTime), calendarHashChain);
+        return calendarHashChain;
+    }
+
+    /**
+     * Returns the publication of the publications file at exactly the given time. The cache is shared with other
+     * contexts, possibly using other extending services, so an extended chain is only cached once it is known to end at
+     * a publication from the publications file.
+     */
+    private PublicationData getTrustedPublication(Date publicationTime) {
+        if (publicationsFile == null || publicationTime == null) {
+            return null;
+        }
+        PublicationRecord record = publicationsFile.getPublicationRecord(publicationTime);
+        if (record == null || !publicationTime.equals(record.getPublicationTime())) {
+            return null;
+        }
+        return record.getPublicationData();
+    }
+
+    static CalendarHashChain extend(KSIExtendingService extendingService, KSISignatureComponentFactory signatureComponentFactory,
+                                    Date aggregationTime, Date publicationTime) throws KSIException {
+        Future<ExtensionResponse> extenderFuture = extendingService.extend(aggregationTime, publicationTime);
         ExtensionResponse extensionResponse = extenderFuture.getResult();
         try {
             return signatureComponentFactory.createCalendarHashChain(extensionResponse.getCalendarHashChain());
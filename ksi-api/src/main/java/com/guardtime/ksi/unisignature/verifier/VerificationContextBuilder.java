@@ -27,6 +27,8 @@ import com.guardtime.ksi.publication.PublicationsFile;
 import com.guardtime.ksi.service.KSIExtendingClientServiceAdapter;
 import com.guardtime.ksi.service.KSIExtendingService;
 import com.guardtime.ksi.service.client.KSIExtenderClient;
+import com.guardtime.ksi.unisignature.BoundedCalendarHashChainCache;
+import com.guardtime.ksi.unisignature.CalendarHashChainCache;
 import com.guardtime.ksi.unisignature.KSISignature;
 import com.guardtime.ksi.util.Util;
 
@@ -43,6 +45,8 @@ public class VerificationContextBuilder {
     private KSIExtendingService extendingService;
     private DataHash documentHash;
     private Long inputHashLevel;
+    private ExtendedCalendarHashChainCache batchCalendarHashChainCache;
+    private CalendarHashChainCache calendarHashChainCache;
 
     /**
      * Used to set the KSI signature that is verified.
@@ -134,10 +138,31 @@ public class VerificationContextBuilder {
         return setDocumentHash(documentHash, 0L);
     }
 
+    /**
+     * Sets the cache of extended calendar hash chains that is consulted before asking the extender. Not used by
+     * default, e.g. a {@link BoundedCalendarHashChainCache} can be shared by the contexts that trust the same
+     * publications file. Only the chains that end at a publication of the publications file are added to the cache.
+     */
+    public VerificationContextBuilder setCalendarHashChainCache(CalendarHashChainCache calendarHashChainCache) {
+        this.calendarHashChainCache = calendarHashChainCache;
+        return this;
+    }
+
+    /**
+     * Sets the cache used to share extended calendar hash chains between the contexts of one verification batch.
+     */
+    VerificationContextBuilder setBatchCalendarHashChainCache(ExtendedCalendarHashChainCache batchCalendarHashChainCache) {
+        this.batchCalendarHashChainCache = batchCalendarHashChainCache;
+        return this;
+    }
+
     public VerificationContext build() {
         Util.notNull(signature, "Signature");
-        return new KSIVerificationContext(publicationsFile, signature, userPublication, extendingAllowed, extendingService,
-                documentHash, inputHashLevel);
+        KSIVerificationContext context = new KSIVerificationContext(publicationsFile, signature, userPublication, extendingAllowed,
+                extendingService, documentHash, inputHashLevel);
+        context.setBatchCalendarHashChainCache(batchCalendarHashChainCache);
+        context.setCalendarHashChainCache(calendarHashChainCache);
+        return context;
     }
 
     /**
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2013-2018 Guardtime, Inc.
+ *
+ *  This file is part of the Guardtime client SDK.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License").
+ *  You may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES, CONDITIONS, OR OTHER LICENSES OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ *  "Guardtime" and "KSI" are trademarks or registered trademarks of
+ *  Guardtime, Inc., and no license to trademarks is granted; Guardtime
+ *  reserves and retains all trademark rights.
+ *
+ */
+
+package com.guardtime.ksi.unisignature.verifier.rules;
+
+import com.guardtime.ksi.util.BoundedCache;
+
+import java.security.cert.Certificate;
+import java.util.Arrays;
+
+/**
+ * Cache of calendar authentication record signature verification results, used by
+ * {@link CalendarAuthenticationRecordSignatureVerificationRule}. Signatures created in the same aggregation round
+ * share the calendar authentication record, so the PKI signature of the record needs to be verified only once.
+ * <p>
+ * The results are keyed by the certificate ID, the certificate, the signature algorithm, the encoded publication data
+ * and the signature value, so a result is only reused for exactly the same verification.
+ * </p>
+ */
+public final class CalendarAuthenticationRecordSignatureCache {
+
+    private static final int DEFAULT_MAX_SIZE = 1000;
+    private static final CalendarAuthenticationRecordSignatureCache DEFAULT_CACHE =
+            new CalendarAuthenticationRecordSignatureCache(DEFAULT_MAX_SIZE);
+
+    private final BoundedCache<Key, Boolean> results;
+
+    /**
+     * @param maxSize maximum number of verification results to keep.
+     */
+    public CalendarAuthenticationRecordSignatureCache(int maxSize) {
+        this.results = new BoundedCache<>(maxSize);
+    }
+
+    /**
+     * @return The cache shared by the rules that are created without a cache, holds up to 1000 results.
+     */
+    public static CalendarAuthenticationRecordSignatureCache getDefault() {
+        return DEFAULT_CACHE;
+    }
+
+    Boolean get(Key key) {
+        return results.get(key);
+    }
+
+    void put(Key key, boolean valid) {
+        results.put(key, valid);
+    }
+
+    /**
+     * @return The number of verifications that were answered from the cache.
+     */
+    public long getHits() {
+        return results.getHits();
+    }
+
+    /**
+     * @return The number of verifications that were not found from the cache.
+     */
+    public long getMisses() {
+        return results.getMisses();
+    }
+
+    /**
+     * @return The number of cached verification results.
+     */
+    public int size() {
+        return results.size();
+    }
+
+    /**
+     * Removes all the cached verification results.
+     */
+    public void clear() {
+        results.clear();
+    }
+
+    static final class Key {
+
+        private final byte[] certificateId;
+        private final Certificate certificate;
+        private final String signatureType;
+        private final byte[] publicationData;
+        private final byte[] signatureValue;
+        private final int hashCode;
+
+        Key(byte[] certificateId, Certificate certificate, String signatureType, byte[] publicationData, byte[] signatureValue) {
+            this.certificateId = certificateId;
+            this.certificate = certificate;
+            this.signatureType = signatureType;
+            this.publicationData = publicationData;
+            this.signatureValue = signatureValue;
+            int result = Arrays.hashCode(certificateId);
+            result = 31 * result + signatureType.hashCode();
+            result = 31 * result + Arrays.hashCode(publicationData);
+            result = 31 * result + Arrays.hashCode(signatureValue);
+            this.hashCode = result;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            Key that = (Key) o;
+            return hashCode == that.hashCode
+                    && Arrays.equals(certificateId, that.certificateId)
+                    && signatureType.equals(that.signatureType)
+                    && Arrays.equals(publicationData, that.publicationData)
+                    && Arrays.equals(signatureValue, that.signatureValue)
+                    && (certificate == null ? that.certificate == null : certificate.equals(that.certificate));
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
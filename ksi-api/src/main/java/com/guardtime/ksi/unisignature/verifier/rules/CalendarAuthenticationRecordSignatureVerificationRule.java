@@ -26,6 +26,7 @@ import com.guardtime.ksi.unisignature.SignatureData;
 import com.guardtime.ksi.unisignature.verifier.VerificationContext;
 import com.guardtime.ksi.unisignature.verifier.VerificationErrorCode;
 import com.guardtime.ksi.unisignature.verifier.VerificationResultCode;
+import com.guardtime.ksi.util.Util;
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -37,32 +38,61 @@ import java.security.cert.Certificate;
 /**
  * Validates calendar authentication record signature. At first X.509 certificate is searched from
  * publications file and when the certificate is found then the PKI signature is validated.
+ * <p>
+ * The verification results are cached in a {@link CalendarAuthenticationRecordSignatureCache}, by default in the
+ * cache shared by all the rules, see {@link CalendarAuthenticationRecordSignatureCache#getDefault()}.
+ * </p>
  */
 public class CalendarAuthenticationRecordSignatureVerificationRule extends BaseRule {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(CalendarAuthenticationRecordSignatureVerificationRule.class);
 
+    private final CalendarAuthenticationRecordSignatureCache cache;
+
+    public CalendarAuthenticationRecordSignatureVerificationRule() {
+        this(CalendarAuthenticationRecordSignatureCache.getDefault());
+    }
+
+    /**
+     * @param cache cache of the verification results.
+     */
+    public CalendarAuthenticationRecordSignatureVerificationRule(CalendarAuthenticationRecordSignatureCache cache) {
+        Util.notNull(cache, "Calendar authentication record signature cache");
+        this.cache = cache;
+    }
+
     public VerificationResultCode verifySignature(VerificationContext context) throws KSIException {
         CalendarAuthenticationRecord authenticationRecord = context.getCalendarAuthenticationRecord();
         SignatureData signatureData = authenticationRecord.getSignatureData();
         Certificate certificate = context.getCertificate(signatureData.getCertificateId());
-        try {
-            Signature sig = Signature.getInstance(signatureData.getSignatureType());
-            sig.initVerify(certificate);
-            sig.update(authenticationRecord.getPublicationData().getEncoded());
-            if (!sig.verify(signatureData.getSignatureValue())) {
-                LOGGER.info("Invalid calendar authentication record signature.");
+        byte[] publicationData = authenticationRecord.getPublicationData().getEncoded();
+        CalendarAuthenticationRecordSignatureCache.Key key = new CalendarAuthenticationRecordSignatureCache.Key(
+                signatureData.getCertificateId(), certificate, signatureData.getSignatureType(), publicationData,
+                signatureData.getSignatureValue());
+        Boolean valid = cache.get(key);
+        if (valid == null) {
+            try {
+                valid = verify(certificate, signatureData, publicationData);
+            } catch (GeneralSecurityException e) {
+                LOGGER.warn("General PKI security exception occurred when verifying KSI signature. " + e.getMessage(), e);
                 return VerificationResultCode.FAIL;
             }
-        } catch (GeneralSecurityException e) {
-            LOGGER.warn("General PKI security exception occurred when verifying KSI signature. " + e.getMessage(), e);
+            cache.put(key, valid);
+        }
+        if (!valid) {
+            LOGGER.info("Invalid calendar authentication record signature.");
             return VerificationResultCode.FAIL;
         }
-
-
         return VerificationResultCode.OK;
     }
 
+    private boolean verify(Certificate certificate, SignatureData signatureData, byte[] publicationData) throws GeneralSecurityException {
+        Signature sig = Signature.getInstance(signatureData.getSignatureType());
+        sig.initVerify(certificate);
+        sig.update(publicationData);
+        return sig.verify(signatureData.getSignatureValue());
+    }
+
     public VerificationErrorCode getErrorCode() {
         return VerificationErrorCode.KEY_02;
     }
@@ -21,14 +21,30 @@
 package com.guardtime.ksi;
 
 import com.guardtime.ksi.exceptions.KSIException;
+import com.guardtime.ksi.hashing.DataHash;
+import com.guardtime.ksi.hashing.HashAlgorithm;
+import com.guardtime.ksi.pdu.ExtensionResponse;
+import com.guardtime.ksi.publication.PublicationData;
+import com.guardtime.ksi.publication.PublicationRecord;
+import com.guardtime.ksi.publication.PublicationsFile;
+import com.guardtime.ksi.service.Future;
 import com.guardtime.ksi.service.KSIExtendingService;
 import com.guardtime.ksi.service.KSISigningService;
+import com.guardtime.ksi.tlv.TLVStructure;
+import com.guardtime.ksi.unisignature.BoundedCalendarHashChainCache;
+import com.guardtime.ksi.unisignature.KSISignature;
 
 import org.mockito.Mockito;
 import org.testng.Assert;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import static com.guardtime.ksi.Resources.EXTENDED_SIGNATURE_2017_03_14;
+import static com.guardtime.ksi.Resources.SIGNATURE_2017_03_14;
+
 public class ExtenderBuilderTest {
 
     private KSIExtendingService mockedExtendingService;
@@ -63,6 +79,65 @@ public class ExtenderBuilderTest {
         Assert.assertNotNull(extender);
     }
 
+    @Test
+    public void testExtenderUsesCachedCalendarHashChain() throws Exception {
+        KSISignature extendedSignature = TestUtil.loadSignature(EXTENDED_SIGNATURE_2017_03_14);
+        KSIExtendingService extendingService = mockExtendingService(extendedSignature);
+        BoundedCalendarHashChainCache cache = new BoundedCalendarHashChainCache(10, 1, TimeUnit.HOURS);
+        Extender extender = new ExtenderBuilder()
+                .setExtendingService(extendingService)
+                .setPublicationsHandler(mockPublicationsHandler(extendedSignature.getPublicationRecord()))
+                .setCalendarHashChainCache(cache)
+                .build();
+
+        KSISignature first = extender.extend(TestUtil.loadSignature(SIGNATURE_2017_03_14), extendedSignature.getPublicationRecord());
+        KSISignature second = extender.extend(TestUtil.loadSignature(SIGNATURE_2017_03_14), extendedSignature.getPublicationRecord());
+
+        Assert.assertEquals(second.getCalendarHashChain().getOutputHash(), first.getCalendarHashChain().getOutputHash());
+        Assert.assertEquals(cache.getHits(), 1);
+        Mockito.verify(extendingService, Mockito.times(1)).extend(Mockito.any(Date.class), Mockito.any(Date.class));
+    }
+
+    @Test
+    public void testExtenderDoesNotCacheChainOfPublicationMissingFromPublicationsFile() throws Exception {
+        KSISignature extendedSignature = TestUtil.loadSignature(EXTENDED_SIGNATURE_2017_03_14);
+        KSIExtendingService extendingService = mockExtendingService(extendedSignature);
+        BoundedCalendarHashChainCache cache = new BoundedCalendarHashChainCache(10, 1, TimeUnit.HOURS);
+        Extender extender = new ExtenderBuilder()
+                .setExtendingService(extendingService)
+                .setPublicationsHandler(mockPublicationsHandler(null))
+                .setCalendarHashChainCache(cache)
+                .build();
+
+        extender.extend(TestUtil.loadSignature(SIGNATURE_2017_03_14), extendedSignature.getPublicationRecord());
+        extender.extend(TestUtil.loadSignature(SIGNATURE_2017_03_14), extendedSignature.getPublicationRecord());
+
+        Assert.assertEquals(cache.size(), 0);
+        Mockito.verify(extendingService, Mockito.times(2)).extend(Mockito.any(Date.class), Mockito.any(Date.class));
+    }
+
+    @Test
+    public void testExtenderIgnoresCachedChainNotEndingAtPublication() throws Exception {
+        KSISignature extendedSignature = TestUtil.loadSignature(EXTENDED_SIGNATURE_2017_03_14);
+        KSIExtendingService extendingService = mockExtendingService(extendedSignature);
+        BoundedCalendarHashChainCache cache = new BoundedCalendarHashChainCache(10, 1, TimeUnit.HOURS);
+        cache.put(extendedSignature.getCalendarHashChain());
+        PublicationData publicationData = new PublicationData(extendedSignature.getPublicationTime(),
+                new DataHash(HashAlgorithm.SHA2_256, new byte[32]));
+        PublicationRecord publicationRecord = Mockito.mock(PublicationRecord.class);
+        Mockito.when(publicationRecord.getPublicationData()).thenReturn(publicationData);
+        Mockito.when(publicationRecord.getPublicationTime()).thenReturn(publicationData.getPublicationTime());
+        Extender extender = new ExtenderBuilder()
+                .setExtendingService(extendingService)
+                .setPublicationsHandler(mockPublicationsHandler(null))
+                .setCalendarHashChainCache(cache)
+                .build();
+
+        extender.asyncExtend(TestUtil.loadSignature(SIGNATURE_2017_03_14), publicationRecord);
+
+        Mockito.verify(extendingService, Mockito.times(1)).extend(Mockito.any(Date.class), Mockito.any(Date.class));
+    }
+
     @Test(expectedExceptions = {NullPointerException.class}, expectedExceptionsMessageRegExp = "KSI signing service can not be null")
     public void testSignerBuilderWithoutSigningService() throws KSIException {
         new SignerBuilder().build();
@@ -74,4 +149,22 @@ public class ExtenderBuilderTest {
         Assert.assertNotNull(signer);
     }
 
+    private static KSIExtendingService mockExtendingService(KSISignature extendedSignature) throws Exception {
+        KSIExtendingService extendingService = Mockito.mock(KSIExtendingService.class);
+        Future<ExtensionResponse> future = Mockito.mock(Future.class);
+        ExtensionResponse response = Mockito.mock(ExtensionResponse.class);
+        Mockito.when(response.getCalendarHashChain()).thenReturn(((TLVStructure) extendedSignature.getCalendarHashChain()).getRootElement());
+        Mockito.when(future.getResult()).thenReturn(response);
+        Mockito.when(extendingService.extend(Mockito.any(Date.class), Mockito.any(Date.class))).thenReturn(future);
+        return extendingService;
+    }
+
+    private static PublicationsHandler mockPublicationsHandler(PublicationRecord publicationRecord) throws Exception {
+        PublicationsFile publicationsFile = Mockito.mock(PublicationsFile.class);
+        Mockito.when(publicationsFile.getPublicationRecord(Mockito.any(Date.class))).thenReturn(publicationRecord);
+        PublicationsHandler publicationsHandler = Mockito.mock(PublicationsHandler.class);
+        Mockito.when(publicationsHandler.getPublicationsFile()).thenReturn(publicationsFile);
+        return publicationsHandler;
+    }
+
 }
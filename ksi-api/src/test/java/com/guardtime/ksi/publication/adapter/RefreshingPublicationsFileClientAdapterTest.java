@@ -0,0 +1,150 @@
+/*
+ * Copyright 2013-2018 Guardtime, Inc.
+ *
+ *  This file is part of the Guardtime client SDK.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License").
+ *  You may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES, CONDITIONS, OR OTHER LICENSES OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ *  "Guardtime" and "KSI" are trademarks or registered trademarks of
+ *  Guardtime, Inc., and no license to trademarks is granted; Guardtime
+ *  reserves and retains all trademark rights.
+ *
+ */
+
+package com.guardtime.ksi.publication.adapter;
+
+import com.guardtime.ksi.exceptions.KSIException;
+import com.guardtime.ksi.publication.PublicationsFile;
+import com.guardtime.ksi.publication.inmemory.InMemoryPublicationsFileFactory;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.guardtime.ksi.service.Future;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.internal.verification.VerificationModeFactory.times;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+public class RefreshingPublicationsFileClientAdapterTest extends AbstractPublicationsFileClientAdapterTest {
+
+    private static final long REFRESH_INTERVAL = 60000L;
+
+    private InMemoryPublicationsFileFactory publicationsFileFactory;
+    private RefreshingPublicationsFileClientAdapter adapter;
+    private File cacheDirectory;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        super.setUp();
+        this.publicationsFileFactory = new InMemoryPublicationsFileFactory(mockedTrustStore);
+        this.cacheDirectory = Files.createTempDirectory("ksi-publications-file").toFile();
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        if (adapter != null) {
+            adapter.close();
+        }
+        File[] files = cacheDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                Files.delete(file.toPath());
+            }
+        }
+        Files.delete(cacheDirectory.toPath());
+    }
+
+    @Test
+    public void testReturnsCachedPublicationsFile() throws Exception {
+        adapter = new RefreshingPublicationsFileClientAdapter(mockedPublicationsFileClient, publicationsFileFactory, REFRESH_INTERVAL, null);
+        PublicationsFile publicationsFile = adapter.getPublicationsFile();
+        assertNotNull(publicationsFile);
+        assertSame(adapter.getPublicationsFile(), publicationsFile);
+        verify(mockedPublicationsFileClient, times(1)).getPublicationsFile();
+    }
+
+    @Test
+    public void testPublicationsFileIsRefreshedInBackground() throws Exception {
+        CountDownLatch downloads = countDownloads(3);
+        adapter = new RefreshingPublicationsFileClientAdapter(mockedPublicationsFileClient, publicationsFileFactory, 20L, null);
+        adapter.getPublicationsFile();
+        assertTrue(downloads.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testCachedPublicationsFileIsReturnedWhenRefreshFails() throws Exception {
+        adapter = new RefreshingPublicationsFileClientAdapter(mockedPublicationsFileClient, publicationsFileFactory, 20L, null);
+        PublicationsFile publicationsFile = adapter.getPublicationsFile();
+        when(mockedPublicationsFileResponse.getResult()).thenThrow(new KSIException("Download failed"));
+        CountDownLatch downloads = countDownloads(2);
+        assertTrue(downloads.await(5, TimeUnit.SECONDS));
+        assertSame(adapter.getPublicationsFile(), publicationsFile);
+    }
+
+    @Test(expectedExceptions = KSIException.class, expectedExceptionsMessageRegExp = "Download failed")
+    public void testFirstDownloadFailureIsThrown() throws Exception {
+        when(mockedPublicationsFileResponse.getResult()).thenThrow(new KSIException("Download failed"));
+        adapter = new RefreshingPublicationsFileClientAdapter(mockedPublicationsFileClient, publicationsFileFactory, REFRESH_INTERVAL, null);
+        adapter.getPublicationsFile();
+    }
+
+    @Test
+    public void testPublicationsFileIsLoadedFromCacheFile() throws Exception {
+        File cacheFile = new File(cacheDirectory, "publications.bin");
+        adapter = new RefreshingPublicationsFileClientAdapter(mockedPublicationsFileClient, publicationsFileFactory, REFRESH_INTERVAL, cacheFile);
+        adapter.getPublicationsFile();
+        adapter.close();
+        assertTrue(cacheFile.isFile());
+
+        when(mockedPublicationsFileResponse.getResult()).thenThrow(new KSIException("Download failed"));
+        CountDownLatch downloads = countDownloads(1);
+        adapter = new RefreshingPublicationsFileClientAdapter(mockedPublicationsFileClient, publicationsFileFactory, REFRESH_INTERVAL, cacheFile);
+        assertNotNull(adapter.getPublicationsFile());
+        assertTrue(downloads.await(5, TimeUnit.SECONDS), "Publications file loaded from cache file is not refreshed");
+    }
+
+    @Test
+    public void testInvalidCacheFileIsIgnored() throws Exception {
+        File cacheFile = new File(cacheDirectory, "publications.bin");
+        Files.write(cacheFile.toPath(), new byte[]{1, 2, 3});
+        adapter = new RefreshingPublicationsFileClientAdapter(mockedPublicationsFileClient, publicationsFileFactory, REFRESH_INTERVAL, cacheFile);
+        assertNotNull(adapter.getPublicationsFile());
+        verify(mockedPublicationsFileClient, times(1)).getPublicationsFile();
+        assertTrue(Files.size(cacheFile.toPath()) > 3);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = "Publications file refresh interval must be positive")
+    public void testNonPositiveRefreshInterval() {
+        new RefreshingPublicationsFileClientAdapter(mockedPublicationsFileClient, publicationsFileFactory, 0L, null);
+    }
+
+    private CountDownLatch countDownloads(int count) throws Exception {
+        final CountDownLatch latch = new CountDownLatch(count);
+        when(mockedPublicationsFileClient.getPublicationsFile()).thenAnswer(new Answer<Future<ByteBuffer>>() {
+            public Future<ByteBuffer> answer(InvocationOnMock invocation) {
+                latch.countDown();
+                return mockedPublicationsFileResponse;
+            }
+        });
+        return latch;
+    }
+}
@@ -21,7 +21,9 @@
 package com.guardtime.ksi.publication.inmemory;
 
 import com.guardtime.ksi.TestUtil;
+import com.guardtime.ksi.exceptions.KSIException;
 import com.guardtime.ksi.publication.PublicationData;
+import com.guardtime.ksi.publication.PublicationRecord;
 import com.guardtime.ksi.publication.PublicationsFile;
 import com.guardtime.ksi.tlv.TLVParserException;
 
@@ -183,4 +185,46 @@ public class InMemoryPublicationsFileTest {
     public void testDecodePublicationsFileWithCriticalElementInPublicationHeader() throws Exception {
         new InMemoryPublicationsFile(TestUtil.load(PUBLICATIONS_FILE_CRITICAL_ELEMENT_IN_HEADER));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testPublicationRecordLookupFindsFirstPublicationAtOrAfterTime() throws Exception {
+        PublicationsFile publication = new InMemoryPublicationsFile(TestUtil.load(PUBLICATIONS_FILE));
+        for (PublicationRecord record : publication.getPublicationRecords()) {
+            long time = record.getPublicationTime().getTime();
+            for (long offset : new long[]{-1000L, 0L, 1000L}) {
+                Date searchTime = new Date(time + offset);
+                Assert.assertSame(publication.getPublicationRecord(searchTime), findLinearly(publication, searchTime));
+            }
+        }
+        Assert.assertSame(publication.getPublicationRecord(new Date(0L)), findLinearly(publication, new Date(0L)));
+    }
+
+    @Test
+    public void testCertificateLookupReturnsCachedCertificate() throws Exception {
+        PublicationsFile publication = new InMemoryPublicationsFile(TestUtil.load(PUBLICATIONS_FILE));
+        byte[] certificateId = {-102, 101, -126, -108};
+        Assert.assertSame(publication.findCertificateById(certificateId), publication.findCertificateById(certificateId.clone()));
+    }
+
+    @Test
+    public void testLookupsInPublicationsFileWithoutRecords() throws Exception {
+        PublicationsFile publication = new InMemoryPublicationsFile(TestUtil.load(PUBLICATIONS_FILE_CERT_AND_PUBLICATION_RECORD_MISSING));
+        Assert.assertNull(publication.getPublicationRecord(new Date(0L)));
+    }
+
+    @Test(expectedExceptions = KSIException.class, expectedExceptionsMessageRegExp = "Publications file does not contain publication records")
+    public void testLatestPublicationOfPublicationsFileWithoutRecords() throws Exception {
+        new InMemoryPublicationsFile(TestUtil.load(PUBLICATIONS_FILE_CERT_AND_PUBLICATION_RECORD_MISSING)).getLatestPublication();
+    }
+
+    private static PublicationRecord findLinearly(PublicationsFile publication, Date time) {
+        PublicationRecord nearest = null;
+        for (PublicationRecord record : publication.getPublicationRecords()) {
+            Date publicationTime = record.getPublicationTime();
+            if (!publicationTime.before(time) && (nearest == null || publicationTime.before(nearest.getPublicationTime()))) {
+                nearest = record;
+            }
+        }
+        return nearest;
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2013-2018 Guardtime, Inc.
+ *
+ *  This file is part of the Guardtime client SDK.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License").
+ *  You may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES, CONDITIONS, OR OTHER LICENSES OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ *  "Guardtime" and "KSI" are trademarks or registered trademarks of
+ *  Guardtime, Inc., and no license to trademarks is granted; Guardtime
+ *  reserves and retains all trademark rights.
+ *
+ */
+
+package com.guardtime.ksi.unisignature;
+
+import com.guardtime.ksi.TestUtil;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import static com.guardtime.ksi.Resources.EXTENDED_SIGNATURE_2017_03_14;
+
+public class BoundedCalendarHashChainCacheTest {
+
+    private CalendarHashChain calendarHashChain;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        calendarHashChain = TestUtil.loadSignature(EXTENDED_SIGNATURE_2017_03_14).getCalendarHashChain();
+    }
+
+    @Test
+    public void testGetCachedCalendarHashChain() {
+        BoundedCalendarHashChainCache cache = new BoundedCalendarHashChainCache(10, 1, TimeUnit.HOURS);
+        cache.put(calendarHashChain);
+
+        Assert.assertSame(cache.get(calendarHashChain.getInputHash(), calendarHashChain.getAggregationTime(),
+                calendarHashChain.getPublicationTime()), calendarHashChain);
+        Assert.assertEquals(cache.getHits(), 1);
+        Assert.assertEquals(cache.size(), 1);
+    }
+
+    @Test
+    public void testGetCalendarHashChainOfOtherPublication() {
+        BoundedCalendarHashChainCache cache = new BoundedCalendarHashChainCache(10, 1, TimeUnit.HOURS);
+        cache.put(calendarHashChain);
+        Date otherPublicationTime = new Date(calendarHashChain.getPublicationTime().getTime() + 1000);
+
+        Assert.assertNull(cache.get(calendarHashChain.getInputHash(), calendarHashChain.getAggregationTime(), otherPublicationTime));
+        Assert.assertNull(cache.get(calendarHashChain.getInputHash(), calendarHashChain.getAggregationTime(), null));
+        Assert.assertEquals(cache.getMisses(), 1);
+    }
+
+    @Test
+    public void testExpiredCalendarHashChainIsNotReturned() throws Exception {
+        BoundedCalendarHashChainCache cache = new BoundedCalendarHashChainCache(10, 10, TimeUnit.MILLISECONDS);
+        cache.put(calendarHashChain);
+        Thread.sleep(20);
+
+        Assert.assertNull(cache.get(calendarHashChain.getInputHash(), calendarHashChain.getAggregationTime(),
+                calendarHashChain.getPublicationTime()));
+    }
+}
@@ -20,18 +20,30 @@
 
 package com.guardtime.ksi.unisignature;
 
+import com.guardtime.ksi.TestUtil;
+import com.guardtime.ksi.publication.PublicationData;
 import com.guardtime.ksi.unisignature.inmemory.InMemoryKsiSignatureComponentFactory;
 
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
 import static com.guardtime.ksi.CommonTestUtil.loadTlv;
 import static com.guardtime.ksi.Resources.CALENDAR_HASH_CHAIN_OK;
 import static com.guardtime.ksi.Resources.CALENDAR_HASH_CHAIN_RIGHT_LINK_DATA_HASH_MISMATCH;
 import static com.guardtime.ksi.Resources.CALENDAR_HASH_CHAIN_RIGHT_LINK_EXTRA;
 import static com.guardtime.ksi.Resources.CALENDAR_HASH_CHAIN_RIGHT_LINK_MISSING;
+import static com.guardtime.ksi.Resources.EXTENDED_SIGNATURE_2017_03_14;
+import static com.guardtime.ksi.Resources.SIGNATURE_2017_03_14;
 import static com.guardtime.ksi.unisignature.CalendarHashChainUtil.areRightLinksConsistent;
+import static com.guardtime.ksi.unisignature.CalendarHashChainUtil.cacheCalendarHashChain;
+import static com.guardtime.ksi.unisignature.CalendarHashChainUtil.getCachedCalendarHashChain;
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 
 public class CalendarHashChainUtilTest {
@@ -85,6 +97,48 @@ public class CalendarHashChainUtilTest {
         assertTrue(areChainsConsistent);
     }
 
+    @Test
+    public void testExtendedCalendarHashChainIsCached() throws Exception {
+        KSISignature signature = TestUtil.loadSignature(SIGNATURE_2017_03_14);
+        CalendarHashChain extendedChain = TestUtil.loadSignature(EXTENDED_SIGNATURE_2017_03_14).getCalendarHashChain();
+        Date publicationTime = extendedChain.getPublicationTime();
+        BoundedCalendarHashChainCache cache = new BoundedCalendarHashChainCache(10, 1, TimeUnit.HOURS);
+
+        assertNull(getCachedCalendarHashChain(cache, signature, publicationTime));
+        cacheCalendarHashChain(cache, signature, new PublicationData(publicationTime, extendedChain.getOutputHash()), extendedChain);
+
+        assertSame(getCachedCalendarHashChain(cache, signature, publicationTime), extendedChain);
+        assertNull(getCachedCalendarHashChain(cache, signature, new Date(publicationTime.getTime() + 1000)));
+    }
+
+    @Test
+    public void testCalendarHashChainToOtherPublicationIsNotCached() throws Exception {
+        KSISignature signature = TestUtil.loadSignature(SIGNATURE_2017_03_14);
+        CalendarHashChain extendedChain = TestUtil.loadSignature(EXTENDED_SIGNATURE_2017_03_14).getCalendarHashChain();
+        BoundedCalendarHashChainCache cache = new BoundedCalendarHashChainCache(10, 1, TimeUnit.HOURS);
+
+        Date publicationTime = extendedChain.getPublicationTime();
+        cacheCalendarHashChain(cache, signature,
+                new PublicationData(new Date(publicationTime.getTime() + 1000), extendedChain.getOutputHash()), extendedChain);
+        cacheCalendarHashChain(cache, signature, null, extendedChain);
+        cacheCalendarHashChain(cache, signature, new PublicationData(publicationTime, extendedChain.getOutputHash()),
+                signature.getCalendarHashChain());
+
+        assertEquals(cache.size(), 0);
+    }
+
+    @Test
+    public void testCalendarHashChainNotEndingAtPublicationHashIsNotCached() throws Exception {
+        KSISignature signature = TestUtil.loadSignature(SIGNATURE_2017_03_14);
+        CalendarHashChain extendedChain = TestUtil.loadSignature(EXTENDED_SIGNATURE_2017_03_14).getCalendarHashChain();
+        BoundedCalendarHashChainCache cache = new BoundedCalendarHashChainCache(10, 1, TimeUnit.HOURS);
+
+        cacheCalendarHashChain(cache, signature,
+                new PublicationData(extendedChain.getPublicationTime(), extendedChain.getInputHash()), extendedChain);
+
+        assertEquals(cache.size(), 0);
+    }
+
     private CalendarHashChain readCalendarHashChainFromFile(String calendarChainFileName) throws Exception {
         return signatureComponentFactory.createCalendarHashChain(loadTlv(calendarChainFileName));
     }
@@ -0,0 +1,238 @@
+/*
+ * Copyright 2013-2018 Guardtime, Inc.
+ *
+ *  This file is part of the Guardtime client SDK.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License").
+ *  You may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES, CONDITIONS, OR OTHER LICENSES OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ *  "Guardtime" and "KSI" are trademarks or registered trademarks of
+ *  Guardtime, Inc., and no license to trademarks is granted; Guardtime
+ *  reserves and retains all trademark rights.
+ *
+ */
+
+package com.guardtime.ksi.unisignature.verifier;
+
+import com.guardtime.ksi.Extender;
+import com.guardtime.ksi.PublicationsHandler;
+import com.guardtime.ksi.TestUtil;
+import com.guardtime.ksi.pdu.ExtensionResponse;
+import com.guardtime.ksi.service.Future;
+import com.guardtime.ksi.service.KSIExtendingService;
+import com.guardtime.ksi.service.KSIProtocolException;
+import com.guardtime.ksi.tlv.TLVStructure;
+import com.guardtime.ksi.unisignature.KSISignature;
+import com.guardtime.ksi.unisignature.verifier.policies.ContextAwarePolicy;
+import com.guardtime.ksi.unisignature.verifier.policies.ContextAwarePolicyAdapter;
+import com.guardtime.ksi.unisignature.verifier.policies.InternalVerificationPolicy;
+import com.guardtime.ksi.unisignature.verifier.policies.Policy;
+import com.guardtime.ksi.unisignature.verifier.rules.Rule;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.guardtime.ksi.Resources.SIGNATURE_2017_03_14;
+import static com.guardtime.ksi.Resources.SIGNATURE_CALENDAR_HASH_CHAIN_INVALID_INPUT_HASH;
+import static com.guardtime.ksi.Resources.SIGNATURE_OTHER_CORE;
+
+public class BatchSignatureVerifierTest {
+
+    private ExecutorService executor;
+    private BatchSignatureVerifier verifier;
+    private KSIExtendingService extendingService;
+    private ContextAwarePolicy calendarPolicy;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        executor = Executors.newFixedThreadPool(4);
+        verifier = new BatchSignatureVerifier(executor);
+        extendingService = Mockito.mock(KSIExtendingService.class);
+        Extender extender = Mockito.mock(Extender.class);
+        Mockito.when(extender.getExtendingService()).thenReturn(extendingService);
+        calendarPolicy = ContextAwarePolicyAdapter.createCalendarPolicy(extender);
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testVerifyEmptyBatch_Ok() throws Exception {
+        List<VerificationResult> results = verifier.verify(Collections.<KSISignature>emptyList(),
+                ContextAwarePolicyAdapter.createInternalPolicy());
+        Assert.assertTrue(results.isEmpty());
+    }
+
+    @Test
+    public void testResultsAreReturnedInSignatureOrder() throws Exception {
+        List<KSISignature> signatures = Arrays.asList(
+                TestUtil.loadSignature(SIGNATURE_2017_03_14),
+                TestUtil.loadSignature(SIGNATURE_CALENDAR_HASH_CHAIN_INVALID_INPUT_HASH),
+                TestUtil.loadSignature(SIGNATURE_OTHER_CORE),
+                TestUtil.loadSignature(SIGNATURE_2017_03_14));
+
+        List<VerificationResult> results = verifier.verify(signatures, ContextAwarePolicyAdapter.createInternalPolicy());
+
+        Assert.assertEquals(results.size(), 4);
+        KSISignatureVerifier singleVerifier = new KSISignatureVerifier();
+        for (int i = 0; i < signatures.size(); i++) {
+            VerificationResult expected = singleVerifier.verify(new VerificationContextBuilder()
+                    .setSignature(signatures.get(i)).build(), ContextAwarePolicyAdapter.createInternalPolicy());
+            Assert.assertEquals(results.get(i).isOk(), expected.isOk());
+            Assert.assertEquals(results.get(i).getErrorCode(), expected.getErrorCode());
+        }
+        Assert.assertTrue(results.get(0).isOk());
+        Assert.assertFalse(results.get(1).isOk());
+    }
+
+    @Test
+    public void testSignaturesOfOneRoundAreExtendedOnce() throws Exception {
+        List<KSISignature> signatures = loadSignatures(SIGNATURE_2017_03_14, 20);
+        TLVStructure calendarHashChain = (TLVStructure) signatures.get(0).getCalendarHashChain();
+        mockExtensionResponse(calendarHashChain);
+
+        List<VerificationResult> results = verifier.verify(signatures, calendarPolicy);
+
+        Assert.assertEquals(results.size(), 20);
+        for (VerificationResult result : results) {
+            Assert.assertTrue(result.isOk(), result.toString());
+        }
+        Mockito.verify(extendingService, Mockito.times(1)).extend(Mockito.any(Date.class), Mockito.any(Date.class));
+    }
+
+    @Test
+    public void testExtenderFailureIsSharedByTheBatch() throws Exception {
+        List<KSISignature> signatures = loadSignatures(SIGNATURE_2017_03_14, 5);
+        Future<ExtensionResponse> future = Mockito.mock(Future.class);
+        Mockito.when(future.getResult()).thenThrow(new KSIProtocolException("Extender is not available"));
+        Mockito.when(extendingService.extend(Mockito.any(Date.class), Mockito.any(Date.class))).thenReturn(future);
+
+        List<VerificationResult> results = verifier.verify(signatures, calendarPolicy);
+
+        for (VerificationResult result : results) {
+            Assert.assertFalse(result.isOk());
+            Assert.assertEquals(result.getErrorCode(), VerificationErrorCode.GEN_02);
+        }
+        Mockito.verify(extendingService, Mockito.times(1)).extend(Mockito.any(Date.class), Mockito.any(Date.class));
+    }
+
+    @Test
+    public void testSignaturesOfOneGroupShareTheResultOfTheFirstSignature() throws Exception {
+        List<VerificationResult> results = verifier.verify(loadSignatures(SIGNATURE_2017_03_14, 3),
+                ContextAwarePolicyAdapter.createInternalPolicy());
+
+        Assert.assertTrue(results.get(0).isOk());
+        Assert.assertSame(results.get(1), results.get(0));
+        Assert.assertSame(results.get(2), results.get(0));
+    }
+
+    @Test
+    public void testPolicyWithCustomRulesIsRunForEverySignature() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        final List<Rule> rules = new ArrayList<>(new InternalVerificationPolicy().getRules());
+        rules.add(new Rule() {
+            public RuleResult verify(VerificationContext context) {
+                calls.incrementAndGet();
+                RuleResult result = Mockito.mock(RuleResult.class);
+                Mockito.when(result.getResultCode()).thenReturn(VerificationResultCode.OK);
+                return result;
+            }
+        });
+        Policy policy = new InternalVerificationPolicy() {
+            @Override
+            public List<Rule> getRules() {
+                return rules;
+            }
+        };
+
+        List<VerificationResult> results = verifier.verify(loadSignatures(SIGNATURE_2017_03_14, 5),
+                ContextAwarePolicyAdapter.createPolicy(policy, Mockito.mock(PublicationsHandler.class), extendingService));
+
+        for (VerificationResult result : results) {
+            Assert.assertTrue(result.isOk(), result.toString());
+        }
+        Assert.assertEquals(calls.get(), 5);
+    }
+
+    @Test
+    public void testFailingSignatureDoesNotFailTheBatch() throws Exception {
+        KSISignature failing = Mockito.mock(KSISignature.class, new Answer<Object>() {
+            public Object answer(InvocationOnMock invocation) {
+                throw new IllegalStateException("Broken signature");
+            }
+        });
+        Mockito.doReturn(null).when(failing).getCalendarHashChain();
+        List<KSISignature> signatures = Arrays.asList(
+                TestUtil.loadSignature(SIGNATURE_2017_03_14),
+                failing,
+                TestUtil.loadSignature(SIGNATURE_OTHER_CORE));
+
+        List<VerificationResult> results = verifier.verify(signatures, ContextAwarePolicyAdapter.createInternalPolicy());
+
+        Assert.assertEquals(results.size(), 3);
+        Assert.assertTrue(results.get(0).isOk());
+        Assert.assertFalse(results.get(1).isOk());
+        Assert.assertEquals(results.get(1).getErrorCode(), VerificationErrorCode.GEN_02);
+        Exception exception = results.get(1).getPolicyVerificationResults().get(0).getException();
+        Assert.assertTrue(exception instanceof IllegalStateException);
+        VerificationResult expected = new KSISignatureVerifier().verify(new VerificationContextBuilder()
+                .setSignature(signatures.get(2)).build(), ContextAwarePolicyAdapter.createInternalPolicy());
+        Assert.assertEquals(results.get(2).isOk(), expected.isOk());
+    }
+
+    @Test
+    public void testRejectedTasksAreRunInCallingThread() throws Exception {
+        Executor rejectingExecutor = new Executor() {
+            public void execute(Runnable command) {
+                throw new RejectedExecutionException();
+            }
+        };
+        List<VerificationResult> results = new BatchSignatureVerifier(rejectingExecutor)
+                .verify(loadSignatures(SIGNATURE_2017_03_14, 3), ContextAwarePolicyAdapter.createInternalPolicy());
+
+        Assert.assertEquals(results.size(), 3);
+        for (VerificationResult result : results) {
+            Assert.assertTrue(result.isOk());
+        }
+    }
+
+    private void mockExtensionResponse(TLVStructure calendarHashChain) throws Exception {
+        Future<ExtensionResponse> future = Mockito.mock(Future.class);
+        ExtensionResponse response = Mockito.mock(ExtensionResponse.class);
+        Mockito.when(future.getResult()).thenReturn(response);
+        Mockito.when(response.getCalendarHashChain()).thenReturn(calendarHashChain.getRootElement());
+        Mockito.when(extendingService.extend(Mockito.any(Date.class), Mockito.any(Date.class))).thenReturn(future);
+    }
+
+    private static List<KSISignature> loadSignatures(String file, int count) throws Exception {
+        List<KSISignature> signatures = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            signatures.add(TestUtil.loadSignature(file));
+        }
+        return signatures;
+    }
+
+}
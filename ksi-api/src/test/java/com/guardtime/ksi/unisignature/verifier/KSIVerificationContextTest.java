@@ -0,0 +1,130 @@
+/*
+ * Copyright 2013-2018 Guardtime, Inc.
+ *
+ *  This file is part of the Guardtime client SDK.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License").
+ *  You may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES, CONDITIONS, OR OTHER LICENSES OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ *  "Guardtime" and "KSI" are trademarks or registered trademarks of
+ *  Guardtime, Inc., and no license to trademarks is granted; Guardtime
+ *  reserves and retains all trademark rights.
+ *
+ */
+
+package com.guardtime.ksi.unisignature.verifier;
+
+import com.guardtime.ksi.TestUtil;
+import com.guardtime.ksi.pdu.ExtensionResponse;
+import com.guardtime.ksi.publication.PublicationData;
+import com.guardtime.ksi.publication.PublicationRecord;
+import com.guardtime.ksi.publication.PublicationsFile;
+import com.guardtime.ksi.service.Future;
+import com.guardtime.ksi.service.KSIExtendingService;
+import com.guardtime.ksi.tlv.TLVStructure;
+import com.guardtime.ksi.unisignature.BoundedCalendarHashChainCache;
+import com.guardtime.ksi.unisignature.CalendarHashChain;
+import com.guardtime.ksi.unisignature.inmemory.InMemoryKsiSignatureComponentFactory;
+
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import static com.guardtime.ksi.Resources.EXTENDED_SIGNATURE_2017_03_14;
+import static com.guardtime.ksi.Resources.SIGNATURE_2017_03_14;
+
+public class KSIVerificationContextTest {
+
+    private KSIExtendingService extendingService;
+    private CalendarHashChain extendedChain;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        extendedChain = TestUtil.loadSignature(EXTENDED_SIGNATURE_2017_03_14).getCalendarHashChain();
+        extendingService = Mockito.mock(KSIExtendingService.class);
+        Future<ExtensionResponse> future = Mockito.mock(Future.class);
+        ExtensionResponse response = Mockito.mock(ExtensionResponse.class);
+        Mockito.when(response.getCalendarHashChain()).thenReturn(((TLVStructure) extendedChain).getRootElement());
+        Mockito.when(future.getResult()).thenReturn(response);
+        Mockito.when(extendingService.extend(Mockito.any(Date.class), Mockito.any(Date.class))).thenReturn(future);
+    }
+
+    @Test
+    public void testContextsShareCalendarHashChainCache() throws Exception {
+        BoundedCalendarHashChainCache cache = new BoundedCalendarHashChainCache(10, 1, TimeUnit.HOURS);
+        Date publicationTime = extendedChain.getPublicationTime();
+
+        PublicationsFile publicationsFile = publicationsFile(new PublicationData(publicationTime, extendedChain.getOutputHash()));
+
+        CalendarHashChain first = buildContext(cache, publicationsFile).getExtendedCalendarHashChain(publicationTime);
+        CalendarHashChain second = buildContext(cache, publicationsFile).getExtendedCalendarHashChain(publicationTime);
+
+        Assert.assertSame(second, first);
+        Mockito.verify(extendingService, Mockito.times(1)).extend(Mockito.any(Date.class), Mockito.any(Date.class));
+    }
+
+    @Test
+    public void testCalendarHashChainNotMatchingPublicationIsNotCached() throws Exception {
+        BoundedCalendarHashChainCache cache = new BoundedCalendarHashChainCache(10, 1, TimeUnit.HOURS);
+        Date publicationTime = extendedChain.getPublicationTime();
+        PublicationsFile publicationsFile = publicationsFile(new PublicationData(publicationTime, extendedChain.getInputHash()));
+
+        buildContext(cache, publicationsFile).getExtendedCalendarHashChain(publicationTime);
+        buildContext(cache, publicationsFile).getExtendedCalendarHashChain(publicationTime);
+
+        Assert.assertEquals(cache.size(), 0);
+        Mockito.verify(extendingService, Mockito.times(2)).extend(Mockito.any(Date.class), Mockito.any(Date.class));
+    }
+
+    @Test
+    public void testCalendarHashChainIsNotCachedWithoutPublicationsFile() throws Exception {
+        BoundedCalendarHashChainCache cache = new BoundedCalendarHashChainCache(10, 1, TimeUnit.HOURS);
+
+        buildContext(cache, null).getExtendedCalendarHashChain(extendedChain.getPublicationTime());
+
+        Assert.assertEquals(cache.size(), 0);
+    }
+
+    @Test
+    public void testCalendarHashChainsAreNotCachedWithoutCache() throws Exception {
+        Date publicationTime = extendedChain.getPublicationTime();
+
+        PublicationsFile publicationsFile = publicationsFile(new PublicationData(publicationTime, extendedChain.getOutputHash()));
+
+        buildContext(null, publicationsFile).getExtendedCalendarHashChain(publicationTime);
+        buildContext(null, publicationsFile).getExtendedCalendarHashChain(publicationTime);
+
+        Mockito.verify(extendingService, Mockito.times(2)).extend(Mockito.any(Date.class), Mockito.any(Date.class));
+    }
+
+    private PublicationsFile publicationsFile(PublicationData publicationData) {
+        PublicationRecord record = Mockito.mock(PublicationRecord.class);
+        Mockito.when(record.getPublicationTime()).thenReturn(publicationData.getPublicationTime());
+        Mockito.when(record.getPublicationData()).thenReturn(publicationData);
+        PublicationsFile publicationsFile = Mockito.mock(PublicationsFile.class);
+        Mockito.when(publicationsFile.getPublicationRecord(publicationData.getPublicationTime())).thenReturn(record);
+        return publicationsFile;
+    }
+
+    private VerificationContext buildContext(BoundedCalendarHashChainCache cache, PublicationsFile publicationsFile) throws Exception {
+        VerificationContext context = new VerificationContextBuilder()
+                .setSignature(TestUtil.loadSignature(SIGNATURE_2017_03_14))
+                .setPublicationsFile(publicationsFile)
+                .setExtendingService(extendingService)
+                .setExtendingAllowed(true)
+                .setCalendarHashChainCache(cache)
+                .build();
+        context.setKsiSignatureComponentFactory(new InMemoryKsiSignatureComponentFactory());
+        return context;
+    }
+}
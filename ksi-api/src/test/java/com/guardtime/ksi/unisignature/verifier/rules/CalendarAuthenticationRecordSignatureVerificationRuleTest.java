@@ -77,4 +77,37 @@ public class CalendarAuthenticationRecordSignatureVerificationRuleTest {
         Assert.assertEquals(rule.verify(context).getResultCode(), VerificationResultCode.FAIL);
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testVerificationResultIsCached() throws Exception {
+        CalendarAuthenticationRecordSignatureCache cache = new CalendarAuthenticationRecordSignatureCache(10);
+        CalendarAuthenticationRecordSignatureVerificationRule cachingRule = new CalendarAuthenticationRecordSignatureVerificationRule(cache);
+        PublicationsFile pubFile = TestUtil.loadPublicationsFile(PUBLICATIONS_FILE);
+        Mockito.when(context.getCertificate(Mockito.any(byte[].class))).thenReturn(pubFile.findCertificateById(Base16.decode("5aeddd35")));
+
+        Assert.assertEquals(cachingRule.verify(context).getResultCode(), VerificationResultCode.OK);
+        Assert.assertEquals(cachingRule.verify(context).getResultCode(), VerificationResultCode.OK);
+        Assert.assertEquals(cache.getMisses(), 1);
+        Assert.assertEquals(cache.getHits(), 1);
+        Assert.assertEquals(cache.size(), 1);
+    }
+
+    @Test
+    public void testCachedResultIsNotUsedForDifferentCertificate() throws Exception {
+        CalendarAuthenticationRecordSignatureCache cache = new CalendarAuthenticationRecordSignatureCache(10);
+        CalendarAuthenticationRecordSignatureVerificationRule cachingRule = new CalendarAuthenticationRecordSignatureVerificationRule(cache);
+        PublicationsFile pubFile = TestUtil.loadPublicationsFile(PUBLICATIONS_FILE);
+        Mockito.when(context.getCertificate(Mockito.any(byte[].class))).thenReturn(pubFile.findCertificateById(Base16.decode("5aeddd35")));
+        Assert.assertEquals(cachingRule.verify(context).getResultCode(), VerificationResultCode.OK);
+
+        Mockito.when(context.getCertificate(Mockito.any(byte[].class))).thenReturn(X509CertUtil.toCert(TestUtil.loadBytes("cert.crt")));
+        Assert.assertEquals(cachingRule.verify(context).getResultCode(), VerificationResultCode.FAIL);
+        Assert.assertEquals(cachingRule.verify(context).getResultCode(), VerificationResultCode.FAIL);
+        Assert.assertEquals(cache.getMisses(), 2);
+        Assert.assertEquals(cache.getHits(), 1);
+    }
+
+    @Test(expectedExceptions = NullPointerException.class, expectedExceptionsMessageRegExp = "Calendar authentication record signature cache can not be null")
+    public void testCreateRuleWithoutCache() {
+        new CalendarAuthenticationRecordSignatureVerificationRule(null);
+    }
+}
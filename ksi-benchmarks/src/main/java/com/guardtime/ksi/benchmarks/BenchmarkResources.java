@@ -0,0 +1,119 @@
+/*
+ * Copyright 2013-2018 Guardtime, Inc.
+ *
+ *  This file is part of the Guardtime client SDK.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License").
+ *  You may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES, CONDITIONS, OR OTHER LICENSES OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ *  "Guardtime" and "KSI" are trademarks or registered trademarks of
+ *  Guardtime, Inc., and no license to trademarks is granted; Guardtime
+ *  reserves and retains all trademark rights.
+ *
+ */
+
+package com.guardtime.ksi.benchmarks;
+
+import com.guardtime.ksi.exceptions.KSIException;
+import com.guardtime.ksi.hashing.DataHash;
+import com.guardtime.ksi.hashing.HashAlgorithm;
+import com.guardtime.ksi.publication.PublicationsFile;
+import com.guardtime.ksi.publication.inmemory.InMemoryPublicationsFileFactory;
+import com.guardtime.ksi.service.Future;
+import com.guardtime.ksi.tlv.TLVElement;
+import com.guardtime.ksi.trust.PKITrustStore;
+import com.guardtime.ksi.unisignature.KSISignature;
+import com.guardtime.ksi.unisignature.inmemory.InMemoryKsiSignatureFactory;
+import com.guardtime.ksi.util.Util;
+import org.bouncycastle.util.Store;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.cert.X509Certificate;
+import java.util.Random;
+
+/**
+ * Test data shared by the benchmarks. All the resources are loaded from the benchmark jar so that the runs
+ * do not depend on the network or on the state of the local file system.
+ */
+final class BenchmarkResources {
+
+    static final String SIGNATURE = "ok-sig-2014-06-2.ksig";
+    static final String EXTENDED_SIGNATURE = "ok-sig-2014-06-2-extended.ksig";
+    static final String EXTENDED_CALENDAR_HASH_CHAIN = "ok-sig-2014-06-2-extended-calendar-chain.tlv";
+    static final String PUBLICATIONS_FILE = "publications.tlv";
+
+    /**
+     * Fixed seed, so that every run hashes exactly the same input data.
+     */
+    private static final long RANDOM_SEED = 0x4B534942454E4348L;
+
+    private BenchmarkResources() {
+    }
+
+    static byte[] loadBytes(String name) throws IOException {
+        InputStream input = BenchmarkResources.class.getClassLoader().getResourceAsStream(name);
+        if (input == null) {
+            throw new IOException("Benchmark resource " + name + " not found");
+        }
+        try {
+            return Util.toByteArray(input);
+        } finally {
+            Util.closeQuietly(input);
+        }
+    }
+
+    static TLVElement loadTlv(String name) throws IOException, KSIException {
+        return TLVElement.create(loadBytes(name));
+    }
+
+    static KSISignature loadSignature(String name) throws IOException, KSIException {
+        return new InMemoryKsiSignatureFactory().createSignature(new ByteArrayInputStream(loadBytes(name)));
+    }
+
+    /**
+     * Loads the publications file without checking the certificate chain of the CMS signature against a real
+     * truststore. The signature itself is still parsed and checked.
+     */
+    static PublicationsFile loadPublicationsFile() throws IOException, KSIException {
+        InMemoryPublicationsFileFactory factory = new InMemoryPublicationsFileFactory(new PKITrustStore() {
+            public boolean isTrusted(X509Certificate certificate, Store certStore) {
+                return true;
+            }
+        });
+        return factory.create(new ByteArrayInputStream(loadBytes(PUBLICATIONS_FILE)));
+    }
+
+    /**
+     * Creates given number of pseudo random SHA2-256 data hashes.
+     */
+    static DataHash[] createDataHashes(int count) {
+        Random random = new Random(RANDOM_SEED);
+        DataHash[] hashes = new DataHash[count];
+        for (int i = 0; i < count; i++) {
+            byte[] value = new byte[HashAlgorithm.SHA2_256.getLength()];
+            random.nextBytes(value);
+            hashes[i] = new DataHash(HashAlgorithm.SHA2_256, value);
+        }
+        return hashes;
+    }
+
+    static <T> Future<T> completedFuture(final T result) {
+        return new Future<T>() {
+            public T getResult() {
+                return result;
+            }
+
+            public boolean isFinished() {
+                return true;
+            }
+        };
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2013-2018 Guardtime, Inc.
+ *
+ *  This file is part of the Guardtime client SDK.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License").
+ *  You may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES, CONDITIONS, OR OTHER LICENSES OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ *  "Guardtime" and "KSI" are trademarks or registered trademarks of
+ *  Guardtime, Inc., and no license to trademarks is granted; Guardtime
+ *  reserves and retains all trademark rights.
+ *
+ */
+
+package com.guardtime.ksi.benchmarks;
+
+import com.guardtime.ksi.hashing.DataHash;
+import com.guardtime.ksi.hashing.HashAlgorithm;
+import com.guardtime.ksi.tree.BlindingMaskLinkingHashTreeBuilder;
+import com.guardtime.ksi.tree.HashTreeBuilder;
+import com.guardtime.ksi.tree.ImprintNode;
+import com.guardtime.ksi.tree.TreeBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building a local aggregation tree of 1k to 1M leaves with {@link HashTreeBuilder} and
+ * {@link BlindingMaskLinkingHashTreeBuilder}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HashTreeBuilderBenchmark {
+
+    public enum Builder {
+        HASH_TREE,
+        BLINDING_MASK_LINKING
+    }
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int leaves;
+
+    @Param
+    public Builder builder;
+
+    private DataHash[] hashes;
+    private byte[] initializationVector;
+    private DataHash previousBlockHash;
+
+    @Setup
+    public void setUp() {
+        hashes = BenchmarkResources.createDataHashes(leaves);
+        initializationVector = new byte[HashAlgorithm.SHA2_256.getLength()];
+        previousBlockHash = new DataHash(HashAlgorithm.SHA2_256, new byte[HashAlgorithm.SHA2_256.getLength()]);
+    }
+
+    @Benchmark
+    public ImprintNode build() throws Exception {
+        TreeBuilder<ImprintNode> treeBuilder = createTreeBuilder();
+        for (DataHash hash : hashes) {
+            treeBuilder.add(new ImprintNode(hash));
+        }
+        return treeBuilder.build();
+    }
+
+    private TreeBuilder<ImprintNode> createTreeBuilder() {
+        if (builder == Builder.BLINDING_MASK_LINKING) {
+            return new BlindingMaskLinkingHashTreeBuilder(HashAlgorithm.SHA2_256, initializationVector, previousBlockHash);
+        }
+        return new HashTreeBuilder(HashAlgorithm.SHA2_256);
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2013-2018 Guardtime, Inc.
+ *
+ *  This file is part of the Guardtime client SDK.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License").
+ *  You may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES, CONDITIONS, OR OTHER LICENSES OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ *  "Guardtime" and "KSI" are trademarks or registered trademarks of
+ *  Guardtime, Inc., and no license to trademarks is granted; Guardtime
+ *  reserves and retains all trademark rights.
+ *
+ */
+
+package com.guardtime.ksi.benchmarks;
+
+import com.guardtime.ksi.blocksigner.KsiBlockSigner;
+import com.guardtime.ksi.blocksigner.KsiBlockSignerBuilder;
+import com.guardtime.ksi.hashing.DataHash;
+import com.guardtime.ksi.hashing.HashAlgorithm;
+import com.guardtime.ksi.service.KSISigningService;
+import com.guardtime.ksi.tree.HashTreeBuilder;
+import com.guardtime.ksi.unisignature.KSISignature;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a complete {@link KsiBlockSigner} round: adding the leaves (including the tree height check done on every
+ * {@link KsiBlockSigner#add(DataHash)}) and {@link KsiBlockSigner#sign()} against an in-memory signing service.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KsiBlockSignerBenchmark {
+
+    @Param({"1", "100", "1000", "10000"})
+    public int leaves;
+
+    private DataHash[] hashes;
+    private KSISigningService signingService;
+
+    @Setup
+    public void setUp() {
+        hashes = BenchmarkResources.createDataHashes(leaves);
+        signingService = new StaticSigningService();
+    }
+
+    @Benchmark
+    public List<KSISignature> addAndSign() throws Exception {
+        KsiBlockSigner signer = new KsiBlockSignerBuilder()
+                .setKsiSigningService(signingService)
+                .setTreeBuilder(new HashTreeBuilder(HashAlgorithm.SHA2_256))
+                .build();
+        for (DataHash hash : hashes) {
+            signer.add(hash);
+        }
+        return signer.sign();
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2013-2018 Guardtime, Inc.
+ *
+ *  This file is part of the Guardtime client SDK.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License").
+ *  You may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES, CONDITIONS, OR OTHER LICENSES OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ *  "Guardtime" and "KSI" are trademarks or registered trademarks of
+ *  Guardtime, Inc., and no license to trademarks is granted; Guardtime
+ *  reserves and retains all trademark rights.
+ *
+ */
+
+package com.guardtime.ksi.benchmarks;
+
+import com.guardtime.ksi.hashing.DataHash;
+import com.guardtime.ksi.pdu.AggregationResponse;
+import com.guardtime.ksi.pdu.KSIRequestContext;
+import com.guardtime.ksi.pdu.PduMessageHeader;
+import com.guardtime.ksi.pdu.v2.AggregatorPduV2Factory;
+import com.guardtime.ksi.service.client.KSIServiceCredentials;
+import com.guardtime.ksi.service.client.ServiceCredentials;
+import com.guardtime.ksi.tlv.GlobalTlvTypes;
+import com.guardtime.ksi.tlv.TLVElement;
+import com.guardtime.ksi.util.Util;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the MAC calculation of PDU v2 messages: building and encoding an aggregation request and reading (and
+ * thereby MAC-verifying) an aggregation response carrying a full signature.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PduV2MacBenchmark {
+
+    private static final int ELEMENT_TYPE_AGGREGATION_RESPONSE_PAYLOAD = 0x02;
+    private static final int ELEMENT_TYPE_REQUEST_ID = 0x01;
+    private static final int ELEMENT_TYPE_STATUS = 0x04;
+    private static final int ELEMENT_TYPE_MAC = 0x1F;
+
+    private final AggregatorPduV2Factory pduFactory = new AggregatorPduV2Factory();
+    private final ServiceCredentials credentials = new KSIServiceCredentials("anon", "anon");
+    private final KSIRequestContext context = new KSIRequestContext(42L, 1L, 1L);
+    private DataHash dataHash;
+    private byte[] responseBytes;
+
+    @Setup
+    public void setUp() throws Exception {
+        dataHash = BenchmarkResources.createDataHashes(1)[0];
+        responseBytes = createResponse(BenchmarkResources.loadTlv(BenchmarkResources.SIGNATURE)).getEncoded();
+    }
+
+    @Benchmark
+    public byte[] createRequest() throws Exception {
+        return pduFactory.createAggregationRequest(context, credentials, dataHash, 0L).toByteArray();
+    }
+
+    @Benchmark
+    public AggregationResponse readResponse() throws Exception {
+        return pduFactory.readAggregationResponse(context, credentials, TLVElement.create(responseBytes));
+    }
+
+    private TLVElement createResponse(TLVElement signature) throws Exception {
+        TLVElement payload = new TLVElement(false, false, ELEMENT_TYPE_AGGREGATION_RESPONSE_PAYLOAD);
+        payload.addChildElement(TLVElement.create(ELEMENT_TYPE_REQUEST_ID, context.getRequestId()));
+        payload.addChildElement(TLVElement.create(ELEMENT_TYPE_STATUS, 0L));
+        for (TLVElement child : signature.getChildElements()) {
+            payload.addChildElement(child);
+        }
+
+        TLVElement response = new TLVElement(false, false, GlobalTlvTypes.ELEMENT_TYPE_AGGREGATION_RESPONSE_PDU_V2);
+        response.addChildElement(new PduMessageHeader(credentials.getLoginId(), context.getInstanceId(), context.getMessageId()).getRootElement());
+        response.addChildElement(payload);
+        TLVElement mac = TLVElement.create(ELEMENT_TYPE_MAC,
+                new DataHash(credentials.getHmacAlgorithm(), new byte[credentials.getHmacAlgorithm().getLength()]));
+        response.addChildElement(mac);
+
+        byte[] encoded = response.getEncoded();
+        byte[] macInput = Util.copyOf(encoded, 0, encoded.length - credentials.getHmacAlgorithm().getLength());
+        mac.setDataHashContent(new DataHash(credentials.getHmacAlgorithm(),
+                Util.calculateHMAC(macInput, credentials.getLoginKey(), credentials.getHmacAlgorithm().getName())));
+        return response;
+    }
+}
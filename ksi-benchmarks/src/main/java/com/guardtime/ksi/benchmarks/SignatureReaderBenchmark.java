@@ -0,0 +1,77 @@
+/*
+ * Copyright 2013-2018 Guardtime, Inc.
+ *
+ *  This file is part of the Guardtime client SDK.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License").
+ *  You may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES, CONDITIONS, OR OTHER LICENSES OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ *  "Guardtime" and "KSI" are trademarks or registered trademarks of
+ *  Guardtime, Inc., and no license to trademarks is granted; Guardtime
+ *  reserves and retains all trademark rights.
+ *
+ */
+
+package com.guardtime.ksi.benchmarks;
+
+import com.guardtime.ksi.SignatureReader;
+import com.guardtime.ksi.unisignature.KSISignature;
+import com.guardtime.ksi.unisignature.KSISignatureFactory;
+import com.guardtime.ksi.unisignature.inmemory.InMemoryKsiSignatureFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link SignatureReader#read(byte[])}, which parses the signature and verifies it with the internal
+ * verification policy, and compares it against parsing only.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SignatureReaderBenchmark {
+
+    @Param({BenchmarkResources.SIGNATURE, BenchmarkResources.EXTENDED_SIGNATURE})
+    public String signature;
+
+    private byte[] signatureBytes;
+    private SignatureReader reader;
+    private KSISignatureFactory parsingFactory;
+
+    @Setup
+    public void setUp() throws Exception {
+        signatureBytes = BenchmarkResources.loadBytes(signature);
+        reader = new SignatureReader();
+        parsingFactory = new InMemoryKsiSignatureFactory();
+    }
+
+    @Benchmark
+    public KSISignature read() throws Exception {
+        return reader.read(signatureBytes);
+    }
+
+    @Benchmark
+    public KSISignature parseOnly() throws Exception {
+        return parsingFactory.createSignature(new ByteArrayInputStream(signatureBytes));
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2013-2018 Guardtime, Inc.
+ *
+ *  This file is part of the Guardtime client SDK.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License").
+ *  You may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES, CONDITIONS, OR OTHER LICENSES OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ *  "Guardtime" and "KSI" are trademarks or registered trademarks of
+ *  Guardtime, Inc., and no license to trademarks is granted; Guardtime
+ *  reserves and retains all trademark rights.
+ *
+ */
+
+package com.guardtime.ksi.benchmarks;
+
+import com.guardtime.ksi.publication.PublicationData;
+import com.guardtime.ksi.publication.PublicationsFile;
+import com.guardtime.ksi.service.KSIExtendingService;
+import com.guardtime.ksi.unisignature.KSISignature;
+import com.guardtime.ksi.unisignature.inmemory.InMemoryKsiSignatureComponentFactory;
+import com.guardtime.ksi.unisignature.verifier.KSISignatureVerifier;
+import com.guardtime.ksi.unisignature.verifier.VerificationContext;
+import com.guardtime.ksi.unisignature.verifier.VerificationContextBuilder;
+import com.guardtime.ksi.unisignature.verifier.VerificationResult;
+import com.guardtime.ksi.unisignature.verifier.policies.CalendarBasedVerificationPolicy;
+import com.guardtime.ksi.unisignature.verifier.policies.DefaultVerificationPolicy;
+import com.guardtime.ksi.unisignature.verifier.policies.InternalVerificationPolicy;
+import com.guardtime.ksi.unisignature.verifier.policies.KeyBasedVerificationPolicy;
+import com.guardtime.ksi.unisignature.verifier.policies.Policy;
+import com.guardtime.ksi.unisignature.verifier.policies.PublicationsFileBasedVerificationPolicy;
+import com.guardtime.ksi.unisignature.verifier.policies.UserProvidedPublicationBasedVerificationPolicy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link KSISignatureVerifier#verify(VerificationContext, Policy)} under each of the verification policies.
+ * Extender and publications file are served from memory. A new verification context is created for every call
+ * because the context caches the extended calendar hash chains.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SignatureVerifierBenchmark {
+
+    public enum VerificationPolicy {
+        INTERNAL(new InternalVerificationPolicy(), BenchmarkResources.SIGNATURE),
+        KEY_BASED(new KeyBasedVerificationPolicy(), BenchmarkResources.SIGNATURE),
+        CALENDAR_BASED(new CalendarBasedVerificationPolicy(), BenchmarkResources.SIGNATURE),
+        PUBLICATIONS_FILE_BASED(new PublicationsFileBasedVerificationPolicy(), BenchmarkResources.EXTENDED_SIGNATURE),
+        USER_PROVIDED_PUBLICATION_BASED(new UserProvidedPublicationBasedVerificationPolicy(), BenchmarkResources.EXTENDED_SIGNATURE),
+        DEFAULT(new DefaultVerificationPolicy(), BenchmarkResources.EXTENDED_SIGNATURE);
+
+        private final Policy policy;
+        private final String signature;
+
+        VerificationPolicy(Policy policy, String signature) {
+            this.policy = policy;
+            this.signature = signature;
+        }
+    }
+
+    @Param
+    public VerificationPolicy policy;
+
+    private final KSISignatureVerifier verifier = new KSISignatureVerifier();
+    private final InMemoryKsiSignatureComponentFactory componentFactory = new InMemoryKsiSignatureComponentFactory();
+    private KSISignature signature;
+    private PublicationsFile publicationsFile;
+    private PublicationData userPublication;
+    private KSIExtendingService extendingService;
+
+    @Setup
+    public void setUp() throws Exception {
+        signature = BenchmarkResources.loadSignature(policy.signature);
+        publicationsFile = BenchmarkResources.loadPublicationsFile();
+        extendingService = new StaticExtendingService(BenchmarkResources.loadTlv(BenchmarkResources.EXTENDED_CALENDAR_HASH_CHAIN));
+        if (signature.getPublicationRecord() != null) {
+            userPublication = signature.getPublicationRecord().getPublicationData();
+        }
+        VerificationResult result = verify();
+        if (!result.isOk()) {
+            throw new IllegalStateException("Benchmark signature does not verify with policy " + policy + ": " + result);
+        }
+    }
+
+    @Benchmark
+    public VerificationResult verify() throws Exception {
+        VerificationContext context = new VerificationContextBuilder()
+                .setSignature(signature)
+                .setPublicationsFile(publicationsFile)
+                .setExtendingService(extendingService)
+                .setExtendingAllowed(true)
+                .setUserPublication(userPublication)
+                .build();
+        context.setKsiSignatureComponentFactory(componentFactory);
+        return verifier.verify(context, policy.policy);
+    }
+}
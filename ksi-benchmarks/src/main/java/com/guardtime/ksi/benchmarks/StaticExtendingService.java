@@ -0,0 +1,92 @@
+/*
+ * Copyright 2013-2018 Guardtime, Inc.
+ *
+ *  This file is part of the Guardtime client SDK.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License").
+ *  You may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES, CONDITIONS, OR OTHER LICENSES OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ *  "Guardtime" and "KSI" are trademarks or registered trademarks of
+ *  Guardtime, Inc., and no license to trademarks is granted; Guardtime
+ *  reserves and retains all trademark rights.
+ *
+ */
+
+package com.guardtime.ksi.benchmarks;
+
+import com.guardtime.ksi.pdu.ExtenderConfiguration;
+import com.guardtime.ksi.pdu.ExtensionResponse;
+import com.guardtime.ksi.service.ConfigurationListener;
+import com.guardtime.ksi.service.Future;
+import com.guardtime.ksi.service.KSIExtendingService;
+import com.guardtime.ksi.tlv.TLVElement;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * {@link KSIExtendingService} that answers every request with the same, pre-loaded calendar hash chain. Used to
+ * keep the network out of the verification benchmarks. Configuration requests are answered with a fixed configuration.
+ */
+final class StaticExtendingService implements KSIExtendingService {
+
+    private static final ExtenderConfiguration CONFIGURATION = new ExtenderConfiguration() {
+        public Long getMaximumRequests() {
+            return null;
+        }
+
+        public List<String> getParents() {
+            return Collections.emptyList();
+        }
+
+        public Date getCalendarFirstTime() {
+            return null;
+        }
+
+        public Date getCalendarLastTime() {
+            return null;
+        }
+    };
+
+    private final List<ConfigurationListener<ExtenderConfiguration>> listeners = new CopyOnWriteArrayList<>();
+
+    private final Future<ExtensionResponse> response;
+
+    StaticExtendingService(final TLVElement calendarHashChain) {
+        this.response = BenchmarkResources.<ExtensionResponse>completedFuture(new ExtensionResponse() {
+            public TLVElement getCalendarHashChain() {
+                return calendarHashChain;
+            }
+        });
+    }
+
+    public Future<ExtensionResponse> extend(Date aggregationTime, Date publicationTime) {
+        return response;
+    }
+
+    public List<KSIExtendingService> getSubExtendingServices() {
+        return Collections.emptyList();
+    }
+
+    public void registerExtenderConfigurationListener(ConfigurationListener<ExtenderConfiguration> listener) {
+        listeners.add(listener);
+    }
+
+    public Future<ExtenderConfiguration> getExtendingConfiguration() {
+        for (ConfigurationListener<ExtenderConfiguration> listener : listeners) {
+            listener.updated(CONFIGURATION);
+        }
+        return BenchmarkResources.completedFuture(CONFIGURATION);
+    }
+
+    public void close() {
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2013-2018 Guardtime, Inc.
+ *
+ *  This file is part of the Guardtime client SDK.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License").
+ *  You may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES, CONDITIONS, OR OTHER LICENSES OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ *  "Guardtime" and "KSI" are trademarks or registered trademarks of
+ *  Guardtime, Inc., and no license to trademarks is granted; Guardtime
+ *  reserves and retains all trademark rights.
+ *
+ */
+
+package com.guardtime.ksi.benchmarks;
+
+import com.guardtime.ksi.exceptions.KSIException;
+import com.guardtime.ksi.hashing.DataHash;
+import com.guardtime.ksi.hashing.HashAlgorithm;
+import com.guardtime.ksi.pdu.AggregationResponse;
+import com.guardtime.ksi.pdu.AggregatorConfiguration;
+import com.guardtime.ksi.service.ConfigurationListener;
+import com.guardtime.ksi.service.Future;
+import com.guardtime.ksi.service.KSISigningService;
+import com.guardtime.ksi.tlv.TLVElement;
+import com.guardtime.ksi.tlv.TLVStructure;
+import com.guardtime.ksi.unisignature.AggregationChainLink;
+import com.guardtime.ksi.unisignature.AggregationHashChain;
+import com.guardtime.ksi.unisignature.KSISignatureComponentFactory;
+import com.guardtime.ksi.unisignature.inmemory.InMemoryKsiSignatureComponentFactory;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static com.guardtime.ksi.unisignature.AggregationHashChainUtil.calculateIndex;
+
+/**
+ * {@link KSISigningService} that answers locally with a single aggregation hash chain built on top of the
+ * requested hash. The resulting signatures do not contain a calendar hash chain and are only meant to measure the
+ * client side cost of signing. Configuration requests are answered with a fixed configuration.
+ */
+final class StaticSigningService implements KSISigningService {
+
+    private static final int ELEMENT_TYPE_AGGREGATION_RESPONSE_PAYLOAD = 0x02;
+    private static final Date AGGREGATION_TIME = new Date(1401700000000L);
+    private static final AggregatorConfiguration CONFIGURATION = new AggregatorConfiguration() {
+        public Long getMaximumLevel() {
+            return 255L;
+        }
+
+        public HashAlgorithm getAggregationAlgorithm() {
+            return HashAlgorithm.SHA2_256;
+        }
+
+        public Long getAggregationPeriod() {
+            return 1000L;
+        }
+
+        public Long getMaximumRequests() {
+            return null;
+        }
+
+        public List<String> getParents() {
+            return Collections.emptyList();
+        }
+    };
+
+    private final KSISignatureComponentFactory componentFactory = new InMemoryKsiSignatureComponentFactory();
+    private final List<ConfigurationListener<AggregatorConfiguration>> listeners = new CopyOnWriteArrayList<>();
+    private final DataHash siblingHash = new DataHash(HashAlgorithm.SHA2_256, new byte[HashAlgorithm.SHA2_256.getLength()]);
+
+    public Future<AggregationResponse> sign(DataHash dataHash, Long level) throws KSIException {
+        LinkedList<AggregationChainLink> links = new LinkedList<>();
+        links.add(componentFactory.createLeftAggregationChainLink(siblingHash, level));
+        LinkedList<Long> index = new LinkedList<>();
+        index.add(calculateIndex(links));
+        AggregationHashChain chain = componentFactory.createAggregationHashChain(dataHash, AGGREGATION_TIME, index,
+                links, HashAlgorithm.SHA2_256);
+
+        final TLVElement payload = new TLVElement(false, false, ELEMENT_TYPE_AGGREGATION_RESPONSE_PAYLOAD);
+        payload.addChildElement(((TLVStructure) chain).getRootElement());
+        return BenchmarkResources.<AggregationResponse>completedFuture(new AggregationResponse() {
+            public TLVElement getPayload() {
+                return payload;
+            }
+        });
+    }
+
+    public List<KSISigningService> getSubSigningServices() {
+        return Collections.emptyList();
+    }
+
+    public void registerAggregatorConfigurationListener(ConfigurationListener<AggregatorConfiguration> listener) {
+        listeners.add(listener);
+    }
+
+    public Future<AggregatorConfiguration> getAggregationConfiguration() {
+        for (ConfigurationListener<AggregatorConfiguration> listener : listeners) {
+            listener.updated(CONFIGURATION);
+        }
+        return BenchmarkResources.completedFuture(CONFIGURATION);
+    }
+
+    public void close() {
+    }
+}
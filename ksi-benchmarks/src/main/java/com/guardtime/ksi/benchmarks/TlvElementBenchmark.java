@@ -0,0 +1,122 @@
+/*
+ * Copyright 2013-2018 Guardtime, Inc.
+ *
+ *  This file is part of the Guardtime client SDK.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License").
+ *  You may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES, CONDITIONS, OR OTHER LICENSES OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ *  "Guardtime" and "KSI" are trademarks or registered trademarks of
+ *  Guardtime, Inc., and no license to trademarks is granted; Guardtime
+ *  reserves and retains all trademark rights.
+ *
+ */
+
+package com.guardtime.ksi.benchmarks;
+
+import com.guardtime.ksi.hashing.DataHash;
+import com.guardtime.ksi.tlv.TLVElement;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures TLV decoding and encoding of a full KSI signature and of a small, freshly built TLV structure. The
+ * {@code read*} benchmarks decode a signature and read only the aggregation time and the input hash of the first
+ * aggregation hash chain, eagerly from a byte array and lazily from heap and direct buffers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TlvElementBenchmark {
+
+    private byte[] signatureBytes;
+    private TLVElement signatureElement;
+    private ByteBuffer signatureHeapBuffer;
+    private ByteBuffer signatureDirectBuffer;
+    private DataHash dataHash;
+    private Date date;
+
+    @Setup
+    public void setUp() throws Exception {
+        signatureBytes = BenchmarkResources.loadBytes(BenchmarkResources.SIGNATURE);
+        signatureElement = TLVElement.create(signatureBytes);
+        signatureHeapBuffer = ByteBuffer.wrap(signatureBytes);
+        signatureDirectBuffer = ByteBuffer.allocateDirect(signatureBytes.length);
+        ((Buffer) signatureDirectBuffer.put(signatureBytes)).flip();
+        dataHash = BenchmarkResources.createDataHashes(1)[0];
+        date = new Date(1400000000000L);
+    }
+
+    @Benchmark
+    public TLVElement createFromBytes() throws Exception {
+        return TLVElement.create(signatureBytes);
+    }
+
+    @Benchmark
+    public byte[] getEncoded() throws Exception {
+        return signatureElement.getEncoded();
+    }
+
+    @Benchmark
+    public byte[] createFromBytesAndEncode() throws Exception {
+        return TLVElement.create(signatureBytes).getEncoded();
+    }
+
+    @Benchmark
+    public byte[] buildAndEncode() throws Exception {
+        TLVElement root = new TLVElement(false, false, 0x0801);
+        root.addChildElement(TLVElement.create(0x02, date));
+        root.addChildElement(TLVElement.create(0x03, 1L));
+        root.addChildElement(TLVElement.create(0x03, 3L));
+        root.addChildElement(TLVElement.create(0x05, dataHash));
+        TLVElement link = new TLVElement(false, false, 0x07);
+        link.addChildElement(TLVElement.create(0x02, dataHash));
+        root.addChildElement(link);
+        return root.getEncoded();
+    }
+
+    @Benchmark
+    public DataHash readFromBytes() throws Exception {
+        return readAggregationTimeAndInputHash(TLVElement.create(signatureBytes));
+    }
+
+    @Benchmark
+    public DataHash readFromHeapBuffer() throws Exception {
+        return readAggregationTimeAndInputHash(TLVElement.wrap(signatureHeapBuffer));
+    }
+
+    @Benchmark
+    public DataHash readFromDirectBuffer() throws Exception {
+        return readAggregationTimeAndInputHash(TLVElement.wrap(signatureDirectBuffer));
+    }
+
+    private static DataHash readAggregationTimeAndInputHash(TLVElement signature) throws Exception {
+        TLVElement aggregationChain = signature.getFirstChildElement(0x0801);
+        if (aggregationChain.getFirstChildElement(0x02).getDecodedDate().getTime() == 0) {
+            throw new IllegalStateException("Unexpected aggregation time");
+        }
+        return aggregationChain.getFirstChildElement(0x05).getDecodedDataHash();
+    }
+}
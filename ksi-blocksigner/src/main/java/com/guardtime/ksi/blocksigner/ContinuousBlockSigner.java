@@ -0,0 +1,483 @@
+/*
+ * Copyright 2013-2018 Guardtime, Inc.
+ *
+ *  This file is part of the Guardtime client SDK.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License").
+ *  You may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES, CONDITIONS, OR OTHER LICENSES OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ *  "Guardtime" and "KSI" are trademarks or registered trademarks of
+ *  Guardtime, Inc., and no license to trademarks is granted; Guardtime
+ *  reserves and retains all trademark rights.
+ *
+ */
+
+package com.guardtime.ksi.blocksigner;
+
+import com.guardtime.ksi.SigningFuture;
+import com.guardtime.ksi.exceptions.KSIException;
+import com.guardtime.ksi.hashing.DataHash;
+import com.guardtime.ksi.hashing.HashAlgorithm;
+import com.guardtime.ksi.pdu.AggregationResponse;
+import com.guardtime.ksi.pdu.AggregatorConfiguration;
+import com.guardtime.ksi.service.ConfigurationListener;
+import com.guardtime.ksi.service.Future;
+import com.guardtime.ksi.service.FutureUtil;
+import com.guardtime.ksi.service.KSISigningService;
+import com.guardtime.ksi.tree.AggregationHashChainBuilder;
+import com.guardtime.ksi.tree.HashTreeBuilder;
+import com.guardtime.ksi.tree.ImprintNode;
+import com.guardtime.ksi.tree.Util;
+import com.guardtime.ksi.unisignature.KSISignature;
+import com.guardtime.ksi.unisignature.KSISignatureFactory;
+import com.guardtime.ksi.util.HashedWheelTimer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+import static com.guardtime.ksi.util.Util.notNull;
+
+/**
+ * Long-lived, thread-safe block signer that aggregates the input hashes of many producer threads into blocks and
+ * signs every block with one aggregation request.
+ * <p>
+ * Every call to {@link ContinuousBlockSigner#add(DataHash)} (and the other add methods) returns a future of the
+ * signature of the given input hash. The current block is cut and sent to the aggregator when:
+ * </p>
+ * <ul>
+ *     <li>it contains the maximum number of leaves;</li>
+ *     <li>adding a new leaf would exceed the maximum tree height. The maximum height is the smaller of the configured
+ *     maximum and the maximum level in the aggregator's configuration ({@link AggregatorConfiguration#getMaximumLevel()});</li>
+ *     <li>the maximum block duration has passed since the first leaf was added to the block;</li>
+ *     <li>{@link ContinuousBlockSigner#flush()} or {@link ContinuousBlockSigner#close()} is called.</li>
+ * </ul>
+ * <p>
+ * Several blocks can be signed at the same time, up to the configured maximum number of blocks in flight. When the
+ * limit is reached, the thread that cuts the next block waits until one of the blocks is signed. Blocks cut by the
+ * maximum block duration do not hold up the shared timer: they wait in a queue and are sent by the configured executor
+ * once one of the blocks is signed.
+ * </p>
+ * <p>
+ * The signing response is waited for without holding a thread. The signatures of the leaves are created by the
+ * configured executor.
+ * </p>
+ * <p> The following sample shows how to use {@link ContinuousBlockSigner} class:
+ * </p>
+ * <pre>
+ * {@code
+ *
+ * ContinuousBlockSigner signer = new ContinuousBlockSignerBuilder()
+ *                 .setKsiSigningClient(signingClient)
+ *                 .setMaxBlockDuration(100, TimeUnit.MILLISECONDS)
+ *                 .build();
+ *
+ * Future<KSISignature> future = signer.add(dataHash);
+ * future.toCompletionStage().thenAccept(...);
+ *
+ * // on shutdown, sign the remaining hashes
+ * signer.close();
+ * }
+ * </pre>
+ *
+ * @see ContinuousBlockSignerBuilder
+ * @see KsiBlockSigner
+ */
+public class ContinuousBlockSigner implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ContinuousBlockSigner.class);
+
+    /**
+     * Timer shared by all the continuous block signers to cut the blocks when the maximum block duration has passed.
+     */
+    private static final HashedWheelTimer BLOCK_TIMER = new HashedWheelTimer(10, TimeUnit.MILLISECONDS, 512, "ksi-block-signer");
+
+    /**
+     * Delay before a waiting block is handed to the executor again after the executor rejected it.
+     */
+    private static final long REJECTED_RETRY_DELAY_MS = 10;
+
+    private final KSISigningService signingService;
+    private final KSISignatureFactory signatureFactory;
+    private final HashAlgorithm algorithm;
+    private final int maxTreeHeight;
+    private final int maxLeaves;
+    private final long maxBlockDurationMs;
+    private final Semaphore blocksInFlight;
+    private final Executor executor;
+    private final ConcurrentLinkedDeque<Block> waitingBlocks = new ConcurrentLinkedDeque<>();
+
+    private volatile long aggregatorMaximumLevel = Util.MAXIMUM_LEVEL;
+
+    private final Object lock = new Object();
+    private Block currentBlock;
+    private boolean closed;
+
+    ContinuousBlockSigner(
+            KSISigningService signingService,
+            KSISignatureFactory signatureFactory,
+            HashAlgorithm algorithm,
+            int maxTreeHeight,
+            int maxLeaves,
+            long maxBlockDurationMs,
+            int maxBlocksInFlight,
+            Executor executor) {
+        this.signingService = signingService;
+        this.signatureFactory = signatureFactory;
+        this.algorithm = algorithm;
+        this.maxTreeHeight = maxTreeHeight;
+        this.maxLeaves = maxLeaves;
+        this.maxBlockDurationMs = maxBlockDurationMs;
+        this.blocksInFlight = new Semaphore(maxBlocksInFlight);
+        this.executor = executor;
+        signingService.registerAggregatorConfigurationListener(new AggregatorConfigurationListener());
+    }
+
+    /**
+     * Adds a hash to the signer.
+     *
+     * @param dataHash data hash.
+     *
+     * @return Future of the signature of the data hash.
+     *
+     * @throws KSIException
+     */
+    public Future<KSISignature> add(DataHash dataHash) throws KSIException {
+        return add(dataHash, 0L, null);
+    }
+
+    /**
+     * Adds a hash and a signature metadata to the signer.
+     *
+     * @param dataHash data hash.
+     * @param metadata metadata to be added.
+     *
+     * @return Future of the signature of the data hash.
+     *
+     * @throws KSIException
+     */
+    public Future<KSISignature> add(DataHash dataHash, IdentityMetadata metadata) throws KSIException {
+        return add(dataHash, 0L, metadata);
+    }
+
+    /**
+     * Adds a hash (with specific level) and a signature metadata to the signer.
+     *
+     * @param dataHash data hash.
+     * @param level    hash level.
+     * @param metadata metadata to be added, may be null.
+     *
+     * @return Future of the signature of the data hash.
+     *
+     * @throws KSIException if the hash can not be added, e.g. the level of the hash alone exceeds the maximum tree
+     *                      height.
+     */
+    public Future<KSISignature> add(DataHash dataHash, long level, IdentityMetadata metadata) throws KSIException {
+        notNull(dataHash, "DataHash");
+        dataHash.getAlgorithm().checkExpiration();
+        if (level < 0 || level > Util.MAXIMUM_LEVEL) {
+            throw new IllegalStateException("Level must be between 0 and 255");
+        }
+        long maxHeight = getMaxTreeHeight();
+        if (level + (metadata == null ? 0 : 1) > maxHeight) {
+            throw new KSIException("Input hash level " + level + " exceeds the maximum aggregation tree height " + maxHeight);
+        }
+
+        ImprintNode leaf = new ImprintNode(dataHash, level);
+        Block fullBlock = null;
+        Block blockToSign = null;
+        BlockSignatureFuture future;
+        synchronized (lock) {
+            if (closed) {
+                throw new IllegalStateException("Block signer is closed");
+            }
+            if (currentBlock != null && currentBlock.calculateHeight(leaf, metadata) > maxHeight) {
+                fullBlock = takeCurrentBlock();
+            }
+            if (currentBlock == null) {
+                currentBlock = newBlock();
+            }
+            future = currentBlock.add(leaf, metadata);
+            if (currentBlock.size() >= maxLeaves) {
+                blockToSign = takeCurrentBlock();
+            }
+        }
+        logger.debug("New input hash '{}' with level '{}' added to continuous block signer.", dataHash, level);
+        sign(fullBlock);
+        sign(blockToSign);
+        return future;
+    }
+
+    /**
+     * Cuts the current block and sends it to the aggregator, without waiting for the maximum block duration to pass.
+     */
+    public void flush() {
+        Block block;
+        synchronized (lock) {
+            block = takeCurrentBlock();
+        }
+        sign(block);
+    }
+
+    /**
+     * Signs the hashes that have been added and stops accepting new hashes. Does not wait for the signatures nor
+     * close the signing service.
+     */
+    public void close() {
+        Block block;
+        synchronized (lock) {
+            closed = true;
+            block = takeCurrentBlock();
+        }
+        sign(block);
+    }
+
+    /**
+     * @return The maximum height of the aggregation tree of one block.
+     */
+    public long getMaxTreeHeight() {
+        return Math.min(maxTreeHeight, aggregatorMaximumLevel);
+    }
+
+    private Block newBlock() {
+        final Block block = new Block(new HashTreeBuilder(algorithm));
+        block.timeout = BLOCK_TIMER.newTimeout(new Runnable() {
+            public void run() {
+                synchronized (lock) {
+                    if (currentBlock != block) {
+                        return;
+                    }
+                    currentBlock = null;
+                }
+                waitingBlocks.add(block);
+                sendWaitingBlocks();
+            }
+        }, maxBlockDurationMs, TimeUnit.MILLISECONDS);
+        return block;
+    }
+
+    private Block takeCurrentBlock() {
+        Block block = currentBlock;
+        currentBlock = null;
+        if (block != null) {
+            block.timeout.cancel();
+        }
+        return block;
+    }
+
+    /**
+     * Signs the block in the calling thread, waits until a block is signed if the maximum number of blocks is in flight.
+     */
+    private void sign(Block block) {
+        if (block == null) {
+            return;
+        }
+        try {
+            blocksInFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            block.fail(new KSIException("Signing the block was interrupted", e));
+            return;
+        }
+        send(block);
+    }
+
+    /**
+     * Hands the waiting blocks to the executor while there are free slots for blocks in flight. Never waits, so it
+     * can be called by the timer and the threads that complete the signing. If the executor rejects a block, the block
+     * is put back to the queue and tried again later by the timer.
+     */
+    private void sendWaitingBlocks() {
+        while (!waitingBlocks.isEmpty() && blocksInFlight.tryAcquire()) {
+            final Block block = waitingBlocks.poll();
+            if (block == null) {
+                blocksInFlight.release();
+                continue;
+            }
+            try {
+                executor.execute(new Runnable() {
+                    public void run() {
+                        send(block);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                blocksInFlight.release();
+                waitingBlocks.addFirst(block);
+                BLOCK_TIMER.newTimeout(new Runnable() {
+                    public void run() {
+                        sendWaitingBlocks();
+                    }
+                }, REJECTED_RETRY_DELAY_MS, TimeUnit.MILLISECONDS);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Sends the block to the aggregator, the caller must hold a slot for blocks in flight.
+     */
+    private void send(final Block block) {
+        try {
+            ImprintNode root = block.treeBuilder.build();
+            DataHash rootHash = new DataHash(root.getValue());
+            logger.debug("Signing a block of {} hashes. Root node {}(level={})", block.size(), rootHash, root.getLevel());
+            Future<AggregationResponse> response = signingService.sign(rootHash, root.getLevel());
+            new SigningFuture(response, signatureFactory, rootHash, root.getLevel()).toCompletionStage()
+                    .whenComplete(new BiConsumer<KSISignature, Throwable>() {
+                        public void accept(final KSISignature rootSignature, final Throwable throwable) {
+                            blocksInFlight.release();
+                            sendWaitingBlocks();
+                            execute(new Runnable() {
+                                public void run() {
+                                    if (throwable != null) {
+                                        block.fail(throwable);
+                                    } else {
+                                        block.complete(rootSignature);
+                                    }
+                                }
+                            });
+                        }
+                    });
+        } catch (Exception e) {
+            blocksInFlight.release();
+            sendWaitingBlocks();
+            block.fail(e);
+        }
+    }
+
+    private void execute(Runnable task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.run();
+        }
+    }
+
+    /**
+     * Leaves of one block and the futures of their signatures.
+     */
+    private final class Block {
+
+        private final HashTreeBuilder treeBuilder;
+        private final List<ImprintNode> leaves = new ArrayList<>();
+        private final List<BlockSignatureFuture> futures = new ArrayList<>();
+        private HashedWheelTimer.Timeout timeout;
+
+        Block(HashTreeBuilder treeBuilder) {
+            this.treeBuilder = treeBuilder;
+        }
+
+        long calculateHeight(ImprintNode leaf, IdentityMetadata metadata) throws KSIException {
+            return metadata == null ? treeBuilder.calculateHeight(leaf) : treeBuilder.calculateHeight(leaf, metadata);
+        }
+
+        BlockSignatureFuture add(ImprintNode leaf, IdentityMetadata metadata) throws KSIException {
+            if (metadata == null) {
+                treeBuilder.add(leaf);
+            } else {
+                treeBuilder.add(leaf, metadata);
+            }
+            BlockSignatureFuture future = new BlockSignatureFuture();
+            leaves.add(leaf);
+            futures.add(future);
+            return future;
+        }
+
+        int size() {
+            return leaves.size();
+        }
+
+        void complete(KSISignature rootSignature) {
+            if (leaves.size() == 1 && !leaves.get(0).hasMetadata()) {
+                futures.get(0).complete(rootSignature);
+                return;
+            }
+            AggregationHashChainBuilder chainBuilder = new AggregationHashChainBuilder();
+            for (int i = 0; i < leaves.size(); i++) {
+                ImprintNode leaf = leaves.get(i);
+                try {
+                    futures.get(i).complete(signatureFactory.createSignature(rootSignature, chainBuilder.build(leaf),
+                            new DataHash(leaf.getValue())));
+                } catch (Exception e) {
+                    futures.get(i).fail(e);
+                }
+            }
+        }
+
+        void fail(Throwable throwable) {
+            logger.warn("Signing a block of {} hashes failed", leaves.size(), throwable);
+            for (BlockSignatureFuture future : futures) {
+                future.fail(throwable);
+            }
+        }
+    }
+
+    /**
+     * Future of the signature of one input hash of the block.
+     */
+    private static final class BlockSignatureFuture implements Future<KSISignature> {
+
+        private final CompletableFuture<KSISignature> signature = new CompletableFuture<>();
+
+        void complete(KSISignature result) {
+            signature.complete(result);
+        }
+
+        void fail(Throwable throwable) {
+            signature.completeExceptionally(throwable);
+        }
+
+        public KSISignature getResult() throws KSIException {
+            try {
+                return signature.get();
+            } catch (InterruptedException e) {
+                throw new KSIException("Waiting for the block signature was interrupted", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof KSIException) {
+                    throw (KSIException) e.getCause();
+                }
+                throw new KSIException("Block signing failed", e.getCause());
+            }
+        }
+
+        public boolean isFinished() {
+            return signature.isDone();
+        }
+
+        public CompletionStage<KSISignature> toCompletionStage() {
+            return FutureUtil.afterCompletion(signature, this);
+        }
+    }
+
+    private final class AggregatorConfigurationListener implements ConfigurationListener<AggregatorConfiguration> {
+
+        public void updated(AggregatorConfiguration configuration) {
+            if (configuration.getMaximumLevel() != null) {
+                aggregatorMaximumLevel = configuration.getMaximumLevel();
+                logger.debug("Aggregator maximum level is {}", aggregatorMaximumLevel);
+            }
+        }
+
+        public void updateFailed(Throwable reason) {
+            logger.warn("Aggregator configuration update failed, using maximum aggregation tree height {}",
+                    getMaxTreeHeight(), reason);
+        }
+    }
+}
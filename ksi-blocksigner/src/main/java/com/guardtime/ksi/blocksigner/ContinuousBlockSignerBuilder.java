@@ -0,0 +1,175 @@
+/*
+ * Copyright 2013-2018 Guardtime, Inc.
+ *
+ *  This file is part of the Guardtime client SDK.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License").
+ *  You may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES, CONDITIONS, OR OTHER LICENSES OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ *  "Guardtime" and "KSI" are trademarks or registered trademarks of
+ *  Guardtime, Inc., and no license to trademarks is granted; Guardtime
+ *  reserves and retains all trademark rights.
+ *
+ */
+
+package com.guardtime.ksi.blocksigner;
+
+import com.guardtime.ksi.concurrency.DefaultExecutorServiceProvider;
+import com.guardtime.ksi.hashing.HashAlgorithm;
+import com.guardtime.ksi.service.KSISigningClientServiceAdapter;
+import com.guardtime.ksi.service.KSISigningService;
+import com.guardtime.ksi.service.client.KSISigningClient;
+import com.guardtime.ksi.tree.HashTreeBuilder;
+import com.guardtime.ksi.tree.Util;
+import com.guardtime.ksi.unisignature.KSISignatureFactory;
+import com.guardtime.ksi.unisignature.inmemory.InMemoryKsiSignatureFactory;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static com.guardtime.ksi.util.Util.notNull;
+
+/**
+ * Provides functionality to obtain {@link ContinuousBlockSigner} object(s), offering multiple
+ * methods to configure {@link ContinuousBlockSigner} object.
+ *
+ * <p> The following sample shows how to use {@link ContinuousBlockSignerBuilder} class:
+ * </p>
+ * <pre>
+ * {@code
+ *
+ * ContinuousBlockSigner signer = new ContinuousBlockSignerBuilder()
+ *                 .setKsiSigningClient(signingClient)
+ *                 .setMaxLeaves(10000)
+ *                 .setMaxBlockDuration(100, TimeUnit.MILLISECONDS)
+ *                 .build();
+ * }
+ * </pre>
+ */
+public class ContinuousBlockSignerBuilder {
+
+    private static final int DEFAULT_MAX_LEAVES = 65536;
+    private static final long DEFAULT_MAX_BLOCK_DURATION_MS = 1000;
+    private static final int DEFAULT_MAX_BLOCKS_IN_FLIGHT = 10;
+
+    private KSISigningService signingService;
+    private HashAlgorithm algorithm = Util.DEFAULT_AGGREGATION_ALGORITHM;
+    private KSISignatureFactory signatureFactory = new InMemoryKsiSignatureFactory();
+    private int maxTreeHeight = Util.MAXIMUM_LEVEL;
+    private int maxLeaves = DEFAULT_MAX_LEAVES;
+    private long maxBlockDurationMs = DEFAULT_MAX_BLOCK_DURATION_MS;
+    private int maxBlocksInFlight = DEFAULT_MAX_BLOCKS_IN_FLIGHT;
+    private Executor executor;
+
+    /**
+     * Sets the {@link KSISigningClient}. Either this method or
+     * {@link ContinuousBlockSignerBuilder#setKsiSigningService} method should be called.
+     */
+    public ContinuousBlockSignerBuilder setKsiSigningClient(KSISigningClient signingClient) {
+        notNull(signingClient, "Signing client");
+        return setKsiSigningService(new KSISigningClientServiceAdapter(signingClient));
+    }
+
+    /**
+     * Sets the {@link KSISigningService}. Either this method or
+     * {@link ContinuousBlockSignerBuilder#setKsiSigningClient} method should be called.
+     */
+    public ContinuousBlockSignerBuilder setKsiSigningService(KSISigningService signingService) {
+        notNull(signingService, "Signing service");
+        this.signingService = signingService;
+        return this;
+    }
+
+    /**
+     * Sets the hash algorithm used by the {@link HashTreeBuilder} of the blocks. Default value is
+     * {@link Util#DEFAULT_AGGREGATION_ALGORITHM}.
+     */
+    public ContinuousBlockSignerBuilder setHashAlgorithm(HashAlgorithm algorithm) {
+        notNull(algorithm, "Hash algorithm");
+        algorithm.checkExpiration();
+        this.algorithm = algorithm;
+        return this;
+    }
+
+    /**
+     * Sets the {@link KSISignatureFactory}. Default value is {@link InMemoryKsiSignatureFactory}.
+     */
+    public ContinuousBlockSignerBuilder setSignatureFactory(KSISignatureFactory signatureFactory) {
+        notNull(signatureFactory, "KSI signature factory");
+        this.signatureFactory = signatureFactory;
+        return this;
+    }
+
+    /**
+     * Sets the maximum height of the aggregation tree of a block. If the aggregator's configuration has a smaller
+     * maximum level, the latter is used. Default value is {@link Util#MAXIMUM_LEVEL}.
+     */
+    public ContinuousBlockSignerBuilder setMaxTreeHeight(Integer maxTreeHeight) {
+        notNull(maxTreeHeight, "Maximum aggregation tree height");
+        if (maxTreeHeight < 0 || maxTreeHeight > Util.MAXIMUM_LEVEL) {
+            throw new IllegalArgumentException("Maximum aggregation tree height must be between 0 and 255");
+        }
+        this.maxTreeHeight = maxTreeHeight;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of hashes in one block. Default value is 65536.
+     */
+    public ContinuousBlockSignerBuilder setMaxLeaves(int maxLeaves) {
+        if (maxLeaves <= 0) {
+            throw new IllegalArgumentException("Maximum number of leaves must be positive");
+        }
+        this.maxLeaves = maxLeaves;
+        return this;
+    }
+
+    /**
+     * Sets the maximum time between adding the first hash to a block and sending the block to the aggregator.
+     * Default value is 1 second.
+     */
+    public ContinuousBlockSignerBuilder setMaxBlockDuration(long duration, TimeUnit unit) {
+        notNull(unit, "Time unit");
+        if (duration <= 0) {
+            throw new IllegalArgumentException("Maximum block duration must be positive");
+        }
+        this.maxBlockDurationMs = Math.max(1, unit.toMillis(duration));
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of blocks that are signed at the same time. Default value is 10.
+     */
+    public ContinuousBlockSignerBuilder setMaxBlocksInFlight(int maxBlocksInFlight) {
+        if (maxBlocksInFlight <= 0) {
+            throw new IllegalArgumentException("Maximum number of blocks in flight must be positive");
+        }
+        this.maxBlocksInFlight = maxBlocksInFlight;
+        return this;
+    }
+
+    /**
+     * Sets the executor that creates the signatures of the signed blocks and sends the blocks cut by the timer.
+     * Default value is {@link DefaultExecutorServiceProvider#getExecutorService()}.
+     */
+    public ContinuousBlockSignerBuilder setExecutor(Executor executor) {
+        notNull(executor, "Executor");
+        this.executor = executor;
+        return this;
+    }
+
+    public ContinuousBlockSigner build() {
+        notNull(signingService, "KSI signing service");
+        Executor blockExecutor = executor == null ? DefaultExecutorServiceProvider.getExecutorService() : executor;
+        ContinuousBlockSigner signer = new ContinuousBlockSigner(signingService, signatureFactory, algorithm, maxTreeHeight,
+                maxLeaves, maxBlockDurationMs, maxBlocksInFlight, blockExecutor);
+        signingService.getAggregationConfiguration();
+        return signer;
+    }
+}
@@ -180,7 +180,8 @@ public class BlindingMaskLinkingHashTreeBuilder implements TreeBuilder<ImprintNo
     @Override
     public long calculateHeight(ImprintNode node) throws KSIException {
         Util.notNull(node, "Node");
-        return treeBuilder.calculateHeight(calculateNewNode(node));
+        // only the level of the masked node affects the height, no need to calculate the blinding mask
+        return treeBuilder.calculateHeight(node.withLevel(MASKED_NODE_LEVEL));
     }
 
     /**
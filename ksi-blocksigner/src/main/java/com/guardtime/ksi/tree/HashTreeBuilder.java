@@ -31,6 +31,7 @@ import com.guardtime.ksi.unisignature.inmemory.InMemoryKsiSignatureComponentFact
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Iterator;
 import java.util.LinkedList;
 
 import static com.guardtime.ksi.util.Util.notNull;
@@ -102,7 +103,8 @@ public class HashTreeBuilder implements TreeBuilder<ImprintNode> {
     }
 
     /**
-     * Calculates the height of the hash tree in case a new node would be added.
+     * Calculates the height of the hash tree in case a new node would be added. The height is calculated from the
+     * levels of the subtree heads, nothing is hashed nor copied.
      *
      * @param node
      *         a leaf to be added to the tree, must not be null.
@@ -112,17 +114,12 @@ public class HashTreeBuilder implements TreeBuilder<ImprintNode> {
      * @throws HashException
      */
     public long calculateHeight(ImprintNode node) throws HashException {
-        LinkedList<ImprintNode> tmpHeads = new LinkedList<>();
-        for (ImprintNode in : heads) {
-            tmpHeads.add(new ImprintNode(in));
-        }
-
-        addToHeads(tmpHeads, new ImprintNode(node));
-
-        ImprintNode root = getRootNode(tmpHeads);
+        notNull(node, "Node");
+        ImprintNode n = node.hasMetadata() ? (ImprintNode) node.getParent() : node;
+        long height = calculateHeight(n.getLevel());
         logger.debug("Adding node with hash {} and height {}, the hash tree height would be {}", node.getValue(), node.getLevel(),
-                root.getLevel());
-        return root.getLevel();
+                height);
+        return height;
     }
 
     /**
@@ -135,7 +132,23 @@ public class HashTreeBuilder implements TreeBuilder<ImprintNode> {
      * @throws KSIException
      */
     public long calculateHeight(ImprintNode node, IdentityMetadata metadata) throws HashException, KSIException {
-        return calculateHeight(aggregate(node, metadata));
+        notNull(metadata, "IdentityMetadata");
+        notNull(node, "ImprintNode");
+        return calculateHeight(node.getLevel() + 1);
+    }
+
+    /**
+     * Calculates the height of the hash tree in case a new node with given level would be added. Adding the node
+     * aggregates it with the heads of lower or equal level and building the tree aggregates the result with the rest
+     * of the heads, every aggregation producing a node one level higher than the higher of its children.
+     */
+    private long calculateHeight(long level) {
+        long height = level;
+        Iterator<ImprintNode> iterator = heads.descendingIterator();
+        while (iterator.hasNext()) {
+            height = Math.max(iterator.next().getLevel(), height) + 1;
+        }
+        return height;
     }
 
     /**
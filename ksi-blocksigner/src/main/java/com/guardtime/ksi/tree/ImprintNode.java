@@ -117,6 +117,13 @@ public class ImprintNode implements TreeNode {
         return value.getImprint();
     }
 
+    /**
+     * @return A new leaf node with the same hash as this node and the given level. The hash is shared, not copied.
+     */
+    ImprintNode withLevel(long level) {
+        return new ImprintNode(value, level);
+    }
+
     public TreeNode getParent() {
         return parent;
     }
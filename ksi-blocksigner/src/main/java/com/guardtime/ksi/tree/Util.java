@@ -21,7 +21,8 @@ public final class Util {
      * H is a cryptographic hash function defined by {@code hashAlgorithm}.
      */
     public static DataHash hash(HashAlgorithm hashAlgorithm, byte[] left, byte[] right, long level) throws HashException {
-        DataHasher hasher = new DataHasher(hashAlgorithm);
+        hashAlgorithm.checkExpiration();
+        DataHasher hasher = DataHasher.getThreadLocalHasher(hashAlgorithm);
         hasher.addData(left).addData(right);
         hasher.addData(com.guardtime.ksi.util.Util.encodeUnsignedLong(level));
         return hasher.getHash();
@@ -0,0 +1,256 @@
+/*
+ * Copyright 2013-2018 Guardtime, Inc.
+ *
+ *  This file is part of the Guardtime client SDK.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License").
+ *  You may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES, CONDITIONS, OR OTHER LICENSES OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ *  "Guardtime" and "KSI" are trademarks or registered trademarks of
+ *  Guardtime, Inc., and no license to trademarks is granted; Guardtime
+ *  reserves and retains all trademark rights.
+ *
+ */
+
+package com.guardtime.ksi.blocksigner;
+
+import com.guardtime.ksi.exceptions.KSIException;
+import com.guardtime.ksi.hashing.DataHash;
+import com.guardtime.ksi.pdu.AggregationResponse;
+import com.guardtime.ksi.pdu.AggregatorConfiguration;
+import com.guardtime.ksi.service.ConfigurationListener;
+import com.guardtime.ksi.service.Future;
+import com.guardtime.ksi.service.KSISigningService;
+import com.guardtime.ksi.tlv.TLVElement;
+import com.guardtime.ksi.unisignature.AggregationHashChain;
+import com.guardtime.ksi.unisignature.KSISignature;
+import com.guardtime.ksi.unisignature.KSISignatureFactory;
+import org.mockito.ArgumentCaptor;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.guardtime.ksi.AbstractBlockSignatureTest.DATA_HASH;
+import static com.guardtime.ksi.AbstractBlockSignatureTest.DATA_HASH_2;
+import static com.guardtime.ksi.AbstractBlockSignatureTest.DATA_HASH_3;
+import static com.guardtime.ksi.AbstractBlockSignatureTest.IDENTITY_METADATA;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+
+public class ContinuousBlockSignerTest {
+
+    private static final Executor DIRECT_EXECUTOR = new Executor() {
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private KSISigningService signingService;
+    private KSISignatureFactory signatureFactory;
+    private KSISignature rootSignature;
+    private KSISignature leafSignature;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        signingService = mock(KSISigningService.class);
+        final AggregationResponse response = mock(AggregationResponse.class);
+        when(response.getPayload()).thenReturn(new TLVElement(false, false, 0x02));
+        when(signingService.sign(any(DataHash.class), anyLong())).thenReturn(new Future<AggregationResponse>() {
+            public AggregationResponse getResult() {
+                return response;
+            }
+
+            public boolean isFinished() {
+                return true;
+            }
+        });
+        rootSignature = mock(KSISignature.class);
+        leafSignature = mock(KSISignature.class);
+        signatureFactory = mock(KSISignatureFactory.class);
+        when(signatureFactory.createSignature(any(TLVElement.class), any(DataHash.class), anyLong())).thenReturn(rootSignature);
+        when(signatureFactory.createSignature(any(KSISignature.class), any(AggregationHashChain.class), any(DataHash.class)))
+                .thenReturn(leafSignature);
+    }
+
+    @Test
+    public void testBlockIsSignedWhenMaxLeavesIsReached() throws Exception {
+        ContinuousBlockSigner signer = builder().setMaxLeaves(2).build();
+        Future<KSISignature> first = signer.add(DATA_HASH);
+        assertFalse(first.isFinished());
+        Future<KSISignature> second = signer.add(DATA_HASH_2, IDENTITY_METADATA);
+
+        assertSame(first.getResult(), leafSignature);
+        assertSame(second.getResult(), leafSignature);
+        verify(signingService, times(1)).sign(any(DataHash.class), anyLong());
+    }
+
+    @Test
+    public void testSingleHashBlockReturnsRootSignature() throws Exception {
+        ContinuousBlockSigner signer = builder().build();
+        Future<KSISignature> future = signer.add(DATA_HASH);
+        signer.flush();
+        assertSame(future.getResult(), rootSignature);
+    }
+
+    @Test
+    public void testBlockIsSignedWhenMaxBlockDurationPasses() throws Exception {
+        ContinuousBlockSigner signer = builder().setMaxBlockDuration(20, TimeUnit.MILLISECONDS).build();
+        Future<KSISignature> first = signer.add(DATA_HASH);
+        Future<KSISignature> second = signer.add(DATA_HASH_2);
+
+        KSISignature signature = first.toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+        assertSame(signature, leafSignature);
+        assertSame(second.toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS), leafSignature);
+        verify(signingService, times(1)).sign(any(DataHash.class), anyLong());
+    }
+
+    @Test
+    public void testBlockIsSignedWhenMaxTreeHeightWouldBeExceeded() throws Exception {
+        ContinuousBlockSigner signer = builder().setMaxTreeHeight(1).build();
+        Future<KSISignature> first = signer.add(DATA_HASH);
+        signer.add(DATA_HASH_2);
+        assertFalse(first.isFinished());
+
+        Future<KSISignature> third = signer.add(DATA_HASH_3);
+        assertSame(first.toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS), leafSignature);
+        assertFalse(third.isFinished());
+        verify(signingService, times(1)).sign(any(DataHash.class), anyLong());
+
+        signer.close();
+        assertSame(third.getResult(), rootSignature);
+        verify(signingService, times(2)).sign(any(DataHash.class), anyLong());
+    }
+
+    @Test
+    public void testAggregatorMaximumLevelLimitsTreeHeight() throws Exception {
+        ContinuousBlockSigner signer = builder().build();
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<ConfigurationListener<AggregatorConfiguration>> listener =
+                ArgumentCaptor.forClass((Class) ConfigurationListener.class);
+        verify(signingService).registerAggregatorConfigurationListener(listener.capture());
+        AggregatorConfiguration configuration = mock(AggregatorConfiguration.class);
+        when(configuration.getMaximumLevel()).thenReturn(1L);
+        listener.getValue().updated(configuration);
+        assertEquals(signer.getMaxTreeHeight(), 1L);
+
+        Future<KSISignature> first = signer.add(DATA_HASH);
+        signer.add(DATA_HASH_2);
+        signer.add(DATA_HASH_3);
+        assertSame(first.toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS), leafSignature);
+    }
+
+    @Test
+    public void testBlockCutByTimerDoesNotBlockTimerWhenNoBlocksCanBeSent() throws Exception {
+        final AggregationResponse response = mock(AggregationResponse.class);
+        when(response.getPayload()).thenReturn(new TLVElement(false, false, 0x02));
+        final CompletableFuture<AggregationResponse> firstResponse = new CompletableFuture<>();
+        KSISigningService slowService = mock(KSISigningService.class);
+        when(slowService.sign(any(DataHash.class), anyLong())).thenReturn(new Future<AggregationResponse>() {
+            public AggregationResponse getResult() throws KSIException {
+                return firstResponse.join();
+            }
+
+            public boolean isFinished() {
+                return firstResponse.isDone();
+            }
+
+            public CompletionStage<AggregationResponse> toCompletionStage() {
+                return firstResponse;
+            }
+        });
+        final AtomicBoolean saturated = new AtomicBoolean(true);
+        ContinuousBlockSigner signer = builder()
+                .setKsiSigningService(slowService)
+                .setMaxBlocksInFlight(1)
+                .setMaxBlockDuration(20, TimeUnit.MILLISECONDS)
+                .setExecutor(new Executor() {
+                    public void execute(Runnable command) {
+                        if (saturated.get()) {
+                            throw new RejectedExecutionException("Saturated");
+                        }
+                        command.run();
+                    }
+                })
+                .build();
+        Future<KSISignature> first = signer.add(DATA_HASH);
+        signer.flush();
+        Future<KSISignature> second = signer.add(DATA_HASH_2);
+
+        // the timer shared by all the signers must still cut the blocks of other signers
+        ContinuousBlockSigner other = builder().setMaxBlockDuration(40, TimeUnit.MILLISECONDS).build();
+        Future<KSISignature> otherSignature = other.add(DATA_HASH_3);
+        assertSame(otherSignature.toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS), rootSignature);
+        assertFalse(second.isFinished());
+
+        saturated.set(false);
+        firstResponse.complete(response);
+        assertSame(first.toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS), rootSignature);
+        assertSame(second.toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS), rootSignature);
+        verify(slowService, times(2)).sign(any(DataHash.class), anyLong());
+    }
+
+    @Test
+    public void testSigningFailureFailsAllFuturesOfBlock() throws Exception {
+        KSIException exception = new KSIException("Signing failed");
+        when(signingService.sign(any(DataHash.class), anyLong())).thenThrow(exception);
+        ContinuousBlockSigner signer = builder().build();
+        Future<KSISignature> first = signer.add(DATA_HASH);
+        Future<KSISignature> second = signer.add(DATA_HASH_2);
+        signer.flush();
+        assertFailedWith(first, exception);
+        assertFailedWith(second, exception);
+    }
+
+    @Test(expectedExceptions = KSIException.class, expectedExceptionsMessageRegExp = "Input hash level 2 exceeds the maximum aggregation tree height 1")
+    public void testAddHashWithLevelExceedingMaxTreeHeight() throws Exception {
+        builder().setMaxTreeHeight(1).build().add(DATA_HASH, 2, null);
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class, expectedExceptionsMessageRegExp = "Block signer is closed")
+    public void testAddAfterClose() throws Exception {
+        ContinuousBlockSigner signer = builder().build();
+        signer.close();
+        signer.add(DATA_HASH);
+    }
+
+    @Test(expectedExceptions = NullPointerException.class, expectedExceptionsMessageRegExp = "KSI signing service can not be null")
+    public void testBuildWithoutSigningService() {
+        new ContinuousBlockSignerBuilder().build();
+    }
+
+    private ContinuousBlockSignerBuilder builder() {
+        return new ContinuousBlockSignerBuilder()
+                .setKsiSigningService(signingService)
+                .setSignatureFactory(signatureFactory)
+                .setExecutor(DIRECT_EXECUTOR)
+                .setMaxBlockDuration(1, TimeUnit.HOURS);
+    }
+
+    private static void assertFailedWith(Future<KSISignature> future, KSIException exception) {
+        try {
+            future.getResult();
+            throw new AssertionError("Expected the signing to fail");
+        } catch (KSIException e) {
+            assertSame(e, exception);
+        }
+    }
+}
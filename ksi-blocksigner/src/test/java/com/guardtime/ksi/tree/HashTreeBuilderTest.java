@@ -27,6 +27,8 @@ import com.guardtime.ksi.util.Base16;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import java.util.Random;
+
 import static com.guardtime.ksi.AbstractBlockSignatureTest.DATA_HASH;
 import static com.guardtime.ksi.AbstractBlockSignatureTest.DATA_HASH_2;
 import static com.guardtime.ksi.AbstractBlockSignatureTest.DATA_HASH_3;
@@ -172,4 +174,29 @@ public class HashTreeBuilderTest {
             builder.add(node);
         }
     }
+
+    @Test
+    public void testCalculatedHeightMatchesBuiltTreeHeight() throws KSIException {
+        Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            ImprintNode leaf = new ImprintNode(DATA_HASH, random.nextInt(4));
+            if (random.nextInt(4) == 0) {
+                long height = builder.calculateHeight(leaf, IDENTITY_METADATA);
+                builder.add(leaf, IDENTITY_METADATA);
+                assertEquals(builder.build().getLevel(), height);
+            } else {
+                long height = builder.calculateHeight(leaf);
+                builder.add(leaf);
+                assertEquals(builder.build().getLevel(), height);
+            }
+        }
+    }
+
+    @Test
+    public void testCalculateHeightDoesNotModifyNode() throws KSIException {
+        builder.add(node2);
+        builder.calculateHeight(node, IDENTITY_METADATA);
+        assertNull(node.getParent());
+        assertEquals(builder.calculateHeight(node), 1);
+    }
 }
@@ -57,7 +57,9 @@ public class DataHash {
         }
         this.algorithm = algorithm;
         this.value = value;
-        this.imprint = Util.join(new byte[]{(byte) algorithm.getId()}, value);
+        this.imprint = new byte[value.length + 1];
+        this.imprint[0] = (byte) algorithm.getId();
+        System.arraycopy(value, 0, this.imprint, 1, value.length);
     }
 
     /**
@@ -31,6 +31,8 @@ import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.NoSuchProviderException;
 import java.security.Security;
+import java.util.EnumMap;
+import java.util.Map;
 
 /**
  * Functionality for hashing data.
@@ -60,6 +62,10 @@ import java.security.Security;
  * DataHash hash = hasher.addData("Header").addData(bodyBytes).addData(signatureBytes).getHash();
  * }
  * </pre>
+ * <h3>Thread local hashers</h3>
+ * <p> Creating a data hasher looks up and allocates a new {@link MessageDigest}. Code that calculates a large number of
+ * small hashes (e.g. hash chain and hash tree steps) can use {@link #getThreadLocalHasher(HashAlgorithm)} instead,
+ * which returns a reset hasher that is cached per thread and per hash algorithm. </p>
  */
 public class DataHasher {
 
@@ -68,6 +74,13 @@ public class DataHasher {
     private MessageDigest messageDigest;
     private DataHash outputHash = null;
 
+    private static final ThreadLocal<Map<HashAlgorithm, DataHasher>> THREAD_LOCAL_HASHERS = new ThreadLocal<Map<HashAlgorithm, DataHasher>>() {
+        @Override
+        protected Map<HashAlgorithm, DataHasher> initialValue() {
+            return new EnumMap<>(HashAlgorithm.class);
+        }
+    };
+
     static {
         String provider = BouncyCastleProvider.PROVIDER_NAME;
         if (Security.getProvider(provider) == null) {
@@ -127,6 +140,31 @@ public class DataHasher {
         this(HashAlgorithm.getByName("DEFAULT"));
     }
 
+    /**
+     * Returns a data hasher for specified algorithm that is cached for the calling thread. The hasher is reset before
+     * it is returned, so it can be used right away. The same instance is returned to all the calls made by the same
+     * thread with the same algorithm, so the returned hasher must not be handed over to other threads and must not be
+     * used any more after the next call of this method. Expiration of the algorithm isn't checked.
+     *
+     * @param algorithm {@link HashAlgorithm} describing the algorithm to be used in hashing.
+     *
+     * @return Reset {@link DataHasher} bound to the calling thread.
+     *
+     * @throws IllegalArgumentException when hash algorithm is unknown or the algorithm isn't implemented.
+     * @throws NullPointerException when input algorithm is null.
+     */
+    public static DataHasher getThreadLocalHasher(HashAlgorithm algorithm) {
+        Util.notNull(algorithm, "Hash algorithm");
+        Map<HashAlgorithm, DataHasher> hashers = THREAD_LOCAL_HASHERS.get();
+        DataHasher hasher = hashers.get(algorithm);
+        if (hasher == null) {
+            hasher = new DataHasher(algorithm, false);
+            hashers.put(algorithm, hasher);
+            return hasher;
+        }
+        return hasher.reset();
+    }
+
     /**
      * Updates the digest using the specified array of bytes, starting at the specified offset.
      *
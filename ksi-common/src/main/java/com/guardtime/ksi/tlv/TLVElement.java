@@ -26,10 +26,10 @@ import com.guardtime.ksi.util.Base16;
 import com.guardtime.ksi.util.Util;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
 import java.nio.charset.CharacterCodingException;
 import java.util.Arrays;
 import java.util.Date;
@@ -80,6 +80,18 @@ public final class TLVElement {
     private List<TLVElement> children = new LinkedList<>();
     private byte[] content = new byte[0];
 
+    /**
+     * Value of an element created by {@link #wrap(ByteBuffer)} that has not been parsed yet. Cleared when the
+     * children of the element are parsed.
+     */
+    private volatile ByteBuffer unparsedValue;
+
+    /**
+     * Content of an element created by {@link #wrap(ByteBuffer)} that does not contain child elements. Cleared when
+     * the content is copied to {@link #content}.
+     */
+    private volatile ByteBuffer unreadContent;
+
     public TLVElement(boolean nonCritical, boolean forwarded, int type) {
         this(false, nonCritical, forwarded, type);
     }
@@ -117,6 +129,29 @@ public final class TLVElement {
         }
     }
 
+    /**
+     * Creates TLV element from the remaining bytes of the given buffer. The buffer can be a heap, direct or memory
+     * mapped buffer. Only the header of the element is parsed, the child elements and the content are parsed lazily
+     * when they are accessed for the first time and the content is copied only when it is read. Until then the element
+     * refers to the bytes of the given buffer, so the contents of the buffer must not be changed while the element is
+     * in use. The position and the limit of the given buffer are not changed.
+     *
+     * @param buffer buffer to create the TLV element from.
+     *
+     * @return {@link TLVElement}
+     *
+     * @throws TLVParserException
+     */
+    public static TLVElement wrap(ByteBuffer buffer) throws TLVParserException {
+        Util.notNull(buffer, "Byte buffer");
+        ByteBuffer input = buffer.slice();
+        TLVElement element = readElement(input);
+        if (input.hasRemaining()) {
+            throw new MultipleTLVElementException();
+        }
+        return element;
+    }
+
     /**
      * Creates TLV element with {@link Long} content.
      * TLV element nonCritical and forwarded flags are set to false.
@@ -317,14 +352,16 @@ public final class TLVElement {
      * @throws TLVParserException
      */
     public byte[] getContent() throws TLVParserException {
-        byte[] content = this.content;
-        if (!children.isEmpty()) {
-            for (TLVElement child : children) {
-                content = Util.join(content, child.encodeHeader());
-                content = Util.join(content, child.getContent());
-            }
+        readContent();
+        if (children.isEmpty()) {
+            return content;
         }
-        return content;
+        EncodedLengths lengths = new EncodedLengths();
+        int contentLength = calculateContentLength(lengths);
+        byte[] result = new byte[contentLength];
+        lengths.next();
+        writeChildren(result, writeContent(result, 0), lengths);
+        return result;
     }
 
     /**
@@ -338,6 +375,7 @@ public final class TLVElement {
     public void setContent(byte[] content) throws TLVParserException {
         Util.notNull(content, "Content");
         assertActualContentLengthIsInTLVLimits(content.length);
+        readContent();
         this.content = content;
     }
 
@@ -386,6 +424,7 @@ public final class TLVElement {
      * or null when the child element with specified tag doesn't exist.
      */
     public TLVElement getFirstChildElement(int tag) {
+        parseChildren();
         for (TLVElement element : children) {
             if (tag == element.getType()) {
                 return element;
@@ -399,6 +438,7 @@ public final class TLVElement {
      * If current element doesn't contain child elements then null is returned.
      */
     public TLVElement getFirstChildElement() {
+        parseChildren();
         if (children.isEmpty()) {
             return null;
         }
@@ -410,6 +450,7 @@ public final class TLVElement {
      * If current element doesn't contain child elements then null is returned.
      */
     public TLVElement getLastChildElement() {
+        parseChildren();
         if (children.isEmpty()) {
             return null;
         }
@@ -424,6 +465,7 @@ public final class TLVElement {
      * @return The list of {@link TLVElement}'s with specified tag or empty list.
      */
     public List<TLVElement> getChildElements(int tag) {
+        parseChildren();
         List<TLVElement> elements = new LinkedList<>();
         for (TLVElement element : children) {
             if (tag == element.getType()) {
@@ -434,10 +476,12 @@ public final class TLVElement {
     }
 
     public List<TLVElement> getChildElements() {
+        parseChildren();
         return children;
     }
 
     public List<TLVElement> getChildElements(int... tags) {
+        parseChildren();
         List<TLVElement> elements = new LinkedList<>();
         for (TLVElement element : children) {
             for (int tag : tags) {
@@ -482,59 +526,27 @@ public final class TLVElement {
      *         when TLV header encoding fails or I/O error occurs.
      */
     public byte[] encodeHeader() throws TLVParserException {
-        DataOutputStream out = null;
-        try {
-            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-            out = new DataOutputStream(byteArrayOutputStream);
-
-            int dataLength = getContentLength();
-
-            boolean tlv16 = isOutputTlv16();
-            int firstByte = (tlv16 ? TLVInputStream.TLV16_FLAG : 0) + (isNonCritical() ? TLVInputStream.NON_CRITICAL_FLAG : 0)
-                    + (isForwarded() ? TLVInputStream.FORWARD_FLAG : 0);
-
-            if (tlv16) {
-                firstByte = firstByte | (getType() >>> TLVInputStream.BYTE_BITS) & TLVInputStream.TYPE_MASK;
-                out.writeByte(firstByte);
-                out.writeByte(getType());
-                if (dataLength < 1) {
-                    out.writeShort(0);
-                } else {
-                    out.writeShort(dataLength);
-                }
-            } else {
-                firstByte = firstByte | getType() & TLVInputStream.TYPE_MASK;
-                out.writeByte(firstByte);
-                if (dataLength < 1) {
-                    out.writeByte(0);
-                } else {
-                    out.writeByte(dataLength);
-                }
-            }
-            return byteArrayOutputStream.toByteArray();
-        } catch (IOException e) {
-            throw new TLVParserException("TLV header encoding failed", e);
-        } finally {
-            Util.closeQuietly(out);
-        }
+        int contentLength = getContentLength();
+        byte[] header = new byte[calculateHeaderLength(contentLength)];
+        writeHeader(header, 0, contentLength);
+        return header;
     }
 
     /**
      * @return The length of the TLV element content.
      */
     public int getContentLength() {
-        int contentLength = content.length;
-        if (!children.isEmpty()) {
-            for (TLVElement element : children) {
-                contentLength += element.getHeaderLength();
-                contentLength += element.getContentLength();
-            }
+        parseChildren();
+        int contentLength = getOwnContentLength();
+        for (TLVElement element : children) {
+            int childContentLength = element.getContentLength();
+            contentLength += element.calculateHeaderLength(childContentLength) + childContentLength;
         }
         return contentLength;
     }
 
     public int getHeaderLength() {
-        return isOutputTlv16() ? 4 : 2;
+        return calculateHeaderLength(getContentLength());
     }
 
     /**
@@ -546,6 +558,7 @@ public final class TLVElement {
      *         new TLV element.
      */
     public void replace(TLVElement childToBeReplaced, TLVElement newChild) {
+        parseChildren();
         for (int i = 0; i < children.size(); i++) {
             if (children.get(i).equals(childToBeReplaced)) {
                 children.set(i, newChild);
@@ -555,17 +568,20 @@ public final class TLVElement {
     }
 
     public void remove(TLVElement elementToRemoved) {
+        parseChildren();
         children.remove(elementToRemoved);
     }
 
     public void addChildElement(TLVElement element) throws TLVParserException {
         Util.notNull(element, "Child TLV element");
+        readContent();
         this.children.add(element);
         assertActualContentLengthIsInTLVLimits(getContentLength());
     }
 
     public void addFirstChildElement(TLVElement element) throws TLVParserException {
         Util.notNull(element, "Child TLV element");
+        readContent();
         this.children.add(0, element);
         assertActualContentLengthIsInTLVLimits(getContentLength());
     }
@@ -581,15 +597,49 @@ public final class TLVElement {
      */
     public void writeTo(OutputStream out) throws TLVParserException {
         Util.notNull(out, "Output stream");
+        EncodedLengths lengths = new EncodedLengths();
+        calculateContentLength(lengths);
         try {
-            assertActualContentLengthIsInTLVLimits(getContentLength());
-            out.write(encodeHeader());
-            out.write(getContent());
+            writeTo(out, lengths);
         } catch (IOException e) {
             throw new TLVParserException("Writing TLV element (" + convertHeader() + ")  to output stream failed", e);
         }
     }
 
+    /**
+     * Writes the encoded TLV element to the specified buffer, starting from the current position of the buffer. The
+     * position of the buffer is advanced by the length of the encoded element.
+     *
+     * @param buffer
+     *         the buffer to which to write the TLV element data.
+     *
+     * @throws TLVParserException
+     *         when TLV encoding failed or the buffer does not have enough space remaining.
+     */
+    public void encodeTo(ByteBuffer buffer) throws TLVParserException {
+        Util.notNull(buffer, "Byte buffer");
+        if (buffer.hasArray() && !buffer.isReadOnly()) {
+            EncodedLengths lengths = new EncodedLengths();
+            int contentLength = calculateContentLength(lengths);
+            int encodedLength = calculateHeaderLength(contentLength) + contentLength;
+            if (buffer.remaining() < encodedLength) {
+                throw new TLVParserException("Writing TLV element (" + convertHeader() + ") failed, buffer has " +
+                        buffer.remaining() + " bytes remaining but " + encodedLength + " bytes are needed");
+            }
+            int offset = buffer.arrayOffset() + buffer.position();
+            writeEncoded(buffer.array(), offset, lengths);
+            // Called through Buffer, so that classes built with JDK 9+ still run on Java 8
+            ((Buffer) buffer).position(buffer.position() + encodedLength);
+        } else {
+            byte[] encoded = getEncoded();
+            if (buffer.remaining() < encoded.length) {
+                throw new TLVParserException("Writing TLV element (" + convertHeader() + ") failed, buffer has " +
+                        buffer.remaining() + " bytes remaining but " + encoded.length + " bytes are needed");
+            }
+            buffer.put(encoded);
+        }
+    }
+
     private void assertActualContentLengthIsInTLVLimits(int contentLength) throws TLVParserException {
         if (contentLength > MAX_TLV16_CONTENT_LENGTH) {
             throw new TLVParserException("TLV16 should never contain more than " + MAX_TLV16_CONTENT_LENGTH + " bytes of content, but this one contains " + contentLength + " bytes.");
@@ -597,11 +647,239 @@ public final class TLVElement {
     }
 
     public byte[] getEncoded() throws TLVParserException {
-        return Util.join(encodeHeader(), getContent());
+        EncodedLengths lengths = new EncodedLengths();
+        int contentLength = calculateContentLength(lengths);
+        byte[] encoded = new byte[calculateHeaderLength(contentLength) + contentLength];
+        writeEncoded(encoded, 0, lengths);
+        return encoded;
+    }
+
+    /**
+     * First pass of the encoding. Calculates the content lengths of this element and all its descendants and records
+     * them to given table in pre-order, so that the second pass can write the header of each element without
+     * calculating the lengths again.
+     *
+     * @return The length of the content of this element.
+     */
+    private int calculateContentLength(EncodedLengths lengths) throws TLVParserException {
+        parseChildren();
+        int index = lengths.reserve();
+        int contentLength = getOwnContentLength();
+        for (TLVElement child : children) {
+            int childContentLength = child.calculateContentLength(lengths);
+            contentLength += child.calculateHeaderLength(childContentLength) + childContentLength;
+        }
+        assertActualContentLengthIsInTLVLimits(contentLength);
+        lengths.set(index, contentLength);
+        return contentLength;
+    }
+
+    /**
+     * Second pass of the encoding. Writes the header and the content of this element and all its descendants to the
+     * given array, consuming the content lengths recorded by {@link #calculateContentLength(EncodedLengths)}.
+     *
+     * @return The position in the array after the last written byte.
+     */
+    private int writeEncoded(byte[] out, int position, EncodedLengths lengths) {
+        position = writeHeader(out, position, lengths.next());
+        position = writeContent(out, position);
+        return writeChildren(out, position, lengths);
+    }
+
+    private int writeChildren(byte[] out, int position, EncodedLengths lengths) {
+        for (TLVElement child : children) {
+            position = child.writeEncoded(out, position, lengths);
+        }
+        return position;
+    }
+
+    private int writeContent(byte[] out, int position) {
+        ByteBuffer value = unreadContent;
+        if (value != null) {
+            value.duplicate().get(out, position, value.remaining());
+            return position + value.remaining();
+        }
+        System.arraycopy(content, 0, out, position, content.length);
+        return position + content.length;
+    }
+
+    private void writeTo(OutputStream out, EncodedLengths lengths) throws IOException {
+        byte[] header = new byte[TLVInputStream.TLV16_HEADER_LENGTH];
+        int headerLength = writeHeader(header, 0, lengths.next());
+        out.write(header, 0, headerLength);
+        ByteBuffer value = unreadContent;
+        if (value != null && value.hasArray()) {
+            out.write(value.array(), value.arrayOffset() + value.position(), value.remaining());
+        } else {
+            readContent();
+            out.write(content);
+        }
+        for (TLVElement child : children) {
+            child.writeTo(out, lengths);
+        }
+    }
+
+    private int writeHeader(byte[] out, int position, int contentLength) {
+        boolean tlv16 = calculateHeaderLength(contentLength) == TLVInputStream.TLV16_HEADER_LENGTH;
+        int firstByte = (tlv16 ? TLVInputStream.TLV16_FLAG : 0) + (isNonCritical() ? TLVInputStream.NON_CRITICAL_FLAG : 0)
+                + (isForwarded() ? TLVInputStream.FORWARD_FLAG : 0);
+        if (tlv16) {
+            out[position++] = (byte) (firstByte | (getType() >>> TLVInputStream.BYTE_BITS) & TLVInputStream.TYPE_MASK);
+            out[position++] = (byte) getType();
+            out[position++] = (byte) (contentLength >>> TLVInputStream.BYTE_BITS);
+            out[position++] = (byte) contentLength;
+        } else {
+            out[position++] = (byte) (firstByte | getType() & TLVInputStream.TYPE_MASK);
+            out[position++] = (byte) contentLength;
+        }
+        return position;
+    }
+
+    private int getOwnContentLength() {
+        ByteBuffer value = unreadContent;
+        return value != null ? value.remaining() : content.length;
+    }
+
+    /**
+     * Parses the child elements of an element created by {@link #wrap(ByteBuffer)}. The child elements are created
+     * as lazy views of the same buffer. If the value of the element does not consist of TLV elements then the value
+     * is kept as not yet read content.
+     */
+    private void parseChildren() {
+        if (unparsedValue != null) {
+            synchronized (this) {
+                ByteBuffer value = unparsedValue;
+                if (value != null) {
+                    List<TLVElement> nested = readNestedElements(value);
+                    if (nested != null) {
+                        children = nested;
+                    } else {
+                        unreadContent = value;
+                    }
+                    unparsedValue = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies the content of an element created by {@link #wrap(ByteBuffer)} to {@link #content}.
+     */
+    private void readContent() {
+        parseChildren();
+        if (unreadContent != null) {
+            synchronized (this) {
+                ByteBuffer value = unreadContent;
+                if (value != null) {
+                    byte[] bytes = new byte[value.remaining()];
+                    value.duplicate().get(bytes);
+                    content = bytes;
+                    unreadContent = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the header of the next element from the buffer and advances the position of the buffer over the element.
+     * The value of the element is not parsed.
+     */
+    private static TLVElement readElement(ByteBuffer input) throws TLVParserException {
+        int headerLength = readHeaderLength(input, input.position());
+        if (headerLength < 0) {
+            throw new TLVParserException("Reading TLV bytes failed, TLV header is truncated");
+        }
+        int position = input.position();
+        int firstByte = input.get(position) & 0xFF;
+        boolean tlv16 = headerLength == TLVInputStream.TLV16_HEADER_LENGTH;
+        int type = firstByte & TLVInputStream.TYPE_MASK;
+        int length;
+        if (tlv16) {
+            type = (type << TLVInputStream.BYTE_BITS) | (input.get(position + 1) & 0xFF);
+            length = ((input.get(position + 2) & 0xFF) << TLVInputStream.BYTE_BITS) | (input.get(position + 3) & 0xFF);
+        } else {
+            length = input.get(position + 1) & 0xFF;
+        }
+        int valueStart = position + headerLength;
+        if (length > input.limit() - valueStart) {
+            throw new TLVParserException("Reading TLV bytes failed, TLV element (type=0x" + Integer.toHexString(type) +
+                    ") contains " + length + " bytes of content, but only " + (input.limit() - valueStart) + " bytes are available");
+        }
+        TLVElement element = new TLVElement(tlv16, (firstByte & TLVInputStream.NON_CRITICAL_FLAG) != 0,
+                (firstByte & TLVInputStream.FORWARD_FLAG) != 0, type);
+        ByteBuffer value = input.duplicate();
+        ((Buffer) value).limit(valueStart + length);
+        ((Buffer) value).position(valueStart);
+        element.unparsedValue = value.slice();
+        ((Buffer) input).position(valueStart + length);
+        return element;
+    }
+
+    /**
+     * Reads the child elements from the value of an element. Follows the same rules as {@link TLVInputStream}: the
+     * value is considered to consist of child elements only if the headers of the elements cover the value exactly.
+     *
+     * @return The list of child elements or null if the value does not consist of TLV elements.
+     */
+    private static List<TLVElement> readNestedElements(ByteBuffer value) {
+        int limit = value.limit();
+        if (limit == 0) {
+            return null;
+        }
+        int position = 0;
+        while (position < limit) {
+            int headerLength = readHeaderLength(value, position);
+            if (headerLength < 0) {
+                return null;
+            }
+            position += headerLength + readValueLength(value, position);
+        }
+        if (position != limit) {
+            return null;
+        }
+        List<TLVElement> nested = new LinkedList<>();
+        ByteBuffer input = value.duplicate();
+        try {
+            while (input.hasRemaining()) {
+                nested.add(readElement(input));
+            }
+        } catch (TLVParserException e) {
+            // can not happen, the headers have already been checked
+            throw new IllegalStateException(e);
+        }
+        return nested;
+    }
+
+    /**
+     * @return The length of the header starting at given position or -1 if the buffer does not contain the whole header.
+     */
+    private static int readHeaderLength(ByteBuffer input, int position) {
+        if (input.limit() - position < TLVInputStream.TLV8_HEADER_LENGTH) {
+            return -1;
+        }
+        if ((input.get(position) & TLVInputStream.TLV16_FLAG) == 0) {
+            return TLVInputStream.TLV8_HEADER_LENGTH;
+        }
+        return input.limit() - position < TLVInputStream.TLV16_HEADER_LENGTH ? -1 : TLVInputStream.TLV16_HEADER_LENGTH;
+    }
+
+    private static int readValueLength(ByteBuffer input, int position) {
+        if ((input.get(position) & TLVInputStream.TLV16_FLAG) == 0) {
+            return input.get(position + 1) & 0xFF;
+        }
+        return ((input.get(position + 2) & 0xFF) << TLVInputStream.BYTE_BITS) | (input.get(position + 3) & 0xFF);
+    }
+
+    private int calculateHeaderLength(int contentLength) {
+        if (getType() > TLVInputStream.TYPE_MASK || contentLength > TLVInputStream.BYTE_MAX) {
+            return TLVInputStream.TLV16_HEADER_LENGTH;
+        }
+        return TLVInputStream.TLV8_HEADER_LENGTH;
     }
 
     @Override
     public String toString() {
+        readContent();
         StringBuilder builder = new StringBuilder(convertHeader());
         builder.append(":");
         if (children.isEmpty()) {
@@ -634,6 +912,8 @@ public final class TLVElement {
         if (o == null || getClass() != o.getClass()) return false;
 
         TLVElement that = (TLVElement) o;
+        readContent();
+        that.readContent();
 
         if (nonCritical != that.nonCritical) return false;
         if (forwarded != that.forwarded) return false;
@@ -644,6 +924,7 @@ public final class TLVElement {
 
     @Override
     public int hashCode() {
+        readContent();
         int result = (nonCritical ? 1 : 0);
         result = 31 * result + (forwarded ? 1 : 0);
         result = 31 * result + type;
@@ -652,4 +933,30 @@ public final class TLVElement {
         return result;
     }
 
+    /**
+     * Content lengths of the elements of a TLV tree in pre-order. Filled by the first pass of the encoding and consumed
+     * in the same order by the second pass.
+     */
+    private static final class EncodedLengths {
+
+        private int[] lengths = new int[16];
+        private int size;
+        private int cursor;
+
+        int reserve() {
+            if (size == lengths.length) {
+                lengths = Arrays.copyOf(lengths, size * 2);
+            }
+            return size++;
+        }
+
+        void set(int index, int length) {
+            lengths[index] = length;
+        }
+
+        int next() {
+            return lengths[cursor++];
+        }
+    }
+
 }
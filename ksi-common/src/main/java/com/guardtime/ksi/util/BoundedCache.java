@@ -0,0 +1,200 @@
+/*
+ * Copyright 2013-2018 Guardtime, Inc.
+ *
+ *  This file is part of the Guardtime client SDK.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License").
+ *  You may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES, CONDITIONS, OR OTHER LICENSES OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ *  "Guardtime" and "KSI" are trademarks or registered trademarks of
+ *  Guardtime, Inc., and no license to trademarks is granted; Guardtime
+ *  reserves and retains all trademark rights.
+ *
+ */
+
+package com.guardtime.ksi.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Concurrent cache that holds at most the given number of entries. Lookups do not lock.
+ * <p>
+ * Optionally the entries expire after the given time to live, counted from the time the entry was added. Expired
+ * entries are removed when they are looked up or when the cache is evicting.
+ * </p>
+ * <p>
+ * When the cache grows over its maximum size, the least recently used entries are evicted in a batch until the cache
+ * is back at 90% of the maximum size, so the cost of the eviction scan is shared by the following insertions. The
+ * recency of an entry is its last access time, so the eviction is only approximately least recently used when entries
+ * are accessed concurrently.
+ * </p>
+ *
+ * @param <K> type of the keys, must implement {@link Object#equals(Object)} and {@link Object#hashCode()}.
+ * @param <V> type of the values.
+ */
+public final class BoundedCache<K, V> {
+
+    private final int maxSize;
+    private final long timeToLiveNanos;
+    private final ConcurrentHashMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param maxSize maximum number of entries in the cache.
+     */
+    public BoundedCache(int maxSize) {
+        this(maxSize, 0, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param maxSize maximum number of entries in the cache.
+     * @param timeToLive time after which an added entry expires, 0 if the entries do not expire.
+     * @param unit unit of the time to live.
+     */
+    public BoundedCache(int maxSize, long timeToLive, TimeUnit unit) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive");
+        }
+        if (timeToLive < 0) {
+            throw new IllegalArgumentException("Cache time to live can not be negative");
+        }
+        Util.notNull(unit, "Time unit");
+        this.maxSize = maxSize;
+        this.timeToLiveNanos = unit.toNanos(timeToLive);
+    }
+
+    /**
+     * @return The cached value of the key, null if the key is not in the cache.
+     */
+    public V get(K key) {
+        Entry<V> entry = entries.get(key);
+        long now = System.nanoTime();
+        if (entry != null && isExpired(entry, now)) {
+            entries.remove(key, entry);
+            entry = null;
+        }
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        entry.lastAccess = now;
+        return entry.value;
+    }
+
+    /**
+     * Adds a value to the cache, replacing the previous value of the key.
+     */
+    public void put(K key, V value) {
+        Util.notNull(key, "Key");
+        Util.notNull(value, "Value");
+        entries.put(key, new Entry<>(value));
+        if (entries.size() > maxSize) {
+            evict();
+        }
+    }
+
+    /**
+     * Removes all the entries from the cache. Does not reset the hit and miss counts.
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * @return The number of entries in the cache.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return The number of lookups that found a value.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return The number of lookups that did not find a value.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private void evict() {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long now = System.nanoTime();
+            // access times are copied, sorting by values that change concurrently could break the sort
+            List<Candidate<K, V>> candidates = new ArrayList<>(entries.size());
+            for (Map.Entry<K, Entry<V>> entry : entries.entrySet()) {
+                if (isExpired(entry.getValue(), now)) {
+                    entries.remove(entry.getKey(), entry.getValue());
+                } else {
+                    candidates.add(new Candidate<>(entry.getKey(), entry.getValue()));
+                }
+            }
+            int toRemove = entries.size() - (int) (maxSize * 9L / 10);
+            if (toRemove <= 0) {
+                return;
+            }
+            Collections.sort(candidates);
+            for (int i = 0; i < toRemove && i < candidates.size(); i++) {
+                Candidate<K, V> candidate = candidates.get(i);
+                entries.remove(candidate.key, candidate.entry);
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    private boolean isExpired(Entry<V> entry, long now) {
+        return timeToLiveNanos > 0 && now - entry.created >= timeToLiveNanos;
+    }
+
+    private static final class Entry<V> {
+
+        private final V value;
+        private final long created = System.nanoTime();
+        private volatile long lastAccess = created;
+
+        Entry(V value) {
+            this.value = value;
+        }
+    }
+
+    private static final class Candidate<K, V> implements Comparable<Candidate<K, V>> {
+
+        private final K key;
+        private final Entry<V> entry;
+        private final long lastAccess;
+
+        Candidate(K key, Entry<V> entry) {
+            this.key = key;
+            this.entry = entry;
+            this.lastAccess = entry.lastAccess;
+        }
+
+        public int compareTo(Candidate<K, V> other) {
+            return Long.compare(lastAccess, other.lastAccess);
+        }
+    }
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright 2013-2018 Guardtime, Inc.
+ *
+ *  This file is part of the Guardtime client SDK.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License").
+ *  You may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES, CONDITIONS, OR OTHER LICENSES OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ *  "Guardtime" and "KSI" are trademarks or registered trademarks of
+ *  Guardtime, Inc., and no license to trademarks is granted; Guardtime
+ *  reserves and retains all trademark rights.
+ *
+ */
+
+package com.guardtime.ksi.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Timer for a large number of short-lived timeouts, e.g. request timeouts, that are usually cancelled before they
+ * expire. Scheduling and cancelling a timeout are constant time operations, the timeouts are expired with the
+ * precision of one tick.
+ * <p>
+ * The timeouts are kept in a wheel of buckets, each bucket holding the timeouts that expire during one tick (modulo the
+ * length of the wheel). A single daemon worker thread, started with the first timeout, advances the wheel once per tick
+ * and runs the tasks of the expired timeouts. The tasks are run on the worker thread, so they must be short and must
+ * not block.
+ * </p>
+ */
+public final class HashedWheelTimer {
+
+    private static final Logger logger = LoggerFactory.getLogger(HashedWheelTimer.class);
+
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final String threadName;
+    private final Queue<TimeoutImpl> newTimeouts = new ConcurrentLinkedQueue<>();
+    private final Object startLock = new Object();
+    private volatile boolean started;
+    private volatile boolean stopped;
+    private long startTime;
+
+    /**
+     * Creates a new timer.
+     *
+     * @param tickDuration duration of a tick, the precision of the timer.
+     * @param unit unit of the tick duration.
+     * @param wheelSize number of buckets in the wheel, rounded up to a power of two.
+     * @param threadName name of the worker thread.
+     */
+    public HashedWheelTimer(long tickDuration, TimeUnit unit, int wheelSize, String threadName) {
+        Util.notNull(unit, "Time unit");
+        Util.notNull(threadName, "Thread name");
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("Tick duration must be positive");
+        }
+        if (wheelSize <= 0 || wheelSize > (1 << 30)) {
+            throw new IllegalArgumentException("Wheel size must be between 1 and 2^30");
+        }
+        this.tickNanos = unit.toNanos(tickDuration);
+        int size = Integer.highestOneBit(wheelSize);
+        if (size < wheelSize) {
+            size <<= 1;
+        }
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = size - 1;
+        this.threadName = threadName;
+    }
+
+    /**
+     * Schedules the task to be run once after the given delay.
+     *
+     * @param task task to run, must not block.
+     * @param delay delay after which the task is run.
+     * @param unit unit of the delay.
+     *
+     * @return Handle for cancelling the timeout.
+     */
+    public Timeout newTimeout(Runnable task, long delay, TimeUnit unit) {
+        Util.notNull(task, "Task");
+        Util.notNull(unit, "Time unit");
+        if (stopped) {
+            throw new IllegalStateException("Timer has been stopped");
+        }
+        start();
+        long deadline = System.nanoTime() - startTime + Math.max(unit.toNanos(delay), 0);
+        TimeoutImpl timeout = new TimeoutImpl(task, deadline);
+        newTimeouts.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Stops the worker thread. The timeouts that have not expired yet are not run.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Starts the worker thread on first use. The start time is written before {@link #started} is published, so a
+     * caller that sees the timer started also sees its start time.
+     */
+    private void start() {
+        if (started) {
+            return;
+        }
+        synchronized (startLock) {
+            if (!started) {
+                startTime = System.nanoTime();
+                Thread worker = new Thread(new Worker(), threadName);
+                worker.setDaemon(true);
+                worker.start();
+                started = true;
+            }
+        }
+    }
+
+    /**
+     * Handle of a scheduled task.
+     */
+    public interface Timeout {
+
+        /**
+         * Cancels the timeout. The task is not run if it has not been run yet.
+         *
+         * @return True, if the timeout was cancelled, false if it has already expired or been cancelled.
+         */
+        boolean cancel();
+
+        /**
+         * @return True, if the task has been run.
+         */
+        boolean isExpired();
+
+        /**
+         * @return True, if the timeout has been cancelled.
+         */
+        boolean isCancelled();
+    }
+
+    private static final class TimeoutImpl implements Timeout {
+
+        private static final int PENDING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private final Runnable task;
+        private final long deadline;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+        private long remainingRounds;
+
+        TimeoutImpl(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        public boolean cancel() {
+            return state.compareAndSet(PENDING, CANCELLED);
+        }
+
+        public boolean isExpired() {
+            return state.get() == EXPIRED;
+        }
+
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        void expire() {
+            if (state.compareAndSet(PENDING, EXPIRED)) {
+                try {
+                    task.run();
+                } catch (Throwable t) {
+                    logger.warn("Timeout task {} threw an exception", task, t);
+                }
+            }
+        }
+    }
+
+    /**
+     * Timeouts of a single bucket, accessed by the worker thread only.
+     */
+    private static final class Bucket extends LinkedList<TimeoutImpl> {
+        private static final long serialVersionUID = 1;
+    }
+
+    private final class Worker implements Runnable {
+
+        private long tick;
+
+        public void run() {
+            while (!stopped) {
+                long tickDeadline = tickNanos * (tick + 1);
+                if (!waitUntil(tickDeadline)) {
+                    return;
+                }
+                transferNewTimeouts();
+                expireTimeouts(wheel[(int) (tick & mask)], tickDeadline);
+                tick++;
+            }
+        }
+
+        private boolean waitUntil(long deadline) {
+            while (true) {
+                long sleepNanos = deadline - (System.nanoTime() - startTime);
+                if (sleepNanos <= 0) {
+                    return true;
+                }
+                try {
+                    Thread.sleep(TimeUnit.NANOSECONDS.toMillis(sleepNanos + 999999));
+                } catch (InterruptedException e) {
+                    if (stopped) {
+                        return false;
+                    }
+                }
+                if (stopped) {
+                    return false;
+                }
+            }
+        }
+
+        private void transferNewTimeouts() {
+            TimeoutImpl timeout;
+            while ((timeout = newTimeouts.poll()) != null) {
+                if (timeout.isCancelled()) {
+                    continue;
+                }
+                long expirationTick = Math.max(timeout.deadline / tickNanos, tick);
+                timeout.remainingRounds = (expirationTick - tick) / wheel.length;
+                wheel[(int) (expirationTick & mask)].add(timeout);
+            }
+        }
+
+        private void expireTimeouts(Bucket bucket, long tickDeadline) {
+            Iterator<TimeoutImpl> iterator = bucket.iterator();
+            while (iterator.hasNext()) {
+                TimeoutImpl timeout = iterator.next();
+                if (timeout.isCancelled()) {
+                    iterator.remove();
+                } else if (timeout.remainingRounds <= 0 && timeout.deadline <= tickDeadline) {
+                    iterator.remove();
+                    timeout.expire();
+                } else {
+                    timeout.remainingRounds--;
+                }
+            }
+        }
+    }
+}
@@ -21,7 +21,9 @@ package com.guardtime.ksi.util;
 
 import com.guardtime.ksi.exceptions.KSIException;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -41,6 +43,7 @@ import java.security.InvalidKeyException;
 import java.security.KeyStore;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Random;
 import java.util.zip.CRC32;
@@ -58,6 +61,11 @@ public final class Util {
      */
     public static final int DEFAULT_BUFFER_SIZE = 8192;
 
+    /**
+     * The largest buffer allocated for data of known length before any of the data has been read.
+     */
+    private static final int MAX_INITIAL_BUFFER_SIZE = 64 * 1024;
+
     /**
      * Random source.
      */
@@ -213,6 +221,88 @@ public final class Util {
         return out.toByteArray();
     }
 
+    /**
+     * Reads all the data from {@code in} to a byte buffer. If the length of the data is known, the returned buffer holds
+     * exactly that many bytes. As the length usually comes from the peer, at most 64 KiB is allocated before reading and
+     * the buffer is grown, up to the given length, only as the data arrives. Otherwise the data is read to a growing buffer that is
+     * returned without copying it again, so the capacity of the returned buffer can be larger than the data. The
+     * returned buffer wraps an array, its position is zero and its remaining bytes are the data.
+     *
+     * @param in
+     *         input stream to read the data from, null is considered to be an empty stream.
+     * @param length
+     *         number of bytes in the stream, or a negative value if it is not known.
+     *
+     * @return Byte buffer of the data read from the input stream.
+     *
+     * @throws IOException
+     *         when reading from the stream fails or the stream ends before the given number of bytes is read.
+     */
+    public static ByteBuffer toByteBuffer(InputStream in, long length) throws IOException {
+        if (in == null) {
+            return ByteBuffer.allocate(0);
+        }
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Data of " + length + " bytes does not fit into a byte buffer");
+        }
+        if (length >= 0) {
+            int expected = (int) length;
+            byte[] data = new byte[Math.min(expected, MAX_INITIAL_BUFFER_SIZE)];
+            int offset = 0;
+            while (offset < expected) {
+                if (offset == data.length) {
+                    data = Arrays.copyOf(data, (int) Math.min(2L * data.length, expected));
+                }
+                int count = in.read(data, offset, data.length - offset);
+                if (count < 0) {
+                    throw new EOFException("Stream ended after " + offset + " bytes, expected " + length + " bytes");
+                }
+                offset += count;
+            }
+            return ByteBuffer.wrap(data);
+        }
+        GrowingByteArrayOutputStream out = new GrowingByteArrayOutputStream();
+        copyData(in, out);
+        return out.toByteBuffer();
+    }
+
+    /**
+     * Returns the remaining bytes of the buffer as an array. The position of the buffer is not changed. If the buffer
+     * wraps an array that holds exactly the remaining bytes, that array is returned without copying.
+     *
+     * @param buffer
+     *         buffer to read the bytes from.
+     *
+     * @return An array of the remaining bytes of the buffer.
+     */
+    public static byte[] toByteArray(ByteBuffer buffer) {
+        notNull(buffer, "Byte buffer");
+        if (buffer.hasArray() && buffer.arrayOffset() == 0 && buffer.position() == 0
+                && buffer.remaining() == buffer.array().length) {
+            return buffer.array();
+        }
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Returns an input stream of the remaining bytes of the buffer. The position of the buffer is not changed and the
+     * bytes of a buffer that wraps an array are not copied.
+     *
+     * @param buffer
+     *         buffer to read the bytes from.
+     *
+     * @return Input stream of the remaining bytes of the buffer.
+     */
+    public static InputStream toInputStream(ByteBuffer buffer) {
+        notNull(buffer, "Byte buffer");
+        if (buffer.hasArray()) {
+            return new ByteArrayInputStream(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        }
+        return new ByteArrayInputStream(toByteArray(buffer));
+    }
+
     /**
      * Creates a copy of the given byte array.
      *
@@ -800,4 +890,15 @@ public final class Util {
      * Should not be instantiated.
      */
     private Util() {}
+
+    /**
+     * Byte array output stream that gives access to its buffer without copying it.
+     */
+    private static final class GrowingByteArrayOutputStream extends ByteArrayOutputStream {
+
+        ByteBuffer toByteBuffer() {
+            return ByteBuffer.wrap(buf, 0, count);
+        }
+    }
+
 }
@@ -111,6 +111,43 @@ public class DataHasherTest {
         Assert.assertEquals(Base16.encode(dataHash.getValue()), "E3B0C44298FC1C149AFBF4C8996FB92427AE41E4649B934CA495991B7852B855");
     }
 
+    @Test
+    public void testThreadLocalHasherIsReusedAndReset() {
+        DataHasher hasher = DataHasher.getThreadLocalHasher(HashAlgorithm.SHA2_256);
+        hasher.addData(new byte[]{1, 2, 3}).getHash();
+
+        DataHasher reused = DataHasher.getThreadLocalHasher(HashAlgorithm.SHA2_256);
+        Assert.assertSame(reused, hasher);
+        Assert.assertEquals(reused.addData(testData).getHash(), new DataHasher(HashAlgorithm.SHA2_256).addData(testData).getHash());
+    }
+
+    @Test
+    public void testThreadLocalHasherPerAlgorithm() {
+        DataHasher sha256 = DataHasher.getThreadLocalHasher(HashAlgorithm.SHA2_256);
+        DataHasher sha512 = DataHasher.getThreadLocalHasher(HashAlgorithm.SHA2_512);
+        Assert.assertNotSame(sha256, sha512);
+        Assert.assertEquals(sha512.addData(testData).getHash().getAlgorithm(), HashAlgorithm.SHA2_512);
+    }
+
+    @Test
+    public void testThreadLocalHasherIsNotSharedBetweenThreads() throws Exception {
+        final DataHasher[] otherThreadHasher = new DataHasher[1];
+        Thread thread = new Thread(new Runnable() {
+            public void run() {
+                otherThreadHasher[0] = DataHasher.getThreadLocalHasher(HashAlgorithm.SHA2_256);
+            }
+        });
+        thread.start();
+        thread.join();
+        Assert.assertNotNull(otherThreadHasher[0]);
+        Assert.assertNotSame(otherThreadHasher[0], DataHasher.getThreadLocalHasher(HashAlgorithm.SHA2_256));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = "Hash algorithm .* is not implemented")
+    public void testThreadLocalHasherWithNotImplementedAlgorithm_throwsIllegalArgumentException() {
+        DataHasher.getThreadLocalHasher(HashAlgorithm.SM3);
+    }
+
     @Test
     public void testHashGenerationWithData() {
         DataHasher hasher = new DataHasher(HashAlgorithm.SHA2_256);
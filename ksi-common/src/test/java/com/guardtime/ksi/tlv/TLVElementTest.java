@@ -30,6 +30,9 @@ import org.testng.reporters.Files;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 
@@ -470,6 +473,123 @@ public class TLVElementTest {
         element.addFirstChildElement(null);
     }
 
+    @Test
+    public void testEncodeNestedTlvElement_Ok() throws Exception {
+        byte[] bytes = CommonTestUtil.loadBytes("aggregation-203-error.tlv");
+        TLVElement element = TLVElement.create(bytes);
+        Assert.assertEquals(element.getEncoded(), bytes);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        element.writeTo(out);
+        Assert.assertEquals(out.toByteArray(), bytes);
+    }
+
+    @Test
+    public void testEncodeElementWithTlv16Child_Ok() throws Exception {
+        TLVElement root = new TLVElement(false, false, 0x1);
+        TLVElement child = TLVElement.create(0x2, new byte[256]);
+        root.addChildElement(TLVElement.create(0x3, 5L));
+        root.addChildElement(child);
+        root.addChildElement(TLVElement.create(0x0404, "a"));
+
+        byte[] encoded = root.getEncoded();
+        Assert.assertEquals(encoded.length, 4 + 3 + 4 + 256 + 4 + 2);
+        Assert.assertEquals(Arrays.copyOf(encoded, 11), new byte[]{(byte) 0x80, 0x01, 0x01, 0x0D, 0x03, 0x01, 0x05, (byte) 0x80, 0x02, 0x01, 0x00});
+        Assert.assertEquals(root.getContentLength(), encoded.length - 4);
+        Assert.assertEquals(root.getContent(), Arrays.copyOfRange(encoded, 4, encoded.length));
+        Assert.assertEquals(TLVElement.create(encoded).getEncoded(), encoded);
+    }
+
+    @Test
+    public void testEncodeAfterChildIsModified_Ok() throws Exception {
+        TLVElement root = new TLVElement(false, false, 0x1);
+        TLVElement child = TLVElement.create(0x2, new byte[]{1});
+        root.addChildElement(child);
+        Assert.assertEquals(root.getEncoded(), new byte[]{0x01, 0x03, 0x02, 0x01, 0x01});
+
+        child.setContent(new byte[]{1, 2});
+        Assert.assertEquals(root.getEncoded(), new byte[]{0x01, 0x04, 0x02, 0x02, 0x01, 0x02});
+    }
+
+    @Test
+    public void testEncodeElementToByteBuffer_Ok() throws Exception {
+        byte[] bytes = CommonTestUtil.loadBytes("aggregation-203-error.tlv");
+        TLVElement element = TLVElement.create(bytes);
+        ByteBuffer buffer = ByteBuffer.allocate(bytes.length + 2);
+        buffer.put((byte) 0x7F);
+        element.encodeTo(buffer);
+        Assert.assertEquals(buffer.position(), bytes.length + 1);
+        Assert.assertEquals(Arrays.copyOfRange(buffer.array(), 1, bytes.length + 1), bytes);
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        element.encodeTo(direct);
+        Assert.assertFalse(direct.hasRemaining());
+    }
+
+    @Test(expectedExceptions = TLVParserException.class, expectedExceptionsMessageRegExp = "Writing TLV element \\(TLV\\[0x2\\]\\) failed, buffer has 2 bytes remaining but 4 bytes are needed")
+    public void testEncodeElementToTooSmallByteBuffer_ThrowsTLVParserException() throws Exception {
+        TLVElement.create(0x2, new byte[]{1, 2}).encodeTo(ByteBuffer.allocate(2));
+    }
+
+    @Test
+    public void testWrapByteBuffer_Ok() throws Exception {
+        byte[] bytes = CommonTestUtil.loadBytes("aggregation-203-error.tlv");
+        TLVElement expected = TLVElement.create(bytes);
+
+        ByteBuffer heap = ByteBuffer.wrap(bytes);
+        TLVElement element = TLVElement.wrap(heap);
+        Assert.assertEquals(heap.position(), 0);
+        Assert.assertEquals(element.getType(), expected.getType());
+        Assert.assertEquals(element.getContentLength(), expected.getContentLength());
+        Assert.assertEquals(element.getFirstChildElement(0x203).getContent(), expected.getFirstChildElement(0x203).getContent());
+        Assert.assertEquals(element, expected);
+        Assert.assertEquals(element.getEncoded(), bytes);
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        ((Buffer) direct.put(bytes)).flip();
+        TLVElement fromDirect = TLVElement.wrap(direct);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        fromDirect.writeTo(out);
+        Assert.assertEquals(out.toByteArray(), bytes);
+        Assert.assertEquals(fromDirect, expected);
+        Assert.assertEquals(fromDirect.toString(), expected.toString());
+    }
+
+    @Test
+    public void testWrapByteBufferPosition_Ok() throws Exception {
+        ByteBuffer buffer = ByteBuffer.wrap(new byte[]{0x7F, 0x01, 0x04, 0x02, 0x02, 0x01, 0x02, 0x7F});
+        ((Buffer) buffer).position(1).limit(7);
+        TLVElement element = TLVElement.wrap(buffer);
+        Assert.assertEquals(element.getType(), 0x01);
+        Assert.assertEquals(element.getChildElements().size(), 1);
+        Assert.assertEquals(element.getFirstChildElement(0x02).getContent(), new byte[]{0x01, 0x02});
+    }
+
+    @Test
+    public void testWrapByteBufferWithNonNestedContent_Ok() throws Exception {
+        TLVElement element = TLVElement.wrap(ByteBuffer.wrap(new byte[]{(byte) 0x80, 0x01, 0x00, 0x03, 'O', 'K', 0x0}));
+        Assert.assertTrue(element.isInputTlv16());
+        Assert.assertFalse(element.isOutputTlv16());
+        Assert.assertTrue(element.getChildElements().isEmpty());
+        Assert.assertEquals(element.getContentLength(), 3);
+        Assert.assertEquals(element.getDecodedString(), "OK");
+        Assert.assertEquals(element.getEncoded(), new byte[]{0x01, 0x03, 'O', 'K', 0x0});
+    }
+
+    @Test(expectedExceptions = MultipleTLVElementException.class, expectedExceptionsMessageRegExp = "Message outermost layer consists of more than one TLV elements.")
+    public void testWrapByteBufferWithMultipleElements_ThrowsMultipleTlvElementException() throws Exception {
+        TLVElement.wrap(ByteBuffer.wrap(new byte[]{0, 0, 0}));
+    }
+
+    @Test(expectedExceptions = TLVParserException.class, expectedExceptionsMessageRegExp = "Reading TLV bytes failed, TLV element \\(type=0x1\\) contains 4 bytes of content, but only 2 bytes are available")
+    public void testWrapTruncatedByteBuffer_ThrowsTLVParserException() throws Exception {
+        TLVElement.wrap(ByteBuffer.wrap(new byte[]{0x01, 0x04, 0x01, 0x02}));
+    }
+
+    @Test(expectedExceptions = NullPointerException.class, expectedExceptionsMessageRegExp = "Byte buffer can not be null")
+    public void testWrapNullByteBuffer_throwsNullPointerException() throws Exception {
+        TLVElement.wrap(null);
+    }
+
     private TLVElement load(InputStream input) throws Exception {
         return loadTlv(input);
     }
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2013-2018 Guardtime, Inc.
+ *
+ *  This file is part of the Guardtime client SDK.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License").
+ *  You may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES, CONDITIONS, OR OTHER LICENSES OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ *  "Guardtime" and "KSI" are trademarks or registered trademarks of
+ *  Guardtime, Inc., and no license to trademarks is granted; Guardtime
+ *  reserves and retains all trademark rights.
+ *
+ */
+
+package com.guardtime.ksi.util;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class BoundedCacheTest {
+
+    @Test
+    public void testGetReturnsCachedValue() {
+        BoundedCache<String, String> cache = new BoundedCache<>(10);
+        Assert.assertNull(cache.get("key"));
+        cache.put("key", "value");
+        Assert.assertEquals(cache.get("key"), "value");
+        Assert.assertEquals(cache.getHits(), 1);
+        Assert.assertEquals(cache.getMisses(), 1);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEntriesAreEvicted() throws Exception {
+        BoundedCache<Integer, Integer> cache = new BoundedCache<>(10);
+        for (int i = 0; i < 10; i++) {
+            cache.put(i, i);
+        }
+        Thread.sleep(1);
+        cache.get(0);
+        cache.put(10, 10);
+
+        Assert.assertEquals(cache.size(), 9);
+        Assert.assertEquals(cache.get(0), Integer.valueOf(0));
+        Assert.assertEquals(cache.get(10), Integer.valueOf(10));
+        Assert.assertNull(cache.get(1));
+    }
+
+    @Test
+    public void testExpiredEntriesAreNotReturned() throws Exception {
+        BoundedCache<String, String> cache = new BoundedCache<>(10, 20, TimeUnit.MILLISECONDS);
+        cache.put("key", "value");
+        Assert.assertEquals(cache.get("key"), "value");
+        Thread.sleep(30);
+
+        Assert.assertNull(cache.get("key"));
+        Assert.assertEquals(cache.size(), 0);
+    }
+
+    @Test
+    public void testExpiredEntriesAreEvictedFirst() throws Exception {
+        BoundedCache<Integer, Integer> cache = new BoundedCache<>(10, 50, TimeUnit.MILLISECONDS);
+        for (int i = 0; i < 5; i++) {
+            cache.put(i, i);
+        }
+        Thread.sleep(60);
+        for (int i = 5; i < 11; i++) {
+            cache.put(i, i);
+        }
+
+        Assert.assertEquals(cache.size(), 6);
+        for (int i = 5; i < 11; i++) {
+            Assert.assertEquals(cache.get(i), Integer.valueOf(i));
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = "Cache time to live can not be negative")
+    public void testCreateCacheWithNegativeTimeToLive() {
+        new BoundedCache<String, String>(1, -1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testClear() {
+        BoundedCache<String, String> cache = new BoundedCache<>(10);
+        cache.put("key", "value");
+        cache.clear();
+        Assert.assertEquals(cache.size(), 0);
+        Assert.assertNull(cache.get("key"));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = "Cache size must be positive")
+    public void testCreateCacheWithInvalidSize() {
+        new BoundedCache<String, String>(0);
+    }
+
+    @Test(expectedExceptions = NullPointerException.class, expectedExceptionsMessageRegExp = "Value can not be null")
+    public void testPutNullValue() {
+        new BoundedCache<String, String>(1).put("key", null);
+    }
+}
@@ -24,15 +24,19 @@ import org.testng.annotations.Test;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Modifier;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedList;
+import java.util.Random;
 
 public class UtilTest {
 
@@ -44,6 +48,64 @@ public class UtilTest {
         constructor.newInstance();
     }
 
+    @Test
+    public void testByteBufferToByteArrayDoesNotMoveBuffer() {
+        byte[] bytes = new byte[] {1, 2, 3, 4};
+        Assert.assertSame(Util.toByteArray(ByteBuffer.wrap(bytes)), bytes);
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, 1, 2);
+        Assert.assertEquals(Util.toByteArray(buffer), new byte[] {2, 3});
+        Assert.assertEquals(buffer.position(), 1);
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(2).put(new byte[] {5, 6});
+        ((Buffer) direct).flip();
+        Assert.assertEquals(Util.toByteArray(direct), new byte[] {5, 6});
+        Assert.assertEquals(direct.position(), 0);
+    }
+
+    @Test
+    public void testByteBufferToInputStream() throws Exception {
+        ByteBuffer buffer = ByteBuffer.wrap(new byte[] {1, 2, 3, 4}, 1, 2);
+        Assert.assertEquals(Util.toByteArray(Util.toInputStream(buffer)), new byte[] {2, 3});
+        Assert.assertEquals(buffer.remaining(), 2);
+    }
+
+    @Test
+    public void testInputStreamOfKnownLengthToByteBuffer() throws Exception {
+        ByteBuffer buffer = Util.toByteBuffer(new ByteArrayInputStream(new byte[] {1, 2, 3}), 3);
+        Assert.assertEquals(buffer.position(), 0);
+        Assert.assertEquals(buffer.capacity(), 3);
+        Assert.assertEquals(buffer.array(), new byte[] {1, 2, 3});
+    }
+
+    @Test
+    public void testInputStreamOfUnknownLengthToByteBuffer() throws Exception {
+        ByteBuffer buffer = Util.toByteBuffer(new ByteArrayInputStream(new byte[] {1, 2, 3}), -1);
+        Assert.assertEquals(buffer.position(), 0);
+        Assert.assertEquals(Util.toByteArray(buffer), new byte[] {1, 2, 3});
+
+        Assert.assertEquals(Util.toByteBuffer(null, -1).remaining(), 0);
+    }
+
+    @Test(expectedExceptions = EOFException.class)
+    public void testInputStreamShorterThanGivenLengthToByteBuffer() throws Exception {
+        Util.toByteBuffer(new ByteArrayInputStream(new byte[] {1, 2, 3}), 4);
+    }
+
+    @Test
+    public void testLargeInputStreamOfKnownLengthToByteBuffer() throws Exception {
+        byte[] data = new byte[200 * 1024 + 1];
+        new Random(1).nextBytes(data);
+        ByteBuffer buffer = Util.toByteBuffer(new ByteArrayInputStream(data), data.length);
+        Assert.assertEquals(buffer.capacity(), data.length);
+        Assert.assertEquals(buffer.array(), data);
+    }
+
+    @Test(expectedExceptions = EOFException.class)
+    public void testInputStreamMuchShorterThanGivenLengthToByteBuffer() throws Exception {
+        Util.toByteBuffer(new ByteArrayInputStream(new byte[] {1, 2, 3}), Integer.MAX_VALUE);
+    }
+
     @Test
     public void testLCM() {
         Assert.assertEquals(42, Util.lcm(21, 6));
@@ -44,6 +44,7 @@ import org.apache.http.impl.nio.reactor.IOReactorConfig;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
 import java.util.concurrent.Future;
 
 /**
@@ -80,25 +81,43 @@ abstract class AbstractApacheHttpClient{
     }
 
     ApacheHttpPostRequestFuture post(InputStream request) throws KSIClientException {
+        try {
+            return post(new ByteArrayEntity(Util.toByteArray(request)));
+        } catch (IOException e) {
+            throw new KSIClientException("Reading data from stream failed", e);
+        }
+    }
+
+    /**
+     * Posts the remaining bytes of the buffer. The bytes of a buffer that wraps an array are not copied.
+     */
+    ApacheHttpPostRequestFuture post(ByteBuffer request) throws KSIClientException {
+        Util.notNull(request, "Request");
+        if (request.hasArray()) {
+            return post(new ByteArrayEntity(request.array(), request.arrayOffset() + request.position(), request.remaining()));
+        }
+        return post(new ByteArrayEntity(Util.toByteArray(request)));
+    }
+
+    private ApacheHttpPostRequestFuture post(ByteArrayEntity entity) throws KSIClientException {
         try {
             HttpPost httpRequest = new HttpPost(settings.getUrl().toURI());
             httpRequest.setHeader(AbstractHttpClient.HEADER_NAME_CONTENT_TYPE, AbstractHttpClient.HEADER_APPLICATION_KSI_REQUEST);
-            ByteArrayEntity entity = new ByteArrayEntity(Util.toByteArray(request));
             entity.setChunked(false);
             httpRequest.setEntity(entity);
-            Future<HttpResponse> future = apacheClient.execute(httpRequest, null);
-            return new ApacheHttpPostRequestFuture(future);
+            CompletingFutureCallback<HttpResponse> callback = new CompletingFutureCallback<>();
+            Future<HttpResponse> future = apacheClient.execute(httpRequest, callback);
+            return new ApacheHttpPostRequestFuture(future, callback.getCompletion());
         } catch (URISyntaxException e) {
             throw new KSIClientException("Invalid URI " + settings.getUrl(), e);
-        } catch (IOException e) {
-            throw new KSIClientException("Reading data from stream failed", e);
         }
     }
 
     ApacheHttpGetRequestFuture get() throws KSIClientException {
         try {
             HttpGet httpRequest = new HttpGet(settings.getUrl().toURI());
-            return new ApacheHttpGetRequestFuture(apacheClient.execute(httpRequest, null));
+            CompletingFutureCallback<HttpResponse> callback = new CompletingFutureCallback<>();
+            return new ApacheHttpGetRequestFuture(apacheClient.execute(httpRequest, callback), callback.getCompletion());
         } catch (URISyntaxException e) {
             throw new KSIClientException("Invalid URI " + settings.getUrl(), e);
         }
@@ -31,6 +31,7 @@ import com.guardtime.ksi.service.client.http.HttpClientSettings;
 import com.guardtime.ksi.service.client.http.HttpSettings;
 
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 /**
  * KSI HTTP client that uses Apache HTTP client library.
@@ -75,10 +76,18 @@ public class ApacheHttpClient extends AbstractHttpClient implements KSISigningCl
         return signingClient.sign(request);
     }
 
+    public ApacheHttpPostRequestFuture sign(ByteBuffer request, Long requestId) throws KSIClientException {
+        return signingClient.sign(request, requestId);
+    }
+
     public ApacheHttpPostRequestFuture extend(InputStream request) throws KSIClientException {
         return extenderClient.extend(request);
     }
 
+    public ApacheHttpPostRequestFuture extend(ByteBuffer request, Long requestId) throws KSIClientException {
+        return extenderClient.extend(request, requestId);
+    }
+
     public ApacheHttpGetRequestFuture getPublicationsFile() throws KSIClientException {
         return publicationsFileClient.getPublicationsFile();
     }
@@ -26,6 +26,7 @@ import com.guardtime.ksi.service.client.ServiceCredentials;
 import com.guardtime.ksi.service.client.http.CredentialsAwareHttpSettings;
 
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 /**
  * KSI HTTP client that uses Apache HTTP client library.
@@ -61,6 +62,15 @@ public class ApacheHttpExtenderClient extends AbstractApacheHttpClient implement
         return post(request);
     }
 
+    /**
+     * The request ID is not needed for HTTP, the bytes of the request are posted without copying.
+     *
+     * @see com.guardtime.ksi.service.client.KSIExtenderClient#extend(ByteBuffer, Long)
+     */
+    public ApacheHttpPostRequestFuture extend(ByteBuffer request, Long requestId) throws KSIClientException {
+        return post(request);
+    }
+
     public ServiceCredentials getServiceCredentials() {
         return settings.getCredentials();
     }
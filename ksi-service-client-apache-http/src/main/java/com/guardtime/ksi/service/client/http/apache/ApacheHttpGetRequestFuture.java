@@ -20,14 +20,17 @@
 package com.guardtime.ksi.service.client.http.apache;
 
 import com.guardtime.ksi.service.KSIProtocolException;
+import com.guardtime.ksi.service.FutureUtil;
 import com.guardtime.ksi.service.client.KSIClientException;
 import com.guardtime.ksi.service.client.http.HttpGetRequestFuture;
 import com.guardtime.ksi.util.Util;
+import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 
@@ -37,15 +40,34 @@ import java.util.concurrent.Future;
 public class ApacheHttpGetRequestFuture extends HttpGetRequestFuture {
 
     private Future<HttpResponse> future;
+    private CompletionStage<HttpResponse> completion;
 
     public ApacheHttpGetRequestFuture(Future<HttpResponse> future) {
         this.future = future;
     }
 
+    /**
+     * @param future future of the HTTP request.
+     * @param completion stage that is completed by the Apache HTTP client when the request finishes, used by
+     *                   {@link #toCompletionStage()} to avoid waiting for the response in a separate thread.
+     */
+    public ApacheHttpGetRequestFuture(Future<HttpResponse> future, CompletionStage<HttpResponse> completion) {
+        this.future = future;
+        this.completion = completion;
+    }
+
     public boolean isFinished() {
         return future.isDone();
     }
 
+    @Override
+    public CompletionStage<ByteBuffer> toCompletionStage() {
+        if (completion == null) {
+            return super.toCompletionStage();
+        }
+        return FutureUtil.afterCompletion(completion, this);
+    }
+
     public ByteBuffer getResult() throws KSIClientException, KSIProtocolException {
         InputStream inputStream = null;
         try {
@@ -53,8 +75,9 @@ public class ApacheHttpGetRequestFuture extends HttpGetRequestFuture {
             int statusCode = response.getStatusLine().getStatusCode();
             String responseMessage = response.getStatusLine().getReasonPhrase();
             validateHttpResponse(statusCode, responseMessage);
-            inputStream = response.getEntity().getContent();
-            return ByteBuffer.wrap(Util.toByteArray(inputStream));
+            HttpEntity entity = response.getEntity();
+            inputStream = entity.getContent();
+            return Util.toByteBuffer(inputStream, entity.getContentLength());
         } catch (InterruptedException | IOException | ExecutionException e) {
             throw new KSIClientException("Getting KSI response failed", e);
         } finally {
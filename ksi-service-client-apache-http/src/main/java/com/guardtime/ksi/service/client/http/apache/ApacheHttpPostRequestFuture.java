@@ -20,14 +20,17 @@
 package com.guardtime.ksi.service.client.http.apache;
 
 import com.guardtime.ksi.exceptions.KSIException;
+import com.guardtime.ksi.service.FutureUtil;
 import com.guardtime.ksi.service.client.KSIClientException;
 import com.guardtime.ksi.service.client.http.HttpPostRequestFuture;
 import com.guardtime.ksi.tlv.TLVElement;
 import com.guardtime.ksi.util.Util;
+import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 
@@ -37,23 +40,43 @@ import java.util.concurrent.Future;
 public class ApacheHttpPostRequestFuture extends HttpPostRequestFuture {
 
     private Future<HttpResponse> future;
+    private CompletionStage<HttpResponse> completion;
 
     public ApacheHttpPostRequestFuture(Future<HttpResponse> future) {
         this.future = future;
     }
 
+    /**
+     * @param future future of the HTTP request.
+     * @param completion stage that is completed by the Apache HTTP client when the request finishes, used by
+     *                   {@link #toCompletionStage()} to avoid waiting for the response in a separate thread.
+     */
+    public ApacheHttpPostRequestFuture(Future<HttpResponse> future, CompletionStage<HttpResponse> completion) {
+        this.future = future;
+        this.completion = completion;
+    }
+
     public boolean isFinished() {
         return future.isDone();
     }
 
+    @Override
+    public CompletionStage<TLVElement> toCompletionStage() {
+        if (completion == null) {
+            return super.toCompletionStage();
+        }
+        return FutureUtil.afterCompletion(completion, this);
+    }
+
     public TLVElement getResult() throws KSIException {
         InputStream input = null;
         try {
             HttpResponse response = future.get();
             int statusCode = response.getStatusLine().getStatusCode();
             String responseMessage = response.getStatusLine().getReasonPhrase();
-            input = response.getEntity().getContent();
-            return parse(statusCode, responseMessage, input);
+            HttpEntity entity = response.getEntity();
+            input = entity.getContent();
+            return parse(statusCode, responseMessage, input, entity.getContentLength());
         } catch (InterruptedException | IOException | ExecutionException e) {
             throw new KSIClientException("Getting KSI response failed", e);
         } finally {
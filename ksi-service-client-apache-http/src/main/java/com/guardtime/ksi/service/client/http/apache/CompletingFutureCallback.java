@@ -0,0 +1,51 @@
+/*
+ * Copyright 2013-2018 Guardtime, Inc.
+ *
+ *  This file is part of the Guardtime client SDK.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License").
+ *  You may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES, CONDITIONS, OR OTHER LICENSES OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ *  "Guardtime" and "KSI" are trademarks or registered trademarks of
+ *  Guardtime, Inc., and no license to trademarks is granted; Guardtime
+ *  reserves and retains all trademark rights.
+ *
+ */
+
+package com.guardtime.ksi.service.client.http.apache;
+
+import org.apache.http.concurrent.FutureCallback;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Apache HTTP client callback that completes a {@link CompletableFuture} with the outcome of the request. Used to
+ * notify the dependents of a request future without waiting for the response in a separate thread.
+ */
+class CompletingFutureCallback<T> implements FutureCallback<T> {
+
+    private final CompletableFuture<T> completion = new CompletableFuture<>();
+
+    public void completed(T result) {
+        completion.complete(result);
+    }
+
+    public void failed(Exception e) {
+        completion.completeExceptionally(e);
+    }
+
+    public void cancelled() {
+        completion.completeExceptionally(new CancellationException("HTTP request was cancelled"));
+    }
+
+    CompletableFuture<T> getCompletion() {
+        return completion;
+    }
+}
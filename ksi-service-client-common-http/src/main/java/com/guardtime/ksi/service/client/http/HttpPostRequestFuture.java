@@ -25,7 +25,9 @@ import com.guardtime.ksi.util.Util;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 /**
  * Common HTTP request future class for all HTTP POST based requests.
@@ -49,8 +51,56 @@ public abstract class HttpPostRequestFuture implements Future<TLVElement> {
      *         will be thrown when KSI HTTP response is not valid.
      */
     protected TLVElement parse(int statusCode, String responseMessage, InputStream response) throws HttpProtocolException {
+        return parse(statusCode, responseMessage, response, -1);
+    }
+
+    /**
+     * Validates HTTP response message. The response is read to a buffer of the content length and the TLV element is
+     * parsed lazily over that buffer, so the bytes of the response are not copied again.
+     *
+     * @param statusCode
+     *         HTTP status code.
+     * @param responseMessage
+     *         HTTP header response message.
+     * @param response
+     *         response input stream.
+     * @param contentLength
+     *         length of the response, or a negative value if it is not known.
+     *
+     * @return {@link TLVElement}
+     * @throws HttpProtocolException
+     *         will be thrown when KSI HTTP response is not valid.
+     */
+    protected TLVElement parse(int statusCode, String responseMessage, InputStream response, long contentLength)
+            throws HttpProtocolException {
+        try {
+            return parse(statusCode, responseMessage, Util.toByteBuffer(response, contentLength));
+        } catch (IOException e) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Reading response failed.", e);
+            }
+            throw new HttpProtocolException(statusCode, responseMessage, e);
+        }
+    }
+
+    /**
+     * Validates HTTP response message that has already been read to a buffer. The TLV element refers to the bytes of
+     * the buffer.
+     *
+     * @param statusCode
+     *         HTTP status code.
+     * @param responseMessage
+     *         HTTP header response message.
+     * @param response
+     *         response bytes.
+     *
+     * @return {@link TLVElement}
+     * @throws HttpProtocolException
+     *         will be thrown when KSI HTTP response is not valid.
+     */
+    protected TLVElement parse(int statusCode, String responseMessage, ByteBuffer response) throws HttpProtocolException {
         try {
-            return TLVElement.create(Util.toByteArray(response));
+            return TLVElement.wrap(response);
         } catch (Exception e) {
             if (logger.isDebugEnabled()) {
                 logger.debug("Invalid TLV response.", e);
@@ -33,6 +33,9 @@ import java.net.InetSocketAddress;
 import java.net.ProtocolException;
 import java.net.Proxy;
 import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
 
 import static com.guardtime.ksi.service.client.http.AbstractHttpClient.HEADER_APPLICATION_KSI_REQUEST;
 import static com.guardtime.ksi.service.client.http.AbstractHttpClient.HEADER_NAME_CONTENT_TYPE;
@@ -46,13 +49,30 @@ abstract class AbstractSimpleHttpClient{
     private static final String REQUEST_METHOD_POST = "POST";
 
     private final HttpSettings settings;
+    private final Executor executor;
 
     AbstractSimpleHttpClient(HttpSettings settings) {
+        this(settings, null);
+    }
+
+    /**
+     * @param executor executor that does the HTTP exchanges of the POST requests, or null to do them in the calling
+     *                 thread.
+     */
+    AbstractSimpleHttpClient(HttpSettings settings, Executor executor) {
         Util.notNull(settings, "HTTP client settings");
         this.settings = settings;
+        this.executor = executor;
     }
 
     SimpleHttpPostRequestFuture post(InputStream request) throws KSIClientException {
+        if (executor != null) {
+            try {
+                return post(ByteBuffer.wrap(Util.toByteArray(request)));
+            } catch (IOException e) {
+                throw new KSIClientException("HTTP request failed", e);
+            }
+        }
         OutputStream outputStream = null;
         try {
             HttpURLConnection connection = getConnection();
@@ -70,6 +90,48 @@ abstract class AbstractSimpleHttpClient{
         }
     }
 
+    /**
+     * Posts the remaining bytes of the buffer. The length of the request is known, so the connection streams it
+     * without buffering it again. If the client has an executor, the request is sent and the response is read by a
+     * thread of the executor and this method returns right away.
+     */
+    SimpleHttpPostRequestFuture post(ByteBuffer request) throws KSIClientException {
+        Util.notNull(request, "Request");
+        final ByteBuffer body = request.duplicate();
+        if (executor != null) {
+            return new SimpleHttpPostRequestFuture(new Callable<HttpURLConnection>() {
+                public HttpURLConnection call() throws IOException {
+                    return send(body);
+                }
+            }, executor);
+        }
+        try {
+            return new SimpleHttpPostRequestFuture(send(body));
+        } catch (IOException e) {
+            throw new KSIClientException("HTTP request failed", e);
+        }
+    }
+
+    private HttpURLConnection send(ByteBuffer request) throws IOException {
+        OutputStream outputStream = null;
+        try {
+            HttpURLConnection connection = getConnection();
+            connection.setRequestProperty(HEADER_NAME_CONTENT_TYPE, HEADER_APPLICATION_KSI_REQUEST);
+            connection.setRequestMethod(REQUEST_METHOD_POST);
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(request.remaining());
+            outputStream = connection.getOutputStream();
+            if (request.hasArray()) {
+                outputStream.write(request.array(), request.arrayOffset() + request.position(), request.remaining());
+            } else {
+                outputStream.write(Util.toByteArray(request));
+            }
+            return connection;
+        } finally {
+            Util.closeQuietly(outputStream);
+        }
+    }
+
     HttpURLConnection getConnection() throws IOException {
         URLConnection connection;
         HTTPConnectionParameters params = settings.getParameters();
@@ -27,6 +27,8 @@ import com.guardtime.ksi.service.client.http.HTTPConnectionParameters;
 import com.guardtime.ksi.service.client.http.HttpSettings;
 
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Simple HTTP client.
@@ -38,6 +40,20 @@ public class SimpleHttpClient extends AbstractHttpClient {
     private SimpleHttpPublicationsFileClient publicationsFileClient;
 
     public SimpleHttpClient(AbstractHttpClientSettings settings) {
+        this(settings, null);
+    }
+
+    /**
+     * Creates a client that sends the signing and extension requests in the threads of the given executor, see
+     * {@link SimpleHttpSigningClient#SimpleHttpSigningClient(CredentialsAwareHttpSettings, ExecutorService)}. The
+     * publications file is still downloaded in the calling thread. The executor is not shut down when the client is
+     * closed.
+     *
+     * @param settings settings of the client.
+     * @param executorService executor that sends the requests and reads the responses, or null to send them in the
+     *                        calling thread.
+     */
+    public SimpleHttpClient(AbstractHttpClientSettings settings, ExecutorService executorService) {
         super(settings);
         HTTPConnectionParameters params =
                 new HTTPConnectionParameters(settings.getConnectionTimeout(), settings.getReadTimeout());
@@ -48,12 +64,14 @@ public class SimpleHttpClient extends AbstractHttpClient {
         CredentialsAwareHttpSettings signingSettings = new CredentialsAwareHttpSettings(
                 settings.getSigningUrl().toString(), settings.getCredentials(), params);
         signingSettings.setPduVersion(settings.getPduVersion());
-        signingClient = new SimpleHttpSigningClient(signingSettings);
+        signingClient = executorService == null ? new SimpleHttpSigningClient(signingSettings)
+                : new SimpleHttpSigningClient(signingSettings, executorService);
 
         CredentialsAwareHttpSettings extendingSettings = new CredentialsAwareHttpSettings(
                 settings.getExtendingUrl().toString(), settings.getCredentials(), params);
         extendingSettings.setPduVersion(settings.getPduVersion());
-        extenderClient = new SimpleHttpExtenderClient(extendingSettings);
+        extenderClient = executorService == null ? new SimpleHttpExtenderClient(extendingSettings)
+                : new SimpleHttpExtenderClient(extendingSettings, executorService);
 
         publicationsFileClient =
                 new SimpleHttpPublicationsFileClient(new HttpSettings(settings.getPublicationsFileUrl().toString()));
@@ -63,10 +81,18 @@ public class SimpleHttpClient extends AbstractHttpClient {
         return signingClient.sign(request);
     }
 
+    public SimpleHttpPostRequestFuture sign(ByteBuffer request, Long requestId) throws KSIClientException {
+        return signingClient.sign(request, requestId);
+    }
+
     public SimpleHttpPostRequestFuture extend(InputStream request) throws KSIClientException {
         return extenderClient.extend(request);
     }
 
+    public SimpleHttpPostRequestFuture extend(ByteBuffer request, Long requestId) throws KSIClientException {
+        return extenderClient.extend(request, requestId);
+    }
+
     public SimpleHttpGetRequestFuture getPublicationsFile() throws KSIClientException {
         return publicationsFileClient.getPublicationsFile();
     }
@@ -24,8 +24,11 @@ import com.guardtime.ksi.service.client.KSIClientException;
 import com.guardtime.ksi.service.client.KSIExtenderClient;
 import com.guardtime.ksi.service.client.ServiceCredentials;
 import com.guardtime.ksi.service.client.http.CredentialsAwareHttpSettings;
+import com.guardtime.ksi.util.Util;
 
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Simple HTTP client for extension operation.
@@ -39,6 +42,22 @@ public class SimpleHttpExtenderClient extends AbstractSimpleHttpClient implement
         this.settings = settings;
     }
 
+    /**
+     * Creates a client that does the HTTP exchanges of the extension requests in the threads of the given executor, so the
+     * requests are sent in parallel and the returned futures finish when the response has been read. The number of
+     * threads of the executor bounds the number of requests in progress. Connections are kept alive and reused by
+     * {@link java.net.HttpURLConnection}, the number of idle connections kept is set by the {@code http.maxConnections}
+     * system property. The executor is not shut down when the client is closed.
+     *
+     * @param settings settings of the client.
+     * @param executorService executor that sends the requests and reads the responses.
+     */
+    public SimpleHttpExtenderClient(CredentialsAwareHttpSettings settings, ExecutorService executorService) {
+        super(settings, executorService);
+        Util.notNull(executorService, "Executor service");
+        this.settings = settings;
+    }
+
     /**
      * @see com.guardtime.ksi.service.client.KSIExtenderClient
      */
@@ -46,6 +65,15 @@ public class SimpleHttpExtenderClient extends AbstractSimpleHttpClient implement
         return post(request);
     }
 
+    /**
+     * The request ID is not needed for HTTP, the bytes of the request are written to the connection directly.
+     *
+     * @see com.guardtime.ksi.service.client.KSIExtenderClient#extend(ByteBuffer, Long)
+     */
+    public SimpleHttpPostRequestFuture extend(ByteBuffer request, Long requestId) throws KSIClientException {
+        return post(request);
+    }
+
     public void close() {}
 
     public ServiceCredentials getServiceCredentials() {
@@ -36,7 +36,7 @@ public class SimpleHttpGetRequestFuture extends HttpGetRequestFuture {
 
     private int responseCode;
     private String responseMessage;
-    private byte[] response;
+    private ByteBuffer response;
 
     public SimpleHttpGetRequestFuture(HttpURLConnection connection) throws IOException {
         this.responseCode = connection.getResponseCode();
@@ -45,7 +45,7 @@ public class SimpleHttpGetRequestFuture extends HttpGetRequestFuture {
             InputStream inputStream = null;
             try {
                 inputStream = connection.getInputStream();
-                this.response = Util.toByteArray(inputStream);
+                this.response = Util.toByteBuffer(inputStream, connection.getContentLengthLong());
             } finally {
                 Util.closeQuietly(inputStream);
             }
@@ -58,7 +58,7 @@ public class SimpleHttpGetRequestFuture extends HttpGetRequestFuture {
 
     public ByteBuffer getResult() throws KSIClientException, KSIProtocolException {
         validateHttpResponse(responseCode, responseMessage);
-        return ByteBuffer.wrap(response);
+        return response.duplicate();
     }
 
 }
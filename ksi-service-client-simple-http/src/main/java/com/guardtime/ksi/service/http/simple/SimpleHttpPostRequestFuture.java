@@ -20,25 +20,67 @@
 package com.guardtime.ksi.service.http.simple;
 
 import com.guardtime.ksi.exceptions.KSIException;
+import com.guardtime.ksi.service.FutureUtil;
+import com.guardtime.ksi.service.client.KSIClientException;
 import com.guardtime.ksi.service.client.http.HttpPostRequestFuture;
 import com.guardtime.ksi.tlv.TLVElement;
 import com.guardtime.ksi.util.Util;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.HttpURLConnection;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Simple HTTP response future.
+ * <p>
+ * When created with a connection the response is read right away. When created with an executor, the whole HTTP
+ * exchange is done by a thread of the executor and the future finishes when the response has been read.
+ * </p>
  */
 public class SimpleHttpPostRequestFuture extends HttpPostRequestFuture {
 
+    private final CompletableFuture<Void> exchange;
     private int responseCode;
     private String responseMessage;
-    private byte[] response = new byte[]{};
+    private ByteBuffer response;
 
     public SimpleHttpPostRequestFuture(HttpURLConnection connection) throws IOException {
+        readResponse(connection);
+        this.exchange = CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * @param request opens the connection and sends the request, called by a thread of the executor.
+     * @param executor executor that does the HTTP exchange. If it rejects the task, the exchange is done in the calling
+     *                 thread.
+     */
+    SimpleHttpPostRequestFuture(final Callable<HttpURLConnection> request, Executor executor) {
+        this.exchange = new CompletableFuture<>();
+        Runnable task = new Runnable() {
+            public void run() {
+                try {
+                    readResponse(request.call());
+                    exchange.complete(null);
+                } catch (Exception e) {
+                    exchange.completeExceptionally(e);
+                }
+            }
+        };
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.run();
+        }
+    }
+
+    private void readResponse(HttpURLConnection connection) throws IOException {
         this.responseCode = connection.getResponseCode();
         this.responseMessage = connection.getResponseMessage();
         InputStream input = null;
@@ -48,20 +90,38 @@ public class SimpleHttpPostRequestFuture extends HttpPostRequestFuture {
             } else {
                 input = connection.getInputStream();
             }
-            if (input != null) {
-                this.response = Util.toByteArray(input);
-            }
+            this.response = Util.toByteBuffer(input, connection.getContentLengthLong());
         } finally {
             Util.closeQuietly(input);
         }
     }
 
     public boolean isFinished() {
-        return true;
+        return exchange.isDone();
+    }
+
+    @Override
+    public CompletionStage<TLVElement> toCompletionStage() {
+        return FutureUtil.afterCompletion(exchange, this);
     }
 
     public TLVElement getResult() throws KSIException {
-        return parse(responseCode, responseMessage, new ByteArrayInputStream(response));
+        try {
+            exchange.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new KSIClientException("Waiting for the HTTP response was interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof KSIException) {
+                throw (KSIException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new KSIClientException("HTTP request failed", cause);
+        }
+        return parse(responseCode, responseMessage, response);
     }
 
 }
@@ -19,6 +19,7 @@
  */
 package com.guardtime.ksi.service.http.simple;
 
+import com.guardtime.ksi.service.client.KSIClientException;
 import com.guardtime.ksi.service.client.http.HttpProtocolException;
 import com.guardtime.ksi.tlv.TLVElement;
 import org.mockito.Mockito;
@@ -27,14 +28,23 @@ import org.testng.annotations.Test;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 import static org.mockito.Mockito.when;
 
 public class SimpleHttpPostRequestFutureTest {
 
+    private static final byte[] RESPONSE = new byte[] {0x0f, 2, 0x01, 0};
+
     @Test
     public void createSimpleHttpPostRequestFuture200() throws Exception {
         SimpleHttpPostRequestFuture future =
@@ -66,8 +76,89 @@ public class SimpleHttpPostRequestFutureTest {
         future.getResult();
     }
 
+    @Test
+    public void testResponseOfKnownLengthIsParsed() throws Exception {
+        SimpleHttpPostRequestFuture future =
+                new SimpleHttpPostRequestFuture(getHttpUrlConnection(200, "OK", new ByteArrayInputStream(RESPONSE), RESPONSE.length));
+
+        TLVElement element = future.getResult();
+        Assert.assertEquals(element.getType(), 0x0f);
+        Assert.assertEquals(element.getEncoded(), RESPONSE);
+    }
+
+    @Test(expectedExceptions = EOFException.class)
+    public void testResponseShorterThanContentLengthFails() throws Exception {
+        new SimpleHttpPostRequestFuture(getHttpUrlConnection(200, "OK", new ByteArrayInputStream(RESPONSE), RESPONSE.length + 1));
+    }
+
+    @Test
+    public void testAsynchronousFutureFinishesWhenExecutorHasDoneTheExchange() throws Exception {
+        final HttpURLConnection connection = getHttpUrlConnection(200, "OK", new ByteArrayInputStream(RESPONSE));
+        List<Runnable> tasks = new ArrayList<>();
+        SimpleHttpPostRequestFuture future = new SimpleHttpPostRequestFuture(new Callable<HttpURLConnection>() {
+            public HttpURLConnection call() {
+                return connection;
+            }
+        }, queueingExecutor(tasks));
+        CompletableFuture<TLVElement> stage = future.toCompletionStage().toCompletableFuture();
+
+        Assert.assertFalse(future.isFinished());
+        Assert.assertFalse(stage.isDone());
+        Assert.assertEquals(tasks.size(), 1);
+
+        tasks.get(0).run();
+        Assert.assertTrue(future.isFinished());
+        Assert.assertEquals(future.getResult().getType(), 0x0f);
+        Assert.assertEquals(stage.get().getType(), 0x0f);
+    }
+
+    @Test(expectedExceptions = KSIClientException.class, expectedExceptionsMessageRegExp = "HTTP request failed")
+    public void testAsynchronousFutureFailsWhenRequestCanNotBeSent() throws Exception {
+        List<Runnable> tasks = new ArrayList<>();
+        SimpleHttpPostRequestFuture future = new SimpleHttpPostRequestFuture(new Callable<HttpURLConnection>() {
+            public HttpURLConnection call() throws IOException {
+                throw new IOException("Connection refused");
+            }
+        }, queueingExecutor(tasks));
+        tasks.get(0).run();
+
+        Assert.assertTrue(future.isFinished());
+        future.getResult();
+    }
+
+    @Test(expectedExceptions = HttpProtocolException.class, expectedExceptionsMessageRegExp = "\\(400\\):BAD REQUEST")
+    public void testAsynchronousFutureDoesExchangeInCallingThreadWhenExecutorRejectsIt() throws Exception {
+        final HttpURLConnection connection = getHttpUrlConnection(400, "BAD REQUEST", new ByteArrayInputStream(new byte[] {1}));
+        SimpleHttpPostRequestFuture future = new SimpleHttpPostRequestFuture(new Callable<HttpURLConnection>() {
+            public HttpURLConnection call() {
+                return connection;
+            }
+        }, new Executor() {
+            public void execute(Runnable command) {
+                throw new RejectedExecutionException();
+            }
+        });
+
+        Assert.assertTrue(future.isFinished());
+        future.getResult();
+    }
+
+    private Executor queueingExecutor(final List<Runnable> tasks) {
+        return new Executor() {
+            public void execute(Runnable command) {
+                tasks.add(command);
+            }
+        };
+    }
+
     private HttpURLConnection getHttpUrlConnection(int responseCode, String responseMessage, InputStream in) throws IOException {
+        return getHttpUrlConnection(responseCode, responseMessage, in, -1);
+    }
+
+    private HttpURLConnection getHttpUrlConnection(int responseCode, String responseMessage, InputStream in,
+                                                   long contentLength) throws IOException {
         HttpURLConnection connection = Mockito.mock(HttpURLConnection.class);
+        when(connection.getContentLengthLong()).thenReturn(contentLength);
         when(connection.getResponseCode()).thenReturn(responseCode);
         when(connection.getResponseMessage()).thenReturn(responseMessage);
         if (connection.getResponseCode() == HttpURLConnection.HTTP_OK) {
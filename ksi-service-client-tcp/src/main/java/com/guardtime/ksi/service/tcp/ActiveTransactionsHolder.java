@@ -17,38 +17,125 @@
  *  reserves and retains all trademark rights.
  *
  */
+
 package com.guardtime.ksi.service.tcp;
 
+import org.apache.mina.core.session.IoSession;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * Holds a map of active KSI TCP transactions by ID. I helps to keep track which responses go together with which requests
- * Each request is added to this holder, and each response passes through it to check that there is a corresponding request waiting.
+ * Holds a map of active KSI TCP transactions of a single client by ID. It helps to keep track which responses go
+ * together with which requests. Each request is added to this holder, and each response passes through it to check
+ * that there is a corresponding request waiting.
+ * <p>
+ * A batched request is registered by the request ID of one of its payloads, its response is matched by any of the
+ * request IDs of the response payloads, so the order of the payloads in the response does not matter.
+ * </p>
+ * <p>
+ * Every {@link KSITCPClient} has its own holder, so request IDs of different clients (and endpoints) do not collide.
+ * None of the operations lock the whole holder.
+ * </p>
  */
 class ActiveTransactionsHolder {
 
     private static final Logger logger = LoggerFactory.getLogger(ActiveTransactionsHolder.class);
 
-    private static final ConcurrentMap<Long, KSITCPTransaction> ACTIVE_TRANSACTIONS = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, KSITCPTransaction> activeTransactions = new ConcurrentHashMap<>();
+
+    /**
+     * Configuration requests do not have a request ID. Requests get decreasing negative IDs from this counter to be
+     * kept in the map of active transactions.
+     */
+    private final AtomicLong configurationRequestId = new AtomicLong();
+
+    /**
+     * Active configuration requests in the order they were sent. Responses are matched to them in the same order, so
+     * every configuration response is matched to the oldest configuration request still waiting for one.
+     */
+    private final Queue<KSITCPTransaction> configurationTransactions = new ConcurrentLinkedQueue<>();
 
-    synchronized static void put(KSITCPTransaction transaction) {
-        ACTIVE_TRANSACTIONS.put(transaction.getCorrelationId(), transaction);
+    void put(KSITCPTransaction transaction) throws KSITCPTransactionException {
+        if (transaction.isConfigurationTransaction()) {
+            transaction.setCorrelationId(configurationRequestId.decrementAndGet());
+        }
+        if (activeTransactions.putIfAbsent(transaction.getCorrelationId(), transaction) != null) {
+            throw new KSITCPTransactionException("TCP transaction with request ID " + transaction.getCorrelationId() +
+                    " is already in progress.");
+        }
+        if (transaction.isConfigurationTransaction()) {
+            configurationTransactions.add(transaction);
+        }
+        transaction.started();
     }
 
-    synchronized static void remove(KSITCPTransaction transaction) {
-        ACTIVE_TRANSACTIONS.remove(transaction.getCorrelationId());
+    void remove(KSITCPTransaction transaction) {
+        if (activeTransactions.remove(transaction.getCorrelationId(), transaction)) {
+            transaction.finished();
+        }
+        if (transaction.isConfigurationTransaction()) {
+            configurationTransactions.remove(transaction);
+        }
     }
 
-    synchronized static void responseReceived(KSITCPTransaction transaction) {
-        long correlationId = transaction.getCorrelationId();
-        if (ACTIVE_TRANSACTIONS.get(correlationId) != null) {
-            ACTIVE_TRANSACTIONS.get(correlationId).responseReceived(transaction.getResponse());
+    void responseReceived(KSITCPTransaction response) {
+        long correlationId = response.getCorrelationId();
+        KSITCPTransaction transaction = null;
+        if (response.isConfigurationTransaction()) {
+            transaction = nextConfigurationTransaction();
+        } else {
+            for (Long requestId : response.getResponseRequestIds()) {
+                transaction = activeTransactions.remove(requestId);
+                if (transaction != null) {
+                    break;
+                }
+            }
+        }
+        if (transaction != null) {
+            transaction.responseReceived(response.getResponse());
+            transaction.finished();
         } else {
             logger.info("Received TCP response with id {}, but did not find corresponding request. It might have timed out.", correlationId);
         }
     }
+
+    private KSITCPTransaction nextConfigurationTransaction() {
+        KSITCPTransaction transaction;
+        while ((transaction = configurationTransactions.poll()) != null) {
+            if (activeTransactions.remove(transaction.getCorrelationId(), transaction)) {
+                return transaction;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Fails all the transactions that were sent with the given session and are still waiting for a response. Those
+     * responses can not arrive any more.
+     */
+    void sessionClosed(IoSession session) {
+        for (KSITCPTransaction transaction : activeTransactions.values()) {
+            if (transaction.getSession() == session && activeTransactions.remove(transaction.getCorrelationId(), transaction)) {
+                transaction.failed(new KSITCPTransactionException("TCP session ID=" + session.getId() +
+                        " was closed before the response was received."));
+                transaction.finished();
+                if (transaction.isConfigurationTransaction()) {
+                    configurationTransactions.remove(transaction);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The number of requests waiting for a response.
+     */
+    int getOutstandingRequests() {
+        return activeTransactions.size();
+    }
 }
@@ -28,6 +28,7 @@ import com.guardtime.ksi.tlv.TLVElement;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 /**
  * KSI TCP client for extending.
@@ -64,6 +65,15 @@ public class ExtenderTCPClient implements KSIExtenderClient {
         return ksitcpClient.sendRequest(request);
     }
 
+    /**
+     * The request is sent without parsing it when the request ID is given.
+     *
+     * @see KSIExtenderClient#extend(ByteBuffer, Long)
+     */
+    public Future<TLVElement> extend(ByteBuffer request, Long requestId) throws KSIClientException {
+        return ksitcpClient.sendRequest(request, requestId);
+    }
+
     /**
      * @see KSIExtenderClient#close()
      */
@@ -71,6 +81,13 @@ public class ExtenderTCPClient implements KSIExtenderClient {
         ksitcpClient.close();
     }
 
+    /**
+     * @return The number of requests sent to the extender that are waiting for a response.
+     */
+    public int getOutstandingRequests() {
+        return ksitcpClient.getOutstandingRequests();
+    }
+
     @Override
     public String toString() {
         return "ExtenderTCPClient{ksitcpClient=" + ksitcpClient + "}";
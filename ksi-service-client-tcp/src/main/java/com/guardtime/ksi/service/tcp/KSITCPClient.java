@@ -25,8 +25,6 @@ import com.guardtime.ksi.service.Future;
 import com.guardtime.ksi.service.client.ServiceCredentials;
 import com.guardtime.ksi.tlv.TLVElement;
 import com.guardtime.ksi.util.Util;
-import org.apache.mina.core.future.ConnectFuture;
-import org.apache.mina.core.session.IoSession;
 import org.apache.mina.filter.codec.ProtocolCodecFilter;
 import org.apache.mina.transport.socket.nio.NioSocketConnector;
 import org.slf4j.Logger;
@@ -35,43 +33,56 @@ import org.slf4j.LoggerFactory;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 /**
- * Client for KSI+TCP communication (either for aggregation or extension) with a single endpoint.
+ * Client for KSI+TCP communication (either for aggregation or extension) with a single endpoint. The requests are sent
+ * using a pool of one or more TCP connections, see {@link TCPClientSettings#setConnectionPoolSize(int)}.
  */
 class KSITCPClient implements Closeable {
 
     private static final Logger logger = LoggerFactory.getLogger(TCPClient.class);
 
-    private IoSession tcpSession;
     private final TCPClientSettings tcpClientSettings;
     private final NioSocketConnector connector;
+    private final TCPConnectionPool connectionPool;
+    private final ActiveTransactionsHolder activeTransactions = new ActiveTransactionsHolder();
 
     KSITCPClient(TCPClientSettings tcpClientSettings) {
         Util.notNull(tcpClientSettings, "KSITCPClient.tcpClientSettings");
         this.tcpClientSettings = tcpClientSettings;
         this.connector = createConnector();
+        this.connectionPool = createConnectionPool();
     }
 
-    synchronized Future<TLVElement> sendRequest(InputStream request) throws KSITCPTransactionException {
-        if (tcpSession == null || tcpSession.isClosing()) {
-            this.tcpSession = createTcpSession();
+    Future<TLVElement> sendRequest(InputStream request) throws KSITCPTransactionException {
+        try {
+            return sendRequest(ByteBuffer.wrap(Util.toByteArray(request)), null);
+        } catch (IOException e) {
+            throw new KSITCPTransactionException("There was a problem with initiating a TCP transaction with endpoint " +
+                    tcpClientSettings.getEndpoint() + ".", e);
         }
+    }
+
+    /**
+     * Sends an encoded request. If the request ID is given, the request is not parsed before sending.
+     */
+    Future<TLVElement> sendRequest(ByteBuffer request, Long requestId) throws KSITCPTransactionException {
+        TCPConnection connection = connectionPool.acquire();
         try {
-            return new KSITCPRequestFuture(request, tcpSession,
+            return new KSITCPRequestFuture(KSITCPTransaction.fromRequest(request, requestId), connection, activeTransactions,
                     TimeUnit.SECONDS.toMillis(tcpClientSettings.getTcpTransactionTimeoutSec()));
-        } catch (KSIException | IOException e) {
+        } catch (KSIException e) {
             throw new KSITCPTransactionException("There was a problem with initiating a TCP transaction with endpoint " +
                     tcpClientSettings.getEndpoint() + ".", e);
         }
     }
 
     public synchronized void close() {
-        if (tcpSession != null) {
-            tcpSession.closeOnFlush();
-        }
+        connectionPool.close();
         if (connector != null) {
             connector.dispose();
         }
@@ -85,23 +96,26 @@ class KSITCPClient implements Closeable {
         return tcpClientSettings.getPduVersion();
     }
 
-    private IoSession createTcpSession() throws KSITCPTransactionException {
-        InetSocketAddress endpoint = tcpClientSettings.getEndpoint();
-        logger.debug("Creating a new TCP session with host '{}'...", endpoint);
-        ConnectFuture connectFuture = connector.connect(endpoint);
-        try {
-            return connectFuture.await().getSession();
-        } catch (Exception e) {
-            connectFuture.cancel();
-            throw new KSITCPTransactionException("Failed to initiate the TCP session with endpoint: " + endpoint, e);
+    int getOutstandingRequests() {
+        return activeTransactions.getOutstandingRequests();
+    }
+
+    private TCPConnectionPool createConnectionPool() {
+        List<TCPConnection> connections = new ArrayList<>();
+        for (int i = 0; i < tcpClientSettings.getConnectionPoolSize(); i++) {
+            connections.add(new TCPConnection(tcpClientSettings, connector));
         }
+        logger.debug("Created a pool of {} TCP connection(s) for host '{}'", connections.size(), tcpClientSettings.getEndpoint());
+        return new TCPConnectionPool(connections, tcpClientSettings.getConnectionSelectionStrategy(),
+                tcpClientSettings.getHealthCheckIntervalSec());
     }
 
     private NioSocketConnector createConnector() {
         NioSocketConnector connector = new NioSocketConnector();
         connector.setConnectTimeoutMillis(tcpClientSettings.getTcpTransactionTimeoutSec() * 1000);
+        connector.getSessionConfig().setKeepAlive(true);
         connector.getFilterChain().addLast("codec", new ProtocolCodecFilter(new TransactionCodecFactory()));
-        connector.setHandler(new TCPSessionHandler());
+        connector.setHandler(new TCPSessionHandler(activeTransactions));
         return connector;
     }
 
@@ -20,42 +20,91 @@
 package com.guardtime.ksi.service.tcp;
 
 import com.guardtime.ksi.exceptions.KSIException;
+import com.guardtime.ksi.service.FutureUtil;
 import com.guardtime.ksi.tlv.TLVElement;
+import com.guardtime.ksi.util.HashedWheelTimer;
+import org.apache.mina.core.future.IoFutureListener;
 import org.apache.mina.core.future.WriteFuture;
-import org.apache.mina.core.session.IoSession;
 
-import java.io.IOException;
-import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
 
 /**
  * Holds the initiated TCP request. From this class the response can be asked for.
+ * <p>
+ * The request does not hold a thread while waiting for the response: the response future of the transaction is
+ * completed by the I/O thread that receives the response, or exceptionally by the shared timeout timer, when sending the
+ * request fails or when the session is closed.
+ * </p>
  */
 class KSITCPRequestFuture implements com.guardtime.ksi.service.Future<TLVElement> {
 
+    /**
+     * Timer shared by the requests of all the TCP clients.
+     */
+    private static final HashedWheelTimer TIMEOUT_TIMER = new HashedWheelTimer(10, TimeUnit.MILLISECONDS, 512, "ksi-tcp-timeout");
+
+    /**
+     * Time given to the timeout timer, in addition to the request timeout, before {@link #getResult()} gives up waiting.
+     */
+    private static final long RESULT_WAIT_SLACK_MS = 1000;
+
     private KSITCPTransaction transaction;
+    private final ActiveTransactionsHolder activeTransactions;
     private final long timeoutMs;
     private WriteFuture writeFuture;
-    private long transactionStartedMillis;
-    private TLVElement response;
-    private KSITCPTransactionException exception;
-    private boolean finished;
 
-    KSITCPRequestFuture(InputStream request, IoSession tcpSession, long timeoutMs) throws IOException, KSIException {
+    KSITCPRequestFuture(KSITCPTransaction transaction, TCPConnection connection, ActiveTransactionsHolder activeTransactions,
+                        long timeoutMs) throws KSIException {
+        this.activeTransactions = activeTransactions;
         this.timeoutMs = timeoutMs;
-        startTransaction(tcpSession, request);
+        startTransaction(connection, transaction);
+        scheduleTimeout();
     }
 
-    private void startTransaction(IoSession tcpSession, InputStream request) throws IOException, KSIException {
-        this.transaction = KSITCPTransaction.fromRequest(request);
-        transactionStartedMillis = System.currentTimeMillis();
-        ActiveTransactionsHolder.put(transaction);
+    private void startTransaction(TCPConnection connection, KSITCPTransaction transaction) throws KSIException {
+        this.transaction = transaction;
+        transaction.setConnection(connection);
+        activeTransactions.put(transaction);
         try {
-            this.writeFuture = transaction.send(tcpSession);
+            this.writeFuture = transaction.send(connection.getSession());
         } catch (Exception e) {
-            ActiveTransactionsHolder.remove(transaction);
+            activeTransactions.remove(transaction);
             throw e;
         }
+        writeFuture.addListener(new IoFutureListener<WriteFuture>() {
+            public void operationComplete(WriteFuture future) {
+                if (!future.isWritten()) {
+                    fail(new KSITCPTransactionException("Sending the TCP request failed", future.getException()));
+                }
+            }
+        });
+    }
+
+    private void scheduleTimeout() {
+        final HashedWheelTimer.Timeout timeout = TIMEOUT_TIMER.newTimeout(new Runnable() {
+            public void run() {
+                if (writeFuture.isWritten()) {
+                    fail(new TCPTimeoutException("Response was not received in " + timeoutMs + " ms"));
+                } else {
+                    fail(new TCPTimeoutException("TCP request sending could not be completed in " + timeoutMs + " ms"));
+                }
+            }
+        }, timeoutMs, TimeUnit.MILLISECONDS);
+        transaction.getResponseFuture().whenComplete(new BiConsumer<TLVElement, Throwable>() {
+            public void accept(TLVElement response, Throwable throwable) {
+                timeout.cancel();
+            }
+        });
+    }
+
+    private void fail(KSITCPTransactionException e) {
+        activeTransactions.remove(transaction);
+        transaction.failed(e);
     }
 
     /**
@@ -63,59 +112,42 @@ class KSITCPRequestFuture implements com.guardtime.ksi.service.Future<TLVElement
      *
      * @return Bytes of the TCP response.
      */
-    public synchronized TLVElement getResult() throws KSITCPTransactionException {
-        if (finished) {
-            if (response != null) {
-                return response;
-            }
-            if (exception != null) {
-                throw exception;
-            }
-        }
-        return blockUntilTransactionFinished();
-    }
-
-    private TLVElement blockUntilTransactionFinished() throws KSITCPTransactionException {
+    public TLVElement getResult() throws KSITCPTransactionException {
         try {
-            boolean written = writeFuture.await(timeoutMs, TimeUnit.MILLISECONDS);
-            if (!written) {
-                throw saveException(new TCPTimeoutException("TCP request sending could not be completed in " + timeoutMs + " ms"));
-            }
-
-            long timeoutMs = getMsLeftBeforeTimeout();
-            response = transaction.waitResponse(timeoutMs);
-
-            if (response != null) {
-                return response;
-            } else {
-                throw saveException(new TCPTimeoutException("Response was not received in " + this.timeoutMs + " ms"));
-            }
+            return transaction.getResponseFuture().get(timeoutMs + RESULT_WAIT_SLACK_MS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            TCPTimeoutException timeoutException = new TCPTimeoutException("Response was not received in " + timeoutMs + " ms");
+            fail(timeoutException);
+            throw timeoutException;
         } catch (InterruptedException e) {
-            throw saveException(new KSITCPTransactionException("TCP transaction was interrupted", e));
-        } finally {
-            finished = true;
-            ActiveTransactionsHolder.remove(transaction);
+            throw new KSITCPTransactionException("TCP transaction was interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof KSITCPTransactionException) {
+                throw (KSITCPTransactionException) e.getCause();
+            }
+            throw new KSITCPTransactionException("TCP transaction failed", e.getCause());
         }
     }
 
-    private KSITCPTransactionException saveException(KSITCPTransactionException e) {
-        this.exception = e;
-        return e;
+    /**
+     * @return Future that is completed with the response of the request.
+     */
+    CompletableFuture<TLVElement> getResponseFuture() {
+        return transaction.getResponseFuture();
     }
 
-    private long getMsLeftBeforeTimeout() {
-        long timePassed = System.currentTimeMillis() - transactionStartedMillis;
-        return Math.max(timeoutMs - timePassed, 0);
+    /**
+     * @return True, if the TCP request is finished.
+     */
+    public boolean isFinished() {
+        return transaction.getResponseFuture().isDone();
     }
 
     /**
-     * @return True, if the TCP request is finished.
+     * @return Completion stage that is completed on the completion executor of {@link FutureUtil} after the I/O or timer
+     * thread finishes the transaction.
      */
-    public synchronized boolean isFinished() {
-        if (finished) {
-            return true;
-        }
-        // If following is true, it means that it's now safe to call getResult() because it will time out immediately even if it is not ready
-        return (System.currentTimeMillis() - transactionStartedMillis) > timeoutMs;
+    public CompletionStage<TLVElement> toCompletionStage() {
+        return FutureUtil.afterCompletion(transaction.getResponseFuture(), this);
     }
 }
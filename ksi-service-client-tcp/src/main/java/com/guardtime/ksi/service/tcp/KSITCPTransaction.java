@@ -32,9 +32,12 @@ import org.apache.mina.core.session.IoSession;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.TimeUnit;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Represents a single TCP transaction.
@@ -46,21 +49,39 @@ class KSITCPTransaction {
     private static final int REQ_ID_TAG = 0x1;
     private static final int PDU_V2_PAYLOAD_ELEMENT_TAG = 0x02;
 
-    private final BlockingQueue<TLVElement> availableResponse = new ArrayBlockingQueue<>(1);
+    private final CompletableFuture<TLVElement> responseFuture = new CompletableFuture<>();
     private long correlationId;
-    private TLVElement request;
+    private List<Long> responseRequestIds = Collections.emptyList();
+    private ByteBuffer request;
     private TLVElement response;
-    private static final Object CONF_REQUEST_LOCK = new Object();
-    private static Long confRequestId = 0L;
+    private TCPConnection connection;
+    private volatile IoSession session;
+    private final AtomicBoolean active = new AtomicBoolean();
+    private boolean configurationTransaction;
 
     private KSITCPTransaction() {
     }
 
     static KSITCPTransaction fromRequest(InputStream request) throws IOException, KSIException {
+        return fromRequest(ByteBuffer.wrap(Util.toByteArray(request)), null);
+    }
+
+    /**
+     * Creates a transaction of an encoded request. If the request ID is given, the request is sent as it is without
+     * parsing it. Otherwise the request is parsed to find out the request ID or whether it is a configuration request.
+     */
+    static KSITCPTransaction fromRequest(ByteBuffer request, Long requestId) throws KSIException {
         KSITCPTransaction transaction = new KSITCPTransaction();
-        TLVElement tlv = TLVElement.create(Util.toByteArray(request));
-        transaction.correlationId = isConfigurationPayload(tlv) ? getNewConfId() : extractTransactionIdFromRequestTLV(tlv);
-        transaction.request = tlv;
+        if (requestId != null) {
+            transaction.correlationId = requestId;
+        } else {
+            TLVElement tlv = TLVElement.create(Util.toByteArray(request));
+            transaction.configurationTransaction = isConfigurationPayload(tlv);
+            if (!transaction.configurationTransaction) {
+                transaction.correlationId = extractTransactionIdFromRequestTLV(tlv);
+            }
+        }
+        transaction.request = request.duplicate();
         return transaction;
     }
 
@@ -70,26 +91,15 @@ class KSITCPTransaction {
         ioBuffer.get(responseData);
         TLVElement tlv = parse(responseData);
 
-        if (isConfigurationPayload(tlv)) {
-            synchronized (CONF_REQUEST_LOCK) {
-                transaction.correlationId = confRequestId;
-                confRequestId = confRequestId + 1;
-            }
-        } else {
-            transaction.correlationId = extractTransactionIdFromResponseTLV(tlv);
+        transaction.configurationTransaction = isConfigurationPayload(tlv);
+        if (!transaction.configurationTransaction) {
+            transaction.responseRequestIds = extractTransactionIdsFromResponseTLV(tlv);
+            transaction.correlationId = transaction.responseRequestIds.get(0);
         }
-
-
         transaction.response = tlv;
         return transaction;
     }
 
-    private static long getNewConfId() {
-        synchronized (CONF_REQUEST_LOCK) {
-            return --confRequestId;
-        }
-    }
-
     private static TLVElement parse(byte[] data) throws KSIProtocolException {
         try {
             return TLVElement.create(data);
@@ -120,13 +130,24 @@ class KSITCPTransaction {
         }
     }
 
-    private static long extractTransactionIdFromResponseTLV(TLVElement tlvData) throws KSITCPTransactionException {
+    /**
+     * A multi-payload response carries the request IDs of all the payloads of a batched request, in any order. All of
+     * them are returned, as the request is known by the ID of only one of its payloads.
+     */
+    private static List<Long> extractTransactionIdsFromResponseTLV(TLVElement tlvData) throws KSITCPTransactionException {
         try {
             if (tlvData.getType() == GlobalTlvTypes.ELEMENT_TYPE_AGGREGATION_RESPONSE_PDU_V2
                     || tlvData.getType() == GlobalTlvTypes.ELEMENT_TYPE_EXTENSION_RESPONSE_PDU_V2) {
-                return extractRequestId(tlvData, PDU_V2_PAYLOAD_ELEMENT_TAG);
+                List<Long> requestIds = new ArrayList<>();
+                for (TLVElement payload : tlvData.getChildElements(PDU_V2_PAYLOAD_ELEMENT_TAG)) {
+                    requestIds.add(extractRequestId(payload));
+                }
+                if (requestIds.isEmpty()) {
+                    throw new IllegalStateException("TLV does not contain payload element tag");
+                }
+                return requestIds;
             }
-            return extractRequestId(tlvData, RESPONSE_WRAPPER_TAG);
+            return Collections.singletonList(extractRequestId(tlvData, RESPONSE_WRAPPER_TAG));
         } catch (Exception e) {
             throw new KSITCPTransactionException("Response TLV was corrupt. Could not parse request ID.", e);
         }
@@ -137,6 +158,10 @@ class KSITCPTransaction {
         if (payloadElementTag == null) {
             throw new IllegalStateException("TLV does not contain payload element tag");
         }
+        return extractRequestId(payloadElementTag);
+    }
+
+    private static long extractRequestId(TLVElement payloadElementTag) throws TLVParserException {
         TLVElement reqIdTag = payloadElementTag.getFirstChildElement(REQ_ID_TAG);
         if (reqIdTag == null) {
             throw new IllegalStateException("Payload element tag does not contain request ID tag");
@@ -148,8 +173,30 @@ class KSITCPTransaction {
         return correlationId;
     }
 
-    TLVElement getRequest() {
-        return request;
+    /**
+     * Sets the correlation ID of a configuration transaction, those do not contain a request ID.
+     */
+    void setCorrelationId(long correlationId) {
+        this.correlationId = correlationId;
+    }
+
+    /**
+     * @return Request IDs of all the payloads of the response, the transaction of the request is registered by one of
+     * them.
+     */
+    List<Long> getResponseRequestIds() {
+        return responseRequestIds;
+    }
+
+    boolean isConfigurationTransaction() {
+        return configurationTransaction;
+    }
+
+    /**
+     * @return Buffer of the encoded request, positioned at the start of the request.
+     */
+    ByteBuffer getRequest() {
+        return request.duplicate();
     }
 
 
@@ -157,23 +204,57 @@ class KSITCPTransaction {
         return response;
     }
 
+    /**
+     * Sets the pooled connection used for sending the request, the outstanding requests of the connection are counted
+     * while the transaction is active.
+     */
+    void setConnection(TCPConnection connection) {
+        this.connection = connection;
+    }
+
+    void started() {
+        if (connection != null && active.compareAndSet(false, true)) {
+            connection.requestStarted();
+        }
+    }
+
+    void finished() {
+        if (connection != null && active.compareAndSet(true, false)) {
+            connection.requestFinished();
+        }
+    }
+
     void responseReceived(TLVElement response) {
         this.response = response;
-        availableResponse.offer(response);
-        ActiveTransactionsHolder.remove(this);
+        responseFuture.complete(response);
+    }
+
+    void failed(KSITCPTransactionException e) {
+        responseFuture.completeExceptionally(e);
+    }
+
+    /**
+     * @return Future that is completed with the response, or exceptionally when the transaction fails or times out.
+     */
+    CompletableFuture<TLVElement> getResponseFuture() {
+        return responseFuture;
     }
 
-    TLVElement waitResponse(long timeoutMs) throws InterruptedException {
-        return availableResponse.poll(timeoutMs, TimeUnit.MILLISECONDS);
+    /**
+     * @return The TCP session the request was sent with, null if the request has not been sent.
+     */
+    IoSession getSession() {
+        return session;
     }
 
     WriteFuture send(IoSession session) {
+        this.session = session;
         return session.write(this);
     }
 
     @Override
     public String toString() {
-        return "KSITCPTransaction [correlationId=" + correlationId + ", request=" + request + ", response=" + response + "]";
+        return "KSITCPTransaction [correlationId=" + correlationId + ", request=" + request.remaining() + " bytes, response=" + response + "]";
     }
 
 }
@@ -29,6 +29,7 @@ import com.guardtime.ksi.tlv.TLVElement;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 /**
  * KSI TCP client for signing.
@@ -65,6 +66,15 @@ public class SigningTCPClient implements KSISigningClient {
         return ksitcpClient.sendRequest(request);
     }
 
+    /**
+     * The request is sent without parsing it when the request ID is given.
+     *
+     * @see KSISigningClient#sign(ByteBuffer, Long)
+     */
+    public Future<TLVElement> sign(ByteBuffer request, Long requestId) throws KSIClientException {
+        return ksitcpClient.sendRequest(request, requestId);
+    }
+
     /**
      * @see KSISigningClient#close()
      */
@@ -72,6 +82,13 @@ public class SigningTCPClient implements KSISigningClient {
         ksitcpClient.close();
     }
 
+    /**
+     * @return The number of requests sent to the aggregator that are waiting for a response.
+     */
+    public int getOutstandingRequests() {
+        return ksitcpClient.getOutstandingRequests();
+    }
+
     @Override
     public String toString() {
         return "SigningTCPClient{ksitcpClient=" + ksitcpClient + "}";
@@ -31,6 +31,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 /**
  * KSI TCP client for signing and extending.
@@ -88,17 +89,35 @@ public class TCPClient implements KSISigningClient, KSIExtenderClient {
         return signingTCPClient.sign(request);
     }
 
+    /**
+     * @see SigningTCPClient#sign(ByteBuffer, Long)
+     */
+    public Future<TLVElement> sign(ByteBuffer request, Long requestId) throws KSIClientException {
+        return signingTCPClient.sign(request, requestId);
+    }
+
     /**
      * @see ExtenderTCPClient#extend(InputStream)
      */
     public Future<TLVElement> extend(InputStream request) throws KSIClientException {
+        return getExtenderTCPClient().extend(request);
+    }
+
+    /**
+     * @see ExtenderTCPClient#extend(ByteBuffer, Long)
+     */
+    public Future<TLVElement> extend(ByteBuffer request, Long requestId) throws KSIClientException {
+        return getExtenderTCPClient().extend(request, requestId);
+    }
+
+    private ExtenderTCPClient getExtenderTCPClient() throws KSIClientException {
         if (extenderTCPClient == null) {
             throw new KSIClientException("Extender connection is not configured. This means that you have used the deprecated " +
                     "constructor to initialize this client. If you'd like to use TCPClient for both signing and extending use " +
                     "constructor TCPClient(TCPClientSettings signingSettings, TCPClientSettings extendingSettings) or if you'd " +
                     "like to use TCP client only for signing, use SigningTCPClient");
         }
-        return extenderTCPClient.extend(request);
+        return extenderTCPClient;
     }
 
     /**
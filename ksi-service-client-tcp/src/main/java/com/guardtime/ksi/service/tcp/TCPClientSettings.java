@@ -21,6 +21,7 @@ package com.guardtime.ksi.service.tcp;
 
 import com.guardtime.ksi.pdu.PduVersion;
 import com.guardtime.ksi.service.client.ServiceCredentials;
+import com.guardtime.ksi.util.Util;
 
 import java.net.InetSocketAddress;
 import java.net.URI;
@@ -31,6 +32,10 @@ import java.net.URI;
  * <b>IMPORTANT!</b>
  * <p>When constructing the instance with a {@link InetSocketAddress} the IP of the endpoint is cached in this object. This can result to connection problems.</p>
  * <p>For use cases where this can be a problem we suggest using the constructor that takes the endpoint URI as a string.</p>
+ *
+ * <p>By default a single TCP connection is used for all the requests. A pool of connections can be configured with
+ * {@link #setConnectionPoolSize(int)}, {@link #setConnectionSelectionStrategy(TCPConnectionSelectionStrategy)} and
+ * {@link #setHealthCheckIntervalSec(int)}.</p>
  */
 public class TCPClientSettings {
 
@@ -39,6 +44,9 @@ public class TCPClientSettings {
     private final int tcpTransactionTimeoutSec;
     private final ServiceCredentials serviceCredentials;
     private final PduVersion pduVersion;
+    private int connectionPoolSize = 1;
+    private TCPConnectionSelectionStrategy connectionSelectionStrategy = TCPConnectionSelectionStrategy.ROUND_ROBIN;
+    private int healthCheckIntervalSec = 0;
 
     /**
      * Settings for TCP client.
@@ -102,4 +110,63 @@ public class TCPClientSettings {
     public PduVersion getPduVersion() {
         return pduVersion;
     }
+
+    /**
+     * @return Number of TCP connections the client opens to the endpoint.
+     */
+    public int getConnectionPoolSize() {
+        return connectionPoolSize;
+    }
+
+    /**
+     * Sets the number of TCP connections the client opens to the endpoint. The connections are opened when they are
+     * needed for the first time. Default value is 1.
+     *
+     * @param connectionPoolSize number of connections, must be positive.
+     */
+    public void setConnectionPoolSize(int connectionPoolSize) {
+        if (connectionPoolSize < 1) {
+            throw new IllegalArgumentException("TCP connection pool size must be positive");
+        }
+        this.connectionPoolSize = connectionPoolSize;
+    }
+
+    /**
+     * @return Strategy used for selecting the connection from the connection pool.
+     */
+    public TCPConnectionSelectionStrategy getConnectionSelectionStrategy() {
+        return connectionSelectionStrategy;
+    }
+
+    /**
+     * Sets the strategy used for selecting the connection for a request from the connection pool. Default value is
+     * {@link TCPConnectionSelectionStrategy#ROUND_ROBIN}.
+     *
+     * @param connectionSelectionStrategy connection selection strategy.
+     */
+    public void setConnectionSelectionStrategy(TCPConnectionSelectionStrategy connectionSelectionStrategy) {
+        Util.notNull(connectionSelectionStrategy, "TCPClientSettings.connectionSelectionStrategy");
+        this.connectionSelectionStrategy = connectionSelectionStrategy;
+    }
+
+    /**
+     * @return Interval in seconds of checking the connections of the pool, 0 if health checks are disabled.
+     */
+    public int getHealthCheckIntervalSec() {
+        return healthCheckIntervalSec;
+    }
+
+    /**
+     * Sets the interval of checking the connections of the pool. Connections that have been used but have been closed
+     * or disconnected in the meantime are reconnected in the background. Regardless of the health checks, a closed
+     * connection is always reconnected when it is selected for a request. Default value is 0 (health checks disabled).
+     *
+     * @param healthCheckIntervalSec health check interval in seconds, 0 to disable health checks.
+     */
+    public void setHealthCheckIntervalSec(int healthCheckIntervalSec) {
+        if (healthCheckIntervalSec < 0) {
+            throw new IllegalArgumentException("TCP connection health check interval can not be negative");
+        }
+        this.healthCheckIntervalSec = healthCheckIntervalSec;
+    }
 }
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2013-2018 Guardtime, Inc.
+ *
+ *  This file is part of the Guardtime client SDK.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License").
+ *  You may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES, CONDITIONS, OR OTHER LICENSES OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ *  "Guardtime" and "KSI" are trademarks or registered trademarks of
+ *  Guardtime, Inc., and no license to trademarks is granted; Guardtime
+ *  reserves and retains all trademark rights.
+ *
+ */
+
+package com.guardtime.ksi.service.tcp;
+
+import org.apache.mina.core.future.ConnectFuture;
+import org.apache.mina.core.session.IoSession;
+import org.apache.mina.transport.socket.nio.NioSocketConnector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A single TCP connection of the {@link TCPConnectionPool}. The underlying TCP session is created when the connection is
+ * used for the first time and created again when the session has been closed.
+ */
+class TCPConnection {
+
+    private static final Logger logger = LoggerFactory.getLogger(TCPConnection.class);
+
+    private final TCPClientSettings tcpClientSettings;
+    private final NioSocketConnector connector;
+    private final AtomicInteger outstandingRequests = new AtomicInteger();
+    private volatile IoSession tcpSession;
+    private volatile boolean closed;
+
+    TCPConnection(TCPClientSettings tcpClientSettings, NioSocketConnector connector) {
+        this.tcpClientSettings = tcpClientSettings;
+        this.connector = connector;
+    }
+
+    /**
+     * Returns the TCP session of this connection. Creates a new session if the connection has not been used yet or the
+     * previous session has been closed.
+     */
+    IoSession getSession() throws KSITCPTransactionException {
+        IoSession session = tcpSession;
+        if (isOpen(session)) {
+            return session;
+        }
+        synchronized (this) {
+            if (closed) {
+                throw new KSITCPTransactionException("TCP connection with endpoint " + tcpClientSettings.getEndpoint() + " is closed.");
+            }
+            if (!isOpen(tcpSession)) {
+                tcpSession = createTcpSession();
+            }
+            return tcpSession;
+        }
+    }
+
+    /**
+     * Creates a new TCP session if the connection has been used and its session has been closed or disconnected in the
+     * meantime, so that the next request would not have to wait for the connection to be established.
+     */
+    void checkHealth() {
+        IoSession session = tcpSession;
+        if (session == null || isOpen(session) || closed) {
+            return;
+        }
+        logger.debug("TCP session ID={} with host '{}' is not connected, reconnecting.", session.getId(), tcpClientSettings.getEndpoint());
+        try {
+            getSession();
+        } catch (KSITCPTransactionException e) {
+            logger.warn("Reconnecting to host '{}' failed.", tcpClientSettings.getEndpoint(), e);
+        }
+    }
+
+    boolean isHealthy() {
+        IoSession session = tcpSession;
+        return session == null || isOpen(session);
+    }
+
+    int getOutstandingRequests() {
+        return outstandingRequests.get();
+    }
+
+    void requestStarted() {
+        outstandingRequests.incrementAndGet();
+    }
+
+    void requestFinished() {
+        outstandingRequests.decrementAndGet();
+    }
+
+    synchronized void close() {
+        closed = true;
+        if (tcpSession != null) {
+            tcpSession.closeOnFlush();
+        }
+    }
+
+    private IoSession createTcpSession() throws KSITCPTransactionException {
+        InetSocketAddress endpoint = tcpClientSettings.getEndpoint();
+        logger.debug("Creating a new TCP session with host '{}'...", endpoint);
+        ConnectFuture connectFuture = connector.connect(endpoint);
+        try {
+            return connectFuture.await().getSession();
+        } catch (Exception e) {
+            connectFuture.cancel();
+            throw new KSITCPTransactionException("Failed to initiate the TCP session with endpoint: " + endpoint, e);
+        }
+    }
+
+    private static boolean isOpen(IoSession session) {
+        return session != null && session.isConnected() && !session.isClosing();
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2013-2018 Guardtime, Inc.
+ *
+ *  This file is part of the Guardtime client SDK.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License").
+ *  You may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES, CONDITIONS, OR OTHER LICENSES OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ *  "Guardtime" and "KSI" are trademarks or registered trademarks of
+ *  Guardtime, Inc., and no license to trademarks is granted; Guardtime
+ *  reserves and retains all trademark rights.
+ *
+ */
+
+package com.guardtime.ksi.service.tcp;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of TCP connections to a single endpoint. A connection is selected for every request using the configured
+ * {@link TCPConnectionSelectionStrategy}. Connections that fail to connect are skipped and the request is sent using the
+ * next connection. If health checks are enabled, the connections that have been disconnected are reconnected in the
+ * background.
+ */
+class TCPConnectionPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(TCPConnectionPool.class);
+
+    private final List<TCPConnection> connections;
+    private final TCPConnectionSelectionStrategy selectionStrategy;
+    private final AtomicInteger nextConnection = new AtomicInteger();
+    private final ScheduledExecutorService healthCheckExecutor;
+
+    TCPConnectionPool(List<TCPConnection> connections, TCPConnectionSelectionStrategy selectionStrategy, int healthCheckIntervalSec) {
+        if (connections.isEmpty()) {
+            throw new IllegalArgumentException("TCP connection pool must contain at least one connection");
+        }
+        this.connections = Collections.unmodifiableList(new ArrayList<>(connections));
+        this.selectionStrategy = selectionStrategy;
+        this.healthCheckExecutor = healthCheckIntervalSec > 0 ? scheduleHealthChecks(healthCheckIntervalSec) : null;
+    }
+
+    /**
+     * Selects a connection using the selection strategy and returns it with an open TCP session. If the selected
+     * connection can not be connected, the other connections of the pool are tried in turn.
+     */
+    TCPConnection acquire() throws KSITCPTransactionException {
+        int first = select();
+        KSITCPTransactionException lastException = null;
+        for (int i = 0; i < connections.size(); i++) {
+            TCPConnection connection = connections.get((first + i) % connections.size());
+            try {
+                connection.getSession();
+                return connection;
+            } catch (KSITCPTransactionException e) {
+                logger.debug("TCP connection {} of the pool is not available.", (first + i) % connections.size(), e);
+                lastException = e;
+            }
+        }
+        throw lastException;
+    }
+
+    int select() {
+        if (selectionStrategy == TCPConnectionSelectionStrategy.LEAST_OUTSTANDING) {
+            return selectLeastOutstanding();
+        }
+        return (nextConnection.getAndIncrement() & Integer.MAX_VALUE) % connections.size();
+    }
+
+    List<TCPConnection> getConnections() {
+        return connections;
+    }
+
+    void checkHealth() {
+        for (TCPConnection connection : connections) {
+            connection.checkHealth();
+        }
+    }
+
+    void close() {
+        if (healthCheckExecutor != null) {
+            healthCheckExecutor.shutdownNow();
+        }
+        for (TCPConnection connection : connections) {
+            connection.close();
+        }
+    }
+
+    private int selectLeastOutstanding() {
+        int selected = -1;
+        int selectedOutstanding = Integer.MAX_VALUE;
+        for (int i = 0; i < connections.size(); i++) {
+            TCPConnection connection = connections.get(i);
+            if (!connection.isHealthy()) {
+                continue;
+            }
+            int outstanding = connection.getOutstandingRequests();
+            if (outstanding < selectedOutstanding) {
+                selected = i;
+                selectedOutstanding = outstanding;
+            }
+        }
+        return selected < 0 ? 0 : selected;
+    }
+
+    private ScheduledExecutorService scheduleHealthChecks(int healthCheckIntervalSec) {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "ksi-tcp-health-check");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                try {
+                    checkHealth();
+                } catch (RuntimeException e) {
+                    logger.warn("TCP connection health check failed.", e);
+                }
+            }
+        }, healthCheckIntervalSec, healthCheckIntervalSec, TimeUnit.SECONDS);
+        return executor;
+    }
+}
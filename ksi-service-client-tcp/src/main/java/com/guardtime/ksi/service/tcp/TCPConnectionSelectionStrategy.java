@@ -0,0 +1,40 @@
+/*
+ * Copyright 2013-2018 Guardtime, Inc.
+ *
+ *  This file is part of the Guardtime client SDK.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License").
+ *  You may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES, CONDITIONS, OR OTHER LICENSES OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ *  "Guardtime" and "KSI" are trademarks or registered trademarks of
+ *  Guardtime, Inc., and no license to trademarks is granted; Guardtime
+ *  reserves and retains all trademark rights.
+ *
+ */
+
+package com.guardtime.ksi.service.tcp;
+
+/**
+ * Strategies for selecting the TCP connection from the connection pool of the TCP client.
+ *
+ * @see TCPClientSettings#setConnectionPoolSize(int)
+ */
+public enum TCPConnectionSelectionStrategy {
+
+    /**
+     * Connections are used in turns.
+     */
+    ROUND_ROBIN,
+
+    /**
+     * The connection with the least requests waiting for a response is used. If several connections have the same
+     * number of outstanding requests, the first of them is used.
+     */
+    LEAST_OUTSTANDING
+}
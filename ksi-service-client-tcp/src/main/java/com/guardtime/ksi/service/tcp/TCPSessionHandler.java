@@ -33,6 +33,12 @@ class TCPSessionHandler implements IoHandler {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(TCPSessionHandler.class);
 
+    private final ActiveTransactionsHolder activeTransactions;
+
+    TCPSessionHandler(ActiveTransactionsHolder activeTransactions) {
+        this.activeTransactions = activeTransactions;
+    }
+
     public void exceptionCaught(IoSession session, Throwable t) throws Exception {
         LOGGER.error("An exception occurred while making a TCP request.", t);
         session.closeNow();
@@ -40,7 +46,7 @@ class TCPSessionHandler implements IoHandler {
 
     public void messageReceived(IoSession session, Object message) throws Exception {
         LOGGER.debug("Message received. {}", message);
-        ActiveTransactionsHolder.responseReceived((KSITCPTransaction) message);
+        activeTransactions.responseReceived((KSITCPTransaction) message);
     }
 
     public void messageSent(IoSession session, Object message) throws Exception {
@@ -56,6 +62,8 @@ class TCPSessionHandler implements IoHandler {
     }
 
     public void sessionClosed(IoSession session) throws Exception {
+        LOGGER.debug("TCP session ID={} closed.", session.getId());
+        activeTransactions.sessionClosed(session);
     }
 
     public void sessionCreated(IoSession session) throws Exception {
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2013-2018 Guardtime, Inc.
+ *
+ *  This file is part of the Guardtime client SDK.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License").
+ *  You may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES, CONDITIONS, OR OTHER LICENSES OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ *  "Guardtime" and "KSI" are trademarks or registered trademarks of
+ *  Guardtime, Inc., and no license to trademarks is granted; Guardtime
+ *  reserves and retains all trademark rights.
+ *
+ */
+
+package com.guardtime.ksi.service.tcp;
+
+import com.guardtime.ksi.tlv.GlobalTlvTypes;
+import com.guardtime.ksi.tlv.TLVElement;
+import org.apache.mina.core.buffer.IoBuffer;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class ActiveTransactionsHolderTest {
+
+    private static final int CONFIGURATION_PAYLOAD_TAG = 0x04;
+
+    @Test
+    public void testResponseIsMatchedToRequestById() throws Exception {
+        ActiveTransactionsHolder holder = new ActiveTransactionsHolder();
+        KSITCPTransaction first = request(1L);
+        KSITCPTransaction second = request(2L);
+        holder.put(first);
+        holder.put(second);
+        Assert.assertEquals(holder.getOutstandingRequests(), 2);
+
+        KSITCPTransaction response = response(2L);
+        holder.responseReceived(response);
+        Assert.assertEquals(second.getResponseFuture().getNow(null), response.getResponse());
+        Assert.assertNull(first.getResponseFuture().getNow(null));
+        Assert.assertEquals(holder.getOutstandingRequests(), 1);
+    }
+
+    @Test
+    public void testBatchResponseWithReorderedPayloadsIsMatchedToRequest() throws Exception {
+        ActiveTransactionsHolder holder = new ActiveTransactionsHolder();
+        KSITCPTransaction batch = request(GlobalTlvTypes.ELEMENT_TYPE_AGGREGATION_REQUEST_PDU_V2, 1L, 2L, 3L);
+        holder.put(batch);
+
+        KSITCPTransaction response = response(GlobalTlvTypes.ELEMENT_TYPE_AGGREGATION_RESPONSE_PDU_V2, 3L, 1L, 2L);
+        holder.responseReceived(response);
+        Assert.assertEquals(batch.getResponseFuture().getNow(null), response.getResponse());
+        Assert.assertEquals(holder.getOutstandingRequests(), 0);
+    }
+
+    @Test
+    public void testBatchExtensionResponseWithReorderedPayloadsIsMatchedToRequest() throws Exception {
+        ActiveTransactionsHolder holder = new ActiveTransactionsHolder();
+        KSITCPTransaction batch = request(GlobalTlvTypes.ELEMENT_TYPE_EXTENSION_REQUEST_PDU_V2, 4L, 5L);
+        KSITCPTransaction other = request(6L);
+        holder.put(batch);
+        holder.put(other);
+
+        KSITCPTransaction response = response(GlobalTlvTypes.ELEMENT_TYPE_EXTENSION_RESPONSE_PDU_V2, 5L, 4L);
+        holder.responseReceived(response);
+        Assert.assertEquals(batch.getResponseFuture().getNow(null), response.getResponse());
+        Assert.assertNull(other.getResponseFuture().getNow(null));
+        Assert.assertEquals(holder.getOutstandingRequests(), 1);
+    }
+
+    @Test
+    public void testRequestWithGivenIdIsMatchedWithoutParsing() throws Exception {
+        ActiveTransactionsHolder holder = new ActiveTransactionsHolder();
+        ByteBuffer requestBytes = ByteBuffer.wrap(new byte[] {1, 2, 3});
+        KSITCPTransaction transaction = KSITCPTransaction.fromRequest(requestBytes, 7L);
+        holder.put(transaction);
+
+        KSITCPTransaction response = response(7L);
+        holder.responseReceived(response);
+        Assert.assertEquals(transaction.getResponseFuture().getNow(null), response.getResponse());
+        Assert.assertEquals(transaction.getRequest(), requestBytes);
+        Assert.assertEquals(requestBytes.position(), 0);
+    }
+
+    @Test
+    public void testRequestIdsOfDifferentHoldersDoNotCollide() throws Exception {
+        ActiveTransactionsHolder firstHolder = new ActiveTransactionsHolder();
+        ActiveTransactionsHolder secondHolder = new ActiveTransactionsHolder();
+        KSITCPTransaction first = request(1L);
+        KSITCPTransaction second = request(1L);
+        firstHolder.put(first);
+        secondHolder.put(second);
+
+        secondHolder.responseReceived(response(1L));
+        Assert.assertNull(first.getResponseFuture().getNow(null));
+        Assert.assertNotNull(second.getResponseFuture().getNow(null));
+        Assert.assertEquals(firstHolder.getOutstandingRequests(), 1);
+        Assert.assertEquals(secondHolder.getOutstandingRequests(), 0);
+    }
+
+    @Test(expectedExceptions = KSITCPTransactionException.class, expectedExceptionsMessageRegExp = "TCP transaction with request ID 1 is already in progress.")
+    public void testPutRequestWithActiveRequestId_ThrowsKSITCPTransactionException() throws Exception {
+        ActiveTransactionsHolder holder = new ActiveTransactionsHolder();
+        holder.put(request(1L));
+        holder.put(request(1L));
+    }
+
+    @Test
+    public void testRemoveDoesNotRemoveOtherTransactionWithSameId() throws Exception {
+        ActiveTransactionsHolder holder = new ActiveTransactionsHolder();
+        KSITCPTransaction active = request(1L);
+        holder.put(active);
+        holder.remove(request(1L));
+        Assert.assertEquals(holder.getOutstandingRequests(), 1);
+        holder.remove(active);
+        Assert.assertEquals(holder.getOutstandingRequests(), 0);
+    }
+
+    @Test
+    public void testConfigurationResponsesAreMatchedToConfigurationRequests() throws Exception {
+        ActiveTransactionsHolder holder = new ActiveTransactionsHolder();
+        KSITCPTransaction first = configurationRequest();
+        KSITCPTransaction second = configurationRequest();
+        holder.put(first);
+        holder.put(second);
+        Assert.assertNotEquals(first.getCorrelationId(), second.getCorrelationId());
+
+        holder.responseReceived(configurationResponse());
+        Assert.assertNotNull(first.getResponseFuture().getNow(null));
+        Assert.assertNull(second.getResponseFuture().getNow(null));
+        holder.responseReceived(configurationResponse());
+        Assert.assertNotNull(second.getResponseFuture().getNow(null));
+        Assert.assertEquals(holder.getOutstandingRequests(), 0);
+    }
+
+    @Test
+    public void testConfigurationResponseIsNotMatchedToRemovedConfigurationRequest() throws Exception {
+        ActiveTransactionsHolder holder = new ActiveTransactionsHolder();
+        KSITCPTransaction timedOut = configurationRequest();
+        KSITCPTransaction waiting = configurationRequest();
+        holder.put(timedOut);
+        holder.put(waiting);
+        holder.remove(timedOut);
+
+        holder.responseReceived(configurationResponse());
+        Assert.assertNull(timedOut.getResponseFuture().getNow(null));
+        Assert.assertNotNull(waiting.getResponseFuture().getNow(null));
+        Assert.assertEquals(holder.getOutstandingRequests(), 0);
+    }
+
+    @Test
+    public void testOutstandingRequestsOfConnectionAreCounted() throws Exception {
+        ActiveTransactionsHolder holder = new ActiveTransactionsHolder();
+        TCPConnection connection = mock(TCPConnection.class);
+        KSITCPTransaction transaction = request(1L);
+        transaction.setConnection(connection);
+        holder.put(transaction);
+        holder.responseReceived(response(1L));
+        holder.remove(transaction);
+        verify(connection, times(1)).requestStarted();
+        verify(connection, times(1)).requestFinished();
+    }
+
+    private static KSITCPTransaction request(long requestId) throws Exception {
+        return request(GlobalTlvTypes.ELEMENT_TYPE_AGGREGATION_REQUEST_PDU_V2, requestId);
+    }
+
+    private static KSITCPTransaction request(int pduType, long... requestIds) throws Exception {
+        TLVElement pdu = new TLVElement(false, false, pduType);
+        for (long requestId : requestIds) {
+            pdu.addChildElement(payload(0x02, requestId));
+        }
+        return KSITCPTransaction.fromRequest(new ByteArrayInputStream(pdu.getEncoded()));
+    }
+
+    private static KSITCPTransaction response(long requestId) throws Exception {
+        return response(GlobalTlvTypes.ELEMENT_TYPE_AGGREGATION_RESPONSE_PDU_V2, requestId);
+    }
+
+    private static KSITCPTransaction response(int pduType, long... requestIds) throws Exception {
+        TLVElement pdu = new TLVElement(false, false, pduType);
+        for (long requestId : requestIds) {
+            pdu.addChildElement(payload(0x02, requestId));
+        }
+        return KSITCPTransaction.fromResponse(IoBuffer.wrap(pdu.getEncoded()));
+    }
+
+    private static KSITCPTransaction configurationRequest() throws Exception {
+        TLVElement pdu = new TLVElement(false, false, GlobalTlvTypes.ELEMENT_TYPE_AGGREGATION_REQUEST_PDU_V2);
+        pdu.addChildElement(new TLVElement(false, false, CONFIGURATION_PAYLOAD_TAG));
+        return KSITCPTransaction.fromRequest(new ByteArrayInputStream(pdu.getEncoded()));
+    }
+
+    private static KSITCPTransaction configurationResponse() throws Exception {
+        TLVElement pdu = new TLVElement(false, false, GlobalTlvTypes.ELEMENT_TYPE_AGGREGATION_RESPONSE_PDU_V2);
+        TLVElement payload = new TLVElement(false, false, CONFIGURATION_PAYLOAD_TAG);
+        payload.addChildElement(TLVElement.create(0x01, 1L));
+        pdu.addChildElement(payload);
+        return KSITCPTransaction.fromResponse(IoBuffer.wrap(pdu.getEncoded()));
+    }
+
+    private static TLVElement payload(int type, long requestId) throws Exception {
+        TLVElement payload = new TLVElement(false, false, type);
+        payload.addChildElement(TLVElement.create(0x01, requestId));
+        return payload;
+    }
+}
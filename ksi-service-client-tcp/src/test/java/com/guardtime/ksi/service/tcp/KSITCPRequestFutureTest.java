@@ -0,0 +1,136 @@
+/*
+ * Copyright 2013-2018 Guardtime, Inc.
+ *
+ *  This file is part of the Guardtime client SDK.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License").
+ *  You may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES, CONDITIONS, OR OTHER LICENSES OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ *  "Guardtime" and "KSI" are trademarks or registered trademarks of
+ *  Guardtime, Inc., and no license to trademarks is granted; Guardtime
+ *  reserves and retains all trademark rights.
+ *
+ */
+
+package com.guardtime.ksi.service.tcp;
+
+import com.guardtime.ksi.tlv.GlobalTlvTypes;
+import com.guardtime.ksi.tlv.TLVElement;
+import org.apache.mina.core.buffer.IoBuffer;
+import org.apache.mina.core.future.WriteFuture;
+import org.apache.mina.core.session.IoSession;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class KSITCPRequestFutureTest {
+
+    private ActiveTransactionsHolder activeTransactions;
+    private TCPConnection connection;
+    private IoSession session;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        activeTransactions = new ActiveTransactionsHolder();
+        session = mock(IoSession.class);
+        WriteFuture writeFuture = mock(WriteFuture.class);
+        when(writeFuture.isWritten()).thenReturn(true);
+        when(session.write(any())).thenReturn(writeFuture);
+        connection = mock(TCPConnection.class);
+        when(connection.getSession()).thenReturn(session);
+    }
+
+    @Test
+    public void testResponseCompletesFuture() throws Exception {
+        KSITCPRequestFuture future = new KSITCPRequestFuture(request(1L), connection, activeTransactions, 10000);
+        Assert.assertFalse(future.isFinished());
+        Assert.assertEquals(activeTransactions.getOutstandingRequests(), 1);
+
+        KSITCPTransaction response = response(1L);
+        activeTransactions.responseReceived(response);
+        Assert.assertTrue(future.isFinished());
+        Assert.assertEquals(future.getResult(), response.getResponse());
+        Assert.assertEquals(activeTransactions.getOutstandingRequests(), 0);
+    }
+
+    @Test(expectedExceptions = TCPTimeoutException.class, expectedExceptionsMessageRegExp = "TCP timeout: Response was not received in 50 ms")
+    public void testResponseNotReceived_ThrowsTCPTimeoutException() throws Exception {
+        KSITCPRequestFuture future = new KSITCPRequestFuture(request(1L), connection, activeTransactions, 50);
+        try {
+            future.getResult();
+        } finally {
+            Assert.assertTrue(future.isFinished());
+            Assert.assertEquals(activeTransactions.getOutstandingRequests(), 0);
+        }
+    }
+
+    @Test(expectedExceptions = KSITCPTransactionException.class, expectedExceptionsMessageRegExp = "TCP session ID=.* was closed before the response was received.")
+    public void testSessionClosed_ThrowsKSITCPTransactionException() throws Exception {
+        KSITCPRequestFuture future = new KSITCPRequestFuture(request(1L), connection, activeTransactions, 10000);
+        activeTransactions.sessionClosed(session);
+        Assert.assertEquals(activeTransactions.getOutstandingRequests(), 0);
+        future.getResult();
+    }
+
+    @Test
+    public void testResponseCompletesCompletionStage() throws Exception {
+        KSITCPRequestFuture future = new KSITCPRequestFuture(request(1L), connection, activeTransactions, 10000);
+        CompletableFuture<TLVElement> stage = future.toCompletionStage().toCompletableFuture();
+        Assert.assertFalse(stage.isDone());
+
+        KSITCPTransaction response = response(1L);
+        activeTransactions.responseReceived(response);
+        Assert.assertEquals(stage.get(5, TimeUnit.SECONDS), response.getResponse());
+    }
+
+    @Test
+    public void testTimeoutCompletesCompletionStageExceptionally() throws Exception {
+        KSITCPRequestFuture future = new KSITCPRequestFuture(request(1L), connection, activeTransactions, 50);
+        try {
+            future.toCompletionStage().toCompletableFuture().get();
+            Assert.fail("Expected the completion stage to fail");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof TCPTimeoutException);
+        }
+    }
+
+    @Test
+    public void testSessionClosedDoesNotFailRequestsOfOtherSessions() throws Exception {
+        KSITCPRequestFuture future = new KSITCPRequestFuture(request(1L), connection, activeTransactions, 10000);
+        activeTransactions.sessionClosed(mock(IoSession.class));
+        Assert.assertFalse(future.isFinished());
+    }
+
+    private static KSITCPTransaction request(long requestId) throws Exception {
+        TLVElement pdu = new TLVElement(false, false, GlobalTlvTypes.ELEMENT_TYPE_AGGREGATION_REQUEST_PDU_V2);
+        pdu.addChildElement(payload(requestId));
+        return KSITCPTransaction.fromRequest(new ByteArrayInputStream(pdu.getEncoded()));
+    }
+
+    private static KSITCPTransaction response(long requestId) throws Exception {
+        TLVElement pdu = new TLVElement(false, false, GlobalTlvTypes.ELEMENT_TYPE_AGGREGATION_RESPONSE_PDU_V2);
+        pdu.addChildElement(payload(requestId));
+        return KSITCPTransaction.fromResponse(IoBuffer.wrap(pdu.getEncoded()));
+    }
+
+    private static TLVElement payload(long requestId) throws Exception {
+        TLVElement payload = new TLVElement(false, false, 0x02);
+        payload.addChildElement(TLVElement.create(0x01, requestId));
+        return payload;
+    }
+}
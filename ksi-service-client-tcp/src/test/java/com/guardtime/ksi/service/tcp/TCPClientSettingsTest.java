@@ -25,6 +25,7 @@ import org.testng.annotations.Test;
 
 import java.net.InetSocketAddress;
 
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 
@@ -49,4 +50,22 @@ public class TCPClientSettingsTest {
         assertTrue(settings.getEndpoint() == settings.getEndpoint());
     }
 
+    @Test
+    public void testConnectionPoolDefaults() {
+        TCPClientSettings settings = new TCPClientSettings("tcp://www.guardtime.com:80", 0, null, null);
+        assertEquals(settings.getConnectionPoolSize(), 1);
+        assertEquals(settings.getConnectionSelectionStrategy(), TCPConnectionSelectionStrategy.ROUND_ROBIN);
+        assertEquals(settings.getHealthCheckIntervalSec(), 0);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = "TCP connection pool size must be positive")
+    public void testSetZeroConnectionPoolSize_ThrowsIllegalArgumentException() {
+        new TCPClientSettings("tcp://www.guardtime.com:80", 0, null, null).setConnectionPoolSize(0);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = "TCP connection health check interval can not be negative")
+    public void testSetNegativeHealthCheckInterval_ThrowsIllegalArgumentException() {
+        new TCPClientSettings("tcp://www.guardtime.com:80", 0, null, null).setHealthCheckIntervalSec(-1);
+    }
+
 }
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2013-2018 Guardtime, Inc.
+ *
+ *  This file is part of the Guardtime client SDK.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License").
+ *  You may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES, CONDITIONS, OR OTHER LICENSES OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ *  "Guardtime" and "KSI" are trademarks or registered trademarks of
+ *  Guardtime, Inc., and no license to trademarks is granted; Guardtime
+ *  reserves and retains all trademark rights.
+ *
+ */
+
+package com.guardtime.ksi.service.tcp;
+
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+
+public class TCPConnectionPoolTest {
+
+    @Test
+    public void testRoundRobinSelection() throws Exception {
+        TCPConnection first = mockConnection(0);
+        TCPConnection second = mockConnection(0);
+        TCPConnectionPool pool = new TCPConnectionPool(Arrays.asList(first, second), TCPConnectionSelectionStrategy.ROUND_ROBIN, 0);
+        assertSame(pool.acquire(), first);
+        assertSame(pool.acquire(), second);
+        assertSame(pool.acquire(), first);
+    }
+
+    @Test
+    public void testLeastOutstandingSelection() throws Exception {
+        TCPConnection busy = mockConnection(5);
+        TCPConnection idle = mockConnection(1);
+        TCPConnection broken = mockConnection(0);
+        when(broken.isHealthy()).thenReturn(false);
+        TCPConnectionPool pool = new TCPConnectionPool(Arrays.asList(busy, idle, broken), TCPConnectionSelectionStrategy.LEAST_OUTSTANDING, 0);
+        assertSame(pool.acquire(), idle);
+        assertSame(pool.acquire(), idle);
+    }
+
+    @Test
+    public void testUnavailableConnectionIsSkipped() throws Exception {
+        TCPConnection unavailable = mockConnection(0);
+        when(unavailable.getSession()).thenThrow(new KSITCPTransactionException("Failed to initiate the TCP session"));
+        TCPConnection available = mockConnection(0);
+        TCPConnectionPool pool = new TCPConnectionPool(Arrays.asList(unavailable, available), TCPConnectionSelectionStrategy.ROUND_ROBIN, 0);
+        assertSame(pool.acquire(), available);
+        assertSame(pool.acquire(), available);
+    }
+
+    @Test(expectedExceptions = KSITCPTransactionException.class, expectedExceptionsMessageRegExp = "Failed to initiate the TCP session")
+    public void testAllConnectionsUnavailable_ThrowsKSITCPTransactionException() throws Exception {
+        TCPConnection unavailable = mockConnection(0);
+        when(unavailable.getSession()).thenThrow(new KSITCPTransactionException("Failed to initiate the TCP session"));
+        new TCPConnectionPool(Arrays.asList(unavailable), TCPConnectionSelectionStrategy.ROUND_ROBIN, 0).acquire();
+    }
+
+    @Test
+    public void testCheckHealthAndCloseAreDelegatedToAllConnections() throws Exception {
+        TCPConnection first = mockConnection(0);
+        TCPConnection second = mockConnection(0);
+        TCPConnectionPool pool = new TCPConnectionPool(Arrays.asList(first, second), TCPConnectionSelectionStrategy.ROUND_ROBIN, 0);
+        pool.checkHealth();
+        verify(first).checkHealth();
+        verify(second).checkHealth();
+        verify(first, never()).close();
+        pool.close();
+        verify(first).close();
+        verify(second).close();
+        assertEquals(pool.getConnections().size(), 2);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = "TCP connection pool must contain at least one connection")
+    public void testCreateEmptyPool_ThrowsIllegalArgumentException() {
+        new TCPConnectionPool(Arrays.<TCPConnection>asList(), TCPConnectionSelectionStrategy.ROUND_ROBIN, 0);
+    }
+
+    private TCPConnection mockConnection(int outstandingRequests) {
+        TCPConnection connection = mock(TCPConnection.class);
+        when(connection.isHealthy()).thenReturn(true);
+        when(connection.getOutstandingRequests()).thenReturn(outstandingRequests);
+        return connection;
+    }
+}
@@ -21,10 +21,13 @@ package com.guardtime.ksi.pdu;
 
 import com.guardtime.ksi.exceptions.KSIException;
 import com.guardtime.ksi.service.Future;
+import com.guardtime.ksi.service.FutureUtil;
 import com.guardtime.ksi.service.KSIProtocolException;
 import com.guardtime.ksi.service.client.ServiceCredentials;
 import com.guardtime.ksi.tlv.TLVElement;
 
+import java.util.concurrent.CompletionStage;
+
 /**
  * Future of the aggregation process.
  *
@@ -37,7 +40,7 @@ public final class AggregationResponseFuture implements Future<AggregationRespon
     private PduFactory pduFactory;
     private ServiceCredentials credentials;
 
-    private AggregationResponse response;
+    private volatile AggregationResponse response;
 
     public AggregationResponseFuture(Future<TLVElement> requestFuture, KSIRequestContext requestContext, ServiceCredentials credentials, PduFactory pduFactory) {
         this.requestFuture = requestFuture;
@@ -61,4 +64,8 @@ public final class AggregationResponseFuture implements Future<AggregationRespon
     public boolean isFinished() {
         return requestFuture.isFinished();
     }
+
+    public CompletionStage<AggregationResponse> toCompletionStage() {
+        return FutureUtil.afterCompletion(requestFuture, this);
+    }
 }
@@ -21,9 +21,14 @@ package com.guardtime.ksi.pdu;
 
 import com.guardtime.ksi.exceptions.KSIException;
 import com.guardtime.ksi.hashing.DataHash;
+import com.guardtime.ksi.service.Future;
+import com.guardtime.ksi.service.FutureUtil;
 import com.guardtime.ksi.service.client.ServiceCredentials;
 import com.guardtime.ksi.tlv.TLVElement;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public interface AggregatorPduFactory {
 
     /**
@@ -36,6 +41,41 @@ public interface AggregatorPduFactory {
      */
     AggregationResponse readAggregationResponse(KSIRequestContext context, ServiceCredentials credentials, TLVElement input) throws KSIException;
 
+    /**
+     * Creates a new aggregation request that carries one payload for every imprint. The PDU has a single header and
+     * MAC, the header is created from the first context and the payloads get the request IDs of the contexts in the
+     * same order as the imprints and the levels.
+     * <br><br>
+     * The default implementation only supports a single payload.
+     */
+    default AggregationRequest createAggregationRequest(List<KSIRequestContext> contexts, ServiceCredentials credentials,
+                                                        List<DataHash> imprints, List<Long> levels) throws KSIException {
+        if (contexts.size() != 1 || imprints.size() != 1 || levels.size() != 1) {
+            throw new KSIException("Multi-payload aggregation requests are not supported by " + getClass().getName());
+        }
+        return createAggregationRequest(contexts.get(0), credentials, imprints.get(0), levels.get(0));
+    }
+
+    /**
+     * Reads the response to a multi-payload aggregation request. Returns a finished future for every context, in the
+     * same order as the contexts. If the response PDU itself is invalid, an exception is thrown; if only the payload
+     * of a single request is missing or contains an error, only the future of that request fails.
+     * <br><br>
+     * The default implementation reads the response separately for every context.
+     */
+    default List<Future<AggregationResponse>> readAggregationResponses(List<KSIRequestContext> contexts, ServiceCredentials credentials,
+                                                                      TLVElement input) throws KSIException {
+        List<Future<AggregationResponse>> responses = new ArrayList<>(contexts.size());
+        for (KSIRequestContext context : contexts) {
+            try {
+                responses.add(FutureUtil.completed(readAggregationResponse(context, credentials, input)));
+            } catch (KSIException e) {
+                responses.add(FutureUtil.<AggregationResponse>failed(e));
+            }
+        }
+        return responses;
+    }
+
     /**
      * Creates an aggregation configuration request.
      */
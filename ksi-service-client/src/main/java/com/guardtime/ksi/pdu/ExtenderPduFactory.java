@@ -20,10 +20,14 @@
 package com.guardtime.ksi.pdu;
 
 import com.guardtime.ksi.exceptions.KSIException;
+import com.guardtime.ksi.service.Future;
+import com.guardtime.ksi.service.FutureUtil;
 import com.guardtime.ksi.service.client.ServiceCredentials;
 import com.guardtime.ksi.tlv.TLVElement;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 
 public interface ExtenderPduFactory {
 
@@ -37,6 +41,41 @@ public interface ExtenderPduFactory {
      */
     ExtensionResponse readExtensionResponse(KSIRequestContext context, ServiceCredentials credentials, TLVElement input) throws KSIException;
 
+    /**
+     * Creates a new extension request that carries one payload for every aggregation time. The PDU has a single header
+     * and MAC, the header is created from the first context and the payloads get the request IDs of the contexts in
+     * the same order as the aggregation and publication times. Publication times may contain nulls.
+     * <br><br>
+     * The default implementation only supports a single payload.
+     */
+    default ExtensionRequest createExtensionRequest(List<KSIRequestContext> contexts, ServiceCredentials credentials,
+                                                    List<Date> aggregationTimes, List<Date> publicationTimes) throws KSIException {
+        if (contexts.size() != 1 || aggregationTimes.size() != 1 || publicationTimes.size() != 1) {
+            throw new KSIException("Multi-payload extension requests are not supported by " + getClass().getName());
+        }
+        return createExtensionRequest(contexts.get(0), credentials, aggregationTimes.get(0), publicationTimes.get(0));
+    }
+
+    /**
+     * Reads the response to a multi-payload extension request. Returns a finished future for every context, in the
+     * same order as the contexts. If the response PDU itself is invalid, an exception is thrown; if only the payload
+     * of a single request is missing or contains an error, only the future of that request fails.
+     * <br><br>
+     * The default implementation reads the response separately for every context.
+     */
+    default List<Future<ExtensionResponse>> readExtensionResponses(List<KSIRequestContext> contexts, ServiceCredentials credentials,
+                                                                  TLVElement input) throws KSIException {
+        List<Future<ExtensionResponse>> responses = new ArrayList<>(contexts.size());
+        for (KSIRequestContext context : contexts) {
+            try {
+                responses.add(FutureUtil.completed(readExtensionResponse(context, credentials, input)));
+            } catch (KSIException e) {
+                responses.add(FutureUtil.<ExtensionResponse>failed(e));
+            }
+        }
+        return responses;
+    }
+
     /**
      * Creates an extension configuration request.
      */
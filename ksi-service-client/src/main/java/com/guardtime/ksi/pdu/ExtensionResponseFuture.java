@@ -21,10 +21,13 @@ package com.guardtime.ksi.pdu;
 
 import com.guardtime.ksi.exceptions.KSIException;
 import com.guardtime.ksi.service.Future;
+import com.guardtime.ksi.service.FutureUtil;
 import com.guardtime.ksi.service.KSIProtocolException;
 import com.guardtime.ksi.service.client.ServiceCredentials;
 import com.guardtime.ksi.tlv.TLVElement;
 
+import java.util.concurrent.CompletionStage;
+
 /**
  * Future of the process of calling the extender.
  *
@@ -37,7 +40,7 @@ public final class ExtensionResponseFuture implements Future<ExtensionResponse>
     private final PduFactory pduFactory;
     private ServiceCredentials credentials;
 
-    private ExtensionResponse extensionResponse;
+    private volatile ExtensionResponse extensionResponse;
 
     public ExtensionResponseFuture(Future<TLVElement> future, KSIRequestContext context, ServiceCredentials credentials, PduFactory pduFactory) {
         this.future = future;
@@ -61,4 +64,8 @@ public final class ExtensionResponseFuture implements Future<ExtensionResponse>
     public boolean isFinished() {
         return future.isFinished();
     }
+
+    public CompletionStage<ExtensionResponse> toCompletionStage() {
+        return FutureUtil.afterCompletion(future, this);
+    }
 }
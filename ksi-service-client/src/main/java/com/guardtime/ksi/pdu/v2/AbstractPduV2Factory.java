@@ -20,14 +20,22 @@
 package com.guardtime.ksi.pdu.v2;
 
 import com.guardtime.ksi.exceptions.KSIException;
+import com.guardtime.ksi.pdu.KSIRequestContext;
 import com.guardtime.ksi.service.ConfigurationListener;
+import com.guardtime.ksi.service.Future;
+import com.guardtime.ksi.service.FutureUtil;
+import com.guardtime.ksi.service.KSIProtocolException;
 import com.guardtime.ksi.service.client.ServiceCredentials;
 import com.guardtime.ksi.tlv.TLVElement;
 import com.guardtime.ksi.tlv.TLVParserException;
+import com.guardtime.ksi.util.Util;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import static com.guardtime.ksi.tlv.GlobalTlvTypes.ELEMENT_TYPE_CONFIGURATION_PAYLOAD;
 
@@ -87,7 +95,64 @@ abstract class AbstractPduV2Factory<T> {
         return responsePayload;
     }
 
+    /**
+     * Reads the payloads of a multi-payload response in the order of the given request contexts. A payload that is
+     * missing or can not be read fails only the future of its own request.
+     */
+    <R> List<Future<R>> readResponses(List<KSIRequestContext> contexts, ServiceCredentials credentials, TLVElement input,
+                                      int payloadType, String payloadName, PayloadReader<R> reader) throws KSIException {
+        Util.notNull(contexts, "KsiRequestContexts");
+        updateConfiguration(credentials, input);
+
+        List<TLVElement> payloads = getMandatoryPayloadElements(credentials, input, payloadType);
+        Map<Long, TLVElement> payloadsById = getPayloadsByRequestId(payloads);
+        List<Future<R>> responses = new ArrayList<>(contexts.size());
+        for (KSIRequestContext context : contexts) {
+            TLVElement responsePayload = payloadsById.remove(context.getRequestId());
+            if (responsePayload == null) {
+                responses.add(FutureUtil.<R>failed(new KSIProtocolException(
+                        payloadName + " response payload with requestId " + context.getRequestId() + " wasn't found")));
+                continue;
+            }
+            try {
+                responses.add(FutureUtil.completed(reader.read(responsePayload)));
+            } catch (KSIException e) {
+                responses.add(FutureUtil.<R>failed(e));
+            }
+        }
+        if (!payloadsById.isEmpty()) {
+            logger.warn("Response payloads with unexpected requestIds {} encountered", payloadsById.keySet());
+        }
+        return responses;
+    }
+
+    /**
+     * Maps the payloads of a multi-payload response by their request IDs. Payloads without a request ID are ignored.
+     */
+    private Map<Long, TLVElement> getPayloadsByRequestId(List<TLVElement> payloads) throws TLVParserException {
+        Map<Long, TLVElement> payloadsById = new LinkedHashMap<>();
+        for (TLVElement payload : payloads) {
+            TLVElement requestIdElement = payload.getFirstChildElement(ELEMENT_TYPE_REQUEST_ID);
+            if (requestIdElement != null) {
+                Long id = requestIdElement.getDecodedLong();
+                if (payloadsById.containsKey(id)) {
+                    logger.warn("Duplicate response payload with requestId={} received", id);
+                } else {
+                    payloadsById.put(id, payload);
+                }
+            }
+        }
+        return payloadsById;
+    }
+
     abstract T getConfiguration(List<TLVElement> confPayload) throws TLVParserException;
 
     abstract List<TLVElement> getPayloadElements(ServiceCredentials credentials, TLVElement input, int payloadType) throws KSIException;
+
+    /**
+     * Reads a response payload of a multi-payload response.
+     */
+    interface PayloadReader<R> {
+        R read(TLVElement payload) throws KSIException;
+    }
 }
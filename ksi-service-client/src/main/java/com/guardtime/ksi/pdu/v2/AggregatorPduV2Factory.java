@@ -27,6 +27,7 @@ import com.guardtime.ksi.pdu.AggregatorConfiguration;
 import com.guardtime.ksi.pdu.AggregatorPduFactory;
 import com.guardtime.ksi.pdu.KSIRequestContext;
 import com.guardtime.ksi.service.ConfigurationListener;
+import com.guardtime.ksi.service.Future;
 import com.guardtime.ksi.service.KSIProtocolException;
 import com.guardtime.ksi.service.client.ServiceCredentials;
 import com.guardtime.ksi.tlv.GlobalTlvTypes;
@@ -34,6 +35,7 @@ import com.guardtime.ksi.tlv.TLVElement;
 import com.guardtime.ksi.tlv.TLVParserException;
 import com.guardtime.ksi.util.Util;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
@@ -70,6 +72,34 @@ public class AggregatorPduV2Factory extends AbstractPduV2Factory<AggregatorConfi
         return new AggregationResponsePayloadV2(responsePayload);
     }
 
+    public AggregationRequest createAggregationRequest(List<KSIRequestContext> contexts, ServiceCredentials credentials,
+                                                       List<DataHash> imprints, List<Long> levels) throws KSIException {
+        Util.notNull(contexts, "KsiRequestContexts");
+        Util.notNull(imprints, "DataHashes");
+        Util.notNull(levels, "Levels");
+        Util.notNull(credentials, "ServiceCredentials");
+        if (contexts.isEmpty() || contexts.size() != imprints.size() || contexts.size() != levels.size()) {
+            throw new IllegalArgumentException("Aggregation request needs the same non-zero number of contexts, imprints and levels");
+        }
+        List<TLVElement> payloads = new ArrayList<>(contexts.size());
+        for (int i = 0; i < contexts.size(); i++) {
+            Util.notNull(contexts.get(i), "KsiRequestContext");
+            Util.notNull(imprints.get(i), "DataHash");
+            payloads.add(new AggregationRequestPayloadV2(imprints.get(i), contexts.get(i).getRequestId(), levels.get(i)).getRootElement());
+        }
+        return new AggregationRequestPduV2(payloads, contexts.get(0), credentials);
+    }
+
+    public List<Future<AggregationResponse>> readAggregationResponses(List<KSIRequestContext> contexts, ServiceCredentials credentials,
+                                                                     TLVElement input) throws KSIException {
+        return readResponses(contexts, credentials, input, AggregationResponsePayloadV2.ELEMENT_TYPE, "Aggregation",
+                new PayloadReader<AggregationResponse>() {
+                    public AggregationResponse read(TLVElement payload) throws KSIException {
+                        return new AggregationResponsePayloadV2(payload);
+                    }
+                });
+    }
+
     public AggregationRequest createAggregatorConfigurationRequest(KSIRequestContext context, ServiceCredentials credentials) throws KSIException {
         Util.notNull(context, "KsiRequestContext");
         Util.notNull(credentials, "ServiceCredentials");
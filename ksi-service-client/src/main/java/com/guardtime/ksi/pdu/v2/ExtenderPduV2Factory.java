@@ -26,6 +26,7 @@ import com.guardtime.ksi.pdu.ExtensionRequest;
 import com.guardtime.ksi.pdu.ExtensionResponse;
 import com.guardtime.ksi.pdu.KSIRequestContext;
 import com.guardtime.ksi.service.ConfigurationListener;
+import com.guardtime.ksi.service.Future;
 import com.guardtime.ksi.service.KSIProtocolException;
 import com.guardtime.ksi.service.client.ServiceCredentials;
 import com.guardtime.ksi.tlv.GlobalTlvTypes;
@@ -33,6 +34,7 @@ import com.guardtime.ksi.tlv.TLVElement;
 import com.guardtime.ksi.tlv.TLVParserException;
 import com.guardtime.ksi.util.Util;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
@@ -75,6 +77,35 @@ public class ExtenderPduV2Factory extends AbstractPduV2Factory<ExtenderConfigura
         return new ExtensionResponsePayloadV2(responsePayload);
     }
 
+    public ExtensionRequest createExtensionRequest(List<KSIRequestContext> contexts, ServiceCredentials credentials,
+                                                   List<Date> aggregationTimes, List<Date> publicationTimes) throws KSIException {
+        Util.notNull(contexts, "KsiRequestContexts");
+        Util.notNull(credentials, "ServiceCredentials");
+        Util.notNull(aggregationTimes, "Aggregation times");
+        Util.notNull(publicationTimes, "Publication times");
+        if (contexts.isEmpty() || contexts.size() != aggregationTimes.size() || contexts.size() != publicationTimes.size()) {
+            throw new IllegalArgumentException("Extension request needs the same non-zero number of contexts, aggregation times and publication times");
+        }
+        List<TLVElement> payloads = new ArrayList<>(contexts.size());
+        for (int i = 0; i < contexts.size(); i++) {
+            Util.notNull(contexts.get(i), "KsiRequestContext");
+            Util.notNull(aggregationTimes.get(i), "Aggregation time");
+            payloads.add(new ExtensionRequestPayloadV2(aggregationTimes.get(i), publicationTimes.get(i),
+                    contexts.get(i).getRequestId()).getRootElement());
+        }
+        return new ExtensionRequestPduV2(payloads, contexts.get(0), credentials);
+    }
+
+    public List<Future<ExtensionResponse>> readExtensionResponses(List<KSIRequestContext> contexts, ServiceCredentials credentials,
+                                                                 TLVElement input) throws KSIException {
+        return readResponses(contexts, credentials, input, ExtensionResponsePayloadV2.ELEMENT_TYPE, "Extension",
+                new PayloadReader<ExtensionResponse>() {
+                    public ExtensionResponse read(TLVElement payload) throws KSIException {
+                        return new ExtensionResponsePayloadV2(payload);
+                    }
+                });
+    }
+
     public ExtensionRequest createExtensionConfigurationRequest(KSIRequestContext context, ServiceCredentials credentials) throws KSIException {
         Util.notNull(context, "KsiRequestContext");
         Util.notNull(credentials, "ServiceCredentials");
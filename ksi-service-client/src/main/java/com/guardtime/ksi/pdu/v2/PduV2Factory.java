@@ -29,10 +29,12 @@ import com.guardtime.ksi.pdu.ExtensionRequest;
 import com.guardtime.ksi.pdu.ExtensionResponse;
 import com.guardtime.ksi.pdu.KSIRequestContext;
 import com.guardtime.ksi.pdu.PduFactory;
+import com.guardtime.ksi.service.Future;
 import com.guardtime.ksi.service.client.ServiceCredentials;
 import com.guardtime.ksi.tlv.TLVElement;
 
 import java.util.Date;
+import java.util.List;
 
 /**
  * Implementation of the {@link PduFactory}.
@@ -70,6 +72,16 @@ public class PduV2Factory implements PduFactory {
         return this.aggregatorPduV2Factory.readAggregationResponse(context, credentials, input);
     }
 
+    public AggregationRequest createAggregationRequest(List<KSIRequestContext> contexts, ServiceCredentials credentials,
+                                                       List<DataHash> imprints, List<Long> levels) throws KSIException {
+        return this.aggregatorPduV2Factory.createAggregationRequest(contexts, credentials, imprints, levels);
+    }
+
+    public List<Future<AggregationResponse>> readAggregationResponses(List<KSIRequestContext> contexts, ServiceCredentials credentials,
+                                                                     TLVElement input) throws KSIException {
+        return this.aggregatorPduV2Factory.readAggregationResponses(contexts, credentials, input);
+    }
+
     public AggregationRequest createAggregatorConfigurationRequest(KSIRequestContext context, ServiceCredentials credentials) throws KSIException {
         return this.aggregatorPduV2Factory.createAggregatorConfigurationRequest(context, credentials);
     }
@@ -86,6 +98,16 @@ public class PduV2Factory implements PduFactory {
         return this.extenderPduV2Factory.readExtensionResponse(context, credentials, input);
     }
 
+    public ExtensionRequest createExtensionRequest(List<KSIRequestContext> contexts, ServiceCredentials credentials,
+                                                   List<Date> aggregationTimes, List<Date> publicationTimes) throws KSIException {
+        return this.extenderPduV2Factory.createExtensionRequest(contexts, credentials, aggregationTimes, publicationTimes);
+    }
+
+    public List<Future<ExtensionResponse>> readExtensionResponses(List<KSIRequestContext> contexts, ServiceCredentials credentials,
+                                                                 TLVElement input) throws KSIException {
+        return this.extenderPduV2Factory.readExtensionResponses(contexts, credentials, input);
+    }
+
     public ExtensionRequest createExtensionConfigurationRequest(KSIRequestContext context, ServiceCredentials credentials) throws KSIException {
         return this.extenderPduV2Factory.createExtensionConfigurationRequest(context, credentials);
     }
@@ -0,0 +1,214 @@
+/*
+ * Copyright 2013-2018 Guardtime, Inc.
+ *
+ *  This file is part of the Guardtime client SDK.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License").
+ *  You may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES, CONDITIONS, OR OTHER LICENSES OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ *  "Guardtime" and "KSI" are trademarks or registered trademarks of
+ *  Guardtime, Inc., and no license to trademarks is granted; Guardtime
+ *  reserves and retains all trademark rights.
+ *
+ */
+
+package com.guardtime.ksi.service;
+
+import com.guardtime.ksi.exceptions.KSIException;
+import com.guardtime.ksi.pdu.ExtenderConfiguration;
+import com.guardtime.ksi.pdu.ExtensionResponse;
+import com.guardtime.ksi.util.Util;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.BiConsumer;
+
+/**
+ * {@link KSIExtendingService} decorator that merges concurrent identical extension requests. While a request with the
+ * same aggregation time and publication time is in flight, a new request is not sent but waits for the response of the
+ * in-flight request. The request is forgotten as soon as its response has arrived, so responses are never reused
+ * later, for that use a calendar hash chain cache.
+ * <p>
+ * Completion of the in-flight requests is tracked with {@link Future#toCompletionStage()} of the decorated service's
+ * futures.
+ * </p>
+ */
+public final class CoalescingExtendingService implements KSIExtendingService {
+
+    private final KSIExtendingService extendingService;
+    private final ConcurrentMap<Key, SharedFuture> inFlight = new ConcurrentHashMap<>();
+
+    public CoalescingExtendingService(KSIExtendingService extendingService) {
+        Util.notNull(extendingService, "Extending service");
+        this.extendingService = extendingService;
+    }
+
+    public Future<ExtensionResponse> extend(Date aggregationTime, Date publicationTime) throws KSIException {
+        Util.notNull(aggregationTime, "aggregationTime");
+        Key key = new Key(aggregationTime, publicationTime);
+        SharedFuture future = new SharedFuture(key);
+        SharedFuture existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            return existing;
+        }
+        try {
+            future.sent(extendingService.extend(aggregationTime, publicationTime));
+        } catch (KSIException | RuntimeException e) {
+            future.failed(e);
+            throw e;
+        }
+        return future;
+    }
+
+    /**
+     * @return The number of extension requests currently in flight.
+     */
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    public List<KSIExtendingService> getSubExtendingServices() {
+        return extendingService.getSubExtendingServices();
+    }
+
+    public void registerExtenderConfigurationListener(ConfigurationListener<ExtenderConfiguration> listener) {
+        extendingService.registerExtenderConfigurationListener(listener);
+    }
+
+    public Future<ExtenderConfiguration> getExtendingConfiguration() {
+        return extendingService.getExtendingConfiguration();
+    }
+
+    public void close() throws IOException {
+        extendingService.close();
+    }
+
+    @Override
+    public String toString() {
+        return "CoalescingExtendingService{" +
+                "extendingService=" + extendingService +
+                '}';
+    }
+
+    /**
+     * Future shared by all the callers of one request. The response is read from the decorated future only once. The
+     * request is forgotten when the response has been read, either by a caller of {@link #getResult()} or when the
+     * completion stage of the decorated future completes, whichever happens first.
+     */
+    private final class SharedFuture implements Future<ExtensionResponse> {
+
+        private final Key key;
+        private final CountDownLatch sent = new CountDownLatch(1);
+        private final CompletableFuture<ExtensionResponse> stage = new CompletableFuture<>();
+        private volatile Future<ExtensionResponse> future;
+        private boolean done;
+        private ExtensionResponse response;
+        private KSIException failure;
+
+        SharedFuture(Key key) {
+            this.key = key;
+        }
+
+        void sent(Future<ExtensionResponse> future) {
+            this.future = future;
+            sent.countDown();
+            FutureUtil.afterCompletion(future, this).whenComplete(new BiConsumer<ExtensionResponse, Throwable>() {
+                public void accept(ExtensionResponse response, Throwable throwable) {
+                    forget();
+                    if (throwable != null) {
+                        stage.completeExceptionally(throwable);
+                    } else {
+                        stage.complete(response);
+                    }
+                }
+            });
+        }
+
+        void failed(Exception e) {
+            synchronized (this) {
+                failure = e instanceof KSIException ? (KSIException) e : new KSIException("Sending the extension request failed", e);
+                done = true;
+            }
+            forget();
+            sent.countDown();
+            stage.completeExceptionally(failure);
+        }
+
+        public ExtensionResponse getResult() throws KSIException {
+            try {
+                sent.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new KSIException("Waiting for the extension request was interrupted", e);
+            }
+            synchronized (this) {
+                if (!done) {
+                    try {
+                        response = future.getResult();
+                    } catch (KSIException e) {
+                        failure = e;
+                    }
+                    done = true;
+                    forget();
+                }
+                if (failure != null) {
+                    throw failure;
+                }
+                return response;
+            }
+        }
+
+        public boolean isFinished() {
+            Future<ExtensionResponse> sentFuture = future;
+            return stage.isDone() || (sentFuture != null && sentFuture.isFinished());
+        }
+
+        public CompletionStage<ExtensionResponse> toCompletionStage() {
+            return stage;
+        }
+
+        private void forget() {
+            inFlight.remove(key, this);
+        }
+    }
+
+    private static final class Key {
+
+        private final long aggregationTime;
+        private final Long publicationTime;
+
+        Key(Date aggregationTime, Date publicationTime) {
+            this.aggregationTime = aggregationTime.getTime();
+            this.publicationTime = publicationTime != null ? publicationTime.getTime() : null;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            Key that = (Key) o;
+            return aggregationTime == that.aggregationTime
+                    && (publicationTime != null ? publicationTime.equals(that.publicationTime) : that.publicationTime == null);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = (int) (aggregationTime ^ (aggregationTime >>> 32));
+            result = 31 * result + (publicationTime != null ? publicationTime.hashCode() : 0);
+            return result;
+        }
+    }
+}
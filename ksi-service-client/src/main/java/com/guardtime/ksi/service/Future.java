@@ -20,8 +20,11 @@
 
 package com.guardtime.ksi.service;
 
+import com.guardtime.ksi.concurrency.DefaultExecutorServiceProvider;
 import com.guardtime.ksi.exceptions.KSIException;
 
+import java.util.concurrent.CompletionStage;
+
 /**
  * KSI protocol related request response future.
  * <br><br>
@@ -32,6 +35,8 @@ import com.guardtime.ksi.exceptions.KSIException;
  * <br><br>
  * Note: while recent Java versions also provide the Future pattern this API has it's own implementation to provide backwards
  * compatibility with older Java versions.
+ * <br><br>
+ * To be notified of the result instead of waiting for it, use {@link #toCompletionStage()}.
  *
  * @param <T>
  *         future return type
@@ -53,4 +58,20 @@ public interface Future<T> {
      * @return True, if call is finished.
      */
     boolean isFinished();
+
+    /**
+     * Returns a {@link CompletionStage} that is completed with the result of this future, or exceptionally with the
+     * exception {@link #getResult()} would throw. The futures returned by the SDK's clients and services do not hold a
+     * thread while waiting: when the response arrives, it is processed and the stage is completed on a thread of the
+     * {@link FutureUtil#getCompletionExecutor() completion executor}, so the dependent stages do not run on the
+     * transport's I/O threads.
+     * <br><br>
+     * The default implementation, used by futures that do not provide their own, waits for the result on a thread of
+     * the {@link DefaultExecutorServiceProvider} executor.
+     *
+     * @return Completion stage of the result.
+     */
+    default CompletionStage<T> toCompletionStage() {
+        return FutureUtil.toCompletionStage(this, DefaultExecutorServiceProvider.getExecutorService());
+    }
 }
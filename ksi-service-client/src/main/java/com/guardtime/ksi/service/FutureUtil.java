@@ -0,0 +1,214 @@
+/*
+ * Copyright 2013-2018 Guardtime, Inc.
+ *
+ *  This file is part of the Guardtime client SDK.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License").
+ *  You may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES, CONDITIONS, OR OTHER LICENSES OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ *  "Guardtime" and "KSI" are trademarks or registered trademarks of
+ *  Guardtime, Inc., and no license to trademarks is granted; Guardtime
+ *  reserves and retains all trademark rights.
+ *
+ */
+
+package com.guardtime.ksi.service;
+
+import com.guardtime.ksi.concurrency.DefaultExecutorServiceProvider;
+import com.guardtime.ksi.exceptions.KSIException;
+import com.guardtime.ksi.util.Util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BiConsumer;
+
+/**
+ * Helper methods for creating finished {@link Future}s and converting {@link Future}s to {@link CompletionStage}s.
+ * <p>
+ * The stages returned by {@link #afterCompletion(Future, Future)} are completed, and their dependent stages run, on a
+ * thread of the completion executor, never on the I/O or timer thread that completes the dependency. By default the
+ * completion executor is the {@link DefaultExecutorServiceProvider} executor, it can be changed with
+ * {@link #setCompletionExecutor(Executor)}.
+ * </p>
+ */
+public final class FutureUtil {
+
+    private static volatile Executor completionExecutor;
+
+    private FutureUtil() {
+    }
+
+    /**
+     * Sets the executor that processes the results of the futures and runs the dependent stages of the stages
+     * returned by {@link #afterCompletion(Future, Future)}.
+     *
+     * @param executor executor to use, or null to use the {@link DefaultExecutorServiceProvider} executor.
+     */
+    public static void setCompletionExecutor(Executor executor) {
+        completionExecutor = executor;
+    }
+
+    /**
+     * @return The executor that processes the results of the futures after their dependencies have completed.
+     */
+    public static Executor getCompletionExecutor() {
+        Executor executor = completionExecutor;
+        return executor != null ? executor : DefaultExecutorServiceProvider.getExecutorService();
+    }
+
+    /**
+     * Converts a future that can only be waited for to a {@link CompletionStage}. Unless the future is already finished,
+     * a thread of the given executor waits for the result. If the executor rejects the task, the result is waited for
+     * in the calling thread.
+     *
+     * @param future future to convert.
+     * @param executor executor that waits for the result of the future.
+     *
+     * @return Completion stage that is completed with the result or the exception of the future.
+     */
+    public static <T> CompletionStage<T> toCompletionStage(final Future<T> future, Executor executor) {
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        if (future.isFinished()) {
+            complete(result, future);
+            return result;
+        }
+        Runnable task = new Runnable() {
+            public void run() {
+                complete(result, future);
+            }
+        };
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.run();
+        }
+        return result;
+    }
+
+    /**
+     * Returns a {@link CompletionStage} of a future that processes the result of another future. When the dependency
+     * completes (normally or exceptionally), the result of the future is taken with {@link Future#getResult()}, which
+     * does not wait any more, and the returned stage is completed with it. This way both the blocking and the
+     * non-blocking API return the same results and exceptions.
+     * <br><br>
+     * The result is taken on a thread of the {@link #getCompletionExecutor() completion executor}, so parsing the
+     * response and the dependent stages do not run on the thread that completes the dependency. If the executor
+     * rejects the task, the result is taken on the completing thread.
+     *
+     * @param dependency future whose result the future processes.
+     * @param future the future that processes the result of the dependency.
+     *
+     * @return Completion stage of the future.
+     */
+    public static <T> CompletionStage<T> afterCompletion(Future<?> dependency, Future<T> future) {
+        return afterCompletion(dependency.toCompletionStage(), future);
+    }
+
+    /**
+     * Same as {@link #afterCompletion(Future, Future)}, the dependency is given as a {@link CompletionStage}.
+     *
+     * @param dependency stage that completes when the result of the future is available.
+     * @param future the future that processes the result of the dependency.
+     *
+     * @return Completion stage of the future.
+     */
+    public static <T> CompletionStage<T> afterCompletion(CompletionStage<?> dependency, Future<T> future) {
+        return afterCompletion(dependency, future, getCompletionExecutor());
+    }
+
+    /**
+     * Same as {@link #afterCompletion(CompletionStage, Future)}, the result of the future is taken on a thread of the
+     * given executor.
+     *
+     * @param dependency stage that completes when the result of the future is available.
+     * @param future the future that processes the result of the dependency.
+     * @param executor executor that takes the result of the future and completes the returned stage.
+     *
+     * @return Completion stage of the future.
+     */
+    public static <T> CompletionStage<T> afterCompletion(CompletionStage<?> dependency, final Future<T> future,
+                                                         final Executor executor) {
+        Util.notNull(executor, "Executor");
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        final Runnable task = new Runnable() {
+            public void run() {
+                complete(result, future);
+            }
+        };
+        dependency.whenComplete(new BiConsumer<Object, Throwable>() {
+            public void accept(Object value, Throwable throwable) {
+                try {
+                    executor.execute(task);
+                } catch (RejectedExecutionException e) {
+                    task.run();
+                }
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Returns a finished future with the given result.
+     *
+     * @param result result of the future.
+     *
+     * @return Future whose {@link Future#getResult()} returns the result.
+     */
+    public static <T> Future<T> completed(final T result) {
+        return new Future<T>() {
+            public T getResult() {
+                return result;
+            }
+
+            public boolean isFinished() {
+                return true;
+            }
+
+            public CompletionStage<T> toCompletionStage() {
+                return CompletableFuture.completedFuture(result);
+            }
+        };
+    }
+
+    /**
+     * Returns a finished future that failed with the given exception.
+     *
+     * @param exception exception of the future.
+     *
+     * @return Future whose {@link Future#getResult()} throws the exception.
+     */
+    public static <T> Future<T> failed(final KSIException exception) {
+        Util.notNull(exception, "Exception");
+        return new Future<T>() {
+            public T getResult() throws KSIException {
+                throw exception;
+            }
+
+            public boolean isFinished() {
+                return true;
+            }
+
+            public CompletionStage<T> toCompletionStage() {
+                CompletableFuture<T> stage = new CompletableFuture<>();
+                stage.completeExceptionally(exception);
+                return stage;
+            }
+        };
+    }
+
+    private static <T> void complete(CompletableFuture<T> result, Future<T> future) {
+        try {
+            result.complete(future.getResult());
+        } catch (Throwable e) {
+            result.completeExceptionally(e);
+        }
+    }
+}
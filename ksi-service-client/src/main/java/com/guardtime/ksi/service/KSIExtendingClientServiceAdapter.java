@@ -35,8 +35,9 @@ import com.guardtime.ksi.service.client.ServiceCredentials;
 import com.guardtime.ksi.tlv.TLVElement;
 import com.guardtime.ksi.util.Util;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
@@ -44,6 +45,10 @@ import java.util.concurrent.ExecutorService;
 
 /**
  * Adapter which wraps {@link KSIExtenderClient} so it can be used as {@link KSIExtendingService}.
+ * <p>
+ * In batching mode the adapter packs concurrent extension requests into multi-payload PDUs of at most
+ * {@link ExtenderConfiguration#getMaximumRequests()} requests, see {@link RequestBatcher}.
+ * </p>
  */
 public final class KSIExtendingClientServiceAdapter implements KSIExtendingService {
 
@@ -51,27 +56,59 @@ public final class KSIExtendingClientServiceAdapter implements KSIExtendingServi
     private final RequestContextFactory requestContextFactory = RequestContextFactory.DEFAULT_FACTORY;
     private final ConfigurationHandler<ExtenderConfiguration> extenderConfHandler;
     private final PduFactory pduFactory;
+    private final RequestBatcher<BatchedExtensionRequest, ExtensionResponse> batcher;
 
     public KSIExtendingClientServiceAdapter(KSIExtenderClient client) {
         this(client, DefaultExecutorServiceProvider.getExecutorService());
     }
 
     public KSIExtendingClientServiceAdapter(KSIExtenderClient client, ExecutorService executorService) {
+        this(client, executorService, false);
+    }
+
+    /**
+     * Creates an adapter that can pack concurrent extension requests into multi-payload PDUs.
+     *
+     * @param client the client to send the requests with.
+     * @param executorService executor for configuration requests and for sending the batched requests.
+     * @param batchRequests whether concurrent extension requests are sent together in multi-payload PDUs.
+     */
+    public KSIExtendingClientServiceAdapter(KSIExtenderClient client, ExecutorService executorService, boolean batchRequests) {
         Util.notNull(client, "KSIExtendingClientServiceAdapter.client");
         Util.notNull(executorService, "KSIExtendingClientServiceAdapter.executorService");
         this.client = client;
         this.extenderConfHandler = new ConfigurationHandler<>(executorService);
         this.pduFactory = PduFactoryProvider.withExtenderConfListener(client.getPduVersion(),
                 new PushConfigurationListener<>(extenderConfHandler));
+        if (batchRequests) {
+            this.batcher = new ExtensionRequestBatcher(executorService);
+            extenderConfHandler.registerListener(new ConfigurationListener<ExtenderConfiguration>() {
+                public void updated(ExtenderConfiguration configuration) {
+                    batcher.configurationUpdated(configuration.getMaximumRequests());
+                }
+
+                public void updateFailed(Throwable reason) {
+                    batcher.configurationFailed(reason);
+                }
+            });
+        } else {
+            this.batcher = null;
+        }
     }
 
     public Future<ExtensionResponse> extend(Date aggregationTime, Date publicationTime) throws KSIException {
         Util.notNull(aggregationTime, "aggregationTime");
+        if (batcher != null) {
+            if (publicationTime != null && aggregationTime.after(publicationTime)) {
+                throw new KSIProtocolException("There is no suitable publication yet");
+            }
+            return batcher.add(new BatchedExtensionRequest(requestContextFactory.createContext(), aggregationTime, publicationTime));
+        }
         KSIRequestContext requestContext = requestContextFactory.createContext();
         ServiceCredentials credentials = client.getServiceCredentials();
         ExtensionRequest requestMessage = pduFactory.createExtensionRequest(requestContext, credentials, aggregationTime, publicationTime);
-        ByteArrayInputStream requestStream = new ByteArrayInputStream(requestMessage.toByteArray());
-        Future<TLVElement> extensionResponse = client.extend(requestStream);
+        Future<TLVElement> extensionResponse = client.extend(ByteBuffer.wrap(requestMessage.toByteArray()),
+                requestContext.getRequestId());
         return new ExtensionResponseFuture(extensionResponse, requestContext, credentials, pduFactory);
     }
 
@@ -90,7 +127,7 @@ public final class KSIExtendingClientServiceAdapter implements KSIExtendingServi
                         KSIRequestContext requestContext = requestContextFactory.createContext();
                         ServiceCredentials credentials = client.getServiceCredentials();
                         ExtensionRequest request = pduFactory.createExtensionConfigurationRequest(requestContext, credentials);
-                        Future<TLVElement> future = client.extend(new ByteArrayInputStream(request.toByteArray()));
+                        Future<TLVElement> future = client.extend(ByteBuffer.wrap(request.toByteArray()), null);
                         return pduFactory.readExtenderConfigurationResponse(credentials, future.getResult());
                     }
                 }));
@@ -106,4 +143,53 @@ public final class KSIExtendingClientServiceAdapter implements KSIExtendingServi
                 "client=" + client +
                 '}';
     }
+
+    private final class ExtensionRequestBatcher extends RequestBatcher<BatchedExtensionRequest, ExtensionResponse> {
+
+        ExtensionRequestBatcher(ExecutorService executorService) {
+            super(executorService, "extension");
+        }
+
+        void requestConfiguration() {
+            getExtendingConfiguration();
+        }
+
+        ServiceCredentials getServiceCredentials() {
+            return client.getServiceCredentials();
+        }
+
+        Future<TLVElement> send(List<BatchedExtensionRequest> batch, ServiceCredentials credentials) throws KSIException {
+            List<KSIRequestContext> contexts = new ArrayList<>(batch.size());
+            List<Date> aggregationTimes = new ArrayList<>(batch.size());
+            List<Date> publicationTimes = new ArrayList<>(batch.size());
+            for (BatchedExtensionRequest request : batch) {
+                contexts.add(request.context);
+                aggregationTimes.add(request.aggregationTime);
+                publicationTimes.add(request.publicationTime);
+            }
+            return client.extend(ByteBuffer.wrap(
+                    pduFactory.createExtensionRequest(contexts, credentials, aggregationTimes, publicationTimes).toByteArray()),
+                    contexts.get(0).getRequestId());
+        }
+
+        List<Future<ExtensionResponse>> readResponses(List<KSIRequestContext> contexts, ServiceCredentials credentials,
+                                                      TLVElement response) throws KSIException {
+            return pduFactory.readExtensionResponses(contexts, credentials, response);
+        }
+    }
+
+    /**
+     * Extension request waiting to be sent in a multi-payload PDU.
+     */
+    private static final class BatchedExtensionRequest extends RequestBatcher.Request<ExtensionResponse> {
+
+        private final Date aggregationTime;
+        private final Date publicationTime;
+
+        BatchedExtensionRequest(KSIRequestContext context, Date aggregationTime, Date publicationTime) {
+            super(context);
+            this.aggregationTime = aggregationTime;
+            this.publicationTime = publicationTime;
+        }
+    }
 }
@@ -86,4 +86,11 @@ public class KSIProtocolException extends KSIException {
         return errorCode;
     }
 
+    /**
+     * @return True, if the exception holds the error code returned by the server.
+     */
+    public boolean hasErrorCode() {
+        return errorCode != null;
+    }
+
 }
@@ -36,14 +36,19 @@ import com.guardtime.ksi.service.client.ServiceCredentials;
 import com.guardtime.ksi.tlv.TLVElement;
 import com.guardtime.ksi.util.Util;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 
 /**
  * Adapter which wraps {@link KSISigningClient} so it can be used as {@link KSISigningService}.
+ * <p>
+ * In batching mode the adapter packs concurrent aggregation requests into multi-payload PDUs of at most
+ * {@link AggregatorConfiguration#getMaximumRequests()} requests, see {@link RequestBatcher}.
+ * </p>
  */
 public final class KSISigningClientServiceAdapter implements KSISigningService {
 
@@ -51,27 +56,57 @@ public final class KSISigningClientServiceAdapter implements KSISigningService {
     private final RequestContextFactory requestContextFactory = RequestContextFactory.DEFAULT_FACTORY;
     private final ConfigurationHandler<AggregatorConfiguration> aggregatorConfHandler;
     private final PduFactory pduFactory;
+    private final RequestBatcher<BatchedAggregationRequest, AggregationResponse> batcher;
 
     public KSISigningClientServiceAdapter(KSISigningClient client) {
         this(client, DefaultExecutorServiceProvider.getExecutorService());
     }
 
     public KSISigningClientServiceAdapter(KSISigningClient client, ExecutorService executorService) {
+        this(client, executorService, false);
+    }
+
+    /**
+     * Creates an adapter that can pack concurrent aggregation requests into multi-payload PDUs.
+     *
+     * @param client the client to send the requests with.
+     * @param executorService executor for configuration requests and for sending the batched requests.
+     * @param batchRequests whether concurrent aggregation requests are sent together in multi-payload PDUs.
+     */
+    public KSISigningClientServiceAdapter(KSISigningClient client, ExecutorService executorService, boolean batchRequests) {
         Util.notNull(client, "KSISigningClientServiceAdapter.client");
         Util.notNull(executorService, "KSISigningClientServiceAdapter.executorService");
         this.client = client;
         this.aggregatorConfHandler = new ConfigurationHandler<>(executorService);
         this.pduFactory = PduFactoryProvider.withAggregatorConfListener(client.getPduVersion(),
                 new PushConfigurationListener<>(aggregatorConfHandler));
+        if (batchRequests) {
+            this.batcher = new AggregationRequestBatcher(executorService);
+            aggregatorConfHandler.registerListener(new ConfigurationListener<AggregatorConfiguration>() {
+                public void updated(AggregatorConfiguration configuration) {
+                    batcher.configurationUpdated(configuration.getMaximumRequests());
+                }
+
+                public void updateFailed(Throwable reason) {
+                    batcher.configurationFailed(reason);
+                }
+            });
+        } else {
+            this.batcher = null;
+        }
     }
 
     public Future<AggregationResponse> sign(DataHash dataHash, Long level) throws KSIException {
         Util.notNull(dataHash, "dataHash");
         Util.notNull(level, "level");
+        if (batcher != null) {
+            return batcher.add(new BatchedAggregationRequest(requestContextFactory.createContext(), dataHash, level));
+        }
         KSIRequestContext requestContext = requestContextFactory.createContext();
         ServiceCredentials credentials = client.getServiceCredentials();
-        Future<TLVElement> requestFuture = client.sign(new ByteArrayInputStream(
-                pduFactory.createAggregationRequest(requestContext, credentials, dataHash, level).toByteArray()));
+        Future<TLVElement> requestFuture = client.sign(ByteBuffer.wrap(
+                pduFactory.createAggregationRequest(requestContext, credentials, dataHash, level).toByteArray()),
+                requestContext.getRequestId());
         return new AggregationResponseFuture(requestFuture, requestContext, credentials, pduFactory);
     }
 
@@ -90,7 +125,7 @@ public final class KSISigningClientServiceAdapter implements KSISigningService {
                         KSIRequestContext requestContext = requestContextFactory.createContext();
                         ServiceCredentials credentials = client.getServiceCredentials();
                         AggregationRequest requestMessage = pduFactory.createAggregatorConfigurationRequest(requestContext, credentials);
-                        Future<TLVElement> future = client.sign(new ByteArrayInputStream(requestMessage.toByteArray()));
+                        Future<TLVElement> future = client.sign(ByteBuffer.wrap(requestMessage.toByteArray()), null);
                         return pduFactory.readAggregatorConfigurationResponse(requestContext, credentials, future.getResult());
                     }
                 }));
@@ -106,4 +141,53 @@ public final class KSISigningClientServiceAdapter implements KSISigningService {
                 "client=" + client +
                 '}';
     }
+
+    private final class AggregationRequestBatcher extends RequestBatcher<BatchedAggregationRequest, AggregationResponse> {
+
+        AggregationRequestBatcher(ExecutorService executorService) {
+            super(executorService, "aggregation");
+        }
+
+        void requestConfiguration() {
+            getAggregationConfiguration();
+        }
+
+        ServiceCredentials getServiceCredentials() {
+            return client.getServiceCredentials();
+        }
+
+        Future<TLVElement> send(List<BatchedAggregationRequest> batch, ServiceCredentials credentials) throws KSIException {
+            List<KSIRequestContext> contexts = new ArrayList<>(batch.size());
+            List<DataHash> imprints = new ArrayList<>(batch.size());
+            List<Long> levels = new ArrayList<>(batch.size());
+            for (BatchedAggregationRequest request : batch) {
+                contexts.add(request.context);
+                imprints.add(request.dataHash);
+                levels.add(request.level);
+            }
+            return client.sign(ByteBuffer.wrap(
+                    pduFactory.createAggregationRequest(contexts, credentials, imprints, levels).toByteArray()),
+                    contexts.get(0).getRequestId());
+        }
+
+        List<Future<AggregationResponse>> readResponses(List<KSIRequestContext> contexts, ServiceCredentials credentials,
+                                                        TLVElement response) throws KSIException {
+            return pduFactory.readAggregationResponses(contexts, credentials, response);
+        }
+    }
+
+    /**
+     * Aggregation request waiting to be sent in a multi-payload PDU.
+     */
+    private static final class BatchedAggregationRequest extends RequestBatcher.Request<AggregationResponse> {
+
+        private final DataHash dataHash;
+        private final Long level;
+
+        BatchedAggregationRequest(KSIRequestContext context, DataHash dataHash, Long level) {
+            super(context);
+            this.dataHash = dataHash;
+            this.level = level;
+        }
+    }
 }
@@ -0,0 +1,260 @@
+/*
+ * Copyright 2013-2018 Guardtime, Inc.
+ *
+ *  This file is part of the Guardtime client SDK.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License").
+ *  You may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES, CONDITIONS, OR OTHER LICENSES OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ *  "Guardtime" and "KSI" are trademarks or registered trademarks of
+ *  Guardtime, Inc., and no license to trademarks is granted; Guardtime
+ *  reserves and retains all trademark rights.
+ *
+ */
+
+package com.guardtime.ksi.service;
+
+import com.guardtime.ksi.exceptions.KSIException;
+import com.guardtime.ksi.pdu.KSIRequestContext;
+import com.guardtime.ksi.service.client.ServiceCredentials;
+import com.guardtime.ksi.tlv.TLVElement;
+import com.guardtime.ksi.tlv.TLVParserException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+
+/**
+ * Packs concurrent requests of a service adapter into multi-payload PDUs, so that the header, the MAC and the round
+ * trip are shared by all the requests of a PDU. A PDU carries at most the maximum number of requests of the last known
+ * service configuration. Until the configuration is known, the batcher requests it and sends every request in a PDU
+ * of its own. A failed configuration request is repeated by the next batch of requests.
+ *
+ * @param <R> request waiting to be sent.
+ * @param <T> response of a request.
+ */
+abstract class RequestBatcher<R extends RequestBatcher.Request<T>, T> {
+
+    private static final Logger logger = LoggerFactory.getLogger(RequestBatcher.class);
+
+    private final ExecutorService executorService;
+    private final String requestName;
+
+    private final Queue<R> pendingRequests = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final AtomicBoolean configurationRequested = new AtomicBoolean();
+    private volatile Long maximumRequests;
+
+    /**
+     * @param executorService executor for sending the batched requests.
+     * @param requestName name of the requests used in the log messages, e.g. "aggregation".
+     */
+    RequestBatcher(ExecutorService executorService, String requestName) {
+        this.executorService = executorService;
+        this.requestName = requestName;
+    }
+
+    /**
+     * Queues the request to be sent with the other concurrent requests.
+     *
+     * @return The request, it is also the future of its response.
+     */
+    R add(R request) {
+        pendingRequests.add(request);
+        scheduleFlush();
+        return request;
+    }
+
+    /**
+     * Updates the maximum number of requests in a PDU from a newly received service configuration.
+     */
+    void configurationUpdated(Long maximumRequests) {
+        this.maximumRequests = maximumRequests;
+        if (maximumRequests == null) {
+            logger.info("Service configuration has no maximum number of requests, sending every {} request in a PDU of its own.",
+                    requestName);
+        }
+    }
+
+    /**
+     * Lets the next batch of requests ask for the service configuration again.
+     */
+    void configurationFailed(Throwable reason) {
+        logger.warn("Requesting service configuration for batching " + requestName + " requests failed, sending every " +
+                "request in a PDU of its own until the configuration is known.", reason);
+        configurationRequested.set(false);
+    }
+
+    /**
+     * Asks the service for its configuration, the result is expected in {@link #configurationUpdated(Long)} or
+     * {@link #configurationFailed(Throwable)}.
+     */
+    abstract void requestConfiguration();
+
+    abstract ServiceCredentials getServiceCredentials();
+
+    /**
+     * Sends the requests in one multi-payload PDU.
+     */
+    abstract Future<TLVElement> send(List<R> batch, ServiceCredentials credentials) throws KSIException;
+
+    /**
+     * Reads the responses of the requests from the multi-payload response PDU, in the order of the requests.
+     */
+    abstract List<Future<T>> readResponses(List<KSIRequestContext> contexts, ServiceCredentials credentials,
+                                           TLVElement response) throws KSIException;
+
+    private void scheduleFlush() {
+        if (flushScheduled.compareAndSet(false, true)) {
+            Runnable flush = new Runnable() {
+                public void run() {
+                    flushPendingRequests();
+                }
+            };
+            try {
+                executorService.execute(flush);
+            } catch (RejectedExecutionException e) {
+                flush.run();
+            }
+        }
+    }
+
+    /**
+     * Sends all the pending requests. Requests that are added while the flush is running either get sent by this flush
+     * or schedule the next one.
+     */
+    private void flushPendingRequests() {
+        flushScheduled.set(false);
+        int batchSize = getBatchSize();
+        while (!pendingRequests.isEmpty()) {
+            List<R> batch = new ArrayList<>();
+            R request;
+            while (batch.size() < batchSize && (request = pendingRequests.poll()) != null) {
+                batch.add(request);
+            }
+            if (!batch.isEmpty()) {
+                sendBatch(batch);
+            }
+        }
+    }
+
+    private int getBatchSize() {
+        Long maximum = maximumRequests;
+        if (maximum == null) {
+            if (configurationRequested.compareAndSet(false, true)) {
+                try {
+                    requestConfiguration();
+                } catch (RuntimeException e) {
+                    configurationFailed(e);
+                }
+            }
+            return 1;
+        }
+        return (int) Math.max(1L, Math.min(maximum, Integer.MAX_VALUE));
+    }
+
+    private void sendBatch(final List<R> batch) {
+        final List<KSIRequestContext> contexts = new ArrayList<>(batch.size());
+        for (R request : batch) {
+            contexts.add(request.context);
+        }
+        try {
+            final ServiceCredentials credentials = getServiceCredentials();
+            send(batch, credentials).toCompletionStage().whenComplete(new BiConsumer<TLVElement, Throwable>() {
+                public void accept(TLVElement response, Throwable throwable) {
+                    if (throwable != null) {
+                        failAll(batch, throwable instanceof CompletionException && throwable.getCause() != null ?
+                                throwable.getCause() : throwable);
+                    } else {
+                        completeAll(batch, contexts, credentials, response);
+                    }
+                }
+            });
+        } catch (KSIException | RuntimeException e) {
+            failAll(batch, e);
+        }
+    }
+
+    private void completeAll(List<R> batch, List<KSIRequestContext> contexts, ServiceCredentials credentials,
+                             TLVElement response) {
+        List<Future<T>> responses;
+        try {
+            responses = readResponses(contexts, credentials, response);
+        } catch (TLVParserException e) {
+            failAll(batch, new KSIProtocolException("Can't parse response message", e));
+            return;
+        } catch (KSIException | RuntimeException e) {
+            failAll(batch, e);
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            try {
+                batch.get(i).result.complete(responses.get(i).getResult());
+            } catch (KSIException | RuntimeException e) {
+                batch.get(i).result.completeExceptionally(e);
+            }
+        }
+    }
+
+    private void failAll(List<R> batch, Throwable reason) {
+        for (R request : batch) {
+            request.result.completeExceptionally(reason);
+        }
+    }
+
+    /**
+     * Request waiting to be sent in a multi-payload PDU, and the future of its response.
+     */
+    abstract static class Request<T> implements Future<T> {
+
+        final KSIRequestContext context;
+        final CompletableFuture<T> result = new CompletableFuture<>();
+
+        Request(KSIRequestContext context) {
+            this.context = context;
+        }
+
+        public T getResult() throws KSIException {
+            try {
+                return result.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new KSIException("Waiting for the response was interrupted", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof KSIException) {
+                    throw (KSIException) cause;
+                }
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new KSIException("Request failed", cause);
+            }
+        }
+
+        public boolean isFinished() {
+            return result.isDone();
+        }
+
+        public CompletionStage<T> toCompletionStage() {
+            return FutureUtil.afterCompletion(result, this);
+        }
+    }
+}
@@ -22,8 +22,10 @@ package com.guardtime.ksi.service.client;
 
 import com.guardtime.ksi.service.Future;
 import com.guardtime.ksi.tlv.TLVElement;
+import com.guardtime.ksi.util.Util;
 
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 /**
  * KSI client for signing service.
@@ -40,4 +42,22 @@ public interface KSISigningClient extends KSICredentialsAwareClient {
      */
     Future<TLVElement> sign(InputStream request) throws KSIClientException;
 
+    /**
+     * Sends an encoded signing request. The request ID is passed alongside the request, so that the client does not
+     * have to parse the request again to match the response to it.
+     * <br><br>
+     * The default implementation passes the bytes to {@link #sign(InputStream)} without copying them.
+     *
+     * @param request
+     *         buffer whose remaining bytes contain the request, its position is not changed.
+     * @param requestId
+     *         request ID of the first payload of the request, or null if the request does not have one, for example a
+     *         configuration request. The payloads of the response to a multi-payload request may be in any order.
+     * @return Instance of {@link Future} containing KSI response.
+     * @throws KSIClientException
+     */
+    default Future<TLVElement> sign(ByteBuffer request, Long requestId) throws KSIClientException {
+        return sign(Util.toInputStream(request));
+    }
+
 }
@@ -31,6 +31,7 @@ import com.guardtime.ksi.pdu.ExtensionResponse;
 import com.guardtime.ksi.pdu.KSIRequestContext;
 import com.guardtime.ksi.pdu.exceptions.InvalidMessageAuthenticationCodeException;
 import com.guardtime.ksi.service.ConfigurationListener;
+import com.guardtime.ksi.service.Future;
 import com.guardtime.ksi.service.KSIProtocolException;
 import com.guardtime.ksi.service.client.KSIServiceCredentials;
 import com.guardtime.ksi.service.client.ServiceCredentials;
@@ -42,7 +43,10 @@ import org.testng.Assert;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 
 import static com.guardtime.ksi.CommonTestUtil.loadTlv;
 import static org.mockito.Matchers.any;
@@ -92,6 +96,60 @@ public class PduV2FactoryTest {
         pduFactory.createAggregationRequest(requestContext, CREDENTIALS, dataHash, -42L);
     }
 
+    @Test
+    public void testCreateMultiPayloadAggregationRequest_Ok() throws Exception {
+        List<KSIRequestContext> contexts = Arrays.asList(requestContext, new KSIRequestContext(1L, 42L, 42L), new KSIRequestContext(2L, 42L, 42L));
+        AggregationRequest request = pduFactory.createAggregationRequest(contexts, CREDENTIALS,
+                Arrays.asList(dataHash, dataHash, dataHash), Arrays.asList(DEFAULT_LEVEL, DEFAULT_LEVEL, 1L));
+
+        TLVElement pdu = TLVElement.create(request.toByteArray());
+        List<TLVElement> payloads = pdu.getChildElements(AggregationRequestPayloadV2.ELEMENT_TYPE);
+        Assert.assertEquals(payloads.size(), 3);
+        for (int i = 0; i < payloads.size(); i++) {
+            Assert.assertEquals(payloads.get(i).getFirstChildElement(0x01).getDecodedLong(), contexts.get(i).getRequestId());
+        }
+        Assert.assertEquals(pdu.getChildElements(0x1F).size(), 1);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = "Aggregation request needs the same non-zero number of contexts, imprints and levels")
+    public void testCreateMultiPayloadAggregationRequestWithMissingImprint_ThrowsIllegalArgumentException() throws Exception {
+        pduFactory.createAggregationRequest(Arrays.asList(requestContext, new KSIRequestContext(1L, 42L, 42L)), CREDENTIALS,
+                Collections.singletonList(dataHash), Arrays.asList(DEFAULT_LEVEL, DEFAULT_LEVEL));
+    }
+
+    @Test
+    public void testReadAggregationResponsesFailsOnlyMissingPayload() throws Exception {
+        List<Future<AggregationResponse>> responses = pduFactory.readAggregationResponses(
+                Arrays.asList(new KSIRequestContext(1L, 42L, 42L), new KSIRequestContext(123456L, 42L, 42L)), CREDENTIALS,
+                loadTlv("pdu/aggregation/aggregation-response-v2.tlv"));
+        Assert.assertEquals(responses.size(), 2);
+        try {
+            responses.get(0).getResult();
+            Assert.fail("Missing payload must fail its request");
+        } catch (KSIProtocolException e) {
+            Assert.assertEquals(e.getMessage(), "Aggregation response payload with requestId 1 wasn't found");
+        }
+        Assert.assertNotNull(responses.get(1).getResult());
+    }
+
+    @Test
+    public void testReadAggregationResponsesWithErrorPayload() throws Exception {
+        List<Future<AggregationResponse>> responses = pduFactory.readAggregationResponses(
+                Collections.singletonList(new KSIRequestContext(8530358545345979581L, 42L, 42L)), CREDENTIALS,
+                loadTlv("pdu/aggregation/aggregation-response-v2-with-error.tlv"));
+        try {
+            responses.get(0).getResult();
+            Assert.fail("Error payload must fail its request");
+        } catch (KSIProtocolException e) {
+            Assert.assertTrue(e.getMessage().contains("Error was returned by server"));
+        }
+    }
+
+    @Test(expectedExceptions = InvalidMessageAuthenticationCodeException.class, expectedExceptionsMessageRegExp = "Invalid MAC code. Expected.*")
+    public void testReadAggregationResponsesWithInvalidMac_ThrowsInvalidMessageAuthenticationCodeException() throws Exception {
+        pduFactory.readAggregationResponses(Collections.singletonList(requestContext), CREDENTIALS, loadTlv("pdu/aggregation/aggregation-response-v2-invalid-mac.tlv"));
+    }
+
     @Test(expectedExceptions = InvalidMessageAuthenticationCodeException.class, expectedExceptionsMessageRegExp = "Invalid MAC code. Expected.*")
     public void testAggregationResponseContainsInvalidMac_ThrowsInvalidMessageAuthenticationCodeException() throws Exception {
         pduFactory.readAggregationResponse(requestContext, CREDENTIALS, loadTlv("pdu/aggregation/aggregation-response-v2-invalid-mac.tlv"));
@@ -164,6 +222,48 @@ public class PduV2FactoryTest {
         pduFactory.readExtensionResponse(extensionContext, CREDENTIALS, loadTlv("pdu/extension/extension-response-v2-invalid-mac.tlv"));
     }
 
+    @Test
+    public void testCreateMultiPayloadExtensionRequest_Ok() throws Exception {
+        List<KSIRequestContext> contexts = Arrays.asList(extensionContext, new KSIRequestContext(1L, 42L, 42L));
+        ExtensionRequest request = pduFactory.createExtensionRequest(contexts, CREDENTIALS,
+                Arrays.asList(new Date(1000L), new Date(2000L)), Arrays.asList(new Date(3000L), null));
+
+        TLVElement pdu = TLVElement.create(request.toByteArray());
+        List<TLVElement> payloads = pdu.getChildElements(ExtensionRequestPayloadV2.ELEMENT_TYPE);
+        Assert.assertEquals(payloads.size(), 2);
+        for (int i = 0; i < payloads.size(); i++) {
+            Assert.assertEquals(payloads.get(i).getFirstChildElement(0x01).getDecodedLong(), contexts.get(i).getRequestId());
+        }
+        Assert.assertNull(payloads.get(1).getFirstChildElement(0x03));
+        Assert.assertEquals(pdu.getChildElements(0x1F).size(), 1);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = "Extension request needs the same non-zero number of contexts, aggregation times and publication times")
+    public void testCreateMultiPayloadExtensionRequestWithoutPayloads_ThrowsIllegalArgumentException() throws Exception {
+        pduFactory.createExtensionRequest(Collections.<KSIRequestContext>emptyList(), CREDENTIALS,
+                Collections.<Date>emptyList(), Collections.<Date>emptyList());
+    }
+
+    @Test
+    public void testReadExtensionResponsesFailsOnlyMissingPayload() throws Exception {
+        List<Future<ExtensionResponse>> responses = pduFactory.readExtensionResponses(
+                Arrays.asList(new KSIRequestContext(4846851148188931472L, 42L, 42L), extensionContext), CREDENTIALS,
+                loadTlv("pdu/extension/extension-response-v2.tlv"));
+        Assert.assertEquals(responses.size(), 2);
+        Assert.assertNotNull(responses.get(0).getResult());
+        try {
+            responses.get(1).getResult();
+            Assert.fail("Missing payload must fail its request");
+        } catch (KSIProtocolException e) {
+            Assert.assertEquals(e.getMessage(), "Extension response payload with requestId 5546551786909961666 wasn't found");
+        }
+    }
+
+    @Test(expectedExceptions = InvalidMessageAuthenticationCodeException.class, expectedExceptionsMessageRegExp = "Invalid MAC code. Expected.*")
+    public void testReadExtensionResponsesWithInvalidMac_ThrowsInvalidMessageAuthenticationCodeException() throws Exception {
+        pduFactory.readExtensionResponses(Collections.singletonList(extensionContext), CREDENTIALS, loadTlv("pdu/extension/extension-response-v2-invalid-mac.tlv"));
+    }
+
     @Test(expectedExceptions = KSIProtocolException.class, expectedExceptionsMessageRegExp = "Extension response payload with requestId 5546551786909961666 wasn't found")
     public void testExtensionRequestIdsMismatch() throws Exception {
         pduFactory.readExtensionResponse(extensionContext, CREDENTIALS, loadTlv("pdu/extension/extension-response-v2.tlv"));
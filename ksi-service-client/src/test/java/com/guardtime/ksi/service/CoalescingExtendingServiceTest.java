@@ -0,0 +1,167 @@
+/*
+ * Copyright 2013-2018 Guardtime, Inc.
+ *
+ *  This file is part of the Guardtime client SDK.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License").
+ *  You may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES, CONDITIONS, OR OTHER LICENSES OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ *  "Guardtime" and "KSI" are trademarks or registered trademarks of
+ *  Guardtime, Inc., and no license to trademarks is granted; Guardtime
+ *  reserves and retains all trademark rights.
+ *
+ */
+
+package com.guardtime.ksi.service;
+
+import com.guardtime.ksi.exceptions.KSIException;
+import com.guardtime.ksi.pdu.ExtensionResponse;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+
+public class CoalescingExtendingServiceTest {
+
+    private static final Date AGGREGATION_TIME = new Date(1000L);
+    private static final Date PUBLICATION_TIME = new Date(2000L);
+
+    private KSIExtendingService extendingService;
+    private CoalescingExtendingService coalescingService;
+
+    @BeforeMethod
+    public void setUp() {
+        extendingService = Mockito.mock(KSIExtendingService.class);
+        coalescingService = new CoalescingExtendingService(extendingService);
+    }
+
+    @Test
+    public void testConcurrentIdenticalRequestsAreSentOnce() throws Exception {
+        ExtensionResponse response = Mockito.mock(ExtensionResponse.class);
+        PendingFuture pending = new PendingFuture();
+        Mockito.when(extendingService.extend(AGGREGATION_TIME, PUBLICATION_TIME)).thenReturn(pending);
+
+        Future<ExtensionResponse> first = coalescingService.extend(AGGREGATION_TIME, PUBLICATION_TIME);
+        Future<ExtensionResponse> second = coalescingService.extend(new Date(AGGREGATION_TIME.getTime()), new Date(PUBLICATION_TIME.getTime()));
+        Assert.assertEquals(coalescingService.getInFlightCount(), 1);
+        Assert.assertFalse(second.isFinished());
+
+        pending.complete(response);
+
+        Assert.assertSame(first.getResult(), response);
+        Assert.assertSame(second.getResult(), response);
+        Assert.assertSame(second.toCompletionStage().toCompletableFuture().get(), response);
+        Assert.assertEquals(coalescingService.getInFlightCount(), 0);
+        Assert.assertEquals(pending.results, 1);
+        Mockito.verify(extendingService, Mockito.times(1)).extend(Mockito.any(Date.class), Mockito.any(Date.class));
+    }
+
+    @Test
+    public void testRequestIsSentAgainAfterResponseArrived() throws Exception {
+        PendingFuture pending = new PendingFuture();
+        pending.complete(Mockito.mock(ExtensionResponse.class));
+        Mockito.when(extendingService.extend(AGGREGATION_TIME, PUBLICATION_TIME)).thenReturn(pending);
+
+        coalescingService.extend(AGGREGATION_TIME, PUBLICATION_TIME).getResult();
+        coalescingService.extend(AGGREGATION_TIME, PUBLICATION_TIME).getResult();
+
+        Mockito.verify(extendingService, Mockito.times(2)).extend(AGGREGATION_TIME, PUBLICATION_TIME);
+    }
+
+    @Test
+    public void testDifferentRequestsAreNotCoalesced() throws Exception {
+        Mockito.when(extendingService.extend(Mockito.any(Date.class), Mockito.any(Date.class))).thenReturn(new PendingFuture());
+
+        coalescingService.extend(AGGREGATION_TIME, PUBLICATION_TIME);
+        coalescingService.extend(AGGREGATION_TIME, null);
+        coalescingService.extend(AGGREGATION_TIME, new Date(3000L));
+
+        Assert.assertEquals(coalescingService.getInFlightCount(), 3);
+    }
+
+    @Test
+    public void testFailureIsSharedByAllWaiters() throws Exception {
+        PendingFuture pending = new PendingFuture();
+        Mockito.when(extendingService.extend(AGGREGATION_TIME, PUBLICATION_TIME)).thenReturn(pending);
+        Future<ExtensionResponse> first = coalescingService.extend(AGGREGATION_TIME, PUBLICATION_TIME);
+        Future<ExtensionResponse> second = coalescingService.extend(AGGREGATION_TIME, PUBLICATION_TIME);
+
+        KSIException failure = new KSIException("Extender failed");
+        pending.fail(failure);
+
+        assertFailure(first, failure);
+        assertFailure(second, failure);
+        Assert.assertEquals(coalescingService.getInFlightCount(), 0);
+    }
+
+    @Test
+    public void testFailedSendIsNotKept() throws Exception {
+        KSIException failure = new KSIException("Sending failed");
+        Mockito.when(extendingService.extend(AGGREGATION_TIME, PUBLICATION_TIME)).thenThrow(failure);
+        try {
+            coalescingService.extend(AGGREGATION_TIME, PUBLICATION_TIME);
+            Assert.fail("Expected exception was not thrown");
+        } catch (KSIException e) {
+            Assert.assertSame(e, failure);
+        }
+        Assert.assertEquals(coalescingService.getInFlightCount(), 0);
+    }
+
+    private static void assertFailure(Future<ExtensionResponse> future, KSIException failure) {
+        try {
+            future.getResult();
+            Assert.fail("Expected exception was not thrown");
+        } catch (KSIException e) {
+            Assert.assertSame(e, failure);
+        }
+    }
+
+    private static final class PendingFuture implements Future<ExtensionResponse> {
+
+        private final CompletableFuture<Void> stage = new CompletableFuture<>();
+        private ExtensionResponse response;
+        private KSIException failure;
+        private int results;
+
+        void complete(ExtensionResponse response) {
+            this.response = response;
+            stage.complete(null);
+        }
+
+        void fail(KSIException failure) {
+            this.failure = failure;
+            stage.complete(null);
+        }
+
+        public synchronized ExtensionResponse getResult() throws KSIException {
+            results++;
+            if (failure != null) {
+                throw failure;
+            }
+            return response;
+        }
+
+        public boolean isFinished() {
+            return stage.isDone();
+        }
+
+        public CompletionStage<ExtensionResponse> toCompletionStage() {
+            return stage.thenApply(new Function<Void, ExtensionResponse>() {
+                public ExtensionResponse apply(Void value) {
+                    return response;
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2013-2018 Guardtime, Inc.
+ *
+ *  This file is part of the Guardtime client SDK.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License").
+ *  You may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES, CONDITIONS, OR OTHER LICENSES OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ *  "Guardtime" and "KSI" are trademarks or registered trademarks of
+ *  Guardtime, Inc., and no license to trademarks is granted; Guardtime
+ *  reserves and retains all trademark rights.
+ *
+ */
+
+package com.guardtime.ksi.service;
+
+import com.guardtime.ksi.exceptions.KSIException;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class FutureUtilTest {
+
+    private static final Executor REJECTING_EXECUTOR = new Executor() {
+        public void execute(Runnable command) {
+            throw new RejectedExecutionException();
+        }
+    };
+
+    @Test
+    public void testFinishedFutureCompletesStageWithoutExecutor() throws Exception {
+        CompletableFuture<String> stage = FutureUtil.toCompletionStage(new StubFuture("result"), REJECTING_EXECUTOR)
+                .toCompletableFuture();
+        Assert.assertTrue(stage.isDone());
+        Assert.assertEquals(stage.get(), "result");
+    }
+
+    @Test
+    public void testUnfinishedFutureIsWaitedForInExecutor() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        Future<String> future = new StubFuture("result") {
+            @Override
+            public String getResult() throws KSIException {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    throw new KSIException("Interrupted", e);
+                }
+                return super.getResult();
+            }
+
+            @Override
+            public boolean isFinished() {
+                return latch.getCount() == 0;
+            }
+        };
+        CompletableFuture<String> stage = FutureUtil.toCompletionStage(future, new Executor() {
+            public void execute(Runnable command) {
+                new Thread(command).start();
+            }
+        }).toCompletableFuture();
+        Assert.assertFalse(stage.isDone());
+        latch.countDown();
+        Assert.assertEquals(stage.get(10, TimeUnit.SECONDS), "result");
+    }
+
+    @Test
+    public void testRejectedExecutionWaitsInCallingThread() throws Exception {
+        Future<String> future = new StubFuture("result") {
+            @Override
+            public boolean isFinished() {
+                return false;
+            }
+        };
+        CompletableFuture<String> stage = FutureUtil.toCompletionStage(future, REJECTING_EXECUTOR).toCompletableFuture();
+        Assert.assertTrue(stage.isDone());
+        Assert.assertEquals(stage.get(), "result");
+    }
+
+    @Test
+    public void testFailedFutureCompletesStageExceptionally() throws Exception {
+        KSIException exception = new KSIException("Failure");
+        CompletableFuture<String> stage = FutureUtil.toCompletionStage(new StubFuture(exception), REJECTING_EXECUTOR)
+                .toCompletableFuture();
+        assertFailedWith(stage, exception);
+    }
+
+    @Test
+    public void testAfterCompletionWaitsForDependency() throws Exception {
+        CompletableFuture<Object> dependency = new CompletableFuture<>();
+        CompletableFuture<String> stage = FutureUtil.afterCompletion(dependency, new StubFuture("result"))
+                .toCompletableFuture();
+        Assert.assertFalse(stage.isDone());
+        dependency.complete(new Object());
+        Assert.assertEquals(stage.get(), "result");
+    }
+
+    @Test
+    public void testAfterCompletionUsesExceptionOfFutureWhenDependencyFails() throws Exception {
+        KSIException exception = new KSIException("Failure");
+        CompletableFuture<Object> dependency = new CompletableFuture<>();
+        CompletableFuture<String> stage = FutureUtil.afterCompletion(dependency, new StubFuture(exception))
+                .toCompletableFuture();
+        dependency.completeExceptionally(new IllegalStateException("Dependency failure"));
+        assertFailedWith(stage, exception);
+    }
+
+    @Test
+    public void testAfterCompletionOfFinishedFutureDependency() throws Exception {
+        CompletableFuture<String> stage = FutureUtil.afterCompletion(new StubFuture("dependency"), new StubFuture("result"))
+                .toCompletableFuture();
+        Assert.assertEquals(stage.get(), "result");
+    }
+
+    @Test
+    public void testAfterCompletionTakesResultInExecutor() throws Exception {
+        final Thread[] resultThread = new Thread[1];
+        Future<String> future = new StubFuture("result") {
+            @Override
+            public String getResult() throws KSIException {
+                resultThread[0] = Thread.currentThread();
+                return super.getResult();
+            }
+        };
+        CompletableFuture<Object> dependency = new CompletableFuture<>();
+        CompletableFuture<String> stage = FutureUtil.afterCompletion(dependency, future, new Executor() {
+            public void execute(Runnable command) {
+                new Thread(command, "completion-executor").start();
+            }
+        }).toCompletableFuture();
+        dependency.complete(new Object());
+        Assert.assertEquals(stage.get(5, TimeUnit.SECONDS), "result");
+        Assert.assertEquals(resultThread[0].getName(), "completion-executor");
+        Assert.assertNotSame(resultThread[0], Thread.currentThread());
+    }
+
+    @Test
+    public void testAfterCompletionTakesResultInCompletingThreadWhenExecutorRejects() throws Exception {
+        CompletableFuture<Object> dependency = new CompletableFuture<>();
+        CompletableFuture<String> stage = FutureUtil.afterCompletion(dependency, new StubFuture("result"), REJECTING_EXECUTOR)
+                .toCompletableFuture();
+        dependency.complete(new Object());
+        Assert.assertTrue(stage.isDone());
+        Assert.assertEquals(stage.get(), "result");
+    }
+
+    private static void assertFailedWith(CompletableFuture<?> stage, Exception exception) throws InterruptedException {
+        try {
+            stage.get();
+            Assert.fail("Expected the completion stage to fail");
+        } catch (ExecutionException e) {
+            Assert.assertSame(e.getCause(), exception);
+        }
+    }
+
+    private static class StubFuture implements Future<String> {
+
+        private final String result;
+        private final KSIException exception;
+
+        StubFuture(String result) {
+            this.result = result;
+            this.exception = null;
+        }
+
+        StubFuture(KSIException exception) {
+            this.result = null;
+            this.exception = exception;
+        }
+
+        public String getResult() throws KSIException {
+            if (exception != null) {
+                throw exception;
+            }
+            return result;
+        }
+
+        public boolean isFinished() {
+            return true;
+        }
+    }
+}
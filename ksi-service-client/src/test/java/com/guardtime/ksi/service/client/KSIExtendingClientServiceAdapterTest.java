@@ -21,22 +21,32 @@
 package com.guardtime.ksi.service.client;
 
 import com.guardtime.ksi.AsyncContext;
+import com.guardtime.ksi.exceptions.KSIException;
 import com.guardtime.ksi.pdu.ExtenderConfiguration;
+import com.guardtime.ksi.pdu.ExtensionResponse;
+import com.guardtime.ksi.pdu.PduVersion;
 import com.guardtime.ksi.service.ConfigurationListener;
+import com.guardtime.ksi.service.Future;
 import com.guardtime.ksi.service.KSIExtendingClientServiceAdapter;
 import com.guardtime.ksi.service.KSIExtendingService;
-import com.guardtime.ksi.pdu.PduVersion;
-import com.guardtime.ksi.service.Future;
+import com.guardtime.ksi.service.KSIProtocolException;
 import com.guardtime.ksi.tlv.TLVElement;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.BeforeTest;
 import org.testng.annotations.Test;
 
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
 
-import static org.testng.Assert.fail;
-import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
 
 public class KSIExtendingClientServiceAdapterTest {
 
@@ -98,6 +108,127 @@ public class KSIExtendingClientServiceAdapterTest {
         assertEquals(testService.toString(), "KSIExtendingClientServiceAdapter{client=DummyClient}");
     }
 
+    private static final Date FAILING_TIME = new Date(0L);
+
+    private ManualExecutorService executor;
+    private KSIExtenderClient client;
+    private MultiPayloadResponder responder;
+    private List<Integer> sentPayloadCounts;
+
+    @BeforeMethod
+    public void setUpBatching() throws Exception {
+        executor = new ManualExecutorService();
+        responder = new MultiPayloadResponder(0x321, TLVElement.create(0x02, FAILING_TIME));
+        sentPayloadCounts = responder.getSentPayloadCounts();
+        client = Mockito.mock(KSIExtenderClient.class);
+        Mockito.when(client.getPduVersion()).thenReturn(PduVersion.V2);
+        Mockito.when(client.getServiceCredentials()).thenReturn(MultiPayloadResponder.CREDENTIALS);
+        Mockito.when(client.extend(Mockito.any(ByteBuffer.class), Mockito.any(Long.class))).thenAnswer(responder);
+    }
+
+    @Test
+    public void testConcurrentRequestsAreSentInMultiPayloadPdus() throws Exception {
+        KSIExtendingClientServiceAdapter adapter = new KSIExtendingClientServiceAdapter(client, executor, true);
+        Future<ExtensionResponse> first = adapter.extend(time(1), null);
+        executor.runAll();
+        Assert.assertNotNull(first.getResult());
+        Assert.assertEquals(sentPayloadCounts, Arrays.asList(1, 0));
+
+        sentPayloadCounts.clear();
+        List<Future<ExtensionResponse>> futures = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            futures.add(adapter.extend(time(i + 2), null));
+        }
+        Assert.assertFalse(futures.get(0).isFinished());
+        executor.runAll();
+
+        Assert.assertEquals(sentPayloadCounts, Arrays.asList(MultiPayloadResponder.MAXIMUM_REQUESTS, 2));
+        for (Future<ExtensionResponse> future : futures) {
+            Assert.assertTrue(future.isFinished());
+            Assert.assertNotNull(future.getResult());
+            Assert.assertNotNull(future.toCompletionStage().toCompletableFuture().get());
+        }
+    }
+
+    @Test
+    public void testFailedPayloadFailsOnlyItsOwnRequest() throws Exception {
+        KSIExtendingClientServiceAdapter adapter = new KSIExtendingClientServiceAdapter(client, executor, true);
+        adapter.extend(time(1), null);
+        executor.runAll();
+
+        Future<ExtensionResponse> success = adapter.extend(time(2), null);
+        Future<ExtensionResponse> failure = adapter.extend(FAILING_TIME, null);
+        executor.runAll();
+
+        Assert.assertNotNull(success.getResult());
+        try {
+            failure.getResult();
+            Assert.fail("Failed payload must fail its request");
+        } catch (KSIProtocolException e) {
+            Assert.assertTrue(e.getMessage().contains("Error status is 0x101"), e.getMessage());
+        }
+    }
+
+    @Test
+    public void testClientFailureFailsAllRequestsOfThePdu() throws Exception {
+        KSIExtendingClientServiceAdapter adapter = new KSIExtendingClientServiceAdapter(client, executor, true);
+        adapter.extend(time(1), null);
+        executor.runAll();
+
+        Mockito.doThrow(new KSIClientException("Connection failed")).when(client).extend(Mockito.any(ByteBuffer.class), Mockito.any(Long.class));
+        Future<ExtensionResponse> first = adapter.extend(time(2), null);
+        Future<ExtensionResponse> second = adapter.extend(time(3), null);
+        executor.runAll();
+
+        for (Future<ExtensionResponse> future : Arrays.asList(first, second)) {
+            try {
+                future.getResult();
+                Assert.fail("Request must fail when the client fails");
+            } catch (KSIException e) {
+                Assert.assertEquals(e.getMessage(), "Connection failed");
+            }
+        }
+    }
+
+    @Test
+    public void testFailedConfigurationRequestIsRepeated() throws Exception {
+        responder.setFailConfigurationRequests(true);
+        KSIExtendingClientServiceAdapter adapter = new KSIExtendingClientServiceAdapter(client, executor, true);
+        adapter.extend(time(1), null);
+        executor.runAll();
+
+        responder.setFailConfigurationRequests(false);
+        adapter.extend(time(2), null);
+        adapter.extend(time(3), null);
+        executor.runAll();
+        Assert.assertEquals(sentPayloadCounts, Arrays.asList(1, 1, 1, 0));
+
+        sentPayloadCounts.clear();
+        adapter.extend(time(4), null);
+        adapter.extend(time(5), null);
+        executor.runAll();
+        Assert.assertEquals(sentPayloadCounts, Arrays.asList(2));
+    }
+
+    @Test(expectedExceptions = KSIProtocolException.class, expectedExceptionsMessageRegExp = "There is no suitable publication yet")
+    public void testRequestWithPublicationBeforeAggregationFailsImmediately() throws Exception {
+        new KSIExtendingClientServiceAdapter(client, executor, true).extend(time(2), time(1));
+    }
+
+    @Test
+    public void testRequestsAreNotBatchedByDefault() throws Exception {
+        KSIExtendingClientServiceAdapter adapter = new KSIExtendingClientServiceAdapter(client, executor);
+        Future<ExtensionResponse> future = adapter.extend(time(1), null);
+
+        Assert.assertEquals(sentPayloadCounts, Arrays.asList(1));
+        Assert.assertNotNull(future.getResult());
+        Assert.assertTrue(executor.isIdle());
+    }
+
+    private static Date time(int seconds) {
+        return new Date(seconds * 1000L);
+    }
+
     private static class DummyClient implements KSIExtenderClient {
 
         private boolean closed = false;
@@ -21,19 +21,30 @@
 package com.guardtime.ksi.service.client;
 
 import com.guardtime.ksi.AsyncContext;
+import com.guardtime.ksi.exceptions.KSIException;
+import com.guardtime.ksi.hashing.DataHash;
 import com.guardtime.ksi.hashing.DataHasher;
 import com.guardtime.ksi.hashing.HashAlgorithm;
+import com.guardtime.ksi.pdu.AggregationResponse;
 import com.guardtime.ksi.pdu.AggregatorConfiguration;
+import com.guardtime.ksi.pdu.PduVersion;
 import com.guardtime.ksi.service.ConfigurationListener;
+import com.guardtime.ksi.service.Future;
+import com.guardtime.ksi.service.KSIProtocolException;
 import com.guardtime.ksi.service.KSISigningClientServiceAdapter;
 import com.guardtime.ksi.service.KSISigningService;
-import com.guardtime.ksi.pdu.PduVersion;
-import com.guardtime.ksi.service.Future;
 import com.guardtime.ksi.tlv.TLVElement;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.BeforeTest;
 import org.testng.annotations.Test;
 
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertTrue;
@@ -99,6 +110,124 @@ public class KSISigningClientServiceAdapterTest {
         assertEquals(testService.toString(), "KSISigningClientServiceAdapter{client=DummyClient}");
     }
 
+    private static final DataHash FAILING_HASH = new DataHash(HashAlgorithm.SHA2_256, new byte[32]);
+
+    private ManualExecutorService executor;
+    private KSISigningClient client;
+    private MultiPayloadResponder responder;
+    private List<Integer> sentPayloadCounts;
+
+    @BeforeMethod
+    public void setUpBatching() throws Exception {
+        executor = new ManualExecutorService();
+        responder = new MultiPayloadResponder(0x221, TLVElement.create(0x02, FAILING_HASH));
+        sentPayloadCounts = responder.getSentPayloadCounts();
+        client = Mockito.mock(KSISigningClient.class);
+        Mockito.when(client.getPduVersion()).thenReturn(PduVersion.V2);
+        Mockito.when(client.getServiceCredentials()).thenReturn(MultiPayloadResponder.CREDENTIALS);
+        Mockito.when(client.sign(Mockito.any(ByteBuffer.class), Mockito.any(Long.class))).thenAnswer(responder);
+    }
+
+    @Test
+    public void testConcurrentRequestsAreSentInMultiPayloadPdus() throws Exception {
+        KSISigningClientServiceAdapter adapter = new KSISigningClientServiceAdapter(client, executor, true);
+        Future<AggregationResponse> first = adapter.sign(hash(1), 0L);
+        executor.runAll();
+        Assert.assertNotNull(first.getResult());
+        Assert.assertEquals(sentPayloadCounts, Arrays.asList(1, 0));
+
+        sentPayloadCounts.clear();
+        List<Future<AggregationResponse>> futures = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            futures.add(adapter.sign(hash(i + 2), 0L));
+        }
+        Assert.assertFalse(futures.get(0).isFinished());
+        executor.runAll();
+
+        Assert.assertEquals(sentPayloadCounts, Arrays.asList(MultiPayloadResponder.MAXIMUM_REQUESTS, 2));
+        for (Future<AggregationResponse> future : futures) {
+            Assert.assertTrue(future.isFinished());
+            Assert.assertNotNull(future.getResult());
+            Assert.assertNotNull(future.toCompletionStage().toCompletableFuture().get());
+        }
+    }
+
+    @Test
+    public void testFailedPayloadFailsOnlyItsOwnRequest() throws Exception {
+        KSISigningClientServiceAdapter adapter = new KSISigningClientServiceAdapter(client, executor, true);
+        adapter.sign(hash(1), 0L);
+        executor.runAll();
+
+        Future<AggregationResponse> success = adapter.sign(hash(2), 0L);
+        Future<AggregationResponse> failure = adapter.sign(FAILING_HASH, 0L);
+        executor.runAll();
+
+        Assert.assertNotNull(success.getResult());
+        try {
+            failure.getResult();
+            Assert.fail("Failed payload must fail its request");
+        } catch (KSIProtocolException e) {
+            Assert.assertTrue(e.getMessage().contains("Error status is 0x101"), e.getMessage());
+        }
+    }
+
+    @Test
+    public void testClientFailureFailsAllRequestsOfThePdu() throws Exception {
+        KSISigningClientServiceAdapter adapter = new KSISigningClientServiceAdapter(client, executor, true);
+        adapter.sign(hash(1), 0L);
+        executor.runAll();
+
+        Mockito.doThrow(new KSIClientException("Connection failed")).when(client).sign(Mockito.any(ByteBuffer.class), Mockito.any(Long.class));
+        Future<AggregationResponse> first = adapter.sign(hash(2), 0L);
+        Future<AggregationResponse> second = adapter.sign(hash(3), 0L);
+        executor.runAll();
+
+        for (Future<AggregationResponse> future : Arrays.asList(first, second)) {
+            try {
+                future.getResult();
+                Assert.fail("Request must fail when the client fails");
+            } catch (KSIException e) {
+                Assert.assertEquals(e.getMessage(), "Connection failed");
+            }
+        }
+    }
+
+    @Test
+    public void testFailedConfigurationRequestIsRepeated() throws Exception {
+        responder.setFailConfigurationRequests(true);
+        KSISigningClientServiceAdapter adapter = new KSISigningClientServiceAdapter(client, executor, true);
+        adapter.sign(hash(1), 0L);
+        executor.runAll();
+
+        responder.setFailConfigurationRequests(false);
+        adapter.sign(hash(2), 0L);
+        adapter.sign(hash(3), 0L);
+        executor.runAll();
+        Assert.assertEquals(sentPayloadCounts, Arrays.asList(1, 1, 1, 0));
+
+        sentPayloadCounts.clear();
+        adapter.sign(hash(4), 0L);
+        adapter.sign(hash(5), 0L);
+        executor.runAll();
+        Assert.assertEquals(sentPayloadCounts, Arrays.asList(2));
+    }
+
+    @Test
+    public void testRequestsAreNotBatchedByDefault() throws Exception {
+        KSISigningClientServiceAdapter adapter = new KSISigningClientServiceAdapter(client, executor);
+        Future<AggregationResponse> future = adapter.sign(hash(1), 0L);
+
+        Assert.assertEquals(sentPayloadCounts, Arrays.asList(1));
+        Assert.assertNotNull(future.getResult());
+        Assert.assertTrue(executor.isIdle());
+    }
+
+    private static DataHash hash(int value) {
+        byte[] bytes = new byte[32];
+        bytes[0] = (byte) value;
+        return new DataHash(HashAlgorithm.SHA2_256, bytes);
+    }
+
     private static class DummyClient implements KSISigningClient {
 
         private boolean closed = false;
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2013-2018 Guardtime, Inc.
+ *
+ *  This file is part of the Guardtime client SDK.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License").
+ *  You may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES, CONDITIONS, OR OTHER LICENSES OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ *  "Guardtime" and "KSI" are trademarks or registered trademarks of
+ *  Guardtime, Inc., and no license to trademarks is granted; Guardtime
+ *  reserves and retains all trademark rights.
+ *
+ */
+
+package com.guardtime.ksi.service.client;
+
+import com.guardtime.ksi.hashing.DataHash;
+import com.guardtime.ksi.hashing.HashAlgorithm;
+import com.guardtime.ksi.service.Future;
+import com.guardtime.ksi.service.FutureUtil;
+import com.guardtime.ksi.tlv.TLVElement;
+import com.guardtime.ksi.util.Util;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.Assert;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Answers the multi-payload PDU v2 requests sent by a mocked client: every request payload (0x02) gets a response
+ * payload with the same request ID and the configuration request payload (0x04) gets a configuration that allows
+ * {@link #MAXIMUM_REQUESTS} requests. Records the number of request payloads of every answered PDU.
+ */
+final class MultiPayloadResponder implements Answer<Future<TLVElement>> {
+
+    static final KSIServiceCredentials CREDENTIALS = new KSIServiceCredentials("anon", "anon");
+    static final int MAXIMUM_REQUESTS = 3;
+
+    private final int responsePduType;
+    private final TLVElement failingPayloadValue;
+    private final List<Integer> sentPayloadCounts = Collections.synchronizedList(new ArrayList<Integer>());
+    private volatile boolean failConfigurationRequests;
+
+    /**
+     * @param responsePduType TLV type of the response PDU.
+     * @param failingPayloadValue request payloads whose element 0x02 is encoded the same way get the error status 0x101.
+     */
+    MultiPayloadResponder(int responsePduType, TLVElement failingPayloadValue) {
+        this.responsePduType = responsePduType;
+        this.failingPayloadValue = failingPayloadValue;
+    }
+
+    List<Integer> getSentPayloadCounts() {
+        return sentPayloadCounts;
+    }
+
+    void setFailConfigurationRequests(boolean failConfigurationRequests) {
+        this.failConfigurationRequests = failConfigurationRequests;
+    }
+
+    public Future<TLVElement> answer(InvocationOnMock invocation) throws Throwable {
+        return FutureUtil.completed(respond(readRequest((ByteBuffer) invocation.getArguments()[0], (Long) invocation.getArguments()[1])));
+    }
+
+    /**
+     * Reads the request and checks that the request ID passed alongside it is the ID of its first payload.
+     */
+    private TLVElement readRequest(ByteBuffer buffer, Long requestId) throws Exception {
+        TLVElement request = TLVElement.create(Util.toByteArray(buffer));
+        TLVElement firstPayload = request.getFirstChildElement(0x02);
+        Assert.assertEquals(requestId, firstPayload == null ? null : firstPayload.getFirstChildElement(0x01).getDecodedLong());
+        return request;
+    }
+
+    private TLVElement respond(TLVElement request) throws Exception {
+        if (failConfigurationRequests && request.getFirstChildElement(0x04) != null) {
+            throw new KSIClientException("Configuration is not available");
+        }
+        TLVElement response = new TLVElement(false, false, responsePduType);
+        response.addChildElement(request.getFirstChildElement(0x01));
+        int payloads = 0;
+        for (TLVElement payload : request.getChildElements(0x02)) {
+            boolean failing = Arrays.equals(failingPayloadValue.getEncoded(), payload.getFirstChildElement(0x02).getEncoded());
+            TLVElement responsePayload = new TLVElement(false, false, 0x02);
+            responsePayload.addChildElement(TLVElement.create(0x01, payload.getFirstChildElement(0x01).getDecodedLong()));
+            responsePayload.addChildElement(TLVElement.create(0x04, failing ? 0x101 : 0));
+            response.addChildElement(responsePayload);
+            payloads++;
+        }
+        if (request.getFirstChildElement(0x04) != null) {
+            TLVElement configuration = new TLVElement(false, false, 0x04);
+            configuration.addChildElement(TLVElement.create(0x04, MAXIMUM_REQUESTS));
+            response.addChildElement(configuration);
+        }
+        sentPayloadCounts.add(payloads);
+
+        HashAlgorithm algorithm = CREDENTIALS.getHmacAlgorithm();
+        TLVElement mac = TLVElement.create(0x1F, new DataHash(algorithm, new byte[algorithm.getLength()]));
+        response.addChildElement(mac);
+        byte[] encoded = response.getEncoded();
+        byte[] macInput = Util.copyOf(encoded, 0, encoded.length - algorithm.getLength());
+        mac.setDataHashContent(new DataHash(algorithm, Util.calculateHMAC(macInput, CREDENTIALS.getLoginKey(), algorithm.getName())));
+        return response;
+    }
+}
@@ -24,8 +24,8 @@ import com.guardtime.ksi.util.Util;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Common parts of configuration consolidation and listener updates for different HA services.
@@ -36,12 +36,19 @@ abstract class AbstractHAConfigurationListener<T> implements ConfigurationListen
 
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
 
-    private final List<ConfigurationListener<T>> consolidatedConfListeners = new ArrayList<>();
-    ConsolidatedResult<T> lastConsolidatedConfiguration;
+    private final List<ConfigurationListener<T>> consolidatedConfListeners = new CopyOnWriteArrayList<>();
+    volatile ConsolidatedResult<T> lastConsolidatedConfiguration;
     private final Object lock = new Object();
 
     protected abstract T consolidate(T lastConfiguration, T newConsolidatedConfiguration);
 
+    /**
+     * Copies a configuration received from a subservice, leaving out the values that are not sane. Called once per
+     * received configuration, so that the consolidation, which is repeated over all the subservices whenever any of
+     * them is updated, only handles configurations that have already been checked.
+     */
+    abstract T normalize(T configuration);
+
     abstract List<SubServiceConfListener<T>> getSubServiceConfListeners();
 
     void registerListener(ConfigurationListener<T> listener) {
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2013-2018 Guardtime, Inc.
+ *
+ *  This file is part of the Guardtime client SDK.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License").
+ *  You may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES, CONDITIONS, OR OTHER LICENSES OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ *  "Guardtime" and "KSI" are trademarks or registered trademarks of
+ *  Guardtime, Inc., and no license to trademarks is granted; Guardtime
+ *  reserves and retains all trademark rights.
+ *
+ */
+package com.guardtime.ksi.service.ha;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Circuit breaker of one subservice of an HA service. Opens after the configured number of consecutive failures or
+ * latency threshold breaches, or when the subservice is ejected as a latency outlier. Once the open duration has
+ * passed a single probe request is let through in the half-open state, its outcome closes or reopens the breaker.
+ */
+final class CircuitBreaker {
+
+    /**
+     * Called outside of the breaker's lock whenever the state changes.
+     */
+    interface StateListener {
+        void stateChanged(int subservice, CircuitBreakerState state);
+    }
+
+    private final int subservice;
+    private final CircuitBreakerSettings settings;
+    private final StateListener listener;
+    private CircuitBreakerState state = CircuitBreakerState.CLOSED;
+    private int consecutiveFailures;
+    private long openedAtNanos;
+    private long probeStartedNanos;
+    private boolean probeInFlight;
+
+    CircuitBreaker(int subservice, CircuitBreakerSettings settings, StateListener listener) {
+        this.subservice = subservice;
+        this.settings = settings;
+        this.listener = listener;
+    }
+
+    static List<CircuitBreaker> createList(int size, CircuitBreakerSettings settings, StateListener listener) {
+        List<CircuitBreaker> breakers = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            breakers.add(new CircuitBreaker(i, settings, listener));
+        }
+        return Collections.unmodifiableList(breakers);
+    }
+
+    synchronized CircuitBreakerState getState() {
+        return state;
+    }
+
+    /**
+     * @return True if a request would currently be let through, does not change the state.
+     */
+    synchronized boolean isAvailable() {
+        long now = System.nanoTime();
+        long openDuration = settings.getOpenDuration(TimeUnit.NANOSECONDS);
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                return now - openedAtNanos >= openDuration;
+            default:
+                // a probe that never completes must not keep the breaker half-open forever
+                return !probeInFlight || now - probeStartedNanos >= openDuration;
+        }
+    }
+
+    /**
+     * @return True if a request may be sent to the subservice. After the open duration has passed the breaker turns
+     * half-open and the request is the probe.
+     */
+    boolean tryAcquire() {
+        boolean halfOpened;
+        synchronized (this) {
+            if (state == CircuitBreakerState.CLOSED) {
+                return true;
+            }
+            if (!isAvailable()) {
+                return false;
+            }
+            halfOpened = state == CircuitBreakerState.OPEN;
+            state = CircuitBreakerState.HALF_OPEN;
+            probeInFlight = true;
+            probeStartedNanos = System.nanoTime();
+        }
+        if (halfOpened) {
+            notifyListener(CircuitBreakerState.HALF_OPEN);
+        }
+        return true;
+    }
+
+    void requestCompleted(long latencyNanos, boolean success) {
+        long latencyThreshold = settings.getLatencyThreshold(TimeUnit.NANOSECONDS);
+        boolean healthy = success && (latencyThreshold == 0 || latencyNanos <= latencyThreshold);
+        CircuitBreakerState changed = null;
+        synchronized (this) {
+            if (state == CircuitBreakerState.CLOSED) {
+                if (healthy) {
+                    consecutiveFailures = 0;
+                } else if (settings.getFailureThreshold() > 0 && ++consecutiveFailures >= settings.getFailureThreshold()) {
+                    changed = open();
+                }
+            } else if (state == CircuitBreakerState.HALF_OPEN) {
+                probeInFlight = false;
+                changed = healthy ? close() : open();
+            }
+        }
+        notifyListener(changed);
+    }
+
+    /**
+     * Opens a closed breaker, used for ejecting outliers.
+     */
+    void eject() {
+        CircuitBreakerState changed = null;
+        synchronized (this) {
+            if (state == CircuitBreakerState.CLOSED) {
+                changed = open();
+            }
+        }
+        notifyListener(changed);
+    }
+
+    private CircuitBreakerState open() {
+        state = CircuitBreakerState.OPEN;
+        openedAtNanos = System.nanoTime();
+        consecutiveFailures = 0;
+        return state;
+    }
+
+    private CircuitBreakerState close() {
+        state = CircuitBreakerState.CLOSED;
+        consecutiveFailures = 0;
+        return state;
+    }
+
+    private void notifyListener(CircuitBreakerState changed) {
+        if (changed != null && listener != null) {
+            listener.stateChanged(subservice, changed);
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "CircuitBreaker{subservice=" + subservice + ", state=" + state + "}";
+    }
+}
@@ -19,31 +19,22 @@
  */
 package com.guardtime.ksi.service.ha;
 
-import com.guardtime.ksi.exceptions.KSIException;
-import com.guardtime.ksi.service.Future;
-import com.guardtime.ksi.service.client.KSIClientException;
-
-class ServiceCallFuture<T> implements Future<T> {
-
-    private final java.util.concurrent.Future<T> serviceCallFuture;
-    private T result;
-
-    ServiceCallFuture(java.util.concurrent.Future<T> serviceCallFuture) {
-        this.serviceCallFuture = serviceCallFuture;
-    }
+/**
+ * Objects of this type can be registered to listen for the circuit breaker state changes of the subservices of
+ * {@link SigningHAService} and {@link ExtendingHAService}.
+ *
+ * @param <S> Subservice type.
+ */
+public interface CircuitBreakerListener<S> {
 
-    public T getResult() throws KSIException {
-        if (result == null) {
-            try {
-                this.result = serviceCallFuture.get();
-            } catch (Exception e) {
-                throw new KSIClientException("All subclients of HAService failed", e);
-            }
-        }
-        return result;
-    }
+    /**
+     * Called when the circuit breaker of a subservice changes its state.
+     *
+     * @param subservice
+     *      subservice whose circuit breaker changed.
+     * @param state
+     *      new state of the circuit breaker.
+     */
+    void stateChanged(S subservice, CircuitBreakerState state);
 
-    public boolean isFinished() {
-        return result != null;
-    }
 }
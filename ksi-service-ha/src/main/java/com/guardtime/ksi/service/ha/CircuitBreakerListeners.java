@@ -0,0 +1,59 @@
+/*
+ * Copyright 2013-2018 Guardtime, Inc.
+ *
+ *  This file is part of the Guardtime client SDK.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License").
+ *  You may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES, CONDITIONS, OR OTHER LICENSES OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ *  "Guardtime" and "KSI" are trademarks or registered trademarks of
+ *  Guardtime, Inc., and no license to trademarks is granted; Guardtime
+ *  reserves and retains all trademark rights.
+ *
+ */
+package com.guardtime.ksi.service.ha;
+
+import com.guardtime.ksi.util.Util;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Passes the circuit breaker state changes of the subservices on to the registered {@link CircuitBreakerListener}s.
+ */
+class CircuitBreakerListeners<S> implements CircuitBreaker.StateListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(CircuitBreakerListeners.class);
+
+    private final List<S> subservices;
+    private final List<CircuitBreakerListener<S>> listeners = new CopyOnWriteArrayList<>();
+
+    CircuitBreakerListeners(List<S> subservices) {
+        this.subservices = subservices;
+    }
+
+    void registerListener(CircuitBreakerListener<S> listener) {
+        Util.notNull(listener, "Circuit breaker listener");
+        listeners.add(listener);
+    }
+
+    public void stateChanged(int subservice, CircuitBreakerState state) {
+        S service = subservices.get(subservice);
+        logger.info("Circuit breaker of HA subservice {} is {}", service, state);
+        for (CircuitBreakerListener<S> listener : listeners) {
+            try {
+                listener.stateChanged(service, state);
+            } catch (RuntimeException e) {
+                logger.warn("Circuit breaker listener failed", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2013-2018 Guardtime, Inc.
+ *
+ *  This file is part of the Guardtime client SDK.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License").
+ *  You may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES, CONDITIONS, OR OTHER LICENSES OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ *  "Guardtime" and "KSI" are trademarks or registered trademarks of
+ *  Guardtime, Inc., and no license to trademarks is granted; Guardtime
+ *  reserves and retains all trademark rights.
+ *
+ */
+package com.guardtime.ksi.service.ha;
+
+import com.guardtime.ksi.util.Util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Settings of the circuit breakers of HA subservices. The circuit breakers are disabled by default: they have to be
+ * enabled by setting a failure threshold, a latency threshold together with a failure threshold, or an outlier latency
+ * factor. An open circuit breaker stays open for 10 seconds by default.
+ * <p>
+ * Only failures of the subservice itself count: transport errors, timeouts and server-side error statuses. Error
+ * statuses about the request itself, e.g. an invalid request or a publication that does not exist yet, do not.
+ * </p>
+ */
+public final class CircuitBreakerSettings {
+
+    private static final CircuitBreakerSettings DEFAULT = new Builder().build();
+
+    private final int failureThreshold;
+    private final long openDurationNanos;
+    private final long latencyThresholdNanos;
+    private final double outlierLatencyFactor;
+    private final int outlierMinimumSamples;
+
+    private CircuitBreakerSettings(Builder builder) {
+        this.failureThreshold = builder.failureThreshold;
+        this.openDurationNanos = builder.openDurationNanos;
+        this.latencyThresholdNanos = builder.latencyThresholdNanos;
+        this.outlierLatencyFactor = builder.outlierLatencyFactor;
+        this.outlierMinimumSamples = builder.outlierMinimumSamples;
+    }
+
+    /**
+     * @return Default settings.
+     */
+    public static CircuitBreakerSettings getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * @return Number of consecutive failures or latency threshold breaches after which the circuit breaker opens, 0 if
+     * the circuit breaker never opens because of failures.
+     */
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    /**
+     * @return How long the circuit breaker stays open before a probe request is allowed.
+     */
+    public long getOpenDuration(TimeUnit unit) {
+        return unit.convert(openDurationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return Latency above which a successful response counts as a failure for the circuit breaker, 0 if not limited.
+     */
+    public long getLatencyThreshold(TimeUnit unit) {
+        return unit.convert(latencyThresholdNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return How many times slower than the fastest closed subservice a subservice has to be to get ejected, 0 if
+     * outliers are not ejected.
+     */
+    public double getOutlierLatencyFactor() {
+        return outlierLatencyFactor;
+    }
+
+    /**
+     * @return Number of successful responses a subservice needs before it is compared to others for outlier ejection.
+     */
+    public int getOutlierMinimumSamples() {
+        return outlierMinimumSamples;
+    }
+
+    @Override
+    public String toString() {
+        return "CircuitBreakerSettings{failureThreshold=" + failureThreshold +
+                ", openDurationMs=" + TimeUnit.NANOSECONDS.toMillis(openDurationNanos) +
+                ", latencyThresholdMs=" + TimeUnit.NANOSECONDS.toMillis(latencyThresholdNanos) +
+                ", outlierLatencyFactor=" + outlierLatencyFactor +
+                ", outlierMinimumSamples=" + outlierMinimumSamples + "}";
+    }
+
+    /**
+     * Builds the {@link CircuitBreakerSettings}.
+     */
+    public static class Builder {
+
+        private int failureThreshold = 0;
+        private long openDurationNanos = TimeUnit.SECONDS.toNanos(10);
+        private long latencyThresholdNanos = 0;
+        private double outlierLatencyFactor = 0.0;
+        private int outlierMinimumSamples = 10;
+
+        /**
+         * @param failureThreshold
+         *      number of consecutive failures or latency threshold breaches after which the circuit breaker opens, 0
+         *      disables opening on failures, which is the default.
+         *
+         * @return Instance of the builder itself.
+         */
+        public Builder setFailureThreshold(int failureThreshold) {
+            if (failureThreshold < 0) {
+                throw new IllegalArgumentException("Circuit breaker failure threshold can not be negative");
+            }
+            this.failureThreshold = failureThreshold;
+            return this;
+        }
+
+        /**
+         * @param openDuration
+         *      how long the circuit breaker stays open before a probe request is allowed, must be positive. Defaults to
+         *      10 seconds.
+         * @param unit
+         *      unit of the duration, may not be null.
+         *
+         * @return Instance of the builder itself.
+         */
+        public Builder setOpenDuration(long openDuration, TimeUnit unit) {
+            Util.notNull(unit, "CircuitBreakerSettings.Builder.unit");
+            if (openDuration <= 0) {
+                throw new IllegalArgumentException("Circuit breaker open duration must be positive");
+            }
+            this.openDurationNanos = unit.toNanos(openDuration);
+            return this;
+        }
+
+        /**
+         * @param latencyThreshold
+         *      latency objective of the subservices, a slower successful response counts as a failure for the
+         *      circuit breaker. 0 disables the latency objective, which is the default.
+         * @param unit
+         *      unit of the threshold, may not be null.
+         *
+         * @return Instance of the builder itself.
+         */
+        public Builder setLatencyThreshold(long latencyThreshold, TimeUnit unit) {
+            Util.notNull(unit, "CircuitBreakerSettings.Builder.unit");
+            if (latencyThreshold < 0) {
+                throw new IllegalArgumentException("Circuit breaker latency threshold can not be negative");
+            }
+            this.latencyThresholdNanos = unit.toNanos(latencyThreshold);
+            return this;
+        }
+
+        /**
+         * @param outlierLatencyFactor
+         *      a subservice is ejected, i.e. its circuit breaker is opened, when both its average latency and the
+         *      latency of its last response are this many times higher than the average latency of the fastest
+         *      subservice with a closed circuit breaker. Must be greater than 1, or 0 to disable outlier ejection,
+         *      which is the default.
+         *
+         * @return Instance of the builder itself.
+         */
+        public Builder setOutlierLatencyFactor(double outlierLatencyFactor) {
+            if (outlierLatencyFactor != 0.0 && !(outlierLatencyFactor > 1.0)) {
+                throw new IllegalArgumentException("Circuit breaker outlier latency factor must be greater than 1 or 0");
+            }
+            this.outlierLatencyFactor = outlierLatencyFactor;
+            return this;
+        }
+
+        /**
+         * @param outlierMinimumSamples
+         *      number of successful responses a subservice needs before its latency is compared to others for
+         *      outlier ejection, must be positive. Defaults to 10.
+         *
+         * @return Instance of the builder itself.
+         */
+        public Builder setOutlierMinimumSamples(int outlierMinimumSamples) {
+            if (outlierMinimumSamples <= 0) {
+                throw new IllegalArgumentException("Circuit breaker outlier minimum samples must be positive");
+            }
+            this.outlierMinimumSamples = outlierMinimumSamples;
+            return this;
+        }
+
+        public CircuitBreakerSettings build() {
+            return new CircuitBreakerSettings(this);
+        }
+    }
+}
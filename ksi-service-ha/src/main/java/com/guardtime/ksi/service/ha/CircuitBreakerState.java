@@ -19,24 +19,28 @@
  */
 package com.guardtime.ksi.service.ha;
 
-import java.util.Collection;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-
 /**
- * Task for invoking all the subclient tasks and returning the first successful one or throwing an exception if they all fail.
+ * State of the circuit breaker of an HA subservice.
+ *
+ * @see CircuitBreakerListener
  */
-class ServiceCallsTask<T> implements Callable<T> {
+public enum CircuitBreakerState {
+
+    /**
+     * Requests are sent to the subservice.
+     */
+    CLOSED,
 
-    private final ExecutorService executorService;
-    private final Collection<Callable<T>> serviceCallTasks;
+    /**
+     * The subservice failed too many times in a row, responded slower than allowed or was ejected as a latency outlier.
+     * No requests are sent to the subservice until the open duration has passed.
+     */
+    OPEN,
 
-    ServiceCallsTask(ExecutorService executorService, Collection<Callable<T>> serviceCallTasks) {
-        this.executorService = executorService;
-        this.serviceCallTasks = serviceCallTasks;
-    }
+    /**
+     * The open duration has passed and a single probe request is allowed. The breaker closes if the probe succeeds and
+     * opens again if it fails.
+     */
+    HALF_OPEN
 
-    public T call() throws Exception {
-        return executorService.invokeAny(serviceCallTasks);
-    }
 }
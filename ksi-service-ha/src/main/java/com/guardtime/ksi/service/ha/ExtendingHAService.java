@@ -34,11 +34,9 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
-import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 
 /**
@@ -56,28 +54,59 @@ public class ExtendingHAService implements KSIExtendingService {
     private final ExecutorService executorService;
     private final ExtendingHAServiceConfigurationListener haConfListener;
 
-    private ExtendingHAService(List<KSIExtendingService> subservices, ExecutorService executorService) {
+    private final List<SubServiceStatistics> statistics;
+    private final CircuitBreakerListeners<KSIExtendingService> circuitBreakerListeners;
+    private final SubServiceRouter router;
+
+    private ExtendingHAService(List<KSIExtendingService> subservices, ExecutorService executorService, SubServiceRouter router,
+                               CircuitBreakerListeners<KSIExtendingService> circuitBreakerListeners) {
         this.subservices = Collections.unmodifiableList(subservices);
         this.executorService = executorService;
         this.haConfListener = new ExtendingHAServiceConfigurationListener(this.subservices);
+        this.statistics = router.getStatistics();
+        this.circuitBreakerListeners = circuitBreakerListeners;
+        this.router = router;
     }
 
     /**
-     * Creates a non-blocking extending request. Sends the request to all the subservices in parallel. First successful response is
-     * used, others are cancelled. Request fails only if all the subservices fail.
+     * Creates a non-blocking extending request. The subservices the request is sent to depend on the {@link RoutingStrategy},
+     * by default the request is sent to all the subservices in parallel. Subservices whose circuit breaker is open are
+     * skipped. First successful response is used. Request fails only if all the subservices fail.
      *
      * @see KSIExtendingService#extend(Date, Date)
      */
     public Future<ExtensionResponse> extend(Date aggregationTime, Date publicationTime) throws KSIException {
         Util.notNull(aggregationTime, "aggregationTime");
-        Collection<KSIExtendingService> services = subservices;
-        Collection<Callable<ExtensionResponse>> tasks = new ArrayList<>(services.size());
-        for (KSIExtendingService service : services) {
-            tasks.add(new ExtendingTask(service, aggregationTime, publicationTime));
-        }
-        return new ServiceCallFuture<>(
-                executorService.submit(new ServiceCallsTask<>(executorService, tasks))
-        );
+        final Date aggregation = aggregationTime;
+        final Date publication = publicationTime;
+        return new RoutedCall<KSIExtendingService, ExtensionResponse>(subservices, statistics, router, executorService) {
+            Future<ExtensionResponse> invoke(KSIExtendingService service) throws KSIException {
+                return service.extend(aggregation, publication);
+            }
+        }.start();
+    }
+
+    /**
+     * @return Request statistics of the subservices, in the same order as the subservices.
+     */
+    public List<SubServiceStatistics> getSubServiceStatistics() {
+        return statistics;
+    }
+
+    /**
+     * @return Circuit breaker states of the subservices, in the same order as the subservices.
+     */
+    public List<CircuitBreakerState> getCircuitBreakerStates() {
+        return router.getCircuitBreakerStates();
+    }
+
+    /**
+     * Registers a listener that will be called whenever the circuit breaker of a subservice changes its state.
+     *
+     * @param listener may not be null.
+     */
+    public void registerCircuitBreakerListener(CircuitBreakerListener<KSIExtendingService> listener) {
+        circuitBreakerListeners.registerListener(listener);
     }
 
     /**
@@ -129,39 +158,74 @@ public class ExtendingHAService implements KSIExtendingService {
     public static class Builder {
 
         private List<KSIExtendingService> services = new ArrayList<>();
+        private List<Integer> weights = new ArrayList<>();
         private ExecutorService executorService = DefaultExecutorServiceProvider.getExecutorService();
+        private RoutingStrategy routingStrategy = RoutingStrategy.BROADCAST;
+        private CircuitBreakerSettings circuitBreakerSettings = CircuitBreakerSettings.getDefault();
+        private int fanOut;
 
         /**
          * Adds subclients. If both, clients and services, are set then they are combined.
-         * There should be either at least one subclient or one subservice and no more than three of them combined before
-         * building. Do not have to call this if there is at least one subservice set.
+         * There should be at least one subclient or one subservice before building. Every subclient is given weight 1.
+         * Do not have to call this if there is at least one subservice set.
          *
          * @param clients list of subclients, may not be null.
          * @return Instance of the builder itself.
          */
         public Builder addClients(List<KSIExtenderClient> clients) {
             Util.notNull(clients, "ExtendingHAService.Builder.clients");
-            this.services.addAll(clientsToServices(clients));
+            addWeighted(clientsToServices(clients), 1);
             return this;
         }
 
         /**
          * Adds subservices. If both, clients and services, are set then they are combined.
-         * There should be either at least one subclient or one subservice and no more than three of them combined before
-         * building. Do not have to call this if there is at least one subclient set.
+         * There should be at least one subclient or one subservice before building. Every subservice is given weight 1.
+         * Do not have to call this if there is at least one subclient set.
          *
          * @param services list of subservices, may not be null.
          * @return Instance of the builder itself.
          */
         public Builder addServices(List<KSIExtendingService> services) {
             Util.notNull(services, "ExtendingHAService.Builder.services");
-            this.services.addAll(services);
+            addWeighted(services, 1);
+            return this;
+        }
+
+        /**
+         * Adds a subclient with a weight. The weight scales the share of requests the subclient gets compared to the
+         * other subservices, see {@link RoutingStrategy}.
+         *
+         * @param client subclient, may not be null.
+         * @param weight weight of the subclient, must be positive.
+         * @return Instance of the builder itself.
+         */
+        public Builder addClient(KSIExtenderClient client, int weight) {
+            Util.notNull(client, "ExtendingHAService.Builder.client");
+            addWeighted(clientsToServices(Collections.singletonList(client)), weight);
+            return this;
+        }
+
+        /**
+         * Adds a subservice with a weight. The weight scales the share of requests the subservice gets compared to the
+         * other subservices, see {@link RoutingStrategy}.
+         *
+         * @param service subservice, may not be null.
+         * @param weight weight of the subservice, must be positive.
+         * @return Instance of the builder itself.
+         */
+        public Builder addService(KSIExtendingService service, int weight) {
+            Util.notNull(service, "ExtendingHAService.Builder.service");
+            addWeighted(Collections.singletonList(service), weight);
             return this;
         }
 
         /**
-         * @param executorService {@link ExecutorService} used for  asynchronous tasks. May not be null. If not set then default
-         *                        will be used.
+         * @param executorService
+         *      {@link ExecutorService} used to send a {@link RoutingStrategy#BROADCAST} request to the subservices in
+         *      parallel, may not be null. A thread is only used while the request is handed over to a subservice, not
+         *      while waiting for the response. If not set then default will be used.
+         *
          * @return Instance of the builder itself.
          */
         public Builder setExecutorService(ExecutorService executorService) {
@@ -170,20 +234,77 @@ public class ExtendingHAService implements KSIExtendingService {
             return this;
         }
 
+        /**
+         * @param routingStrategy
+         *      {@link RoutingStrategy} used to choose the subservices for each request, may not be null. Defaults to
+         *      {@link RoutingStrategy#BROADCAST}.
+         *
+         * @return Instance of the builder itself.
+         */
+        public Builder setRoutingStrategy(RoutingStrategy routingStrategy) {
+            Util.notNull(routingStrategy, "ExtendingHAService.Builder.routingStrategy");
+            this.routingStrategy = routingStrategy;
+            return this;
+        }
+
+        /**
+         * @param circuitBreakerSettings
+         *      {@link CircuitBreakerSettings} of the circuit breakers of the subservices, may not be null. If not set
+         *      then {@link CircuitBreakerSettings#getDefault()} will be used.
+         *
+         * @return Instance of the builder itself.
+         */
+        public Builder setCircuitBreakerSettings(CircuitBreakerSettings circuitBreakerSettings) {
+            Util.notNull(circuitBreakerSettings, "ExtendingHAService.Builder.circuitBreakerSettings");
+            this.circuitBreakerSettings = circuitBreakerSettings;
+            return this;
+        }
+
+        /**
+         * @param fanOut
+         *      number of subservices a request is sent to at once, the rest are only used on failure or for hedging.
+         *      Must not be negative, 0 means the default of the {@link RoutingStrategy}: all the subservices for
+         *      {@link RoutingStrategy#BROADCAST} and one for the others. Values larger than the number of subservices
+         *      mean all of them.
+         *
+         * @return Instance of the builder itself.
+         */
+        public Builder setFanOut(int fanOut) {
+            if (fanOut < 0) {
+                throw new IllegalArgumentException("ExtendingHAService fan-out can not be negative");
+            }
+            this.fanOut = fanOut;
+            return this;
+        }
+
         /**
          * Builds the {@link ExtendingHAService} instance.
          *
          * @return Instance of {@link ExtendingHAService}.
          */
         public ExtendingHAService build() {
-            List<KSIExtendingService> subservices = Collections.unmodifiableList(this.services);
+            List<KSIExtendingService> subservices = Collections.unmodifiableList(new ArrayList<>(this.services));
             if (subservices.isEmpty()) {
                 throw new IllegalArgumentException("Can not initialize ExtendingHAService without any subservices");
             }
-            if (subservices.size() > 3) {
-                throw new IllegalArgumentException("ExtendingHAService can not be initialized with more than 3 subservices");
+            int[] subserviceWeights = new int[weights.size()];
+            for (int i = 0; i < subserviceWeights.length; i++) {
+                subserviceWeights[i] = weights.get(i);
+            }
+            CircuitBreakerListeners<KSIExtendingService> circuitBreakerListeners = new CircuitBreakerListeners<>(subservices);
+            SubServiceRouter router = new SubServiceRouter(routingStrategy, SubServiceStatistics.createList(subservices.size()),
+                    subserviceWeights, fanOut, circuitBreakerSettings, circuitBreakerListeners);
+            return new ExtendingHAService(subservices, executorService, router, circuitBreakerListeners);
+        }
+
+        private void addWeighted(List<KSIExtendingService> services, int weight) {
+            if (weight <= 0) {
+                throw new IllegalArgumentException("ExtendingHAService subservice weight must be positive");
+            }
+            for (KSIExtendingService service : services) {
+                this.services.add(service);
+                this.weights.add(weight);
             }
-            return new ExtendingHAService(subservices, this.executorService);
         }
 
         /**
@@ -58,6 +58,10 @@ class ExtendingHAServiceConfigurationListener extends AbstractHAConfigurationLis
         return null;
     }
 
+    ExtenderConfiguration normalize(ExtenderConfiguration configuration) {
+        return new ExtendingHAServiceConfiguration(configuration);
+    }
+
     List<SubServiceConfListener<ExtenderConfiguration>> getSubServiceConfListeners() {
         return subServiceConfListeners;
     }
@@ -70,6 +70,20 @@ public class HAService implements KSISigningService, KSIExtendingService {
         signingHAService.registerAggregatorConfigurationListener(listener);
     }
 
+    /**
+     * @see SigningHAService#registerCircuitBreakerListener(CircuitBreakerListener)
+     */
+    public void registerSigningCircuitBreakerListener(CircuitBreakerListener<KSISigningService> listener) {
+        signingHAService.registerCircuitBreakerListener(listener);
+    }
+
+    /**
+     * @see ExtendingHAService#registerCircuitBreakerListener(CircuitBreakerListener)
+     */
+    public void registerExtendingCircuitBreakerListener(CircuitBreakerListener<KSIExtendingService> listener) {
+        extendingHAService.registerCircuitBreakerListener(listener);
+    }
+
     /**
      * @see SigningHAService#getAggregationConfiguration()
      */
@@ -193,6 +207,74 @@ public class HAService implements KSISigningService, KSIExtendingService {
             return this;
         }
 
+        /**
+         * @see SigningHAService.Builder#setRoutingStrategy(RoutingStrategy)
+         * @see ExtendingHAService.Builder#setRoutingStrategy(RoutingStrategy)
+         *
+         * @param routingStrategy strategy used to choose the subservices of the signing and extending requests.
+         *
+         * @return Instance of the builder itself.
+         */
+        public HAService.Builder setRoutingStrategy(RoutingStrategy routingStrategy) {
+            signingHAServiceBuilder.setRoutingStrategy(routingStrategy);
+            extenderHAServiceBuilder.setRoutingStrategy(routingStrategy);
+            return this;
+        }
+
+        /**
+         * @see SigningHAService.Builder#addService(KSISigningService, int)
+         *
+         * @param service signing service.
+         * @param weight weight of the signing service.
+         *
+         * @return Instance of the builder itself.
+         */
+        public HAService.Builder addSigningService(KSISigningService service, int weight) {
+            signingHAServiceBuilder.addService(service, weight);
+            return this;
+        }
+
+        /**
+         * @see ExtendingHAService.Builder#addService(KSIExtendingService, int)
+         *
+         * @param service extending service.
+         * @param weight weight of the extending service.
+         *
+         * @return Instance of the builder itself.
+         */
+        public HAService.Builder addExtenderService(KSIExtendingService service, int weight) {
+            extenderHAServiceBuilder.addService(service, weight);
+            return this;
+        }
+
+        /**
+         * @see SigningHAService.Builder#setFanOut(int)
+         * @see ExtendingHAService.Builder#setFanOut(int)
+         *
+         * @param fanOut number of subservices a signing or extending request is sent to at once.
+         *
+         * @return Instance of the builder itself.
+         */
+        public HAService.Builder setFanOut(int fanOut) {
+            signingHAServiceBuilder.setFanOut(fanOut);
+            extenderHAServiceBuilder.setFanOut(fanOut);
+            return this;
+        }
+
+        /**
+         * @see SigningHAService.Builder#setCircuitBreakerSettings(CircuitBreakerSettings)
+         * @see ExtendingHAService.Builder#setCircuitBreakerSettings(CircuitBreakerSettings)
+         *
+         * @param circuitBreakerSettings settings of the circuit breakers of the signing and extending subservices.
+         *
+         * @return Instance of the builder itself.
+         */
+        public HAService.Builder setCircuitBreakerSettings(CircuitBreakerSettings circuitBreakerSettings) {
+            signingHAServiceBuilder.setCircuitBreakerSettings(circuitBreakerSettings);
+            extenderHAServiceBuilder.setCircuitBreakerSettings(circuitBreakerSettings);
+            return this;
+        }
+
         /**
          * Builds an instance of {@link HAService} based on what is set in this builder.
          *
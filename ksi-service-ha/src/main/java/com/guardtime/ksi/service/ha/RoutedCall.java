@@ -0,0 +1,250 @@
+/*
+ * Copyright 2013-2018 Guardtime, Inc.
+ *
+ *  This file is part of the Guardtime client SDK.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License").
+ *  You may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES, CONDITIONS, OR OTHER LICENSES OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ *  "Guardtime" and "KSI" are trademarks or registered trademarks of
+ *  Guardtime, Inc., and no license to trademarks is granted; Guardtime
+ *  reserves and retains all trademark rights.
+ *
+ */
+package com.guardtime.ksi.service.ha;
+
+import com.guardtime.ksi.exceptions.KSIException;
+import com.guardtime.ksi.service.Future;
+import com.guardtime.ksi.service.KSIProtocolException;
+import com.guardtime.ksi.service.client.KSIClientException;
+import com.guardtime.ksi.util.HashedWheelTimer;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * One request of an HA service routed to its subservices. The request is sent to the first fan-out subservices in the
+ * order given by the {@link SubServiceRouter} at once, with {@link RoutingStrategy#BROADCAST} that is all of them by
+ * default. The rest of the subservices are used one at a time: the next subservice is used when a previous one fails
+ * or, when hedging, when the previous one has not responded in time. The first successful response is the result, the request fails
+ * only if all the subservices fail. Subservices whose circuit breaker is open are skipped.
+ * <p>
+ * No threads are blocked while waiting, responses are handled in the completion stages of the subservice futures and
+ * hedging uses a shared timer. Except for the first subservice of a request without fan-out, which is used on the
+ * calling thread, the request is handed over to the subservices on the executor, so that a subservice that blocks while
+ * sending does not hold up the hedging timer or the I/O thread of the subservice that failed.
+ * </p>
+ */
+abstract class RoutedCall<S, T> {
+
+    static final long DEFAULT_HEDGE_DELAY_MILLIS = 1000;
+    static final long MINIMUM_HEDGE_DELAY_MILLIS = 5;
+
+    /**
+     * Error statuses below this one are about the request (0x01xx) or the client's credentials (0x02xx), not about the
+     * server.
+     */
+    private static final long SERVER_ERROR_STATUS = 0x0300;
+
+    private static final HashedWheelTimer HEDGE_TIMER = new HashedWheelTimer(1, TimeUnit.MILLISECONDS, 512, "ksi-ha-hedge");
+
+    private final List<S> services;
+    private final List<SubServiceStatistics> statistics;
+    private final SubServiceRouter router;
+    private final Executor executor;
+    private final List<Integer> order;
+    private final AtomicInteger nextAttempt = new AtomicInteger();
+    private final AtomicInteger attemptsInFlight = new AtomicInteger();
+    private final CompletableFuture<T> result = new CompletableFuture<>();
+    private volatile Throwable lastFailure;
+
+    RoutedCall(List<S> services, List<SubServiceStatistics> statistics, SubServiceRouter router, Executor executor) {
+        this.services = services;
+        this.statistics = statistics;
+        this.router = router;
+        this.executor = executor;
+        this.order = router.order();
+    }
+
+    /**
+     * Sends the request to one subservice.
+     */
+    abstract Future<T> invoke(S service) throws KSIException;
+
+    Future<T> start() {
+        int fanOut = router.getFanOut();
+        if (fanOut == 1) {
+            attemptsInFlight.incrementAndGet();
+            sendNext();
+        } else {
+            for (int i = 0; i < fanOut; i++) {
+                sendNextAsync();
+            }
+        }
+        return new RoutedFuture<>(result);
+    }
+
+    /**
+     * Sends the request to the next subservice on the executor. The attempt is counted as in flight before it is handed
+     * over, so the request can not be considered failed while the attempt is waiting for a thread.
+     */
+    private void sendNextAsync() {
+        attemptsInFlight.incrementAndGet();
+        Runnable task = new Runnable() {
+            public void run() {
+                sendNext();
+            }
+        };
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.run();
+        }
+    }
+
+    /**
+     * Sends the request to the next subservice, the attempt must already be counted as in flight.
+     */
+    private void sendNext() {
+        int attempt = nextAttempt.getAndIncrement();
+        if (attempt >= order.size()) {
+            attemptFinished();
+            return;
+        }
+        send(order.get(attempt));
+    }
+
+    private void send(final int subservice) {
+        if (!router.getCircuitBreaker(subservice).tryAcquire()) {
+            failed(new KSIClientException("Circuit breaker of service '" + services.get(subservice) + "' is open"));
+            return;
+        }
+        final long start = System.nanoTime();
+        statistics.get(subservice).requestStarted();
+        CompletionStage<T> stage;
+        try {
+            stage = invoke(services.get(subservice)).toCompletionStage();
+        } catch (Exception e) {
+            router.requestCompleted(subservice, System.nanoTime() - start, !isSubserviceFailure(e));
+            failed(new KSIClientException("Request via service '" + services.get(subservice) + "' failed", e));
+            return;
+        }
+        final HashedWheelTimer.Timeout hedge = scheduleHedge(subservice);
+        stage.whenComplete(new BiConsumer<T, Throwable>() {
+            public void accept(T value, Throwable throwable) {
+                router.requestCompleted(subservice, System.nanoTime() - start, throwable == null || !isSubserviceFailure(throwable));
+                if (hedge != null) {
+                    hedge.cancel();
+                }
+                if (throwable == null) {
+                    result.complete(value);
+                    attemptFinished();
+                } else {
+                    failed(new KSIClientException("Request via service '" + services.get(subservice) + "' failed", unwrap(throwable)));
+                }
+            }
+        });
+    }
+
+    private HashedWheelTimer.Timeout scheduleHedge(int subservice) {
+        if (!router.isHedging() || nextAttempt.get() >= order.size()) {
+            return null;
+        }
+        long delay = router.getHedgeDelay(subservice, DEFAULT_HEDGE_DELAY_MILLIS, MINIMUM_HEDGE_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        return HEDGE_TIMER.newTimeout(new Runnable() {
+            public void run() {
+                if (!result.isDone()) {
+                    sendNextAsync();
+                }
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void failed(Throwable failure) {
+        lastFailure = failure;
+        if (!result.isDone()) {
+            sendNextAsync();
+        }
+        attemptFinished();
+    }
+
+    private void attemptFinished() {
+        if (attemptsInFlight.decrementAndGet() == 0 && nextAttempt.get() >= order.size()) {
+            result.completeExceptionally(new KSIClientException("All subclients of HAService failed", lastFailure));
+        }
+    }
+
+    /**
+     * Decides whether a failed request counts as a failure of the subservice for its statistics and circuit breaker.
+     * Transport errors, timeouts and server-side error statuses do. Protocol errors about the request itself, which
+     * any other subservice would return as well, do not.
+     */
+    static boolean isSubserviceFailure(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof KSIProtocolException) {
+                KSIProtocolException protocolException = (KSIProtocolException) cause;
+                return protocolException.hasErrorCode() && protocolException.getErrorCode() >= SERVER_ERROR_STATUS;
+            }
+            if (cause == cause.getCause()) {
+                break;
+            }
+        }
+        return true;
+    }
+
+    private static Throwable unwrap(Throwable throwable) {
+        while ((throwable instanceof ExecutionException || throwable instanceof CompletionException)
+                && throwable.getCause() != null) {
+            throwable = throwable.getCause();
+        }
+        return throwable;
+    }
+
+    /**
+     * {@link Future} of a routed request.
+     */
+    static final class RoutedFuture<T> implements Future<T> {
+
+        private final CompletableFuture<T> result;
+
+        RoutedFuture(CompletableFuture<T> result) {
+            this.result = result;
+        }
+
+        public T getResult() throws KSIException {
+            try {
+                return result.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new KSIClientException("Waiting for the HAService response was interrupted", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof KSIException) {
+                    throw (KSIException) e.getCause();
+                }
+                throw new KSIClientException("All subclients of HAService failed", e.getCause());
+            }
+        }
+
+        public boolean isFinished() {
+            return result.isDone();
+        }
+
+        public CompletionStage<T> toCompletionStage() {
+            return result;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2013-2018 Guardtime, Inc.
+ *
+ *  This file is part of the Guardtime client SDK.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License").
+ *  You may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES, CONDITIONS, OR OTHER LICENSES OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ *  "Guardtime" and "KSI" are trademarks or registered trademarks of
+ *  Guardtime, Inc., and no license to trademarks is granted; Guardtime
+ *  reserves and retains all trademark rights.
+ *
+ */
+package com.guardtime.ksi.service.ha;
+
+/**
+ * Strategies for choosing the subservices of an HA service that a request is sent to.
+ */
+public enum RoutingStrategy {
+
+    /**
+     * Every request is sent to all the subservices at once and the first successful response is used. Gives the lowest
+     * latency and multiplies the load of the KSI services by the number of subservices. The responses are handled as
+     * they arrive, no thread is held per subservice while waiting. With a fan-out smaller than the number of
+     * subservices the request is sent to that many subservices, chosen by smooth weighted round-robin over the
+     * configured weights, and the others are used on failure.
+     */
+    BROADCAST,
+
+    /**
+     * Every request is sent to the subservice with the lowest latency (adjusted by its error rate) first. If there is no
+     * response in the subservice's 95th percentile latency, the request is also sent to the next fastest subservice.
+     * On failure the next subservice is tried immediately.
+     */
+    HEDGED_FASTEST_FIRST,
+
+    /**
+     * Requests are distributed between the subservices with smooth weighted round-robin, the weights are the configured
+     * weights multiplied by the inverse latencies of the subservices and reduced by their error rates. On failure the
+     * next subservice is tried.
+     */
+    WEIGHTED_ROUND_ROBIN,
+
+    /**
+     * Every request is sent to the subservice with the least outstanding requests per unit of configured weight, ties
+     * are broken by latency. On failure the next subservice is tried.
+     */
+    LEAST_OUTSTANDING
+}
@@ -35,10 +35,8 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 
 /**
@@ -56,28 +54,60 @@ public class SigningHAService implements KSISigningService {
     private final ExecutorService executorService;
     private final SigningHAServiceConfigurationListener haConfListener;
 
-    private SigningHAService(List<KSISigningService> subservices, ExecutorService executorService) {
+    private final List<SubServiceStatistics> statistics;
+    private final CircuitBreakerListeners<KSISigningService> circuitBreakerListeners;
+    private final SubServiceRouter router;
+
+    private SigningHAService(List<KSISigningService> subservices, ExecutorService executorService, SubServiceRouter router,
+                             CircuitBreakerListeners<KSISigningService> circuitBreakerListeners) {
         this.executorService = executorService;
         this.subservices = subservices;
         this.haConfListener = new SigningHAServiceConfigurationListener(this.subservices);
+        this.statistics = router.getStatistics();
+        this.circuitBreakerListeners = circuitBreakerListeners;
+        this.router = router;
     }
 
     /**
-     * Creates a non-blocking signing request. Sends the request to all the subservices in parallel. First successful response is
-     * used, others are cancelled. Request fails only if all the subservices fail.
+     * Creates a non-blocking signing request. The subservices the request is sent to depend on the {@link RoutingStrategy},
+     * by default the request is sent to all the subservices in parallel. Subservices whose circuit breaker is open are
+     * skipped. First successful response is used. Request fails only if all the subservices fail.
      *
      * @see KSISigningService#sign(DataHash, Long)
      */
     public Future<AggregationResponse> sign(DataHash dataHash, Long level) throws KSIException {
         Util.notNull(dataHash, "dataHash");
         Util.notNull(level, "level");
-        final Collection<Callable<AggregationResponse>> tasks = new ArrayList<>(subservices.size());
-        for (KSISigningService subservice : subservices) {
-            tasks.add(new SigningTask(subservice, dataHash, level));
-        }
-        return new ServiceCallFuture<>(
-                executorService.submit(new ServiceCallsTask<>(executorService, tasks))
-        );
+        final DataHash hash = dataHash;
+        final Long hashLevel = level;
+        return new RoutedCall<KSISigningService, AggregationResponse>(subservices, statistics, router, executorService) {
+            Future<AggregationResponse> invoke(KSISigningService service) throws KSIException {
+                return service.sign(hash, hashLevel);
+            }
+        }.start();
+    }
+
+    /**
+     * @return Request statistics of the subservices, in the same order as the subservices.
+     */
+    public List<SubServiceStatistics> getSubServiceStatistics() {
+        return statistics;
+    }
+
+    /**
+     * @return Circuit breaker states of the subservices, in the same order as the subservices.
+     */
+    public List<CircuitBreakerState> getCircuitBreakerStates() {
+        return router.getCircuitBreakerStates();
+    }
+
+    /**
+     * Registers a listener that will be called whenever the circuit breaker of a subservice changes its state.
+     *
+     * @param listener may not be null.
+     */
+    public void registerCircuitBreakerListener(CircuitBreakerListener<KSISigningService> listener) {
+        circuitBreakerListeners.registerListener(listener);
     }
 
     /**
@@ -134,12 +164,16 @@ public class SigningHAService implements KSISigningService {
     public static class Builder {
 
         private List<KSISigningService> services = new ArrayList<>();
+        private List<Integer> weights = new ArrayList<>();
         private ExecutorService executorService = DefaultExecutorServiceProvider.getExecutorService();
+        private RoutingStrategy routingStrategy = RoutingStrategy.BROADCAST;
+        private CircuitBreakerSettings circuitBreakerSettings = CircuitBreakerSettings.getDefault();
+        private int fanOut;
 
         /**
          * Adds subclients. If both, clients and services, are set then they are combined.
-         * There should be either at least one subclient or one subservice and no more than three of them combined before
-         * building. Do not have to call this if there is at least one subservice set.
+         * There should be at least one subclient or one subservice before building. Every subclient is given weight 1.
+         * Do not have to call this if there is at least one subservice set.
          *
          * @param clients
          *      list of subclients, may not be null.
@@ -148,14 +182,14 @@ public class SigningHAService implements KSISigningService {
          */
         public Builder addClients(List<KSISigningClient> clients) {
             Util.notNull(clients, "SigningHAService.Builder.clients");
-            this.services.addAll(clientsToServices(clients));
+            addWeighted(clientsToServices(clients), 1);
             return this;
         }
 
         /**
          * For adding subservices. If both clients and services are set then they are combined.
-         * There should be either at least one subclient or one subservice and no more than three of them combined before
-         * building. Do not have to call this if there is at least one subclient set.
+         * There should be at least one subclient or one subservice before building. Every subservice is given weight 1.
+         * Do not have to call this if there is at least one subclient set.
          *
          * @param services
          *      list of subservices, may not be null.
@@ -164,13 +198,49 @@ public class SigningHAService implements KSISigningService {
          */
         public Builder addServices(List<KSISigningService> services) {
             Util.notNull(services, "SigningHAService.Builder.services");
-            this.services.addAll(services);
+            addWeighted(services, 1);
+            return this;
+        }
+
+        /**
+         * Adds a subclient with a weight. The weight scales the share of requests the subclient gets compared to the
+         * other subservices, see {@link RoutingStrategy}.
+         *
+         * @param client
+         *      subclient, may not be null.
+         * @param weight
+         *      weight of the subclient, must be positive.
+         *
+         * @return Instance of the builder itself.
+         */
+        public Builder addClient(KSISigningClient client, int weight) {
+            Util.notNull(client, "SigningHAService.Builder.client");
+            addWeighted(clientsToServices(Collections.singletonList(client)), weight);
+            return this;
+        }
+
+        /**
+         * Adds a subservice with a weight. The weight scales the share of requests the subservice gets compared to the
+         * other subservices, see {@link RoutingStrategy}.
+         *
+         * @param service
+         *      subservice, may not be null.
+         * @param weight
+         *      weight of the subservice, must be positive.
+         *
+         * @return Instance of the builder itself.
+         */
+        public Builder addService(KSISigningService service, int weight) {
+            Util.notNull(service, "SigningHAService.Builder.service");
+            addWeighted(Collections.singletonList(service), weight);
             return this;
         }
 
         /**
          * @param executorService
-         *      {@link ExecutorService} used for  asynchronous tasks, may not be null. If not set then default will be used.
+         *      {@link ExecutorService} used to send a {@link RoutingStrategy#BROADCAST} request to the subservices in
+         *      parallel, may not be null. A thread is only used while the request is handed over to a subservice, not
+         *      while waiting for the response. If not set then default will be used.
          *
          * @return Instance of the builder itself.
          */
@@ -180,20 +250,77 @@ public class SigningHAService implements KSISigningService {
             return this;
         }
 
+        /**
+         * @param routingStrategy
+         *      {@link RoutingStrategy} used to choose the subservices for each request, may not be null. Defaults to
+         *      {@link RoutingStrategy#BROADCAST}.
+         *
+         * @return Instance of the builder itself.
+         */
+        public Builder setRoutingStrategy(RoutingStrategy routingStrategy) {
+            Util.notNull(routingStrategy, "SigningHAService.Builder.routingStrategy");
+            this.routingStrategy = routingStrategy;
+            return this;
+        }
+
+        /**
+         * @param circuitBreakerSettings
+         *      {@link CircuitBreakerSettings} of the circuit breakers of the subservices, may not be null. If not set
+         *      then {@link CircuitBreakerSettings#getDefault()} will be used.
+         *
+         * @return Instance of the builder itself.
+         */
+        public Builder setCircuitBreakerSettings(CircuitBreakerSettings circuitBreakerSettings) {
+            Util.notNull(circuitBreakerSettings, "SigningHAService.Builder.circuitBreakerSettings");
+            this.circuitBreakerSettings = circuitBreakerSettings;
+            return this;
+        }
+
+        /**
+         * @param fanOut
+         *      number of subservices a request is sent to at once, the rest are only used on failure or for hedging.
+         *      Must not be negative, 0 means the default of the {@link RoutingStrategy}: all the subservices for
+         *      {@link RoutingStrategy#BROADCAST} and one for the others. Values larger than the number of subservices
+         *      mean all of them.
+         *
+         * @return Instance of the builder itself.
+         */
+        public Builder setFanOut(int fanOut) {
+            if (fanOut < 0) {
+                throw new IllegalArgumentException("SigningHAService fan-out can not be negative");
+            }
+            this.fanOut = fanOut;
+            return this;
+        }
+
         /**
          * Builds the {@link SigningHAService} instance.
          *
          * @return Instance of {@link SigningHAService}.
          */
         public SigningHAService build() {
-            List<KSISigningService> subservices = Collections.unmodifiableList(this.services);
+            List<KSISigningService> subservices = Collections.unmodifiableList(new ArrayList<>(this.services));
             if (subservices.isEmpty()) {
                 throw new IllegalArgumentException("Can not initialize SigningHAService without any subservices");
             }
-            if (subservices.size() > 3) {
-                throw new IllegalArgumentException("SigningHAService can not be initialized with more than 3 combined subservices or subclients");
+            int[] subserviceWeights = new int[weights.size()];
+            for (int i = 0; i < subserviceWeights.length; i++) {
+                subserviceWeights[i] = weights.get(i);
+            }
+            CircuitBreakerListeners<KSISigningService> circuitBreakerListeners = new CircuitBreakerListeners<>(subservices);
+            SubServiceRouter router = new SubServiceRouter(routingStrategy, SubServiceStatistics.createList(subservices.size()),
+                    subserviceWeights, fanOut, circuitBreakerSettings, circuitBreakerListeners);
+            return new SigningHAService(subservices, executorService, router, circuitBreakerListeners);
+        }
+
+        private void addWeighted(List<KSISigningService> services, int weight) {
+            if (weight <= 0) {
+                throw new IllegalArgumentException("SigningHAService subservice weight must be positive");
+            }
+            for (KSISigningService service : services) {
+                this.services.add(service);
+                this.weights.add(weight);
             }
-            return new SigningHAService(subservices, executorService);
         }
 
         /**
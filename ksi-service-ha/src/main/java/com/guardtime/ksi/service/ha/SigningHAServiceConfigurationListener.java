@@ -58,6 +58,10 @@ class SigningHAServiceConfigurationListener extends AbstractHAConfigurationListe
         return null;
     }
 
+    AggregatorConfiguration normalize(AggregatorConfiguration configuration) {
+        return new SigningHAServiceConfiguration(configuration);
+    }
+
     List<SubServiceConfListener<AggregatorConfiguration>> getSubServiceConfListeners() {
         return subServiceConfListeners;
     }
@@ -31,17 +31,18 @@ class SubServiceConfListener<T> implements ConfigurationListener<T> {
 
     private static final Logger logger = LoggerFactory.getLogger(SubServiceConfListener.class);
 
-    private final ConfigurationListener<T> parent;
+    private final AbstractHAConfigurationListener<T> parent;
 
     private final String clientId;
-    private T lastConfiguration;
+    private volatile T lastConfiguration;
 
     /**
      * @param clientId something to distinguish the client from other clients, used in logging.
      * @param parent listener to call every time subclients configuration is updated. It's implementation
-     *                                    should start the recalculation process.
+     *                                    should start the recalculation process. Also normalizes the received
+     *                                    configurations.
      */
-    SubServiceConfListener(String clientId, ConfigurationListener<T> parent) {
+    SubServiceConfListener(String clientId, AbstractHAConfigurationListener<T> parent) {
         Util.notNull(clientId, "SubServiceConfListener.clientId");
         Util.notNull(parent, "SubServiceConfListener.parent");
         this.clientId = clientId;
@@ -56,15 +57,15 @@ class SubServiceConfListener<T> implements ConfigurationListener<T> {
     }
 
     /**
-     * @return Result of the last configuration request. Null if last request failed.
+     * @return Normalized result of the last configuration request. Null if last request failed.
      */
     T getLastConfiguration() {
         return lastConfiguration;
     }
 
     public void updated(T configuration) {
-        lastConfiguration = configuration;
-        parent.updated(configuration);
+        lastConfiguration = configuration == null ? null : parent.normalize(configuration);
+        parent.updated(lastConfiguration);
     }
 
     public void updateFailed(Throwable t) {
@@ -0,0 +1,273 @@
+/*
+ * Copyright 2013-2018 Guardtime, Inc.
+ *
+ *  This file is part of the Guardtime client SDK.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License").
+ *  You may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES, CONDITIONS, OR OTHER LICENSES OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ *  "Guardtime" and "KSI" are trademarks or registered trademarks of
+ *  Guardtime, Inc., and no license to trademarks is granted; Guardtime
+ *  reserves and retains all trademark rights.
+ *
+ */
+package com.guardtime.ksi.service.ha;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Orders the subservices of an HA service for one request according to a {@link RoutingStrategy}. The first
+ * fan-out subservices in the order are sent the request at once, the others are used for hedging and failover in the
+ * given order. Subservices whose circuit breaker does not let requests through are moved to the end of the order.
+ * <p>
+ * The configured weights of the subservices scale their costs and outstanding request counts, and with
+ * {@link RoutingStrategy#WEIGHTED_ROUND_ROBIN} and partial {@link RoutingStrategy#BROADCAST} fan-out, their share of
+ * the requests.
+ * </p>
+ */
+class SubServiceRouter {
+
+    private final RoutingStrategy strategy;
+    private final List<SubServiceStatistics> statistics;
+    private final int[] weights;
+    private final int fanOut;
+    private final CircuitBreakerSettings circuitBreakerSettings;
+    private final List<CircuitBreaker> circuitBreakers;
+    private final double[] currentWeights;
+
+    SubServiceRouter(RoutingStrategy strategy, List<SubServiceStatistics> statistics) {
+        this(strategy, statistics, CircuitBreakerSettings.getDefault(), null);
+    }
+
+    SubServiceRouter(RoutingStrategy strategy, List<SubServiceStatistics> statistics,
+                     CircuitBreakerSettings circuitBreakerSettings, CircuitBreaker.StateListener listener) {
+        this(strategy, statistics, equalWeights(statistics.size()), 0, circuitBreakerSettings, listener);
+    }
+
+    /**
+     * @param weights
+     *      weights of the subservices, in the same order as the statistics.
+     * @param fanOut
+     *      number of subservices a request is sent to at once, 0 for the default of the strategy: all the subservices
+     *      for {@link RoutingStrategy#BROADCAST} and one for the others.
+     */
+    SubServiceRouter(RoutingStrategy strategy, List<SubServiceStatistics> statistics, int[] weights, int fanOut,
+                     CircuitBreakerSettings circuitBreakerSettings, CircuitBreaker.StateListener listener) {
+        int size = statistics.size();
+        this.strategy = strategy;
+        this.statistics = statistics;
+        this.weights = weights.clone();
+        if (fanOut == 0) {
+            this.fanOut = strategy == RoutingStrategy.BROADCAST ? size : 1;
+        } else {
+            this.fanOut = Math.min(fanOut, size);
+        }
+        this.circuitBreakerSettings = circuitBreakerSettings;
+        this.circuitBreakers = CircuitBreaker.createList(size, circuitBreakerSettings, listener);
+        this.currentWeights = new double[size];
+    }
+
+    RoutingStrategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * @return Number of subservices a request is sent to at once.
+     */
+    int getFanOut() {
+        return fanOut;
+    }
+
+    List<SubServiceStatistics> getStatistics() {
+        return statistics;
+    }
+
+    boolean isHedging() {
+        return strategy == RoutingStrategy.HEDGED_FASTEST_FIRST;
+    }
+
+    List<Integer> order() {
+        int size = statistics.size();
+        final double[] costs = new double[size];
+        final double[] weightedCosts = new double[size];
+        final double[] weightedOutstanding = new double[size];
+        List<Integer> available = new ArrayList<>(size);
+        List<Integer> unavailable = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            costs[i] = statistics.get(i).getCost();
+            weightedCosts[i] = costs[i] == Double.MAX_VALUE ? costs[i] : costs[i] / weights[i];
+            weightedOutstanding[i] = (double) statistics.get(i).getOutstandingRequests() / weights[i];
+            if (circuitBreakers.get(i).isAvailable()) {
+                available.add(i);
+            } else {
+                unavailable.add(i);
+            }
+        }
+        // costs and outstanding counts are copied, sorting by values that change concurrently could break the sort
+        Comparator<Integer> byCost = new Comparator<Integer>() {
+            public int compare(Integer a, Integer b) {
+                return Double.compare(weightedCosts[a], weightedCosts[b]);
+            }
+        };
+        if (strategy == RoutingStrategy.LEAST_OUTSTANDING) {
+            Collections.sort(available, new Comparator<Integer>() {
+                public int compare(Integer a, Integer b) {
+                    int result = Double.compare(weightedOutstanding[a], weightedOutstanding[b]);
+                    return result != 0 ? result : Double.compare(weightedCosts[a], weightedCosts[b]);
+                }
+            });
+        } else {
+            Collections.sort(available, byCost);
+        }
+        if (strategy == RoutingStrategy.WEIGHTED_ROUND_ROBIN) {
+            moveToFront(available, selectWeighted(speedWeights(costs), available));
+        } else if (strategy == RoutingStrategy.BROADCAST && fanOut < size) {
+            double[] configuredWeights = new double[size];
+            for (int i = 0; i < size; i++) {
+                configuredWeights[i] = weights[i];
+            }
+            moveToFront(available, selectWeighted(configuredWeights, available));
+        }
+        Collections.sort(unavailable, byCost);
+        available.addAll(unavailable);
+        return available;
+    }
+
+    CircuitBreaker getCircuitBreaker(int subservice) {
+        return circuitBreakers.get(subservice);
+    }
+
+    List<CircuitBreakerState> getCircuitBreakerStates() {
+        List<CircuitBreakerState> states = new ArrayList<>(circuitBreakers.size());
+        for (CircuitBreaker breaker : circuitBreakers) {
+            states.add(breaker.getState());
+        }
+        return states;
+    }
+
+    /**
+     * Records a completed request in the statistics and the circuit breaker of the subservice.
+     */
+    void requestCompleted(int subservice, long latencyNanos, boolean success) {
+        statistics.get(subservice).requestCompleted(latencyNanos, success);
+        circuitBreakers.get(subservice).requestCompleted(latencyNanos, success);
+        if (success) {
+            ejectIfOutlier(subservice, latencyNanos);
+        }
+    }
+
+    /**
+     * Ejects the subservice if both its average latency and the latency of its last response exceed the average
+     * latency of the fastest subservice with a closed circuit breaker by the outlier factor. Requiring the last
+     * response to be slow too keeps a recovered subservice from being ejected again on its moving average alone.
+     */
+    private void ejectIfOutlier(int subservice, long latencyNanos) {
+        double factor = circuitBreakerSettings.getOutlierLatencyFactor();
+        int minimumSamples = circuitBreakerSettings.getOutlierMinimumSamples();
+        SubServiceStatistics stats = statistics.get(subservice);
+        if (factor == 0.0 || stats.getLatencySamples() < minimumSamples) {
+            return;
+        }
+        long fastest = Long.MAX_VALUE;
+        for (int i = 0; i < statistics.size(); i++) {
+            SubServiceStatistics other = statistics.get(i);
+            if (i != subservice && other.getLatencySamples() >= minimumSamples
+                    && circuitBreakers.get(i).getState() == CircuitBreakerState.CLOSED) {
+                fastest = Math.min(fastest, other.getAverageLatency(TimeUnit.NANOSECONDS));
+            }
+        }
+        if (fastest == Long.MAX_VALUE) {
+            return;
+        }
+        double limit = factor * fastest;
+        if (stats.getAverageLatency(TimeUnit.NANOSECONDS) > limit && latencyNanos > limit) {
+            circuitBreakers.get(subservice).eject();
+        }
+    }
+
+    /**
+     * Delay after which a request that has not been answered by the subservice is hedged to the next subservice.
+     */
+    long getHedgeDelay(int subservice, long defaultDelay, long minimumDelay, TimeUnit unit) {
+        SubServiceStatistics stats = statistics.get(subservice);
+        if (stats.getLatencySamples() == 0) {
+            return defaultDelay;
+        }
+        return Math.max(minimumDelay, stats.getLatencyPercentile95(unit));
+    }
+
+    /**
+     * Smooth weighted round-robin: every candidate's current weight is increased by its weight, the fan-out candidates
+     * with the largest current weights are selected and the total weight is subtracted from their current weights,
+     * split evenly between them. Over time every subservice gets its weighted share of the requests, a subservice
+     * whose share exceeds a single subservice per request is selected for every request.
+     */
+    private synchronized List<Integer> selectWeighted(final double[] weights, List<Integer> candidates) {
+        double total = 0;
+        for (Integer candidate : candidates) {
+            currentWeights[candidate] += weights[candidate];
+            total += weights[candidate];
+        }
+        List<Integer> selected = new ArrayList<>(candidates);
+        Collections.sort(selected, new Comparator<Integer>() {
+            public int compare(Integer a, Integer b) {
+                return Double.compare(currentWeights[b], currentWeights[a]);
+            }
+        });
+        selected = selected.subList(0, Math.min(fanOut, selected.size()));
+        for (Integer subservice : selected) {
+            currentWeights[subservice] -= total / selected.size();
+        }
+        return new ArrayList<>(selected);
+    }
+
+    /**
+     * Weights of the subservices for {@link RoutingStrategy#WEIGHTED_ROUND_ROBIN}: the configured weight multiplied by
+     * how many times faster than the slowest subservice the subservice is.
+     */
+    private double[] speedWeights(double[] costs) {
+        double maxCost = 0;
+        for (double cost : costs) {
+            if (cost != Double.MAX_VALUE) {
+                maxCost = Math.max(maxCost, cost);
+            }
+        }
+        double[] speedWeights = new double[costs.length];
+        for (int i = 0; i < costs.length; i++) {
+            speedWeights[i] = weights[i] * speedWeight(costs[i], maxCost);
+        }
+        return speedWeights;
+    }
+
+    private static double speedWeight(double cost, double maxCost) {
+        if (cost == Double.MAX_VALUE) {
+            return 0.01;
+        }
+        if (cost == 0.0 || maxCost == 0.0) {
+            return 1.0;
+        }
+        return Math.max(0.01, maxCost / cost);
+    }
+
+    private static void moveToFront(List<Integer> order, List<Integer> first) {
+        order.removeAll(first);
+        order.addAll(0, first);
+    }
+
+    private static int[] equalWeights(int size) {
+        int[] weights = new int[size];
+        Arrays.fill(weights, 1);
+        return weights;
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2013-2018 Guardtime, Inc.
+ *
+ *  This file is part of the Guardtime client SDK.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License").
+ *  You may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES, CONDITIONS, OR OTHER LICENSES OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ *  "Guardtime" and "KSI" are trademarks or registered trademarks of
+ *  Guardtime, Inc., and no license to trademarks is granted; Guardtime
+ *  reserves and retains all trademark rights.
+ *
+ */
+package com.guardtime.ksi.service.ha;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Statistics of the requests sent to one subservice of an HA service, used for routing the requests. Latency and error
+ * rate are exponentially weighted moving averages, so recent requests matter most.
+ * <p>
+ * Only successful requests are included in the latency, since failing fast (e.g. connection refused) says nothing
+ * about how fast the subservice responds. The 95th percentile is estimated from the moving average and variance of
+ * the latency.
+ * </p>
+ */
+public final class SubServiceStatistics {
+
+    private static final double ALPHA = 0.2;
+    private static final double Z_95 = 1.645;
+
+    private final AtomicInteger outstandingRequests = new AtomicInteger();
+    private long requests;
+    private long latencySamples;
+    private double averageLatencyNanos;
+    private double latencyVarianceNanos;
+    private double errorRate;
+
+    static List<SubServiceStatistics> createList(int size) {
+        List<SubServiceStatistics> statistics = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            statistics.add(new SubServiceStatistics());
+        }
+        return Collections.unmodifiableList(statistics);
+    }
+
+    void requestStarted() {
+        outstandingRequests.incrementAndGet();
+    }
+
+    synchronized void requestCompleted(long latencyNanos, boolean success) {
+        outstandingRequests.decrementAndGet();
+        requests++;
+        errorRate = requests == 1 ? (success ? 0.0 : 1.0) : errorRate + ALPHA * ((success ? 0.0 : 1.0) - errorRate);
+        if (success) {
+            if (latencySamples++ == 0) {
+                averageLatencyNanos = latencyNanos;
+            } else {
+                double difference = latencyNanos - averageLatencyNanos;
+                double increment = ALPHA * difference;
+                averageLatencyNanos += increment;
+                latencyVarianceNanos = (1 - ALPHA) * (latencyVarianceNanos + difference * increment);
+            }
+        }
+    }
+
+    /**
+     * @return The number of requests sent to the subservice that have not completed yet.
+     */
+    public int getOutstandingRequests() {
+        return outstandingRequests.get();
+    }
+
+    /**
+     * @return The number of completed requests.
+     */
+    public synchronized long getCompletedRequests() {
+        return requests;
+    }
+
+    /**
+     * @return The number of successful requests the latency is calculated from.
+     */
+    public synchronized long getLatencySamples() {
+        return latencySamples;
+    }
+
+    /**
+     * @return Moving average latency of the successful requests.
+     */
+    public synchronized long getAverageLatency(TimeUnit unit) {
+        return unit.convert((long) averageLatencyNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return Estimated 95th percentile latency of the successful requests.
+     */
+    public synchronized long getLatencyPercentile95(TimeUnit unit) {
+        return unit.convert((long) (averageLatencyNanos + Z_95 * Math.sqrt(latencyVarianceNanos)), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return Moving average share of failed requests, between 0 and 1.
+     */
+    public synchronized double getErrorRate() {
+        return errorRate;
+    }
+
+    /**
+     * @return Expected cost of using the subservice, the average latency inflated by the error rate. Subservices
+     * without any successful requests yet have no cost, so that they are tried.
+     */
+    synchronized double getCost() {
+        if (latencySamples == 0) {
+            return requests == 0 ? 0.0 : Double.MAX_VALUE;
+        }
+        return averageLatencyNanos / Math.max(0.01, 1.0 - errorRate);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "SubServiceStatistics{outstandingRequests=" + outstandingRequests.get() +
+                ", averageLatencyMs=" + TimeUnit.NANOSECONDS.toMillis((long) averageLatencyNanos) +
+                ", errorRate=" + errorRate + "}";
+    }
+}
@@ -0,0 +1,332 @@
+/*
+ * Copyright 2013-2018 Guardtime, Inc.
+ *
+ *  This file is part of the Guardtime client SDK.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License").
+ *  You may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES, CONDITIONS, OR OTHER LICENSES OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ *  "Guardtime" and "KSI" are trademarks or registered trademarks of
+ *  Guardtime, Inc., and no license to trademarks is granted; Guardtime
+ *  reserves and retains all trademark rights.
+ *
+ */
+package com.guardtime.ksi.service.ha;
+
+import com.guardtime.ksi.exceptions.KSIException;
+import com.guardtime.ksi.hashing.DataHash;
+import com.guardtime.ksi.hashing.HashAlgorithm;
+import com.guardtime.ksi.pdu.AggregationResponse;
+import com.guardtime.ksi.service.Future;
+import com.guardtime.ksi.service.KSIProtocolException;
+import com.guardtime.ksi.service.KSISigningService;
+import com.guardtime.ksi.service.client.KSIClientException;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CircuitBreakerTest {
+
+    private static final DataHash DATA_HASH = new DataHash(HashAlgorithm.SHA2_256, new byte[32]);
+
+    @Test
+    public void testBreakerOpensAfterConsecutiveFailures() throws Exception {
+        AggregationResponse response = mock(AggregationResponse.class);
+        KSISigningService failing = signingService(CompletedFuture.<AggregationResponse>failed());
+        KSISigningService succeeding = signingService(new CompletedFuture<>(response));
+        SigningHAService haService = signingHAService(new CircuitBreakerSettings.Builder().setFailureThreshold(2).build(),
+                failing, succeeding);
+        record(haService.getSubServiceStatistics().get(0), 1);
+        record(haService.getSubServiceStatistics().get(1), 100);
+        RecordingListener listener = new RecordingListener();
+        haService.registerCircuitBreakerListener(listener);
+
+        for (int i = 0; i < 3; i++) {
+            Assert.assertSame(haService.sign(DATA_HASH, 0L).getResult(), response);
+        }
+
+        verify(failing, times(2)).sign(any(DataHash.class), anyLong());
+        Assert.assertEquals(haService.getCircuitBreakerStates(), Arrays.asList(CircuitBreakerState.OPEN, CircuitBreakerState.CLOSED));
+        Assert.assertEquals(listener.services, Collections.singletonList(failing));
+        Assert.assertEquals(listener.states, Collections.singletonList(CircuitBreakerState.OPEN));
+    }
+
+    @Test
+    public void testSuccessResetsConsecutiveFailures() {
+        CircuitBreaker breaker = new CircuitBreaker(0, new CircuitBreakerSettings.Builder().setFailureThreshold(2).build(), null);
+        breaker.requestCompleted(1, false);
+        breaker.requestCompleted(1, true);
+        breaker.requestCompleted(1, false);
+        Assert.assertEquals(breaker.getState(), CircuitBreakerState.CLOSED);
+        breaker.requestCompleted(1, false);
+        Assert.assertEquals(breaker.getState(), CircuitBreakerState.OPEN);
+    }
+
+    @Test
+    public void testSlowResponsesOpenBreaker() {
+        CircuitBreakerSettings settings = new CircuitBreakerSettings.Builder()
+                .setFailureThreshold(2)
+                .setLatencyThreshold(100, TimeUnit.MILLISECONDS)
+                .build();
+        CircuitBreaker breaker = new CircuitBreaker(0, settings, null);
+        breaker.requestCompleted(TimeUnit.MILLISECONDS.toNanos(150), true);
+        breaker.requestCompleted(TimeUnit.MILLISECONDS.toNanos(150), true);
+        Assert.assertEquals(breaker.getState(), CircuitBreakerState.OPEN);
+        Assert.assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    public void testHalfOpenProbeClosesBreaker() throws Exception {
+        CircuitBreakerSettings settings = new CircuitBreakerSettings.Builder()
+                .setFailureThreshold(1)
+                .setOpenDuration(10, TimeUnit.MILLISECONDS)
+                .build();
+        RecordingListener listener = new RecordingListener();
+        CircuitBreaker breaker = new CircuitBreaker(0, settings, listener.forSubservices(Collections.singletonList(mock(KSISigningService.class))));
+        breaker.requestCompleted(1, false);
+        Assert.assertFalse(breaker.isAvailable());
+
+        Thread.sleep(20);
+        Assert.assertTrue(breaker.tryAcquire());
+        Assert.assertEquals(breaker.getState(), CircuitBreakerState.HALF_OPEN);
+        Assert.assertFalse(breaker.tryAcquire(), "Only one probe is allowed");
+
+        breaker.requestCompleted(1, true);
+        Assert.assertEquals(breaker.getState(), CircuitBreakerState.CLOSED);
+        Assert.assertEquals(listener.states,
+                Arrays.asList(CircuitBreakerState.OPEN, CircuitBreakerState.HALF_OPEN, CircuitBreakerState.CLOSED));
+    }
+
+    @Test
+    public void testFailedProbeReopensBreaker() throws Exception {
+        CircuitBreakerSettings settings = new CircuitBreakerSettings.Builder()
+                .setFailureThreshold(1)
+                .setOpenDuration(10, TimeUnit.MILLISECONDS)
+                .build();
+        CircuitBreaker breaker = new CircuitBreaker(0, settings, null);
+        breaker.requestCompleted(1, false);
+        Thread.sleep(20);
+        Assert.assertTrue(breaker.tryAcquire());
+
+        breaker.requestCompleted(1, false);
+        Assert.assertEquals(breaker.getState(), CircuitBreakerState.OPEN);
+        Assert.assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    public void testLatencyOutlierIsEjected() {
+        CircuitBreakerSettings settings = new CircuitBreakerSettings.Builder()
+                .setOutlierLatencyFactor(3.0)
+                .setOutlierMinimumSamples(2)
+                .build();
+        List<SubServiceStatistics> statistics = SubServiceStatistics.createList(3);
+        SubServiceRouter router = new SubServiceRouter(RoutingStrategy.HEDGED_FASTEST_FIRST, statistics, settings, null);
+        for (int i = 0; i < 2; i++) {
+            complete(router, 0, 10);
+            complete(router, 1, 20);
+            complete(router, 2, 100);
+        }
+
+        Assert.assertEquals(router.getCircuitBreakerStates(),
+                Arrays.asList(CircuitBreakerState.CLOSED, CircuitBreakerState.CLOSED, CircuitBreakerState.OPEN));
+        Assert.assertEquals(router.order(), Arrays.asList(0, 1, 2));
+    }
+
+    @Test
+    public void testOpenSubserviceIsUsedLast() {
+        CircuitBreakerSettings settings = new CircuitBreakerSettings.Builder().setFailureThreshold(1).build();
+        List<SubServiceStatistics> statistics = SubServiceStatistics.createList(2);
+        SubServiceRouter router = new SubServiceRouter(RoutingStrategy.HEDGED_FASTEST_FIRST, statistics, settings, null);
+        complete(router, 0, 10);
+        complete(router, 1, 50);
+        router.getCircuitBreaker(0).requestCompleted(1, false);
+
+        Assert.assertEquals(router.order(), Arrays.asList(1, 0));
+    }
+
+    @Test
+    public void testRequestFailsFastWhenAllBreakersAreOpen() throws Exception {
+        KSISigningService failing = signingService(CompletedFuture.<AggregationResponse>failed());
+        SigningHAService haService = signingHAService(new CircuitBreakerSettings.Builder().setFailureThreshold(1).build(), failing);
+        try {
+            haService.sign(DATA_HASH, 0L).getResult();
+            Assert.fail("Expected exception was not thrown");
+        } catch (KSIClientException e) {
+            Assert.assertEquals(e.getMessage(), "All subclients of HAService failed");
+        }
+
+        try {
+            haService.sign(DATA_HASH, 0L).getResult();
+            Assert.fail("Expected exception was not thrown");
+        } catch (KSIClientException e) {
+            Assert.assertTrue(e.getCause().getMessage().contains("Circuit breaker"));
+        }
+        verify(failing, times(1)).sign(any(DataHash.class), anyLong());
+    }
+
+    @Test
+    public void testDisabledFailureThresholdNeverOpens() throws Exception {
+        KSISigningService failing = signingService(CompletedFuture.<AggregationResponse>failed());
+        SigningHAService haService = signingHAService(new CircuitBreakerSettings.Builder().setFailureThreshold(0).build(), failing);
+        for (int i = 0; i < 10; i++) {
+            try {
+                haService.sign(DATA_HASH, 0L).getResult();
+                Assert.fail("Expected exception was not thrown");
+            } catch (KSIClientException e) {
+                Assert.assertEquals(e.getMessage(), "All subclients of HAService failed");
+            }
+        }
+        verify(failing, times(10)).sign(any(DataHash.class), anyLong());
+        Assert.assertEquals(haService.getCircuitBreakerStates(), Collections.singletonList(CircuitBreakerState.CLOSED));
+    }
+
+    @Test
+    public void testRequestErrorStatusesDoNotOpenBreaker() throws Exception {
+        KSISigningService rejecting = signingService(CompletedFuture.<AggregationResponse>failed(
+                new KSIProtocolException(0x0101L, "Invalid request")));
+        SigningHAService haService = signingHAService(new CircuitBreakerSettings.Builder().setFailureThreshold(1).build(), rejecting);
+        for (int i = 0; i < 3; i++) {
+            try {
+                haService.sign(DATA_HASH, 0L).getResult();
+                Assert.fail("Expected exception was not thrown");
+            } catch (KSIClientException e) {
+                Assert.assertEquals(e.getMessage(), "All subclients of HAService failed");
+            }
+        }
+        verify(rejecting, times(3)).sign(any(DataHash.class), anyLong());
+        Assert.assertEquals(haService.getCircuitBreakerStates(), Collections.singletonList(CircuitBreakerState.CLOSED));
+    }
+
+    @Test
+    public void testOnlySubserviceFailuresAreCounted() {
+        Assert.assertTrue(RoutedCall.isSubserviceFailure(new KSIClientException("Connection refused")));
+        Assert.assertTrue(RoutedCall.isSubserviceFailure(new KSIProtocolException(0x0300L, "Internal error")));
+        Assert.assertTrue(RoutedCall.isSubserviceFailure(
+                new KSIClientException("Request failed", new KSIProtocolException(0x0301L, "Upstream error"))));
+        Assert.assertFalse(RoutedCall.isSubserviceFailure(new KSIProtocolException(0x0101L, "Invalid argument")));
+        Assert.assertFalse(RoutedCall.isSubserviceFailure(new KSIProtocolException(0x0200L, "Authentication error")));
+        Assert.assertFalse(RoutedCall.isSubserviceFailure(
+                new KSIClientException("Request failed", new KSIProtocolException("There is no suitable publication yet"))));
+    }
+
+    @Test
+    public void testBreakersAreDisabledByDefault() throws Exception {
+        KSISigningService failing = signingService(CompletedFuture.<AggregationResponse>failed());
+        SigningHAService haService = new SigningHAService.Builder()
+                .addServices(Collections.singletonList(failing))
+                .setRoutingStrategy(RoutingStrategy.HEDGED_FASTEST_FIRST)
+                .build();
+        for (int i = 0; i < 10; i++) {
+            try {
+                haService.sign(DATA_HASH, 0L).getResult();
+                Assert.fail("Expected exception was not thrown");
+            } catch (KSIClientException e) {
+                Assert.assertEquals(e.getMessage(), "All subclients of HAService failed");
+            }
+        }
+        verify(failing, times(10)).sign(any(DataHash.class), anyLong());
+        Assert.assertEquals(haService.getCircuitBreakerStates(), Collections.singletonList(CircuitBreakerState.CLOSED));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = "Circuit breaker outlier latency factor must be greater than 1 or 0")
+    public void testInvalidOutlierFactor() {
+        new CircuitBreakerSettings.Builder().setOutlierLatencyFactor(0.5);
+    }
+
+    private static void record(SubServiceStatistics statistics, long latencyMillis) {
+        statistics.requestStarted();
+        statistics.requestCompleted(TimeUnit.MILLISECONDS.toNanos(latencyMillis), true);
+    }
+
+    private static void complete(SubServiceRouter router, int subservice, long latencyMillis) {
+        router.requestCompleted(subservice, TimeUnit.MILLISECONDS.toNanos(latencyMillis), true);
+    }
+
+    private static SigningHAService signingHAService(CircuitBreakerSettings settings, KSISigningService... services) {
+        return new SigningHAService.Builder()
+                .addServices(Arrays.asList(services))
+                .setRoutingStrategy(RoutingStrategy.HEDGED_FASTEST_FIRST)
+                .setCircuitBreakerSettings(settings)
+                .build();
+    }
+
+    private static KSISigningService signingService(Future<AggregationResponse> future) throws KSIException {
+        KSISigningService service = mock(KSISigningService.class);
+        when(service.sign(any(DataHash.class), anyLong())).thenReturn(future);
+        return service;
+    }
+
+    private static final class RecordingListener implements CircuitBreakerListener<KSISigningService> {
+
+        private final List<KSISigningService> services = Collections.synchronizedList(new ArrayList<KSISigningService>());
+        private final List<CircuitBreakerState> states = Collections.synchronizedList(new ArrayList<CircuitBreakerState>());
+
+        public void stateChanged(KSISigningService subservice, CircuitBreakerState state) {
+            services.add(subservice);
+            states.add(state);
+        }
+
+        CircuitBreakerListeners<KSISigningService> forSubservices(List<KSISigningService> subservices) {
+            CircuitBreakerListeners<KSISigningService> listeners = new CircuitBreakerListeners<>(subservices);
+            listeners.registerListener(this);
+            return listeners;
+        }
+    }
+
+    private static final class CompletedFuture<T> implements Future<T> {
+
+        private final CompletableFuture<T> stage = new CompletableFuture<>();
+
+        CompletedFuture(T result) {
+            stage.complete(result);
+        }
+
+        private CompletedFuture(KSIException exception) {
+            stage.completeExceptionally(exception);
+        }
+
+        static <T> CompletedFuture<T> failed() {
+            return failed(new KSIException("Failed"));
+        }
+
+        static <T> CompletedFuture<T> failed(KSIException exception) {
+            return new CompletedFuture<>(exception);
+        }
+
+        public T getResult() throws KSIException {
+            try {
+                return stage.get();
+            } catch (Exception e) {
+                throw new KSIException("Failed", e);
+            }
+        }
+
+        public boolean isFinished() {
+            return true;
+        }
+
+        public CompletionStage<T> toCompletionStage() {
+            return stage;
+        }
+    }
+}
@@ -69,22 +69,36 @@ public class HAServiceTest {
         new ExtendingHAService.Builder().build();
     }
 
-    @Test(expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = "SigningHAService can not be initialized with more than 3 combined subservices or subclients")
-    public void testInitSigningHaServiceWithTooMuchSubclients() throws Exception {
-        new SigningHAService.Builder().addServices(Arrays.asList(
-                initSlowSigningClient(),
-                initSlowSigningClient(),
-                initSlowSigningClient(),
-                initSlowSigningClient())).build();
+    @Test
+    public void testInitSigningHaServiceWithTenSubclients() throws Exception {
+        List<KSISigningService> services = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            services.add(initSlowSigningClient());
+        }
+        SigningHAService haService = new SigningHAService.Builder().addServices(services).build();
+        assertEquals(haService.getSubSigningServices().size(), 10);
+        assertEquals(haService.getSubServiceStatistics().size(), 10);
     }
 
-    @Test(expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = "ExtendingHAService can not be initialized with more than 3 subservices")
-    public void testInitExtendingHAServiceWithTooMuchSubclients() throws Exception {
-        new ExtendingHAService.Builder().addServices(Arrays.asList(
-                initSlowExtenderClient(),
-                initSlowExtenderClient(),
-                initSlowExtenderClient(),
-                initSlowExtenderClient())).build();
+    @Test
+    public void testInitExtendingHAServiceWithTenSubclients() throws Exception {
+        List<KSIExtendingService> services = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            services.add(initSlowExtenderClient());
+        }
+        ExtendingHAService haService = new ExtendingHAService.Builder().addServices(services).build();
+        assertEquals(haService.getSubExtendingServices().size(), 10);
+        assertEquals(haService.getSubServiceStatistics().size(), 10);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = "SigningHAService subservice weight must be positive")
+    public void testInitSigningHaServiceWithInvalidWeight() throws Exception {
+        new SigningHAService.Builder().addService(initSlowSigningClient(), 0);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = "ExtendingHAService fan-out can not be negative")
+    public void testInitExtendingHaServiceWithInvalidFanOut() {
+        new ExtendingHAService.Builder().setFanOut(-1);
     }
 
     @Test
@@ -234,6 +248,35 @@ public class HAServiceTest {
         assertEquals(extenderConsolidatedConf.getMaximumRequests(), new Long(300));
     }
 
+    @Test
+    public void testSigningConfigurationConsolidationOverTenSubservices() throws Exception {
+        final AsyncContext context = new AsyncContext(1);
+        List<KSISigningService> signingServices = new ArrayList<>();
+        for (long i = 1; i <= 10; i++) {
+            signingServices.add(new DummyClient(i * 10));
+        }
+        SigningHAService signingHAService = new SigningHAService.Builder().addServices(signingServices).build();
+        signingHAService.registerAggregatorConfigurationListener(new ConfigurationListener<AggregatorConfiguration>() {
+            public void updated(AggregatorConfiguration configuration) {
+                if (Long.valueOf(100).equals(configuration.getMaximumRequests())) {
+                    setConsolidatedConf(configuration);
+                    context.succeed();
+                }
+            }
+
+            public void updateFailed(Throwable t) {
+                try {
+                    Assert.fail("Configuration update failed", t);
+                } catch (AssertionError e) {
+                    context.fail(e);
+                }
+            }
+        });
+        signingHAService.getAggregationConfiguration();
+        context.await();
+        assertEquals(aggregatorConsolidatedConf.getMaximumRequests(), new Long(100));
+    }
+
     private KSISigningService initSucceedingSigningClient(final AggregationResponse subclientResponse) throws KSIException {
         KSISigningService succeedingClient = mock(KSISigningService.class);
         when(succeedingClient.sign(any(DataHash.class), anyLong())).thenReturn(new Future<AggregationResponse>() {
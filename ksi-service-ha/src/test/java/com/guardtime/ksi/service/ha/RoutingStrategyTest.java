@@ -0,0 +1,385 @@
+/*
+ * Copyright 2013-2018 Guardtime, Inc.
+ *
+ *  This file is part of the Guardtime client SDK.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License").
+ *  You may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES, CONDITIONS, OR OTHER LICENSES OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ *  "Guardtime" and "KSI" are trademarks or registered trademarks of
+ *  Guardtime, Inc., and no license to trademarks is granted; Guardtime
+ *  reserves and retains all trademark rights.
+ *
+ */
+package com.guardtime.ksi.service.ha;
+
+import com.guardtime.ksi.exceptions.KSIException;
+import com.guardtime.ksi.hashing.DataHash;
+import com.guardtime.ksi.hashing.HashAlgorithm;
+import com.guardtime.ksi.pdu.AggregationResponse;
+import com.guardtime.ksi.pdu.ExtensionResponse;
+import com.guardtime.ksi.service.Future;
+import com.guardtime.ksi.service.KSIExtendingService;
+import com.guardtime.ksi.service.KSISigningService;
+import com.guardtime.ksi.service.client.KSIClientException;
+import org.mockito.Mockito;
+import org.mockito.invocation.Invocation;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RoutingStrategyTest {
+
+    private static final DataHash DATA_HASH = new DataHash(HashAlgorithm.SHA2_256, new byte[32]);
+
+    @Test
+    public void testBroadcastSendsToAllSubservicesWithoutWaiting() throws Exception {
+        AggregationResponse response = mock(AggregationResponse.class);
+        StubFuture<AggregationResponse> unanswered = new StubFuture<>();
+        StubFuture<AggregationResponse> answered = new StubFuture<>();
+        KSISigningService first = signingService(unanswered);
+        KSISigningService second = signingService(answered);
+        SigningHAService haService = new SigningHAService.Builder()
+                .addServices(Arrays.asList(first, second))
+                .setExecutorService(rejectingExecutor())
+                .build();
+
+        Future<AggregationResponse> future = haService.sign(DATA_HASH, 0L);
+        verify(first).sign(any(DataHash.class), anyLong());
+        verify(second).sign(any(DataHash.class), anyLong());
+        Assert.assertFalse(future.isFinished());
+        Assert.assertEquals(haService.getSubServiceStatistics().get(0).getOutstandingRequests(), 1);
+        Assert.assertEquals(haService.getSubServiceStatistics().get(1).getOutstandingRequests(), 1);
+
+        answered.stage.complete(response);
+        Assert.assertTrue(future.isFinished());
+        Assert.assertSame(future.getResult(), response);
+        Assert.assertEquals(haService.getSubServiceStatistics().get(1).getCompletedRequests(), 1);
+    }
+
+    @Test
+    public void testBroadcastFailsOnlyWhenAllSubservicesFail() throws Exception {
+        StubFuture<ExtensionResponse> pending = new StubFuture<>();
+        KSIExtendingService failing = extendingService(StubFuture.<ExtensionResponse>failed(new KSIException("Failed")));
+        KSIExtendingService answering = extendingService(pending);
+        ExtendingHAService haService = new ExtendingHAService.Builder()
+                .addServices(Arrays.asList(failing, answering))
+                .setExecutorService(rejectingExecutor())
+                .build();
+
+        Future<ExtensionResponse> future = haService.extend(new Date(), null);
+        Assert.assertFalse(future.isFinished());
+
+        pending.stage.completeExceptionally(new KSIException("Failed too"));
+        try {
+            future.getResult();
+            Assert.fail("Expected exception was not thrown");
+        } catch (KSIClientException e) {
+            Assert.assertEquals(e.getMessage(), "All subclients of HAService failed");
+        }
+    }
+
+    @Test
+    public void testBroadcastFanOutSpreadsRequestsByWeight() throws Exception {
+        KSISigningService heavy = signingService(new StubFuture<AggregationResponse>());
+        KSISigningService light1 = signingService(new StubFuture<AggregationResponse>());
+        KSISigningService light2 = signingService(new StubFuture<AggregationResponse>());
+        KSISigningService light3 = signingService(new StubFuture<AggregationResponse>());
+        SigningHAService haService = new SigningHAService.Builder()
+                .addService(heavy, 3)
+                .addServices(Arrays.asList(light1, light2, light3))
+                .setFanOut(2)
+                .setExecutorService(rejectingExecutor())
+                .build();
+
+        for (int i = 0; i < 12; i++) {
+            haService.sign(DATA_HASH, 0L);
+        }
+
+        int heavyRequests = signRequests(heavy);
+        int lightRequests = 0;
+        for (KSISigningService light : Arrays.asList(light1, light2, light3)) {
+            int requests = signRequests(light);
+            Assert.assertTrue(requests >= 3 && requests <= 5, "Light subservice got " + requests + " requests");
+            lightRequests += requests;
+        }
+        Assert.assertEquals(heavyRequests + lightRequests, 24);
+        Assert.assertTrue(heavyRequests >= 10, "Heavy subservice got " + heavyRequests + " requests");
+    }
+
+    @Test
+    public void testFanOutFailsOverToRemainingSubservices() throws Exception {
+        AggregationResponse response = mock(AggregationResponse.class);
+        KSISigningService failing = signingService(StubFuture.<AggregationResponse>failed(new KSIException("Failed")));
+        KSISigningService succeeding = signingService(new StubFuture<>(response));
+        KSISigningService unused = signingService(new StubFuture<>(response));
+        SigningHAService haService = new SigningHAService.Builder()
+                .addServices(Arrays.asList(failing, succeeding, unused))
+                .setFanOut(1)
+                .build();
+
+        Assert.assertSame(haService.sign(DATA_HASH, 0L).getResult(), response);
+        verify(failing).sign(any(DataHash.class), anyLong());
+        verify(unused, never()).sign(any(DataHash.class), anyLong());
+    }
+
+    @Test
+    public void testLeastOutstandingIsWeighted() throws Exception {
+        KSISigningService heavy = signingService(new StubFuture<AggregationResponse>());
+        KSISigningService light = signingService(new StubFuture<AggregationResponse>());
+        SigningHAService haService = new SigningHAService.Builder()
+                .addService(heavy, 2)
+                .addService(light, 1)
+                .setRoutingStrategy(RoutingStrategy.LEAST_OUTSTANDING)
+                .build();
+
+        for (int i = 0; i < 6; i++) {
+            haService.sign(DATA_HASH, 0L);
+        }
+
+        verify(heavy, times(4)).sign(any(DataHash.class), anyLong());
+        verify(light, times(2)).sign(any(DataHash.class), anyLong());
+    }
+
+    @Test
+    public void testFastestSubserviceIsUsedFirst() throws Exception {
+        AggregationResponse response = mock(AggregationResponse.class);
+        KSISigningService slow = signingService(new StubFuture<>(response));
+        KSISigningService fast = signingService(new StubFuture<>(response));
+        SigningHAService haService = signingHAService(RoutingStrategy.HEDGED_FASTEST_FIRST, slow, fast);
+        record(haService.getSubServiceStatistics().get(0), 50);
+        record(haService.getSubServiceStatistics().get(1), 5);
+
+        Assert.assertSame(haService.sign(DATA_HASH, 0L).getResult(), response);
+        verify(fast).sign(any(DataHash.class), anyLong());
+        verify(slow, never()).sign(any(DataHash.class), anyLong());
+    }
+
+    @Test
+    public void testRequestIsHedgedAfterPercentile95Latency() throws Exception {
+        AggregationResponse response = mock(AggregationResponse.class);
+        StubFuture<AggregationResponse> unanswered = new StubFuture<>();
+        KSISigningService hanging = signingService(unanswered);
+        KSISigningService answering = signingService(new StubFuture<>(response));
+        SigningHAService haService = signingHAService(RoutingStrategy.HEDGED_FASTEST_FIRST, hanging, answering);
+        record(haService.getSubServiceStatistics().get(0), 10);
+        record(haService.getSubServiceStatistics().get(1), 20);
+
+        Future<AggregationResponse> future = haService.sign(DATA_HASH, 0L);
+
+        Assert.assertSame(future.toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS), response);
+        verify(hanging).sign(any(DataHash.class), anyLong());
+        verify(answering).sign(any(DataHash.class), anyLong());
+        Assert.assertEquals(haService.getSubServiceStatistics().get(0).getOutstandingRequests(), 1);
+    }
+
+    @Test
+    public void testHedgedRequestIsNotSentOnTimerThread() throws Exception {
+        final AggregationResponse response = mock(AggregationResponse.class);
+        final AtomicReference<String> sendingThread = new AtomicReference<>();
+        KSISigningService hanging = signingService(new StubFuture<AggregationResponse>());
+        KSISigningService answering = mock(KSISigningService.class);
+        when(answering.sign(any(DataHash.class), anyLong())).thenAnswer(new Answer<Future<AggregationResponse>>() {
+            public Future<AggregationResponse> answer(InvocationOnMock invocation) {
+                sendingThread.set(Thread.currentThread().getName());
+                return new StubFuture<>(response);
+            }
+        });
+        SigningHAService haService = signingHAService(RoutingStrategy.HEDGED_FASTEST_FIRST, hanging, answering);
+        record(haService.getSubServiceStatistics().get(0), 10);
+        record(haService.getSubServiceStatistics().get(1), 20);
+
+        Future<AggregationResponse> future = haService.sign(DATA_HASH, 0L);
+
+        Assert.assertSame(future.toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS), response);
+        Assert.assertNotEquals(sendingThread.get(), "ksi-ha-hedge");
+    }
+
+    @Test
+    public void testFailedRequestIsSentToNextSubservice() throws Exception {
+        ExtensionResponse response = mock(ExtensionResponse.class);
+        KSIExtendingService failing = extendingService(StubFuture.<ExtensionResponse>failed(new KSIException("Failed")));
+        KSIExtendingService succeeding = extendingService(new StubFuture<>(response));
+        KSIExtendingService unused = extendingService(new StubFuture<>(response));
+        ExtendingHAService haService = new ExtendingHAService.Builder()
+                .addServices(Arrays.asList(failing, succeeding, unused))
+                .setRoutingStrategy(RoutingStrategy.LEAST_OUTSTANDING)
+                .build();
+        record(haService.getSubServiceStatistics().get(0), 1);
+        record(haService.getSubServiceStatistics().get(1), 2);
+        record(haService.getSubServiceStatistics().get(2), 3);
+
+        Assert.assertSame(haService.extend(new Date(), null).getResult(), response);
+        verify(unused, never()).extend(any(Date.class), any(Date.class));
+        Assert.assertTrue(haService.getSubServiceStatistics().get(0).getErrorRate() > 0.0);
+    }
+
+    @Test
+    public void testRequestFailsWhenAllSubservicesFail() throws Exception {
+        KSISigningService first = signingService(StubFuture.<AggregationResponse>failed(new KSIException("First failed")));
+        KSISigningService second = mock(KSISigningService.class);
+        when(second.sign(any(DataHash.class), anyLong())).thenThrow(new KSIException("Second failed"));
+        SigningHAService haService = signingHAService(RoutingStrategy.WEIGHTED_ROUND_ROBIN, first, second);
+
+        try {
+            haService.sign(DATA_HASH, 0L).getResult();
+            Assert.fail("Expected exception was not thrown");
+        } catch (KSIClientException e) {
+            Assert.assertEquals(e.getMessage(), "All subclients of HAService failed");
+        }
+    }
+
+    @Test
+    public void testRequestIsSentToSubserviceWithLeastOutstandingRequests() throws Exception {
+        KSISigningService busy = signingService(new StubFuture<AggregationResponse>());
+        KSISigningService idle = signingService(new StubFuture<AggregationResponse>());
+        SigningHAService haService = signingHAService(RoutingStrategy.LEAST_OUTSTANDING, busy, idle);
+        record(haService.getSubServiceStatistics().get(0), 1);
+        record(haService.getSubServiceStatistics().get(1), 10);
+
+        haService.sign(DATA_HASH, 0L);
+        haService.sign(DATA_HASH, 0L);
+
+        verify(busy, times(1)).sign(any(DataHash.class), anyLong());
+        verify(idle, times(1)).sign(any(DataHash.class), anyLong());
+    }
+
+    @Test
+    public void testWeightedRoundRobinFavoursFasterSubservice() throws Exception {
+        AggregationResponse response = mock(AggregationResponse.class);
+        KSISigningService fast = signingService(new StubFuture<>(response));
+        KSISigningService slow = signingService(new StubFuture<>(response));
+        SigningHAService haService = signingHAService(RoutingStrategy.WEIGHTED_ROUND_ROBIN, fast, slow);
+        SubServiceRouter router = new SubServiceRouter(RoutingStrategy.WEIGHTED_ROUND_ROBIN, haService.getSubServiceStatistics());
+        record(haService.getSubServiceStatistics().get(0), 10);
+        record(haService.getSubServiceStatistics().get(1), 30);
+
+        int fastFirst = 0;
+        for (int i = 0; i < 8; i++) {
+            if (router.order().get(0) == 0) {
+                fastFirst++;
+            }
+        }
+        Assert.assertEquals(fastFirst, 6);
+    }
+
+    @Test
+    public void testStatisticsAreMovingAverages() {
+        SubServiceStatistics statistics = new SubServiceStatistics();
+        statistics.requestStarted();
+        statistics.requestCompleted(TimeUnit.MILLISECONDS.toNanos(10), true);
+        statistics.requestStarted();
+        statistics.requestCompleted(TimeUnit.MILLISECONDS.toNanos(20), true);
+        statistics.requestStarted();
+        statistics.requestCompleted(TimeUnit.MILLISECONDS.toNanos(1), false);
+
+        Assert.assertEquals(statistics.getAverageLatency(TimeUnit.MILLISECONDS), 12);
+        Assert.assertTrue(statistics.getLatencyPercentile95(TimeUnit.MILLISECONDS) > 12);
+        Assert.assertEquals(statistics.getErrorRate(), 0.2, 0.0001);
+        Assert.assertEquals(statistics.getLatencySamples(), 2);
+        Assert.assertEquals(statistics.getCompletedRequests(), 3);
+        Assert.assertEquals(statistics.getOutstandingRequests(), 0);
+    }
+
+    /**
+     * Executor that rejects all the tasks, so the requests are sent on the calling thread.
+     */
+    private static ExecutorService rejectingExecutor() {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.shutdown();
+        return executor;
+    }
+
+    private static int signRequests(KSISigningService service) {
+        int requests = 0;
+        for (Invocation invocation : mockingDetails(service).getInvocations()) {
+            if (invocation.getMethod().getName().equals("sign")) {
+                requests++;
+            }
+        }
+        return requests;
+    }
+
+    private static void record(SubServiceStatistics statistics, long latencyMillis) {
+        statistics.requestStarted();
+        statistics.requestCompleted(TimeUnit.MILLISECONDS.toNanos(latencyMillis), true);
+    }
+
+    private static SigningHAService signingHAService(RoutingStrategy strategy, KSISigningService... services) {
+        return new SigningHAService.Builder()
+                .addServices(Arrays.asList(services))
+                .setRoutingStrategy(strategy)
+                .build();
+    }
+
+    private static KSISigningService signingService(Future<AggregationResponse> future) throws KSIException {
+        KSISigningService service = mock(KSISigningService.class);
+        when(service.sign(any(DataHash.class), anyLong())).thenReturn(future);
+        return service;
+    }
+
+    private static KSIExtendingService extendingService(Future<ExtensionResponse> future) throws KSIException {
+        KSIExtendingService service = mock(KSIExtendingService.class);
+        when(service.extend(any(Date.class), any(Date.class))).thenReturn(future);
+        return service;
+    }
+
+    private static final class StubFuture<T> implements Future<T> {
+
+        private final CompletableFuture<T> stage = new CompletableFuture<>();
+
+        StubFuture() {
+        }
+
+        StubFuture(T result) {
+            stage.complete(result);
+        }
+
+        static <T> StubFuture<T> failed(KSIException e) {
+            StubFuture<T> future = new StubFuture<>();
+            future.stage.completeExceptionally(e);
+            return future;
+        }
+
+        public T getResult() throws KSIException {
+            try {
+                return stage.get();
+            } catch (Exception e) {
+                throw new KSIException("Failed", e);
+            }
+        }
+
+        public boolean isFinished() {
+            return stage.isDone();
+        }
+
+        public CompletionStage<T> toCompletionStage() {
+            return stage;
+        }
+    }
+}